@@ -15,13 +15,47 @@
  */
 package jackAudio4Java;
 
+import jackAudio4Java.buffers.CycleClock;
 import jackAudio4Java.types.ClientHandle;
+import jackAudio4Java.types.FrameClock;
+
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Instances of this class shall not be created by any object other than {@link Jack}.
  */
 class InternalClientHandle extends ClientHandle {
 
+  /**
+   * Tells which process cycle of this client is running.
+   */
+  private final CycleClock clock = new CycleClock();
+
+  /**
+   * Answers the static clock functions of {@link Jack}.
+   */
+  private final FrameClock frameClock = new Jack.NativeFrameClock(this);
+
+  /**
+   * The port registry of this client, null until it is requested.
+   */
+  private volatile PortRegistry portRegistry;
+
+  /**
+   * The canonical handles of the ports used by this client.
+   */
+  private final PortTable ports = new PortTable();
+
+  /**
+   * Counts the rendered frames while {@link Jack#render} is running, null otherwise.
+   */
+  private final AtomicReference<RenderCountdown> render = new AtomicReference<>();
+
+  /**
+   * True while the server is freewheeling, as reported by the native freewheel callback.
+   */
+  private volatile boolean freewheeling = false;
+
   InternalClientHandle(long reference) {
     this.reference = reference;
   }
@@ -30,6 +64,66 @@ class InternalClientHandle extends ClientHandle {
     return reference;
   }
 
+  CycleClock getClock() {
+    return clock;
+  }
+
+  @Override
+  public FrameClock getFrameClock() {
+    return frameClock;
+  }
+
+  PortTable getPorts() {
+    return ports;
+  }
+
+  PortRegistry getPortRegistry() {
+    return portRegistry;
+  }
+
+  void setPortRegistry(PortRegistry portRegistry) {
+    this.portRegistry = portRegistry;
+  }
+
+  /**
+   * @return false if another render is already running.
+   */
+  boolean startRender(RenderCountdown countdown) {
+    return render.compareAndSet(null, countdown);
+  }
+
+  void stopRender(RenderCountdown countdown) {
+    render.compareAndSet(countdown, null);
+  }
+
+  /**
+   * Called by the process thread at the end of every cycle.
+   *
+   * @param nframes the number of frames processed in the cycle.
+   */
+  void cycleDone(int nframes) {
+    RenderCountdown countdown = render.get();
+    // only cycles run in freewheel mode are rendered, the switch to freewheel mode is asynchronous.
+    if (countdown != null && isFreewheeling()) countdown.onCycle(nframes);
+  }
+
+  /**
+   * @return true if the freewheel callback of this client has reported that the server is freewheeling.
+   */
+  boolean isFreewheeling() {
+    return freewheeling;
+  }
+
+  /**
+   * Called by the native freewheel callback (in the notification thread of JACK),
+   * so that the process thread can read the freewheel state without crossing into native code.
+   *
+   * @param starting true if freewheel mode starts, false if it stops.
+   */
+  void onFreewheel(boolean starting) {
+    freewheeling = starting;
+  }
+
   /**
    * Call this function when closing the client.
    */
@@ -45,7 +139,7 @@ class InternalClientHandle extends ClientHandle {
    * InternalClientHandle.
    */
   static long getReferenceFrom(ClientHandle handle){
-    if(!handle.isValid()){
+    if(handle == null || !handle.isValid()){
       return 0;
     }
     if (!(handle instanceof InternalClientHandle)){
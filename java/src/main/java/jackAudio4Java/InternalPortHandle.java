@@ -16,6 +16,8 @@
 package jackAudio4Java;
 
 
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
 import jackAudio4Java.types.PortFlag;
 import jackAudio4Java.types.PortHandle;
 import jackAudio4Java.types.PortType;
@@ -27,21 +29,83 @@ import java.util.Set;
  */
 class InternalPortHandle extends PortHandle {
 
+  /**
+   * A slice wrapping the JACK buffer of this port, as returned by the last call to
+   * {@link Jack#portGetAudioData(PortHandle, int)}. It is only accessed from the process thread.
+   */
+  private ImmutableAudioSlice audioView;
 
+  /**
+   * The clock of the client this port was obtained from (may be `null`).
+   */
+  private final CycleClock clock;
 
   InternalPortHandle(long reference) {
+    this(reference, null);
+  }
+
+  InternalPortHandle(long reference, CycleClock clock) {
     super (reference);
+    this.clock = clock;
   }
 
   long getReference() {
     return reference;
   }
 
+  /**
+   * The full name of the port, as reported by JACK on first request.
+   */
+  private volatile String name;
+
+  /**
+   * The short name of the port, as reported by JACK on first request.
+   */
+  private volatile String shortName;
+
   /**
    * Call this function when closing the port.
    */
   void invalidate() {
     reference = 0;
+    audioView = null;
+    forgetNames();
+  }
+
+  String getName() {
+    return name;
+  }
+
+  void setName(String name) {
+    this.name = name;
+  }
+
+  String getShortName() {
+    return shortName;
+  }
+
+  void setShortName(String shortName) {
+    this.shortName = shortName;
+  }
+
+  /**
+   * Drop the cached names, when the port has been renamed.
+   */
+  void forgetNames() {
+    name = null;
+    shortName = null;
+  }
+
+  ImmutableAudioSlice getAudioView() {
+    return audioView;
+  }
+
+  void setAudioView(ImmutableAudioSlice audioView) {
+    this.audioView = audioView;
+  }
+
+  CycleClock getClock() {
+    return clock;
   }
 }
 
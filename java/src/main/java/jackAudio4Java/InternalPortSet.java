@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.types.PortSet;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link Jack}.
+ * <p>
+ * The data of all input ports is kept in one contiguous direct buffer, and so is
+ * the data of all output ports. Port `i` occupies the region starting at `i * capacity`.
+ */
+class InternalPortSet extends PortSet {
+
+  private final FloatBuffer inputBuffer;
+  private final FloatBuffer outputBuffer;
+  private final int capacity;
+
+  /**
+   * The number of frames the slices have been prepared for.
+   */
+  private int frames;
+
+  InternalPortSet(int inputCount, int outputCount, int capacity) {
+    this.capacity = capacity;
+    this.frames = capacity;
+    inputBuffer = Manager.makeDirectFloatBuffer(Math.max(1, inputCount * capacity));
+    outputBuffer = Manager.makeDirectFloatBuffer(Math.max(1, outputCount * capacity));
+
+    inputs = new ImmutableAudioSlice[inputCount];
+    for (int i = 0; i < inputCount; i++) {
+      inputs[i] = Manager.wrap(region(inputBuffer, i));
+    }
+    outputs = new MutableAudioSlice[outputCount];
+    for (int i = 0; i < outputCount; i++) {
+      outputs[i] = Manager.wrapMutable(region(outputBuffer, i));
+    }
+  }
+
+  /**
+   * @return a view on the part of the given buffer that belongs to port `index`.
+   */
+  private FloatBuffer region(FloatBuffer buffer, int index) {
+    buffer.limit(index * capacity + capacity);
+    buffer.position(index * capacity);
+    FloatBuffer view = buffer.slice();
+    buffer.clear();
+    return view;
+  }
+
+  long getReference() {
+    return reference;
+  }
+
+  void setReference(long reference) {
+    this.reference = reference;
+  }
+
+  FloatBuffer getInputBuffer() {
+    return inputBuffer;
+  }
+
+  FloatBuffer getOutputBuffer() {
+    return outputBuffer;
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Make the slices report the number of frames of the current cycle.
+   * This only costs something when the period size changes.
+   *
+   * @param nframes the number of frames in the current cycle.
+   */
+  void prepareFrames(int nframes) {
+    if (nframes == frames) return;
+    for (ImmutableAudioSlice input : inputs) {
+      ((InternalAudioSlice) input).accessInternalBuffer().limit(nframes);
+    }
+    for (MutableAudioSlice output : outputs) {
+      ((InternalAudioSlice) output).accessInternalBuffer().limit(nframes);
+    }
+    frames = nframes;
+  }
+
+  /**
+   * Call this function when releasing the port set.
+   */
+  void invalidate() {
+    reference = 0;
+  }
+}
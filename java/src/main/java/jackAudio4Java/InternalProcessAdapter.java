@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.types.ProcessListener;
+
+/**
+ * Stands between the native process callback and the process listener of the user.
+ * <p>
+ * The native callback calls {@link #onCycle(int, long)} (the name and signature are
+ * known to the native code). The adapter keeps the {@link CycleClock} of the client
+ * up to date around the call of the listener and reports every finished cycle to the client.
+ */
+class InternalProcessAdapter {
+
+  private final ProcessListener listener;
+  private final InternalClientHandle client;
+  private final CycleClock clock;
+
+  InternalProcessAdapter(ProcessListener listener, InternalClientHandle client) {
+    this.listener = listener;
+    this.client = client;
+    this.clock = client.getClock();
+  }
+
+  /**
+   * Called by the native process callback.
+   *
+   * @param nframes       the number of frames to process.
+   * @param lastFrameTime the frame time at the start of this cycle.
+   * @return the value returned by the listener.
+   */
+  int onCycle(int nframes, long lastFrameTime) {
+    clock.begin(lastFrameTime, nframes);
+    try {
+      return listener.onProcess(nframes);
+    } finally {
+      clock.end();
+      client.cycleDone(nframes);
+    }
+  }
+}
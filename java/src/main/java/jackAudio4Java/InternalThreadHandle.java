@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import jackAudio4Java.types.ThreadHandle;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link Jack}.
+ */
+class InternalThreadHandle extends ThreadHandle {
+
+  InternalThreadHandle(long reference) {
+    this.reference = reference;
+  }
+
+  /**
+   * Take the reference out of the handle, so that the thread can be joined only once.
+   *
+   * @return the reference, or zero if the thread has already been joined.
+   */
+  synchronized long release() {
+    long result = reference;
+    reference = 0;
+    return result;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import jackAudio4Java.types.TimebaseListener;
+import jackAudio4Java.types.TransportPosition;
+import jackAudio4Java.types.TransportState;
+
+/**
+ * Stands between the native timebase callback and the timebase listener of the user.
+ * <p>
+ * The native callback copies the position it receives from JACK into the buffer of
+ * {@link #position}, calls {@link #onTimebase(int, int, boolean)} (the name and signature
+ * are known to the native code) and copies the buffer back. Thus no object is created per cycle.
+ */
+class InternalTimebaseAdapter {
+
+  private final TimebaseListener listener;
+  final TransportPosition position = new TransportPosition();
+
+  InternalTimebaseAdapter(TimebaseListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Called by the native timebase callback.
+   *
+   * @param state       the native transport state.
+   * @param nframes     the number of frames in the current period.
+   * @param newPosition true for a newly requested position.
+   */
+  void onTimebase(int state, int nframes, boolean newPosition) {
+    listener.onTimebase(TransportState.fromCode(state), nframes, position, newPosition);
+  }
+}
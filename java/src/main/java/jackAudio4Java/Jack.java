@@ -15,14 +15,30 @@
  */
 package jackAudio4Java;
 
+import jackAudio4Java.buffers.AudioSlice;
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
 import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.Manager;
 import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.patchbay.Connection;
+import jackAudio4Java.patchbay.Diff;
+import jackAudio4Java.patchbay.Snapshot;
 import jackAudio4Java.types.*;
 import jackAudio4Java.utilities.NotYetImplementedException;
 import jackAudio4Java.utilities.SuppressFBWarnings;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -42,13 +58,59 @@ import static jackAudio4Java.types.PortType.defaultAudio;
  */
 public class Jack {
 
+  /**
+   * The system property that selects the backend returned by {@link #server()}.
+   * <p>
+   * Possible values are {@value #JNI_BACKEND} (the default), {@value #PANAMA_BACKEND},
+   * {@value #SIMULATED_BACKEND} or the fully qualified name of a class that extends `Jack`.
+   */
+  public static final String BACKEND_PROPERTY = "jackAudio4Java.backend";
+
+  /**
+   * The name of the default backend, which uses the JNI library `libjackAudio4Java.so`.
+   */
+  public static final String JNI_BACKEND = "jni";
+
+  /**
+   * The name of the backend that calls `libjack` directly through `java.lang.foreign`
+   * (needs the `panama` module and Java 22 or newer).
+   */
+  public static final String PANAMA_BACKEND = "panama";
+
+  /**
+   * The name of the backend that simulates a JACK server in Java, with a virtual clock
+   * (see `jackAudio4Java.simulation.SimulatedJack`).
+   */
+  public static final String SIMULATED_BACKEND = "simulated";
+
+  private static final String PANAMA_BACKEND_CLASS = "jackAudio4Java.panama.PanamaJack";
+  private static final String SIMULATED_BACKEND_CLASS = "jackAudio4Java.simulation.SimulatedJack";
+
   private static volatile Jack instance;
   private static final Object creationLock = new Object();
+  private static final Map<String, Jack> backends = new HashMap<>();
 
   private Jack() {
-    NativeManager.checkNative();
+    this(true);
+  }
+
+  /**
+   * Constructor for alternative backends.
+   * <p>
+   * A backend that does not use the JNI library must override every public method it supports.
+   *
+   * @param loadNativeLibrary true if the JNI library shall be loaded.
+   */
+  protected Jack(boolean loadNativeLibrary) {
+    if (loadNativeLibrary) {
+      NativeManager.checkNative();
+      NativeLog.start();
+    }
   }
 
+  /**
+   * @return the backend selected by the system property {@value #BACKEND_PROPERTY}.
+   */
   public static Jack server() {
     Jack result = instance;
     if (result == null) {
@@ -57,12 +119,42 @@ public class Jack {
           throw new RuntimeException("Jack cannot be run on this installation.");
         result = instance;
         if (result == null)
-          instance = result = new Jack();
+          instance = result = backend(System.getProperty(BACKEND_PROPERTY, JNI_BACKEND));
       }
     }
     return result;
   }
 
+  /**
+   * Get a specific backend, regardless of the system property {@value #BACKEND_PROPERTY}.
+   * This is useful to compare several backends in one process.
+   *
+   * @param name {@value #JNI_BACKEND}, {@value #PANAMA_BACKEND}, {@value #SIMULATED_BACKEND} or the fully qualified name
+   *             of a class that extends `Jack` and has a public no-argument constructor.
+   * @return the (single) instance of the requested backend.
+   */
+  public static Jack backend(String name) {
+    synchronized (creationLock) {
+      Jack result = backends.get(name);
+      if (result == null) {
+        result = createBackend(name);
+        backends.put(name, result);
+      }
+      return result;
+    }
+  }
+
+  private static Jack createBackend(String name) {
+    if (JNI_BACKEND.equals(name)) return new Jack();
+    String className = PANAMA_BACKEND.equals(name) ? PANAMA_BACKEND_CLASS
+        : SIMULATED_BACKEND.equals(name) ? SIMULATED_BACKEND_CLASS : name;
+    try {
+      return Class.forName(className).asSubclass(Jack.class).getConstructor().newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new RuntimeException("Cannot create the Jack backend \"" + name + "\".", e);
+    }
+  }
+
   private final static int NATIVE_LEVEL_TRACE = 0;
   private final static int NATIVE_LEVEL_DEBUG = 1;
   private final static int NATIVE_LEVEL_INFO = 2;
@@ -112,11 +204,31 @@ public class Jack {
    * @param level the level as defined in java.util.logging.Level
    */
   public void setLoggingLevel(Level level) {
+    NativeLog.setLevel(level);
     setLoggingLevelN(julToNativeLogginglevel(level));
   }
 
   private native static void setLoggingLevelN(int level);
 
+  /**
+   * Get the number of native log records that have been dropped.
+   * <p>
+   * The native library never writes its log itself, not even from the real-time threads of JACK.
+   * Instead, records are handed over to the `java.util.logging` logger `jackAudio4Java.native`
+   * through a bounded ring. When the ring is full, records are dropped.
+   *
+   * @return the number of dropped records since the library was loaded.
+   */
+  public long getNativeLogDropCount() {
+    return NativeLog.getDropCount();
+  }
+
+  native static void installLogRingN();
+
+  native static int drainLogN(Object log, int max);
+
+  native static long getLogDropCountN();
+
 
   /**
    * Get the version of the _Native Java-method_ interface.
@@ -210,9 +322,25 @@ public class Jack {
     }
     if (hClient == 0) return null;
 
-    return new InternalClientHandle(hClient);
+    InternalClientHandle client = new InternalClientHandle(hClient);
+    registerPortTableN(hClient, client.getPorts());
+    registerClientHandleN(hClient, client);
+    // a change reported before the handle was known has only been recorded natively.
+    client.onFreewheel(isFreewheelingN(hClient));
+    return client;
   }
 
+  /**
+   * Let the native freewheel callback keep the freewheel state of the handle current.
+   */
+  private native static int registerClientHandleN(long client, InternalClientHandle handle);
+
+  /**
+   * Install the port registration and rename callbacks, which keep the canonical port handles
+   * of the client current.
+   */
+  private native static int registerPortTableN(long client, PortTable portTable);
+
   private native static long clientOpenN(String clientName,
                                          int openOptions,
                                          Int returnStatus,
@@ -239,7 +367,9 @@ public class Jack {
     InternalClientHandle internalClientHandle = (InternalClientHandle) client;
     long reference = internalClientHandle.getReference();
     internalClientHandle.invalidate();
-    return clientCloseN(reference);
+    int result = clientCloseN(reference);
+    internalClientHandle.getPorts().invalidateAll();
+    return result;
   }
 
   private native static int clientCloseN(long clientHandle);
@@ -258,149 +388,937 @@ public class Jack {
 
   private native static int clientNameSizeN();
 
-  // jack.h - 141
+  // jack.h - 141
+
+  /**
+   * The actual name of this client.
+   * <p>
+   * This is useful when {@link OpenOption#UseExactName}
+   * is not specified on open and {@link OpenStatus#hasNameNotUnique()}
+   * status was returned.  In that case, the actual
+   * name will differ from the `clientName` requested.
+   *
+   * @param client a valid client handle.
+   * @return the actual client name or the string "Invalid Client" if the given handle was not valid.
+   */
+  public String getClientName(ClientHandle client) {
+    final String invalidClient = "Invalid Client";
+    if (client == null) return invalidClient;
+    if (!client.isValid()) return invalidClient;
+
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    return getClientNameN(internalClientHandle.getReference());
+
+  }
+
+  private native static String getClientNameN(long clientHandle);
+
+
+  // jack.h - 204
+
+  /**
+   * Tell the Jack server that the program is ready to start processing.
+   * <p>
+   * If the client has a {@link PortRegistry}, it is reloaded, so that it also reflects
+   * the changes made while the client was not yet receiving notifications.
+   *
+   * @param client a valid client handle.
+   * @return 0 on success, otherwise a non-zero error code
+   */
+  public int activate(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    int result = activateN(internalClientHandle.getReference());
+    PortRegistry registry = internalClientHandle.getPortRegistry();
+    if (result == 0 && registry != null) loadPortRegistry(internalClientHandle.getReference(), registry);
+    return result;
+  }
+
+  private native static int activateN(long clientHandle);
+
+  // jack.h - line 212
+
+  /**
+   * Tell the Jack server to remove this client from the process
+   * graph.  Also, disconnect all ports belonging to it, since inactive
+   * clients have no port connections.
+   *
+   * @param client a valid client handle.
+   * @return 0 on success, otherwise a non-zero error code
+   */
+  public int deactivate(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    return deactivateN(internalClientHandle.getReference());
+  }
+
+  private native static int deactivateN(long clientHandle);
+
+  // jack.h - line 316
+
+  /**
+   * Register a function to be called if and when the
+   * JACK server shuts down the client thread.
+   * <p>
+   * NOTE: clients do not need to call this.  It exists only
+   * to help more complex clients understand what is going
+   * on.  It should be called before {@link #activate(ClientHandle)} .
+   * <p>
+   * NOTE: if a client calls this AND jack_on_info_shutdown(), then
+   * in case of a client thread shutdown, the callback
+   * passed to this function will not be called, and the one passed to
+   * jack_on_info_shutdown() will.
+   * <p>
+   * NOTE: application should typically signal another thread to correctly
+   * finish cleanup, that is by calling "jack_client_close"
+   * (since "jack_client_close" cannot be called directly in the context
+   * of the thread that calls the shutdown callback).
+   * <p>
+   * Each client has its own shutdown listener.
+   *
+   * @param client           an opaque handle representing this client.
+   * @param shutdownListener the listener that will be called on shutdown.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int registerShutdownListener(ClientHandle client,
+                                      ShutdownListener shutdownListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    long clientHandleN = ((InternalClientHandle) client).getReference();
+    return registerShutdownListenerN(clientHandleN, shutdownListener);
+  }
+
+  private native static int registerShutdownListenerN(long client, ShutdownListener shutdownListener);
+
+  // jack.h - line 470
+
+  /**
+   * Tell JACK to call {@link BufferSizeListener#onBufferSize(int)} whenever the number of
+   * frames passed to the process listener is about to change.
+   * <p>
+   * The listener runs in a notification thread while no process cycle is running,
+   * so it may allocate. {@link jackAudio4Java.buffers.PeriodBuffers} and
+   * {@link jackAudio4Java.graph.Graph} are listeners that re-allocate their buffers there,
+   * so that the process thread never has to.
+   * <p>
+   * Each client has its own buffer size listener. It should be registered before
+   * {@link #activate(ClientHandle)} is called.
+   *
+   * @param client             an opaque handle representing this client.
+   * @param bufferSizeListener the listener that will be called when the buffer size changes.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int registerBufferSizeListener(ClientHandle client,
+                                        BufferSizeListener bufferSizeListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    long clientHandleN = ((InternalClientHandle) client).getReference();
+    return registerBufferSizeListenerN(clientHandleN, bufferSizeListener);
+  }
+
+  private native static int registerBufferSizeListenerN(long client, BufferSizeListener bufferSizeListener);
+
+  // jack.h - line 482
+
+  /**
+   * Tell JACK to call {@link SampleRateListener#onSampleRate(int)} whenever the
+   * sample rate of the system changes.
+   * <p>
+   * Each client has its own sample rate listener. It should be registered before
+   * {@link #activate(ClientHandle)} is called.
+   *
+   * @param client             an opaque handle representing this client.
+   * @param sampleRateListener the listener that will be called when the sample rate changes.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int registerSampleRateListener(ClientHandle client,
+                                        SampleRateListener sampleRateListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    long clientHandleN = ((InternalClientHandle) client).getReference();
+    return registerSampleRateListenerN(clientHandleN, sampleRateListener);
+  }
+
+  private native static int registerSampleRateListenerN(long client, SampleRateListener sampleRateListener);
+
+  // jack.h - freewheel callback
+
+  /**
+   * Tell JACK to call {@link FreewheelListener#onFreewheel(boolean)} whenever the
+   * server enters or leaves freewheel mode.
+   * <p>
+   * Each client has its own freewheel listener. It can be registered at any time.
+   *
+   * @param client            an opaque handle representing this client.
+   * @param freewheelListener the listener that will be called when freewheel mode starts or stops.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int registerFreewheelListener(ClientHandle client,
+                                       FreewheelListener freewheelListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    long clientHandleN = ((InternalClientHandle) client).getReference();
+    return registerFreewheelListenerN(clientHandleN, freewheelListener);
+  }
+
+  private native static int registerFreewheelListenerN(long client, FreewheelListener freewheelListener);
+
+  // jack.h - freewheel mode
+
+  /**
+   * Start or stop JACK's "freewheel" mode.
+   * <p>
+   * When in "freewheel" mode, JACK no longer waits for any external event to begin the start
+   * of the next process cycle. As a result, freewheel mode causes "faster than real-time"
+   * execution of a JACK graph. If possessed, real-time scheduling is dropped when entering
+   * freewheel mode, and if appropriate it is reacquired when stopping.
+   * <p>
+   * Freewheel mode applies to the whole server, not to the client only.
+   * While freewheeling, the xrun counter and the process time histogram of the clients are not updated.
+   *
+   * @param client an opaque handle representing this client.
+   * @param onoff  true to enter freewheel mode, false to leave it.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int setFreewheel(ClientHandle client, boolean onoff) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return setFreewheelN(clientHandleN, onoff);
+  }
+
+  private native static int setFreewheelN(long client, boolean onoff);
+
+  /**
+   * @return true if the server is in freewheel mode, as far as this client knows.
+   */
+  public boolean isFreewheeling(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return false;
+    return ((InternalClientHandle) client).isFreewheeling();
+  }
+
+  private native static boolean isFreewheelingN(long client);
+
+  /**
+   * Render the given number of frames as fast as possible.
+   * <p>
+   * The server is put into freewheel mode until the process listener (or process thread) of the
+   * client has processed at least `frames` frames in freewheel mode; then freewheel mode is left again.
+   * Realtime cycles that still run while JACK switches to freewheel mode are not counted. Because whole
+   * cycles are processed, up to one period more than requested may be rendered.
+   * <p>
+   * The client must be active and have a process listener or a process thread.
+   * This function blocks; it shall not be called from the process thread.
+   *
+   * @param client        an opaque handle representing this client.
+   * @param frames        the number of frames to render.
+   * @param timeoutMillis the maximum time to wait in milliseconds.
+   * @return the number of frames actually rendered (less than `frames` if the time ran out),
+   * or -1 if the render could not be started.
+   */
+  public long render(ClientHandle client, long frames, long timeoutMillis) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    if (frames <= 0) return -1;
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    RenderCountdown countdown = new RenderCountdown(frames);
+    if (!internalClientHandle.startRender(countdown)) return -1;
+    try {
+      if (setFreewheelN(clientHandleN, true) != 0) return -1;
+      try {
+        countdown.await(timeoutMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        setFreewheelN(clientHandleN, false);
+      }
+      return countdown.getRendered();
+    } finally {
+      internalClientHandle.stopRender(countdown);
+    }
+  }
+
+
+  // jack.h line 377
+
+  /**
+   * Tell the Jack server to call {@link ProcessListener#onProcess(int)}
+   * whenever there is work be done.
+   * <p>
+   * (Note: The native function `jack_register_process_listener` has an additional parameter `arg`.
+   * This parameter is not represented in the java interface because of the risk of race conditions).
+   * <p>
+   * Each client has its own listener. Registering a listener for one client does not affect the
+   * listeners of other clients opened in the same JVM.
+   * <p>
+   * Slices returned by {@link #portGetAudioData(PortHandle, int)} during a call of the listener
+   * are valid thru the end of that cycle only (see {@link AudioSlice#validThru()}).
+   * <p>
+   * NOTE: this function cannot be called while the client is active
+   * (after {@link #activate(ClientHandle)} has been called.)
+   *
+   * @param client          an opaque handle representing this client.
+   * @param processListener the listener that will be called for each process cycle.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int registerProcessListener(ClientHandle client,
+                                     ProcessListener processListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    InternalProcessAdapter adapter = (processListener == null) ? null
+            : new InternalProcessAdapter(processListener, internalClientHandle);
+    return registerProcessListenerN(internalClientHandle.getReference(), adapter);
+  }
+
+  private native static int registerProcessListenerN(long client, InternalProcessAdapter processAdapter);
+
+  // jack.h - line 258
+
+  /**
+   * Tell the Jack server to run the given processing loop in the client's real-time thread.
+   * <p>
+   * This is an opt-in alternative to {@link #registerProcessListener(ClientHandle, ProcessListener)}.
+   * Instead of calling into Java once per cycle, JACK calls
+   * {@link ProcessThreadListener#onProcessThread()} once; the listener then loops in Java,
+   * using {@link #cycleWait(ClientHandle)} and {@link #cycleSignal(ClientHandle, int)}.
+   * <p>
+   * A client can either use a process listener or a process thread, not both.
+   * <p>
+   * NOTE: this function cannot be called while the client is active
+   * (after {@link #activate(ClientHandle)} has been called.)
+   *
+   * @param client                an opaque handle representing this client.
+   * @param processThreadListener the listener that runs the processing loop.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int registerProcessThread(ClientHandle client,
+                                   ProcessThreadListener processThreadListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    long clientHandleN = ((InternalClientHandle) client).getReference();
+    return registerProcessThreadN(clientHandleN, processThreadListener);
+  }
+
+  private native static int registerProcessThreadN(long client, ProcessThreadListener processThreadListener);
+
+  // jack.h - line 241
+
+  /**
+   * Wait until this client shall process the next cycle.
+   * <p>
+   * Shall only be called from within {@link ProcessThreadListener#onProcessThread()}.
+   *
+   * @param client an opaque handle representing this client.
+   * @return the number of frames to process, or zero if the client shall leave its processing loop.
+   */
+  public int cycleWait(ClientHandle client) {
+    if (client == null) return 0;
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return 0;
+    int nframes = cycleWaitN(clientHandleN);
+    if (nframes > 0) {
+      ((InternalClientHandle) client).getClock().begin(lastFrameTimeN(clientHandleN), nframes);
+    }
+    return nframes;
+  }
+
+  private native static int cycleWaitN(long client);
+
+  private native static long lastFrameTimeN(long client);
+
+  // jack.h - line 249
+
+  /**
+   * Signal the next clients in the graph that this client has finished the current cycle.
+   * <p>
+   * Shall only be called from within {@link ProcessThreadListener#onProcessThread()}.
+   *
+   * @param client an opaque handle representing this client.
+   * @param status zero on success, non-zero on error.
+   */
+  public void cycleSignal(ClientHandle client, int status) {
+    if (client == null) return;
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return;
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    CycleClock clock = internalClientHandle.getClock();
+    long lastFrameTime = clock.lastFrameTime();
+    int nframes = (int) (clock.validThru() - lastFrameTime);
+    clock.end();
+    if (lastFrameTime >= 0) internalClientHandle.cycleDone(nframes);
+    cycleSignalN(clientHandleN, status);
+  }
+
+  private native static void cycleSignalN(long client, int status);
+
+  // jack.h - line 668
+
+  /**
+   * Get the sample rate of the jack system, as set by the user when
+   * jackd was started.
+   *
+   * @return the sample rate of the jack system in samples per second.
+   */
+  public int getSampleRate(ClientHandle client) {
+
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return 0;
+    return getSampleRateN(clientHandleN);
+  }
+
+  private native static int getSampleRateN(long client);
+
+  /**
+   * Get the current maximum size that will ever be passed to the process listener.
+   * It should only be queried *before* {@link #activate(ClientHandle)} has been called.
+   * This size may change, clients that depend on it must register a
+   * {@link BufferSizeListener} so they will be notified if it does.
+   *
+   * @return the number of frames per cycle, or 0 if the client is invalid.
+   */
+  public int getBufferSize(ClientHandle client) {
+
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return 0;
+    return getBufferSizeN(clientHandleN);
+  }
+
+  private native static int getBufferSizeN(long client);
+
+  /**
+   * Get the current CPU load estimated by JACK.
+   * <p>
+   * This is a running average of the time it takes to execute a full process cycle
+   * for all clients as a percentage of the real time available per cycle.
+   *
+   * @return the DSP load in percent, or -1 if the client is invalid.
+   */
+  public float getCpuLoad(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return getCpuLoadN(clientHandleN);
+  }
+
+  private native static float getCpuLoadN(long client);
+
+  /**
+   * Get the number of xruns the JACK server has reported to this client since it was opened
+   * (or since the last call of {@link #resetInstrumentation(ClientHandle)}).
+   *
+   * @return the number of xruns, or -1 if the client is invalid.
+   */
+  public long getXrunCount(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return getXrunCountN(clientHandleN);
+  }
+
+  private native static long getXrunCountN(long client);
+
+  /**
+   * Get the delay in microseconds that caused the most recent xrun.
+   *
+   * @return the delay in microseconds, or -1 if the client is invalid.
+   */
+  public float getXrunDelayedUsecs(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return getXrunDelayedUsecsN(clientHandleN);
+  }
+
+  private native static float getXrunDelayedUsecsN(long client);
+
+  /**
+   * Get the largest scheduling delay in microseconds observed by JACK
+   * (since the last call of {@link #resetInstrumentation(ClientHandle)}).
+   *
+   * @return the delay in microseconds, or -1 if the client is invalid.
+   */
+  public float getMaxDelayedUsecs(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return getMaxDelayedUsecsN(clientHandleN);
+  }
+
+  private native static float getMaxDelayedUsecsN(long client);
+
+  /**
+   * Get a snapshot of how long the {@link ProcessListener#onProcess} callback of the client took.
+   * <p>
+   * The durations are measured in the native process callback around the call into Java,
+   * so they include the cost of crossing the JNI boundary.
+   *
+   * @return the histogram, or null if the client is invalid.
+   */
+  public ProcessTimeHistogram getProcessTimeHistogram(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return null;
+    long[] values = new long[ProcessTimeHistogram.BUCKET_COUNT + 2];
+    if (getProcessTimesN(clientHandleN, values) != 0) return null;
+    long[] counts = Arrays.copyOf(values, ProcessTimeHistogram.BUCKET_COUNT);
+    return new ProcessTimeHistogram(counts,
+        values[ProcessTimeHistogram.BUCKET_COUNT],
+        values[ProcessTimeHistogram.BUCKET_COUNT + 1]);
+  }
+
+  private native static int getProcessTimesN(long client, long[] values);
+
+  /**
+   * Reset the xrun counter, the process time histogram and the maximum delay of the client.
+   *
+   * @return 0 on success, -1 if the client is invalid.
+   */
+  public int resetInstrumentation(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    resetInstrumentationN(clientHandleN);
+    return 0;
+  }
+
+  private native static void resetInstrumentationN(long client);
+
+  /**
+   * Scratch array receiving the cycle times, one per thread so that
+   * {@link #getCycleTimes(ClientHandle, CycleTimes)} does not allocate in the process thread.
+   */
+  private static final ThreadLocal<long[]> cycleTimesScratch = ThreadLocal.withInitial(() -> new long[4]);
+
+  /**
+   * Get the timing of the current process cycle.
+   * <p>
+   * This function shall only be called from within the process callback.
+   * It does not allocate, so it is safe to call in every cycle.
+   *
+   * @param client     the client.
+   * @param cycleTimes the container that receives the timing.
+   * @return 0 on success, non-zero on error.
+   */
+  public int getCycleTimes(ClientHandle client, CycleTimes cycleTimes) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    if (cycleTimes == null) return -1;
+    long[] values = cycleTimesScratch.get();
+    int result = getCycleTimesN(clientHandleN, values);
+    if (result != 0) return result;
+    cycleTimes.currentFrames = values[0];
+    cycleTimes.currentUsecs = values[1];
+    cycleTimes.nextUsecs = values[2];
+    cycleTimes.periodUsecs = Float.intBitsToFloat((int) values[3]);
+    return 0;
+  }
+
+  private native static int getCycleTimesN(long client, long[] values);
+
+  // thread.h
+
+  /**
+   * @return the priority of the process thread of the client, or -1 if JACK is not
+   * running with realtime scheduling (or the client is invalid).
+   */
+  public int clientRealTimePriority(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return clientRealTimePriorityN(clientHandleN);
+  }
+
+  private native static int clientRealTimePriorityN(long client);
+
+  /**
+   * @return the maximum priority a realtime thread of the client may use, or -1 if JACK is not
+   * running with realtime scheduling (or the client is invalid).
+   */
+  public int clientMaxRealTimePriority(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return clientMaxRealTimePriorityN(clientHandleN);
+  }
+
+  private native static int clientMaxRealTimePriorityN(long client);
+
+  /**
+   * @return true if JACK is running with realtime scheduling.
+   */
+  public boolean isRealtime(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return false;
+    return isRealtimeN(clientHandleN);
+  }
+
+  private native static boolean isRealtimeN(long client);
+
+  /**
+   * Run a java `Runnable` in a thread created by JACK, with the scheduling JACK uses for its own threads.
+   * <p>
+   * The thread is attached to the JVM once, when it starts, and detached when `run()` returns.
+   * Workers that shall serve many cycles (parallel DSP, disk streaming) should therefore loop
+   * inside `run()`, waiting on a lock-free signal from the process callback.
+   * <p>
+   * Every thread that has been created must eventually be joined with {@link #threadJoin(ThreadHandle)}.
+   *
+   * @param client   the client.
+   * @param name     the name of the thread as seen by the JVM.
+   * @param priority the realtime priority of the thread, or a negative value for the priority of
+   *                 the process thread of the client (see {@link #clientRealTimePriority(ClientHandle)}).
+   * @param realtime true if the thread shall use realtime scheduling. With a negative priority,
+   *                 this is ignored when JACK is not running with realtime scheduling
+   *                 (see {@link #isRealtime(ClientHandle)}), so the thread still starts.
+   * @param cpu      the index of the CPU the thread shall be pinned to, or a negative value
+   *                 if the thread may run on any CPU.
+   * @param runnable the code to run.
+   * @return a handle of the thread, or null if the thread could not be created.
+   */
+  public ThreadHandle clientCreateThread(ClientHandle client, String name, int priority,
+                                         boolean realtime, int cpu, Runnable runnable) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return null;
+    if (runnable == null) return null;
+    long threadN = clientCreateThreadN(clientHandleN, name, priority, realtime, cpu, runnable);
+    if (threadN == 0) return null;
+    return new InternalThreadHandle(threadN);
+  }
+
+  private native static long clientCreateThreadN(long client, String name, int priority,
+                                                 boolean realtime, int cpu, Runnable runnable);
+
+  /**
+   * Wait until a thread created by {@link #clientCreateThread} has finished and release it.
+   * <p>
+   * After this call the handle is invalid.
+   *
+   * @param thread the handle of the thread.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int threadJoin(ThreadHandle thread) {
+    if (thread == null) return -1;
+    if (!(thread instanceof InternalThreadHandle)) return -1;
+    long threadN = ((InternalThreadHandle) thread).release();
+    if (threadN == 0) return -1;
+    return threadJoinN(threadN);
+  }
+
+  private native static int threadJoinN(long thread);
+
+  /**
+   * Pin the calling thread to one CPU.
+   * <p>
+   * This can be used for any thread, also for threads not created by JACK.
+   *
+   * @param cpu the index of the CPU.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public static int setCurrentThreadAffinity(int cpu) {
+    if (cpu < 0) return -1;
+    return setCurrentThreadAffinityN(cpu);
+  }
+
+  private native static int setCurrentThreadAffinityN(int cpu);
+
+  // jack.h - line 572
+
+  /**
+   * Get the estimated current time in frames.
+   * <p>
+   * This function is intended for use in other threads (not the process callback). The return
+   * value can be compared with the value of {@link #lastFrameTime(ClientHandle)} to relate time
+   * in other threads to JACK time.
+   * <p>
+   * This and the following clock functions work with the clients of every backend, they ask the
+   * {@link FrameClock} of the client.
+   *
+   * @return the current time in frames, or -1 if the client is invalid.
+   */
+  public static long frameTime(ClientHandle client) {
+    FrameClock clock = frameClockOf(client);
+    if (clock == null) return -1;
+    return clock.frameTime();
+  }
+
+  private native static long frameTimeN(long client);
+
+  /**
+   * Get the precise time at the start of the current process cycle.
+   * <p>
+   * This function may only be used from the process callback (or the process thread), and can
+   * be used to interpret timestamps generated by {@link #frameTime(ClientHandle)} in other threads
+   * with respect to the current process cycle.
+   * <p>
+   * While a cycle is running, the value is taken from the cycle clock of the client, without
+   * calling into native code.
+   *
+   * @return the frame time at the start of the current cycle, or -1 if the client is invalid.
+   */
+  public static long lastFrameTime(ClientHandle client) {
+    FrameClock clock = frameClockOf(client);
+    if (clock == null) return -1;
+    return clock.lastFrameTime();
+  }
+
+  /**
+   * Get the estimated time in frames that has passed since the JACK server began the current process cycle.
+   *
+   * @return the number of frames, or -1 if the client is invalid.
+   */
+  public static int framesSinceCycleStart(ClientHandle client) {
+    FrameClock clock = frameClockOf(client);
+    if (clock == null) return -1;
+    return clock.framesSinceCycleStart();
+  }
+
+  private native static int framesSinceCycleStartN(long client);
+
+  /**
+   * Convert a frame time into the (estimated) system time in microseconds.
+   *
+   * @param frames a frame time, as given by {@link #frameTime(ClientHandle)}.
+   * @return the microsecond time, or -1 if the client is invalid.
+   */
+  public static long framesToTime(ClientHandle client, long frames) {
+    FrameClock clock = frameClockOf(client);
+    if (clock == null) return -1;
+    return clock.framesToTime(frames);
+  }
+
+  private native static long framesToTimeN(long client, long frames);
+
+  /**
+   * Convert a system time in microseconds into the (estimated) frame time.
+   * <p>
+   * Use this to schedule an event on an exact frame: the resulting frame can be compared with
+   * {@link #lastFrameTime(ClientHandle)} in the process callback.
+   *
+   * @param usecs a microsecond time, as given by {@link #getTime()}.
+   * @return the frame time, or -1 if the client is invalid.
+   */
+  public static long timeToFrames(ClientHandle client, long usecs) {
+    FrameClock clock = frameClockOf(client);
+    if (clock == null) return -1;
+    return clock.timeToFrames(usecs);
+  }
+
+  private native static long timeToFramesN(long client, long usecs);
+
+  /**
+   * @return the current JACK system time in microseconds (the clock used by
+   * {@link #framesToTime(ClientHandle, long)} and {@link #timeToFrames(ClientHandle, long)}).
+   * If the JNI library is not loaded, the monotonic clock of the JVM is used, which is the clock
+   * JACK uses on Linux. The simulated backend has a virtual clock instead, see its documentation.
+   */
+  public static long getTime() {
+    if (!NativeManager.isLoaded()) return System.nanoTime() / 1000;
+    return getTimeN();
+  }
+
+  private native static long getTimeN();
+
+  /**
+   * @return the frame clock of the client, or null if the client is invalid.
+   */
+  private static FrameClock frameClockOf(ClientHandle client) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    return client.getFrameClock();
+  }
+
+  /**
+   * The frame clock of a client of the JNI backend.
+   */
+  static final class NativeFrameClock implements FrameClock {
+
+    private final InternalClientHandle client;
+
+    NativeFrameClock(InternalClientHandle client) {
+      this.client = client;
+    }
+
+    @Override
+    public long frameTime() {
+      long clientHandleN = client.getReference();
+      if (clientHandleN == 0) return -1;
+      return frameTimeN(clientHandleN);
+    }
+
+    @Override
+    public long lastFrameTime() {
+      long clientHandleN = client.getReference();
+      if (clientHandleN == 0) return -1;
+      long cached = client.getClock().lastFrameTime();
+      if (cached >= 0) return cached;
+      return lastFrameTimeN(clientHandleN);
+    }
+
+    @Override
+    public int framesSinceCycleStart() {
+      long clientHandleN = client.getReference();
+      if (clientHandleN == 0) return -1;
+      return framesSinceCycleStartN(clientHandleN);
+    }
+
+    @Override
+    public long framesToTime(long frames) {
+      long clientHandleN = client.getReference();
+      if (clientHandleN == 0) return -1;
+      return framesToTimeN(clientHandleN, frames);
+    }
+
+    @Override
+    public long timeToFrames(long usecs) {
+      long clientHandleN = client.getReference();
+      if (clientHandleN == 0) return -1;
+      return timeToFramesN(clientHandleN, usecs);
+    }
+  }
+
+  // transport.h
 
   /**
-   * The actual name of this client.
+   * Query the current transport state and position.
    * <p>
-   * This is useful when {@link OpenOption#UseExactName}
-   * is not specified on open and {@link OpenStatus#hasNameNotUnique()}
-   * status was returned.  In that case, the actual
-   * name will differ from the `clientName` requested.
+   * This function is realtime-safe, and can be called from any thread. If called from the
+   * process thread, the position corresponds to the first frame of the current cycle and
+   * the state returned is valid for the entire cycle.
+   * It does not allocate, so it is safe to call in every cycle.
    *
-   * @param client a valid client handle.
-   * @return the actual client name or the string "Invalid Client" if the given handle was not valid.
+   * @param client   the client.
+   * @param position the container that receives the position, or null if only the state is wanted.
+   * @return the current transport state, or null if the client is invalid.
    */
-  public String getClientName(ClientHandle client) {
-    final String invalidClient = "Invalid Client";
-    if (client == null) return invalidClient;
-    if (!client.isValid()) return invalidClient;
-
-    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
-    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
-    return getClientNameN(internalClientHandle.getReference());
-
+  public TransportState transportQuery(ClientHandle client, TransportPosition position) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return null;
+    return TransportState.fromCode(
+        transportQueryN(clientHandleN, (position == null) ? null : position.getBuffer()));
   }
 
-  private native static String getClientNameN(long clientHandle);
+  private native static int transportQueryN(long client, ByteBuffer position);
 
+  /**
+   * Return an estimate of the current transport frame, including any time elapsed since
+   * the last transport positional update.
+   *
+   * @return the frame number, or -1 if the client is invalid.
+   */
+  public long getCurrentTransportFrame(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    return getCurrentTransportFrameN(clientHandleN);
+  }
 
-  // jack.h - 204
+  private native static long getCurrentTransportFrameN(long client);
 
   /**
-   * Tell the Jack server that the program is ready to start processing.
+   * Start the JACK transport rolling.
+   * <p>
+   * Any client can make this request at any time. It takes effect no sooner than the next process cycle.
    *
-   * @param client a valid client handle.
-   * @return 0 on success, otherwise a non-zero error code
+   * @return 0 on success, -1 if the client is invalid.
    */
-  public int activate(ClientHandle client) {
-    if (client == null) return -1;
-    if (!client.isValid()) return -1;
-    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
-    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
-    return activateN(internalClientHandle.getReference());
+  public int transportStart(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    transportStartN(clientHandleN);
+    return 0;
   }
 
-  private native static int activateN(long clientHandle);
-
-  // jack.h - line 212
+  private native static void transportStartN(long client);
 
   /**
-   * Tell the Jack server to remove this client from the process
-   * graph.  Also, disconnect all ports belonging to it, since inactive
-   * clients have no port connections.
+   * Stop the JACK transport.
+   * <p>
+   * Any client can make this request at any time. It takes effect on the next process cycle.
    *
-   * @param client a valid client handle.
-   * @return 0 on success, otherwise a non-zero error code
+   * @return 0 on success, -1 if the client is invalid.
    */
-  public int deactivate(ClientHandle client) {
-    if (client == null) return -1;
-    if (!client.isValid()) return -1;
-    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
-    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
-    return deactivateN(internalClientHandle.getReference());
+  public int transportStop(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    transportStopN(clientHandleN);
+    return 0;
   }
 
-  private native static int deactivateN(long clientHandle);
-
-  // jack.h - line 316
+  private native static void transportStopN(long client);
 
   /**
-   * Register a function to be called if and when the
-   * JACK server shuts down the client thread.
-   * <p>
-   * NOTE: clients do not need to call this.  It exists only
-   * to help more complex clients understand what is going
-   * on.  It should be called before {@link #activate(ClientHandle)} .
-   * <p>
-   * NOTE: if a client calls this AND jack_on_info_shutdown(), then
-   * in case of a client thread shutdown, the callback
-   * passed to this function will not be called, and the one passed to
-   * jack_on_info_shutdown() will.
+   * Reposition the transport to a new frame number.
    * <p>
-   * NOTE: application should typically signal another thread to correctly
-   * finish cleanup, that is by calling "jack_client_close"
-   * (since "jack_client_close" cannot be called directly in the context
-   * of the thread that calls the shutdown callback).
+   * May be called at any time by any client. The new position takes effect in two process cycles.
    *
-   * @param client           an opaque handle representing this client.
-   * @param shutdownListener the listener that will be called on shutdown.
+   * @param frame the frame number to locate to.
+   * @return 0 if the request is valid, non-zero otherwise.
    */
-  public int registerShutdownListener(ClientHandle client,
-                                      ShutdownListener shutdownListener) {
-    if (client == null) return -1;
-    if (!client.isValid()) return -1;
-    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
-    long clientHandleN = ((InternalClientHandle) client).getReference();
-    return registerShutdownListenerN(clientHandleN, shutdownListener);
+  public int transportLocate(ClientHandle client, long frame) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    if (frame < 0 || frame > 0xFFFFFFFFL) return -1;
+    return transportLocateN(clientHandleN, frame);
   }
 
-  private native static int registerShutdownListenerN(long client, ShutdownListener shutdownListener);
+  private native static int transportLocateN(long client, long frame);
 
+  /**
+   * Request a new transport position.
+   * <p>
+   * May be called at any time by any client. The new position takes effect in two process cycles.
+   * Only the frame number and the fields flagged in {@link TransportPosition#getValid()} are used.
+   *
+   * @param position the requested new position.
+   * @return 0 if the request is valid, non-zero otherwise.
+   */
+  public int transportReposition(ClientHandle client, TransportPosition position) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    if (position == null) return -1;
+    return transportRepositionN(clientHandleN, position.getBuffer());
+  }
 
-  // jack.h line 377
+  private native static int transportRepositionN(long client, ByteBuffer position);
 
   /**
-   * Tell the Jack server to call {@link ProcessListener#onProcess(int)}
-   * whenever there is work be done.
-   * <p>
-   * (Note: The native function `jack_register_process_listener` has an additional parameter `arg`.
-   * This parameter is not represented in the java interface because of the risk of race conditions).
+   * Register as timebase master for the JACK subsystem.
    * <p>
-   * NOTE: this function cannot be called while the client is active
-   * (after {@link #activate(ClientHandle)} has been called.)
+   * The timebase master registers a listener that updates the extended position information
+   * (such as beats or timecode) in every cycle. Only one client can be timebase master at a time.
    *
-   * @param client          an opaque handle representing this client.
-   * @param processListener the listener that will be called for each process cycle.
-   * @return 0 on success, otherwise a non-zero error code.
+   * @param client      the client.
+   * @param conditional true if the registration shall fail when there already is a timebase master.
+   * @param listener    the listener that supplies the position.
+   * @return 0 on success, EBUSY if a conditional request fails because there already is
+   * a master, or another non-zero value on error.
    */
-  public int registerProcessListener(ClientHandle client,
-                                     ProcessListener processListener) {
-    if (client == null) return -1;
-    if (!client.isValid()) return -1;
-    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
-    long clientHandleN = ((InternalClientHandle) client).getReference();
-    return registerProcessListenerN(clientHandleN, processListener);
+  public int setTimebaseListener(ClientHandle client, boolean conditional, TimebaseListener listener) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return -1;
+    if (listener == null) return -1;
+    InternalTimebaseAdapter adapter = new InternalTimebaseAdapter(listener);
+    return setTimebaseListenerN(clientHandleN, conditional, adapter, adapter.position.getBuffer());
   }
 
-  private native static int registerProcessListenerN(long client, ProcessListener processListener);
-
-  // jack.h - line 668
+  private native static int setTimebaseListenerN(long client, boolean conditional,
+                                                 InternalTimebaseAdapter adapter, ByteBuffer position);
 
   /**
-   * Get the sample rate of the jack system, as set by the user when
-   * jackd was started.
+   * Called by the timebase master to release itself from that responsibility.
    *
-   * @return the sample rate of the jack system in samples per second.
+   * @return 0 on success, otherwise a non-zero error code.
    */
-  public int getSampleRate(ClientHandle client) {
-
+  public int releaseTimebase(ClientHandle client) {
     long clientHandleN = InternalClientHandle.getReferenceFrom(client);
-    if (clientHandleN == 0) return 0;
-    return getSampleRateN(clientHandleN);
+    if (clientHandleN == 0) return -1;
+    return releaseTimebaseN(clientHandleN);
   }
 
-  private native static int getSampleRateN(long client);
+  private native static int releaseTimebaseN(long client);
 
   // jack.h - line 711
 
@@ -443,7 +1361,8 @@ public class Jack {
     if (portHandleN == 0) {
       return null;
     }
-    return new InternalPortHandle(portHandleN);
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    return internalClientHandle.getPorts().canonical(portHandleN, internalClientHandle.getClock());
   }
 
   private native static long portRegisterN(long client,
@@ -476,6 +1395,7 @@ public class Jack {
 
 
     int error = portUnregisterN(clientHandleN, portHandleN);
+    ((InternalClientHandle) client).getPorts().remove(portHandleN);
     internalPortHandle.invalidate();
     return error;
   }
@@ -485,6 +1405,9 @@ public class Jack {
   // jack.h -line 783
 
   /**
+   * The name is obtained from JACK on first request and then cached in the handle
+   * (until the port is renamed).
+   *
    * @param port an opaque handle representing a valid port.
    * @return the long full of the port (including the  "client_name:" prefix).
    */
@@ -493,7 +1416,12 @@ public class Jack {
     if (!port.isValid()) return "invalid-port";
     if (!(port instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
     InternalPortHandle internalPortHandle = (InternalPortHandle) port;
-    return portNameN(internalPortHandle.getReference());
+    String name = internalPortHandle.getName();
+    if (name == null) {
+      name = portNameN(internalPortHandle.getReference());
+      internalPortHandle.setName(name);
+    }
+    return name;
   }
 
   private native static String portNameN(long port);
@@ -501,6 +1429,9 @@ public class Jack {
   // jack.h -line 790
 
   /**
+   * The name is obtained from JACK on first request and then cached in the handle
+   * (until the port is renamed).
+   *
    * @param port an opaque handle representing a valid port.
    * @return the short name of the port (not including the  "client_name:" prefix).
    */
@@ -509,7 +1440,12 @@ public class Jack {
     if (!port.isValid()) return "invalid-port";
     if (!(port instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
     InternalPortHandle internalPortHandle = (InternalPortHandle) port;
-    return portShortNameN(internalPortHandle.getReference());
+    String shortName = internalPortHandle.getShortName();
+    if (shortName == null) {
+      shortName = portShortNameN(internalPortHandle.getReference());
+      internalPortHandle.setShortName(shortName);
+    }
+    return shortName;
   }
 
   private native static String portShortNameN(long port);
@@ -558,52 +1494,254 @@ public class Jack {
   }
 
   /**
-   * Receive audio data from an input port.
+   * Get direct access to the audio data received by an input port.
+   * <p>
+   * The returned slice wraps the memory that JACK has allocated for this port, no data is copied.
+   * The same slice object is returned cycle after cycle, as long as JACK does not move
+   * the port buffer. When JACK moves the buffer (for example because the buffer size has changed)
+   * a new slice is built.
+   * <p>
+   * The content of the slice is only valid within the {@link ProcessListener#onProcess(int)} call
+   * of the current cycle. Use {@link #portGetAudioData(PortHandle, int, MutableAudioSlice)}
+   * to keep the data beyond the current cycle.
+   * This is enforced: when called within a cycle, the slice carries the end of the cycle in
+   * {@link AudioSlice#validThru()}; after that it counts as expired and reading it throws an
+   * `IllegalStateException` (until it is handed out again in a later cycle).
+   *
+   * @param port    an opaque handle representing an input port.
+   * @param nframes the number of frames in this cycle, as given to {@link ProcessListener#onProcess(int)}.
+   * @return a slice wrapping the port buffer, or `null` on error.
+   */
+  public ImmutableAudioSlice portGetAudioData(PortHandle port, int nframes) {
+    if (port == null) return null;
+    if (!port.isValid()) return null;
+    if (!(port instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
+    InternalPortHandle internalPortHandle = (InternalPortHandle) port;
+
+    ImmutableAudioSlice view = internalPortHandle.getAudioView();
+    FloatBuffer current = (view == null) ? null : ((InternalAudioSlice) view).accessInternalBuffer();
+
+    Buffer portBuffer = portGetAudioBufferN(internalPortHandle.getReference(), nframes, current);
+    if (portBuffer == null) return null;
+    if (portBuffer != current) {
+      // JACK has moved the buffer, we have to re-point our view.
+      FloatBuffer floatBuffer = ((ByteBuffer) portBuffer).order(ByteOrder.nativeOrder()).asFloatBuffer();
+      CycleClock clock = internalPortHandle.getClock();
+      view = (clock == null) ? Manager.wrap(floatBuffer) : Manager.wrap(floatBuffer, clock);
+      internalPortHandle.setAudioView(view);
+    } else {
+      ((InternalAudioSlice) view).renew();
+    }
+    return view;
+  }
+
+  /**
+   * @return the given `current` buffer if it still wraps the port buffer, a new direct
+   * `ByteBuffer` if the port buffer has moved, or `null` on error.
+   */
+  private native static Buffer portGetAudioBufferN(long portHandleN, int nframes, FloatBuffer current);
+
+  /**
+   * Receive audio data from an input port by copying it into a client supplied container.
    * <p>
    * The port must have been created as a defaultAudio port with the flag {@link PortFlag#isInput}.
+   * <p>
+   * The copy is bounds-safe: only the first `min(nframes, inputContainer.length())` samples
+   * are copied.
    *
    * @param port           an opaque handle representing a inputPort.
+   * @param nframes        the number of frames in this cycle, as given to {@link ProcessListener#onProcess(int)}.
    * @param inputContainer a client supplied container that will be filled with the received data.
    * @return 0 on success, otherwise a non-zero error code.
    */
-  public int portGetAudioData(PortHandle port, MutableAudioSlice inputContainer) {
+  public int portGetAudioData(PortHandle port, int nframes, MutableAudioSlice inputContainer) {
     if (port == null) return -1;
     if (!port.isValid()) return -1;
-/*
-
-    if (!port.getType().equals(defaultAudio()))
-      throw new RuntimeException(port.getName() + " is not an audio port");
-    if (!port.getFlags().contains(isInput))
-      throw new RuntimeException(port.getName() + " is not an input port");
-
-*/
     if (!(port instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
     InternalPortHandle internalPortHandle = (InternalPortHandle) port;
     long portHandleN = internalPortHandle.getReference();
 
     if (inputContainer == null) return -1;
+    if (inputContainer.isExpired()) return -1;
     InternalAudioSlice slice = (InternalAudioSlice) inputContainer;
     final FloatBuffer internalBuffer = slice.accessInternalBuffer();
     if (!internalBuffer.isDirect()) return -1;
 
-    return portGetAudioDataN(portHandleN, internalBuffer);
+    return portGetAudioDataN(portHandleN, nframes, internalBuffer);
   }
 
-  private native static int portGetAudioDataN(long portHandleN, FloatBuffer internalBuffer);
+  private native static int portGetAudioDataN(long portHandleN, int nframes, FloatBuffer internalBuffer);
 
   /**
    * Send data over an output port.
    * <p>
    * The port must have been created with the flag {@link PortFlag#isOutput}.
+   * <p>
+   * The samples are copied straight from the Java array into the JACK buffer of the port, no
+   * memory is allocated on the Java or the native heap. Thus this function can be called
+   * from {@link ProcessListener#onProcess(int)} in every cycle.
+   * <p>
+   * At most `nframes` samples are copied. If `output` is shorter than `nframes`, the remainder
+   * of the port buffer is filled with silence.
    *
    * @param outputPort an opaque handle representing a outputPort.
+   * @param nframes    the number of frames in this cycle, as given to {@link ProcessListener#onProcess(int)}.
    * @param output     a container for data that shall be send over this outputPort.
    * @return 0 on success, otherwise a non-zero error code.
    */
-  public int portSendAudioData(PortHandle outputPort, float[] output) {
-    throw new NotYetImplementedException();
+  public int portSendAudioData(PortHandle outputPort, int nframes, float[] output) {
+    if (outputPort == null) return -1;
+    if (!outputPort.isValid()) return -1;
+    if (output == null) return -1;
+    if (!(outputPort instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
+    long portHandleN = ((InternalPortHandle) outputPort).getReference();
+
+    return portSendAudioDataN(portHandleN, nframes, output);
+  }
+
+  private native static int portSendAudioDataN(long portHandleN, int nframes, float[] output);
+
+  /**
+   * Send the content of an audio slice over an output port.
+   * <p>
+   * The port must have been created with the flag {@link PortFlag#isOutput}.
+   * <p>
+   * The samples are copied from the (direct) memory of the slice into the JACK buffer of the port,
+   * no memory is allocated on the Java or the native heap.
+   * <p>
+   * At most `nframes` samples are copied. If the slice is shorter than `nframes`, the remainder
+   * of the port buffer is filled with silence.
+   *
+   * @param outputPort an opaque handle representing a outputPort.
+   * @param nframes    the number of frames in this cycle, as given to {@link ProcessListener#onProcess(int)}.
+   * @param output     the slice holding the data that shall be send over this outputPort.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int portSendAudioData(PortHandle outputPort, int nframes, ImmutableAudioSlice output) {
+    if (outputPort == null) return -1;
+    if (!outputPort.isValid()) return -1;
+    if (output == null) return -1;
+    if (output.isExpired()) return -1;
+    if (!(outputPort instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
+    long portHandleN = ((InternalPortHandle) outputPort).getReference();
+
+    final FloatBuffer internalBuffer = ((InternalAudioSlice) output).accessInternalBuffer();
+    if (!internalBuffer.isDirect()) return -1;
+
+    return portSendAudioBufferN(portHandleN, nframes, internalBuffer, output.length());
+  }
+
+  private native static int portSendAudioBufferN(long portHandleN, int nframes, FloatBuffer output, int length);
+
+  /**
+   * Build a set of ports whose audio data can be exchanged with JACK in one single call per cycle.
+   * <p>
+   * The handles are validated once, here. Per cycle, {@link #portSetFetch(PortSet, int)} copies
+   * the data of all input ports and {@link #portSetPublish(PortSet, int)} copies the data of
+   * all output ports, each with one crossing into native code for the whole set.
+   * <p>
+   * Release the set with {@link #portSetRelease(PortSet)} before unregistering any of its ports.
+   *
+   * @param inputs   handles of audio input ports (may be empty).
+   * @param outputs  handles of audio output ports (may be empty).
+   * @param capacity the maximum number of frames per cycle, typically the current buffer size.
+   * @return a new port set, or `null` if one of the handles is invalid.
+   */
+  public PortSet portSetCreate(PortHandle[] inputs, PortHandle[] outputs, int capacity) {
+    if (inputs == null) inputs = new PortHandle[0];
+    if (outputs == null) outputs = new PortHandle[0];
+    if (capacity <= 0) return null;
+
+    long[] inputsN = new long[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      if (inputs[i] == null || !inputs[i].isValid()) return null;
+      if (!(inputs[i] instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
+      inputsN[i] = ((InternalPortHandle) inputs[i]).getReference();
+    }
+    long[] outputsN = new long[outputs.length];
+    for (int i = 0; i < outputs.length; i++) {
+      if (outputs[i] == null || !outputs[i].isValid()) return null;
+      if (!(outputs[i] instanceof InternalPortHandle)) throw new RuntimeException("Invalid port handle");
+      outputsN[i] = ((InternalPortHandle) outputs[i]).getReference();
+    }
+
+    InternalPortSet portSet = new InternalPortSet(inputs.length, outputs.length, capacity);
+    long portSetN = portSetCreateN(inputsN, outputsN,
+            portSet.getInputBuffer(), portSet.getOutputBuffer(), capacity);
+    if (portSetN == 0) return null;
+    portSet.setReference(portSetN);
+    return portSet;
+  }
+
+  private native static long portSetCreateN(long[] inputs,
+                                            long[] outputs,
+                                            FloatBuffer inputBuffer,
+                                            FloatBuffer outputBuffer,
+                                            int capacity);
+
+  /**
+   * Free the native resources of a port set and invalidate it.
+   *
+   * @param portSet a port set created by {@link #portSetCreate(PortHandle[], PortHandle[], int)}.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int portSetRelease(PortSet portSet) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    if (!(portSet instanceof InternalPortSet)) throw new RuntimeException("Invalid port set");
+    InternalPortSet internalPortSet = (InternalPortSet) portSet;
+    long portSetN = internalPortSet.getReference();
+    internalPortSet.invalidate();
+    portSetReleaseN(portSetN);
+    return 0;
+  }
+
+  private native static void portSetReleaseN(long portSet);
+
+  /**
+   * Receive the audio data of all input ports of the set.
+   * <p>
+   * Call this function from {@link ProcessListener#onProcess(int)}. Afterwards
+   * {@link PortSet#input(int)} holds the data of the current cycle.
+   *
+   * @param portSet a valid port set.
+   * @param nframes the number of frames in this cycle, as given to {@link ProcessListener#onProcess(int)}.
+   * @return 0 on success, otherwise a non-zero error code (for example when `nframes` exceeds the capacity of the set).
+   */
+  public int portSetFetch(PortSet portSet, int nframes) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    if (!(portSet instanceof InternalPortSet)) throw new RuntimeException("Invalid port set");
+    InternalPortSet internalPortSet = (InternalPortSet) portSet;
+    if (nframes <= 0 || nframes > internalPortSet.getCapacity()) return -1;
+    internalPortSet.prepareFrames(nframes);
+    return portSetFetchN(internalPortSet.getReference(), nframes);
+  }
+
+  private native static int portSetFetchN(long portSet, int nframes);
+
+  /**
+   * Send the audio data of all output ports of the set.
+   * <p>
+   * Call this function from {@link ProcessListener#onProcess(int)}, once
+   * {@link PortSet#output(int)} has been filled with the data of the current cycle.
+   *
+   * @param portSet a valid port set.
+   * @param nframes the number of frames in this cycle, as given to {@link ProcessListener#onProcess(int)}.
+   * @return 0 on success, otherwise a non-zero error code (for example when `nframes` exceeds the capacity of the set).
+   */
+  public int portSetPublish(PortSet portSet, int nframes) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    if (!(portSet instanceof InternalPortSet)) throw new RuntimeException("Invalid port set");
+    InternalPortSet internalPortSet = (InternalPortSet) portSet;
+    if (nframes <= 0 || nframes > internalPortSet.getCapacity()) return -1;
+    internalPortSet.prepareFrames(nframes);
+    return portSetPublishN(internalPortSet.getReference(), nframes);
   }
 
+  private native static int portSetPublishN(long portSet, int nframes);
+
   /**
    * Tentative replacement for the portGetBuffer function.
    *
@@ -651,6 +1789,87 @@ public class Jack {
 
   private native static int connectN(long client, String sourcePort, String destinationPort);
 
+  // jack.h - line 1010
+
+  /**
+   * Remove a connection between two ports.
+   * <p>
+   * ## Native function reference
+   * see `int jack_disconnect(jack_client_t, const char *, const char *)` at line 1010 in jack.h
+   *
+   * @param client          an opaque handle representing this client.
+   * @param sourcePort      the  name of the source port.
+   * @param destinationPort the  name of the destination port.
+   * @return 0 on success, otherwise a non-zero error code
+   */
+  public int disconnect(ClientHandle client,
+                        String sourcePort,
+                        String destinationPort) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (!(client instanceof InternalClientHandle)) throw new RuntimeException("Invalid client handle");
+    long clientHandleN = ((InternalClientHandle) client).getReference();
+    return disconnectN(clientHandleN, sourcePort, destinationPort);
+  }
+
+  private native static int disconnectN(long client, String sourcePort, String destinationPort);
+
+  /**
+   * Capture all connections currently made on the JACK server, with one call into native code.
+   *
+   * @param client an opaque handle representing this client.
+   * @return the connections (from output ports to input ports), or null if the client is invalid.
+   */
+  public Snapshot patchbaySnapshot(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return null;
+    String[] pairs = getConnectionsN(clientHandleN);
+    if (pairs == null) return new Snapshot(Collections.emptyList());
+    return Snapshot.ofPairs(pairs);
+  }
+
+  /**
+   * @return the names of connected ports in pairs (source, destination, source, destination ...), or null if
+   * there are none.
+   */
+  private native static String[] getConnectionsN(long client);
+
+  /**
+   * Apply the changes of a diff (typically computed by {@link Snapshot#diff(Snapshot)}).
+   * <p>
+   * All changes are made in one call into native code: first the connections to be removed are
+   * disconnected, then the new connections are made.
+   *
+   * @param client an opaque handle representing this client.
+   * @param diff   the changes to be applied.
+   * @return one result per change, in the order of {@link Diff#getChanges()}: 0 on success,
+   * EEXIST if a connection was already made, otherwise a non-zero error code.
+   * Null if the client is invalid.
+   */
+  public int[] patchbayApply(ClientHandle client, Diff diff) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) return null;
+    List<Connection> changes = diff.getChanges();
+    int count = changes.size();
+    String[] sources = new String[count];
+    String[] destinations = new String[count];
+    for (int i = 0; i < count; i++) {
+      sources[i] = changes.get(i).getSource();
+      destinations[i] = changes.get(i).getDestination();
+    }
+    int[] results = new int[count];
+    patchN(clientHandleN, sources, destinations, diff.getDisconnections().size(), results);
+    return results;
+  }
+
+  /**
+   * Disconnect the first `disconnectCount` pairs and connect the remaining pairs.
+   *
+   * @return the number of pairs that failed.
+   */
+  private native static int patchN(long client, String[] sources, String[] destinations,
+                                   int disconnectCount, int[] results);
+
   // jack.h - line 1024
 
   /**
@@ -734,9 +1953,12 @@ public class Jack {
    * see `jack_port_t * jack_port_by_name (jack_client_t *client, const char *port_name) JACK_OPTIONAL_WEAK_EXPORT;`
    * at line 1292 in jack.h
    *
+   * <p>
+   * Every call for the same port returns the same (canonical) handle object.
+   *
    * @param client   A valid client handle.
    * @param portName the name to search for.
-   * @return a valid port handle if name lookup was successful. An invalid handle if the given name does not match
+   * @return a valid port handle if name lookup was successful. `null` if the given name does not match
    *         any existing port.
    */
   public PortHandle portByName(ClientHandle client, String portName) {
@@ -744,11 +1966,63 @@ public class Jack {
     if (clientHandleN == 0) throw new RuntimeException("Invalid client handle");
 
     long portHandleN = portByNameN(clientHandleN, portName);
-    return new InternalPortHandle(portHandleN);
+    if (portHandleN == 0) return null;
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    return internalClientHandle.getPorts().canonical(portHandleN, internalClientHandle.getClock());
  }
 
   private static native long portByNameN(long client,String portName);
 
+  /**
+   * Get the port registry of a client, an in-memory copy of all ports and connections
+   * that is kept current by JACK notifications.
+   * <p>
+   * Use the registry instead of {@link #getPorts} when ports are looked up frequently:
+   * lookups are served from memory and do not cross into native code.
+   * <p>
+   * NOTE: the registry must be requested before {@link #activate(ClientHandle)} is called
+   * for the first time, because JACK does not accept new notification callbacks from active clients.
+   *
+   * @param client a valid client handle.
+   * @return the registry of the client (always the same object), or null if the notification
+   * callbacks could not be installed.
+   */
+  public PortRegistry getPortRegistry(ClientHandle client) {
+    long clientHandleN = InternalClientHandle.getReferenceFrom(client);
+    if (clientHandleN == 0) throw new RuntimeException("Invalid client handle");
+    InternalClientHandle internalClientHandle = (InternalClientHandle) client;
+    synchronized (internalClientHandle) {
+      PortRegistry registry = internalClientHandle.getPortRegistry();
+      if (registry != null) return registry;
+      registry = new PortRegistry();
+      if (registerPortRegistryN(clientHandleN, registry) != 0) return null;
+      loadPortRegistry(clientHandleN, registry);
+      internalClientHandle.setPortRegistry(registry);
+      return registry;
+    }
+  }
+
+  private static void loadPortRegistry(long clientHandleN, PortRegistry registry) {
+    synchronized (registry) {
+      registry.beginLoad();
+      try {
+        loadPortRegistryN(clientHandleN, registry);
+      } finally {
+        registry.endLoad();
+      }
+    }
+  }
+
+  /**
+   * Install the port registration, connect and rename callbacks, which forward to the given registry.
+   */
+  private static native int registerPortRegistryN(long client, PortRegistry registry);
+
+  /**
+   * Report every existing port and connection to the given registry.
+   */
+  private static native int loadPortRegistryN(long client, PortRegistry registry);
+
   /**
    * The Jack-DLL might crash with a SIGSEGV (0xb) when confronted with an invalid regex pattern
    * like "*1".
@@ -761,9 +2035,18 @@ public class Jack {
   @SuppressFBWarnings(value = "DLS_DEAD_LOCAL_STORE", justification = "We'll ignore the compiled pattern.")
   static void verifyPattern(String regex) {
     if (regex != null) {
+      if (verifiedPatterns.contains(regex)) return;
       final Pattern ignore = Pattern.compile(regex);
+      if (verifiedPatterns.size() >= VERIFIED_PATTERNS_SIZE) verifiedPatterns.clear();
+      verifiedPatterns.add(regex);
     }
   }
 
+  /**
+   * The patterns that {@link #verifyPattern(String)} has already found to be valid.
+   */
+  private static final Set<String> verifiedPatterns = ConcurrentHashMap.newKeySet();
+  private static final int VERIFIED_PATTERNS_SIZE = 64;
+
 
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Hands the log records of the native library over to `java.util.logging`.
+ * <p>
+ * The native code does not write its log itself: it pushes pre-formatted records into a
+ * lock-free ring, so that logging from the real-time threads of JACK never blocks.
+ * A daemon thread drains the ring and publishes the records to the logger
+ * {@value #LOGGER_NAME}. Records that do not fit into the ring are dropped and counted,
+ * the count is reported as a warning.
+ */
+final class NativeLog {
+
+  static final String LOGGER_NAME = "jackAudio4Java.native";
+
+  /**
+   * The maximum number of records handed over in one native call.
+   */
+  private static final int BATCH_SIZE = 256;
+
+  /**
+   * How long the drain thread sleeps when the ring is empty.
+   */
+  private static final long IDLE_MILLIS = 20;
+
+  private static final Logger logger = Logger.getLogger(LOGGER_NAME);
+
+  private static NativeLog instance;
+
+  private long reportedDrops = 0;
+
+  private NativeLog() {
+  }
+
+  /**
+   * Route the native logging through the ring and start the drain thread (only once).
+   */
+  static synchronized void start() {
+    if (instance != null) return;
+    instance = new NativeLog();
+    Jack.installLogRingN();
+    Thread drainer = new Thread(instance::drainForever, "jackAudio4Java-native-log");
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  /**
+   * Let the records of the given level and above pass the logger {@value #LOGGER_NAME}.
+   */
+  static void setLevel(Level level) {
+    logger.setLevel(level);
+  }
+
+  /**
+   * @return the number of native log records dropped because the ring was full.
+   */
+  static long getDropCount() {
+    return Jack.getLogDropCountN();
+  }
+
+  private void drainForever() {
+    while (true) {
+      try {
+        if (drain() == 0) Thread.sleep(IDLE_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, "Could not publish a native log record.", e);
+      }
+    }
+  }
+
+  /**
+   * Publish the records waiting in the ring and report new drops.
+   *
+   * @return the number of records published.
+   */
+  int drain() {
+    int count = Jack.drainLogN(this, BATCH_SIZE);
+    long drops = Jack.getLogDropCountN();
+    if (drops > reportedDrops) {
+      logger.warning((drops - reportedDrops) + " native log records dropped.");
+      reportedDrops = drops;
+    }
+    return Math.max(count, 0);
+  }
+
+  /**
+   * Called by the native code for each record taken out of the ring.
+   */
+  void publish(int nativeLevel, long millis, long threadId, String text, String file, int line, String function) {
+    Level level = nativeToJulLevel(nativeLevel);
+    if (!logger.isLoggable(level)) return;
+    LogRecord record = new LogRecord(level, text);
+    record.setLoggerName(LOGGER_NAME);
+    record.setMillis(millis);
+    record.setThreadID((int) threadId);
+    if (file != null) record.setSourceClassName(baseName(file) + ":" + line);
+    record.setSourceMethodName(function);
+    logger.log(record);
+  }
+
+  /**
+   * Translate the levels of the "spdlog" library into those of java.util.logging (JUL),
+   * the inverse of the mapping used by {@link Jack#setLoggingLevel(Level)}.
+   */
+  static Level nativeToJulLevel(int nativeLevel) {
+    switch (nativeLevel) {
+      case 0:
+        return Level.FINE;
+      case 1:
+        return Level.CONFIG;
+      case 2:
+        return Level.INFO;
+      case 3:
+        return Level.WARNING;
+      default:
+        return Level.SEVERE;
+    }
+  }
+
+  private static String baseName(String file) {
+    int slash = file.lastIndexOf('/');
+    return (slash < 0) ? file : file.substring(slash + 1);
+  }
+}
@@ -29,6 +29,13 @@ public class NativeManager {
   private static final Object loadLock = new Object();
 
 
+  /**
+   * @return true if the native library has been loaded.
+   */
+  static boolean isLoaded() {
+    return libLoaded;
+  }
+
   private static String libName() {
     return "native/" + libraryName;
   }
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import jackAudio4Java.types.PortFlag;
+import jackAudio4Java.types.PortInfo;
+import jackAudio4Java.types.PortType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory copy of the ports known to the JACK server and of their connections.
+ * <p>
+ * The registry is obtained through {@link Jack#getPortRegistry(jackAudio4Java.types.ClientHandle)}.
+ * It is loaded once and then kept current by the port registration, connect and rename
+ * notifications of JACK. Lookups never cross into native code: they are served from an
+ * immutable snapshot. Notifications only mark the snapshot as stale; the first lookup after a
+ * burst of notifications (for example a client registering many ports) builds the new snapshot
+ * once, under the lock of the registry. Lookups on a current snapshot do not lock.
+ * <p>
+ * Note: JACK sends notifications to active clients only. Changes that happen before the
+ * client is activated are picked up by reloading the registry in {@link Jack#activate}.
+ * <p>
+ * The notification functions are protected, so that backends without the native callbacks
+ * can feed a subclass.
+ */
+public class PortRegistry {
+
+  /**
+   * The maximum number of compiled patterns kept by {@link #getPorts(String, String, Set)}.
+   */
+  private static final int PATTERN_CACHE_SIZE = 64;
+
+  private static final String[] NO_PORTS = new String[0];
+
+  /**
+   * An immutable view of all ports, with indices for the typical queries.
+   */
+  private static final class Snapshot {
+    final Map<String, PortInfo> byName;
+    final Map<String, List<PortInfo>> byClient;
+    final Map<String, List<PortInfo>> byType;
+    final Map<Long, List<PortInfo>> byFlags;
+    final Map<String, Set<String>> connections;
+
+    Snapshot(Map<String, PortInfo> ports, Map<String, Set<String>> connections) {
+      this.byName = Collections.unmodifiableMap(new LinkedHashMap<>(ports));
+      Map<String, List<PortInfo>> clients = new HashMap<>();
+      Map<String, List<PortInfo>> types = new HashMap<>();
+      Map<Long, List<PortInfo>> flags = new HashMap<>();
+      for (PortInfo port : ports.values()) {
+        clients.computeIfAbsent(port.getClientName(), k -> new ArrayList<>()).add(port);
+        types.computeIfAbsent(port.getType().toString(), k -> new ArrayList<>()).add(port);
+        flags.computeIfAbsent(port.getFlagBits(), k -> new ArrayList<>()).add(port);
+      }
+      this.byClient = freeze(clients);
+      this.byType = freeze(types);
+      this.byFlags = freeze(flags);
+      Map<String, Set<String>> connected = new HashMap<>();
+      connections.forEach((port, others) -> {
+        if (!others.isEmpty()) connected.put(port, Collections.unmodifiableSet(new LinkedHashSet<>(others)));
+      });
+      this.connections = Collections.unmodifiableMap(connected);
+    }
+
+    private static <K> Map<K, List<PortInfo>> freeze(Map<K, List<PortInfo>> index) {
+      index.replaceAll((k, list) -> Collections.unmodifiableList(list));
+      return Collections.unmodifiableMap(index);
+    }
+  }
+
+  // The mutable state below is guarded by `this` and only touched by the notification thread
+  // (and by `Jack` while loading).
+  private final Map<String, PortInfo> ports = new LinkedHashMap<>();
+  private final Map<Integer, String> namesById = new HashMap<>();
+  private final Map<String, Set<String>> connections = new HashMap<>();
+  private boolean loading = false;
+
+  private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+  /**
+   * True if the mutable state has changed since the snapshot has been built.
+   */
+  private volatile boolean stale = false;
+
+  private final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+  protected PortRegistry() {
+  }
+
+  /**
+   * @param portName the full name of a port.
+   * @return the description of the port, or null if there is no such port.
+   */
+  public PortInfo get(String portName) {
+    return current().byName.get(portName);
+  }
+
+  /**
+   * @return all ports, in the order in which they became known.
+   */
+  public Collection<PortInfo> getAll() {
+    return current().byName.values();
+  }
+
+  /**
+   * @param clientName the name of a client.
+   * @return the ports owned by the given client.
+   */
+  public List<PortInfo> getPortsOfClient(String clientName) {
+    return current().byClient.getOrDefault(clientName, Collections.emptyList());
+  }
+
+  /**
+   * @param type a port type.
+   * @return the ports of the given type.
+   */
+  public List<PortInfo> getPortsOfType(PortType type) {
+    return current().byType.getOrDefault(type.toString(), Collections.emptyList());
+  }
+
+  /**
+   * @param portFlags the flags that shall be set.
+   * @return the ports that fulfill all given flags.
+   */
+  public List<PortInfo> getPortsWithFlags(Set<PortFlag> portFlags) {
+    Snapshot current = current();
+    long required = PortFlag.setToLong(portFlags);
+    List<PortInfo> result = new ArrayList<>();
+    for (Map.Entry<Long, List<PortInfo>> entry : current.byFlags.entrySet()) {
+      if ((entry.getKey() & required) == required) result.addAll(entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * @param portName the full name of a port.
+   * @return the full names of the ports connected to the given port.
+   */
+  public Set<String> getConnections(String portName) {
+    return current().connections.getOrDefault(portName, Collections.emptySet());
+  }
+
+  /**
+   * The in-memory equivalent of {@link Jack#getPorts}.
+   *
+   * @param portNamePattern A regular expression used to select ports by name.
+   *                        If `null` or of zero length, no selection based
+   *                        on name will be carried out.
+   * @param typeNamePattern A regular expression used to select ports by type.
+   *                        If `null` or of zero length, no selection based
+   *                        on type will be carried out.
+   * @param portFlags       used to select ports by their flags (only ports that fulfill
+   *                        all given flags are selected).
+   *                        If `null`, no selection based on flags will be carried out.
+   * @return the names of the matching ports. If no match is found, an empty array will be returned.
+   */
+  public String[] getPorts(String portNamePattern, String typeNamePattern, Set<PortFlag> portFlags) {
+    Pattern namePattern = patternOf(portNamePattern);
+    Pattern typePattern = patternOf(typeNamePattern);
+    Collection<PortInfo> candidates = (portFlags == null || portFlags.isEmpty())
+        ? current().byName.values() : getPortsWithFlags(portFlags);
+    List<String> result = new ArrayList<>();
+    for (PortInfo port : candidates) {
+      if (namePattern != null && !namePattern.matcher(port.getName()).find()) continue;
+      if (typePattern != null && !typePattern.matcher(port.getType().toString()).find()) continue;
+      result.add(port.getName());
+    }
+    return result.isEmpty() ? NO_PORTS : result.toArray(NO_PORTS);
+  }
+
+  /**
+   * @return the snapshot of the present state, built now if notifications have arrived since the last one.
+   */
+  private Snapshot current() {
+    if (!stale) return snapshot;
+    synchronized (this) {
+      if (stale) {
+        snapshot = new Snapshot(ports, connections);
+        stale = false;
+      }
+      return snapshot;
+    }
+  }
+
+  private Pattern patternOf(String regex) {
+    if (regex == null || regex.isEmpty()) return null;
+    Pattern pattern = patterns.get(regex);
+    if (pattern == null) {
+      pattern = Pattern.compile(regex);
+      if (patterns.size() >= PATTERN_CACHE_SIZE) patterns.clear();
+      patterns.put(regex, pattern);
+    }
+    return pattern;
+  }
+
+  /**
+   * Forget everything; the following notifications describe the present state of the server.
+   */
+  protected synchronized void beginLoad() {
+    // lookups keep being served from the state before loading.
+    current();
+    ports.clear();
+    namesById.clear();
+    connections.clear();
+    loading = true;
+  }
+
+  protected synchronized void endLoad() {
+    loading = false;
+    publish();
+  }
+
+  /**
+   * Called from native code when a port has been registered or unregistered.
+   *
+   * @param id         the JACK port id, or -1 if not known.
+   * @param name       the full name of the port (may be null when a port is unregistered).
+   * @param type       the type name of the port.
+   * @param flags      the flags of the port.
+   * @param registered true if the port has been registered, false if it has been unregistered.
+   */
+  protected synchronized void onPortRegistration(int id, String name, String type, int flags, boolean registered) {
+    if (registered) {
+      if (name == null) return;
+      ports.put(name, new PortInfo(name, PortType.custom(type), flags));
+      if (id >= 0) namesById.put(id, name);
+    } else {
+      String known = namesById.remove(id);
+      String removed = (known != null) ? known : name;
+      if (removed == null) return;
+      ports.remove(removed);
+      Set<String> others = connections.remove(removed);
+      if (others != null) {
+        for (String other : others) disconnect(other, removed);
+      }
+    }
+    publish();
+  }
+
+  /**
+   * Called from native code when two ports have been connected or disconnected.
+   */
+  protected synchronized void onPortConnect(String a, String b, boolean connected) {
+    if (a == null || b == null) return;
+    if (connected) {
+      connections.computeIfAbsent(a, k -> new LinkedHashSet<>()).add(b);
+      connections.computeIfAbsent(b, k -> new LinkedHashSet<>()).add(a);
+    } else {
+      disconnect(a, b);
+      disconnect(b, a);
+    }
+    publish();
+  }
+
+  /**
+   * Called from native code when a port has been renamed.
+   */
+  protected synchronized void onPortRename(int id, String oldName, String newName) {
+    if (oldName == null || newName == null) return;
+    PortInfo port = ports.remove(oldName);
+    if (port == null) return;
+    ports.put(newName, port.withName(newName));
+    if (id >= 0) namesById.put(id, newName);
+    Set<String> others = connections.remove(oldName);
+    if (others != null) {
+      connections.put(newName, others);
+      for (String other : others) {
+        Set<String> back = connections.get(other);
+        if (back != null && back.remove(oldName)) back.add(newName);
+      }
+    }
+    publish();
+  }
+
+  private void disconnect(String from, String to) {
+    Set<String> others = connections.get(from);
+    if (others == null) return;
+    others.remove(to);
+    if (others.isEmpty()) connections.remove(from);
+  }
+
+  /**
+   * Mark the snapshot as stale. It is rebuilt by the next lookup, so a burst of notifications
+   * costs one rebuild instead of one per notification.
+   */
+  private void publish() {
+    if (loading) return;
+    stale = true;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import jackAudio4Java.buffers.CycleClock;
+
+/**
+ * The canonical port handles of one client, keyed by the native address of the port.
+ * <p>
+ * There is at most one {@link InternalPortHandle} per port and client, so that handles can be
+ * compared by identity and their cached names are shared. The table is an open-addressing hash
+ * on primitive `long` keys. Lookups neither lock nor allocate; changes (which are rare)
+ * copy the table and publish the copy.
+ * <p>
+ * The native port registration and rename callbacks invalidate handles of ports that are gone
+ * and names that have changed. Note: JACK sends these notifications to active clients only.
+ */
+final class PortTable {
+
+  private static final class Table {
+    final long[] keys;
+    final InternalPortHandle[] handles;
+    final int size;
+
+    Table(int capacity, int size) {
+      this.keys = new long[capacity];
+      this.handles = new InternalPortHandle[capacity];
+      this.size = size;
+    }
+
+    int slotOf(long key) {
+      int mask = keys.length - 1;
+      int slot = mix(key) & mask;
+      while (keys[slot] != 0 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private static int mix(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private volatile Table table = new Table(INITIAL_CAPACITY, 0);
+
+  /**
+   * @param reference the native address of a port.
+   * @return the canonical handle of the port, or null if there is none yet.
+   */
+  InternalPortHandle get(long reference) {
+    if (reference == 0) return null;
+    Table current = table;
+    return current.handles[current.slotOf(reference)];
+  }
+
+  /**
+   * @param reference the native address of a port (not zero).
+   * @param clock     the clock of the client.
+   * @return the canonical handle of the port, created if it does not exist yet.
+   */
+  InternalPortHandle canonical(long reference, CycleClock clock) {
+    InternalPortHandle handle = get(reference);
+    if (handle != null) return handle;
+    synchronized (this) {
+      handle = get(reference);
+      if (handle != null) return handle;
+      handle = new InternalPortHandle(reference, clock);
+      Table current = table;
+      Table next = copy(current, current.size + 1);
+      int slot = next.slotOf(reference);
+      next.keys[slot] = reference;
+      next.handles[slot] = handle;
+      table = next;
+      return handle;
+    }
+  }
+
+  /**
+   * Forget the handle of a port, because the port is gone.
+   *
+   * @param reference the native address of the port.
+   * @return the handle that has been removed (it is not yet invalidated), or null.
+   */
+  synchronized InternalPortHandle remove(long reference) {
+    InternalPortHandle handle = get(reference);
+    if (handle == null) return null;
+    Table current = table;
+    Table next = new Table(current.keys.length, current.size - 1);
+    for (int i = 0; i < current.keys.length; i++) {
+      long key = current.keys[i];
+      if (key != 0 && key != reference) {
+        int slot = next.slotOf(key);
+        next.keys[slot] = key;
+        next.handles[slot] = current.handles[i];
+      }
+    }
+    table = next;
+    return handle;
+  }
+
+  /**
+   * Invalidate all handles, when the client is closed.
+   */
+  synchronized void invalidateAll() {
+    Table current = table;
+    table = new Table(INITIAL_CAPACITY, 0);
+    for (InternalPortHandle handle : current.handles) {
+      if (handle != null) handle.invalidate();
+    }
+  }
+
+  /**
+   * @return the number of canonical handles.
+   */
+  int size() {
+    return table.size;
+  }
+
+  /**
+   * Called from native code when a port has been renamed.
+   *
+   * @param reference the native address of the port.
+   */
+  void onPortRenamed(long reference) {
+    InternalPortHandle handle = get(reference);
+    if (handle != null) handle.forgetNames();
+  }
+
+  /**
+   * Called from native code when a port has been unregistered.
+   *
+   * @param reference the native address of the port.
+   */
+  void onPortUnregistered(long reference) {
+    InternalPortHandle handle = remove(reference);
+    if (handle != null) handle.invalidate();
+  }
+
+  /**
+   * @return a copy of the given table, large enough for the given number of handles.
+   */
+  private static Table copy(Table current, int size) {
+    int capacity = current.keys.length;
+    // keep the load factor below one half.
+    while (size * 2 > capacity) capacity *= 2;
+    Table next = new Table(capacity, size);
+    for (int i = 0; i < current.keys.length; i++) {
+      long key = current.keys[i];
+      if (key != 0) {
+        int slot = next.slotOf(key);
+        next.keys[slot] = key;
+        next.handles[slot] = current.handles[i];
+      }
+    }
+    return next;
+  }
+}
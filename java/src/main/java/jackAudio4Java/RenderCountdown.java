@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the frames processed by a client while it renders in freewheel mode
+ * (see {@link Jack#render(jackAudio4Java.types.ClientHandle, long, long)}).
+ * <p>
+ * Only the process thread of the client shall call {@link #onCycle(int)}, and only for cycles run
+ * in freewheel mode: JACK enters freewheel mode asynchronously, some realtime cycles may still run
+ * after `jack_set_freewheel` has returned.
+ * <p>
+ * This class is public for the use by alternative backends.
+ */
+public final class RenderCountdown {
+
+  private final long target;
+  private volatile long rendered = 0;
+  private final CountDownLatch done = new CountDownLatch(1);
+
+  /**
+   * @param target the number of frames to be rendered.
+   */
+  public RenderCountdown(long target) {
+    this.target = target;
+  }
+
+  /**
+   * Called at the end of every process cycle.
+   *
+   * @param nframes the number of frames processed in the cycle.
+   */
+  public void onCycle(int nframes) {
+    long total = rendered + nframes;
+    rendered = total;
+    if (total >= target) done.countDown();
+  }
+
+  /**
+   * Wait until the target has been reached.
+   *
+   * @param timeoutMillis the maximum time to wait in milliseconds.
+   * @return true if the target has been reached, false if the time ran out.
+   */
+  public boolean await(long timeoutMillis) throws InterruptedException {
+    return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the number of frames processed so far.
+   */
+  public long getRendered() {
+    return rendered;
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.buffers;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A wait-free ring buffer of audio samples for exactly one producer thread and one consumer thread.
+ * <p>
+ * It plays the role of `jack_ringbuffer_t`: the JACK process thread can hand audio to a worker
+ * (or receive audio from it) without locks and without allocating memory.
+ * The samples live off-heap in a direct buffer.
+ * <p>
+ * Only one thread may call the `write` functions and only one (other) thread may call the `read` functions.
+ * The `available` functions may be called from both threads; the result is a snapshot
+ * that is exact for the calling side (readers never see less, writers never see more than actually there).
+ * <p>
+ * Example:
+ * ```java
+ * // in ProcessListener.onProcess
+ * ring.write(Jack.server().portGetAudioData(input, nframes), nframes);
+ * // in the recorder thread
+ * int count = ring.read(chunk, 0, chunk.length);
+ * ```
+ */
+public class AudioRingBuffer {
+
+  /**
+   * Each index lives in the middle of its own array, so that it does not share a
+   * cache line (nor the adjacent line fetched by the prefetcher) with anything else.
+   */
+  private static final int PADDING = 16;
+  private static final int INDEX = PADDING;
+
+  private final int capacity;
+  private final int mask;
+
+  /**
+   * The count of samples written so far (owned by the producer).
+   */
+  private final AtomicLongArray writeIndex = new AtomicLongArray(2 * PADDING + 1);
+
+  /**
+   * The count of samples read so far (owned by the consumer).
+   */
+  private final AtomicLongArray readIndex = new AtomicLongArray(2 * PADDING + 1);
+
+  /**
+   * Each side has its own view on the memory, so that buffer positions are thread confined.
+   */
+  private final FloatBuffer writerView;
+  private final FloatBuffer readerView;
+
+  /**
+   * Create a ring buffer.
+   *
+   * @param minimumCapacity the number of samples the buffer shall hold at least.
+   *                        The actual capacity is rounded up to the next power of two.
+   */
+  public AudioRingBuffer(int minimumCapacity) {
+    if (minimumCapacity <= 0 || minimumCapacity > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity " + minimumCapacity);
+    }
+    capacity = (minimumCapacity == 1) ? 1 : Integer.highestOneBit(minimumCapacity - 1) << 1;
+    mask = capacity - 1;
+    FloatBuffer data = Manager.makeDirectFloatBuffer(capacity);
+    writerView = data.duplicate();
+    readerView = data.duplicate();
+  }
+
+  /**
+   * @return the number of samples this buffer can hold.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of samples that can be read.
+   */
+  public int readAvailable() {
+    return (int) (writeIndex.get(INDEX) - readIndex.get(INDEX));
+  }
+
+  /**
+   * @return the number of samples that can be written.
+   */
+  public int writeAvailable() {
+    return capacity - readAvailable();
+  }
+
+  /**
+   * Append samples to the buffer. Producer side only.
+   *
+   * @param source the samples to be written.
+   * @param offset the index of the first sample in `source`.
+   * @param length the number of samples to be written.
+   * @return the number of samples actually written (less than `length` if the buffer is full).
+   */
+  public int write(float[] source, int offset, int length) {
+    if (source == null) return 0;
+    if (offset < 0 || length < 0 || offset + length > source.length) throw new IndexOutOfBoundsException();
+    final long written = writeIndex.get(INDEX);
+    final int count = Math.min(length, capacity - (int) (written - readIndex.get(INDEX)));
+    if (count <= 0) return 0;
+    final int start = (int) written & mask;
+    final int first = Math.min(count, capacity - start);
+    writerView.position(start);
+    writerView.put(source, offset, first);
+    if (first < count) {
+      writerView.position(0);
+      writerView.put(source, offset + first, count - first);
+    }
+    writeIndex.lazySet(INDEX, written + count);
+    return count;
+  }
+
+  /**
+   * Append the first samples of a slice to the buffer. Producer side only.
+   *
+   * @param source the samples to be written.
+   * @param length the number of samples to be written.
+   * @return the number of samples actually written (less than `length` if the buffer is full).
+   */
+  public int write(ImmutableAudioSlice source, int length) {
+    if (source == null) return 0;
+    if (source.isExpired()) return 0;
+    if (length < 0 || length > source.length()) throw new IndexOutOfBoundsException();
+    final long written = writeIndex.get(INDEX);
+    final int count = Math.min(length, capacity - (int) (written - readIndex.get(INDEX)));
+    if (count <= 0) return 0;
+    final int start = (int) written & mask;
+    final int first = Math.min(count, capacity - start);
+    final FloatBuffer from = ImmutableAudioSliceImpl.readableBufferOf(source).duplicate();
+    from.limit(first);
+    from.position(0);
+    writerView.position(start);
+    writerView.put(from);
+    if (first < count) {
+      from.limit(count);
+      writerView.position(0);
+      writerView.put(from);
+    }
+    writeIndex.lazySet(INDEX, written + count);
+    return count;
+  }
+
+  /**
+   * Remove samples from the buffer. Consumer side only.
+   *
+   * @param target receives the samples.
+   * @param offset the index in `target` where the first sample is stored.
+   * @param length the maximum number of samples to be read.
+   * @return the number of samples actually read (less than `length` if the buffer runs empty).
+   */
+  public int read(float[] target, int offset, int length) {
+    if (target == null) return 0;
+    if (offset < 0 || length < 0 || offset + length > target.length) throw new IndexOutOfBoundsException();
+    final long read = readIndex.get(INDEX);
+    final int count = Math.min(length, (int) (writeIndex.get(INDEX) - read));
+    if (count <= 0) return 0;
+    final int start = (int) read & mask;
+    final int first = Math.min(count, capacity - start);
+    readerView.position(start);
+    readerView.get(target, offset, first);
+    if (first < count) {
+      readerView.position(0);
+      readerView.get(target, offset + first, count - first);
+    }
+    readIndex.lazySet(INDEX, read + count);
+    return count;
+  }
+
+  /**
+   * Remove samples from the buffer into the beginning of a slice. Consumer side only.
+   *
+   * @param target receives the samples.
+   * @param length the maximum number of samples to be read.
+   * @return the number of samples actually read (less than `length` if the buffer runs empty).
+   */
+  public int read(MutableAudioSlice target, int length) {
+    if (target == null) return 0;
+    if (target.isExpired()) return 0;
+    if (length < 0 || length > target.length()) throw new IndexOutOfBoundsException();
+    final long read = readIndex.get(INDEX);
+    final int count = Math.min(length, (int) (writeIndex.get(INDEX) - read));
+    if (count <= 0) return 0;
+    final int start = (int) read & mask;
+    final int first = Math.min(count, capacity - start);
+    final FloatBuffer to = ImmutableAudioSliceImpl.readableBufferOf(target).duplicate();
+    to.position(0);
+    readerView.limit(start + first);
+    readerView.position(start);
+    to.put(readerView);
+    if (first < count) {
+      readerView.limit(count - first);
+      readerView.position(0);
+      to.put(readerView);
+    }
+    // the array functions rely on the full limit.
+    readerView.limit(capacity);
+    readIndex.lazySet(INDEX, read + count);
+    return count;
+  }
+
+  /**
+   * Discard samples without reading them. Consumer side only.
+   *
+   * @param length the maximum number of samples to be skipped.
+   * @return the number of samples actually skipped.
+   */
+  public int skip(int length) {
+    final long read = readIndex.get(INDEX);
+    final int count = Math.min(Math.max(length, 0), (int) (writeIndex.get(INDEX) - read));
+    if (count <= 0) return 0;
+    readIndex.lazySet(INDEX, read + count);
+    return count;
+  }
+}
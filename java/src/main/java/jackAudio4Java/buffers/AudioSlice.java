@@ -4,7 +4,8 @@ public interface AudioSlice {
 
   /**
    *
-   * @return The cycle number for which this slice is guaranteed to remain valid. If the returned value is
+   * @return The JACK frame time up to which this slice is guaranteed to remain valid
+   * (the end of the process cycle in which it was handed out). If the returned value is
    * zero, no guarantee is given.
    */
   long validThru();
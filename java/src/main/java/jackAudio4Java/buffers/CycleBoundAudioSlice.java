@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.buffers;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A slice over memory that only belongs to us for one process cycle (the buffer of a JACK port).
+ * <p>
+ * The slice is stamped with the end of the cycle in which it was handed out.
+ * Once this cycle is over, it counts as expired and reading it throws an `IllegalStateException`.
+ * A slice handed out while no cycle is running is not stamped; it expires as soon as the next cycle begins,
+ * so that it cannot outlive the port it was taken from.
+ */
+class CycleBoundAudioSlice extends ImmutableAudioSliceImpl {
+
+  private final CycleClock clock;
+  private long stamp = 0;
+
+  /**
+   * The number of cycles begun when the slice was stamped, only looked at for unstamped slices.
+   */
+  private long cycle = 0;
+
+  CycleBoundAudioSlice(FloatBuffer buffer, CycleClock clock) {
+    super(buffer, null);
+    this.clock = clock;
+    renew();
+  }
+
+  @Override
+  public void renew() {
+    cycle = clock.cycles();
+    stamp = clock.validThru();
+  }
+
+  private boolean isCurrent() {
+    if (stamp != 0) return stamp == clock.validThru();
+    return cycle == clock.cycles();
+  }
+
+  @Override
+  public float get(int index) {
+    if (!isCurrent()) throw new IllegalStateException("Audio slice used after the end of its cycle.");
+    return super.get(index);
+  }
+
+  @Override
+  public ImmutableAudioSlice subSlice(int index, int length) {
+    CycleBoundAudioSlice view = new CycleBoundAudioSlice(region(index, length), clock);
+    view.stamp = stamp;
+    view.cycle = cycle;
+    return view;
+  }
+
+  @Override
+  public long validThru() {
+    return stamp;
+  }
+
+  @Override
+  public boolean isExpired() {
+    return super.isExpired() || !isCurrent();
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.buffers;
+
+/**
+ * Tells which process cycle of a client is running.
+ * <p>
+ * While a cycle is running, {@link #validThru()} gives the JACK frame time at which the cycle ends
+ * (`jack_last_frame_time` plus the number of frames in the cycle). Between cycles it gives zero.
+ * Slices that wrap port memory carry the value of the cycle they were handed out in and
+ * refuse to be read once that cycle is over.
+ * <p>
+ * Only the process thread of the client shall call {@link #begin(long, int)} and {@link #end()}.
+ */
+public final class CycleClock {
+
+  private long lastFrameTime = 0;
+  private volatile long validThru = 0;
+  private volatile long cycles = 0;
+
+  /**
+   * Mark the start of a process cycle.
+   *
+   * @param lastFrameTime the frame time at the start of the cycle, as given by `jack_last_frame_time`.
+   * @param nframes       the number of frames in this cycle.
+   */
+  public void begin(long lastFrameTime, int nframes) {
+    this.lastFrameTime = lastFrameTime;
+    cycles++;
+    validThru = lastFrameTime + Math.max(nframes, 1);
+  }
+
+  /**
+   * Mark the end of the running process cycle.
+   */
+  public void end() {
+    validThru = 0;
+  }
+
+  /**
+   * @return the frame time at which the running cycle ends, or zero if no cycle is running.
+   */
+  public long validThru() {
+    return validThru;
+  }
+
+  /**
+   * @return the number of cycles begun so far.
+   */
+  public long cycles() {
+    return cycles;
+  }
+
+  /**
+   * @return the frame time at the start of the running cycle, or -1 if no cycle is running.
+   */
+  public long lastFrameTime() {
+    if (validThru == 0) return -1;
+    return lastFrameTime;
+  }
+}
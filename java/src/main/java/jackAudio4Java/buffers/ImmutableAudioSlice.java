@@ -26,6 +26,7 @@ public interface ImmutableAudioSlice extends AudioSlice{
    * Returns the number of audio samples in this slice.
    *
    * @return the number of audio samples in this slice.
+   * @throws IllegalStateException if this slice has expired.
    */
   int length();
 
@@ -39,6 +40,30 @@ public interface ImmutableAudioSlice extends AudioSlice{
    */
   float get(int index);
 
+  /**
+   * Bulk get method. Copies samples of this slice into an array.
+   *
+   * @param index  the index of the first sample to be copied.
+   * @param target the array receiving the samples.
+   * @param offset the index in `target` where the first sample is stored.
+   * @param length the number of samples to be copied.
+   * @throws IndexOutOfBoundsException if the range does not fit into this slice or into `target`.
+   * @throws IllegalStateException     if this slice has expired.
+   */
+  void copyTo(int index, float[] target, int offset, int length);
+
+  /**
+   * Returns a view of a part of this slice. No data is copied.
+   * <p>
+   * The view is valid as long as this slice is valid. Expiring the view does not expire this slice.
+   *
+   * @param index  the index of the first sample of the view.
+   * @param length the number of samples in the view.
+   * @return a slice sharing its samples with this slice.
+   * @throws IndexOutOfBoundsException if the range does not fit into this slice.
+   */
+  ImmutableAudioSlice subSlice(int index, int length);
+
   /**
    * Returns a writable copy of this slice.
    * @return a writable copy of this slice.
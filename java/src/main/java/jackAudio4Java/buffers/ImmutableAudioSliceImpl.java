@@ -17,35 +17,87 @@ package jackAudio4Java.buffers;
 
 
 import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
   *
  */
 class ImmutableAudioSliceImpl implements ImmutableAudioSlice, InternalAudioSlice {
 
+  private static final AtomicIntegerFieldUpdater<ImmutableAudioSliceImpl> EXPIRED =
+          AtomicIntegerFieldUpdater.newUpdater(ImmutableAudioSliceImpl.class, "expired");
+
   private FloatBuffer buffer;
   private final Manager manager;
+  private final int ticket;
+
+  /**
+   * The slice whose memory this slice views (for sub-slices), or null.
+   */
+  private final ImmutableAudioSliceImpl parent;
+
+  /**
+   * Set to 1 by the one call of {@link #expire()} that gives the memory back.
+   */
+  private volatile int expired = 0;
 
   ImmutableAudioSliceImpl(FloatBuffer buffer, Manager manager) {
+    this(buffer, manager, Manager.NO_TICKET);
+  }
+
+  ImmutableAudioSliceImpl(FloatBuffer buffer, Manager manager, int ticket) {
     this.buffer = buffer;
     this.manager = manager;
+    this.ticket = ticket;
+    this.parent = null;
+  }
+
+  /**
+   * Create a view on a part of the memory of another slice. The view expires with its parent.
+   */
+  ImmutableAudioSliceImpl(ImmutableAudioSliceImpl parent, FloatBuffer buffer) {
+    this.buffer = buffer;
+    this.manager = null;
+    this.ticket = Manager.NO_TICKET;
+    this.parent = parent;
   }
 
 
   @Override
   public int length() {
-    return buffer.limit();
+    return readableBuffer().limit();
   }
 
 
   @Override
   public float get(int index) {
+    if (parent != null && parent.isExpired()) throw new IllegalStateException("Audio slice has expired.");
     return buffer.get(index);
   }
 
+  @Override
+  public void copyTo(int index, float[] target, int offset, int length) {
+    final FloatBuffer source = readableBuffer();
+    checkRange(index, length, source.limit());
+    checkRange(offset, length, target.length);
+    FloatBuffer view = source.duplicate();
+    view.position(index);
+    view.get(target, offset, length);
+  }
+
+  @Override
+  public ImmutableAudioSlice subSlice(int index, int length) {
+    return new ImmutableAudioSliceImpl(this, region(index, length));
+  }
+
+  final Manager getManager() {
+    return manager;
+  }
+
   @Override
   public MutableAudioSlice mutableCopy() {
-    return manager.makeMakeMutableAudioSlice(this);
+    Manager copyManager = (manager == null) ? Manager.getDefault() : manager;
+    return copyManager.makeMakeMutableAudioSlice(this);
   }
 
   @Override
@@ -55,18 +107,59 @@ class ImmutableAudioSliceImpl implements ImmutableAudioSlice, InternalAudioSlice
 
   @Override
   public void expire() {
-    manager.recycle(buffer);
+    // only one of several concurrent calls may recycle the memory.
+    if (!EXPIRED.compareAndSet(this, 0, 1)) return;
     buffer = null;
-
+    // wrapped memory (manager == null) belongs to someone else and must not be recycled.
+    if (manager != null) manager.recycle(ticket);
   }
 
   @Override
   public boolean isExpired() {
-    return buffer == null;
+    return expired != 0 || (parent != null && parent.isExpired());
   }
 
   @Override
   public FloatBuffer accessInternalBuffer() {
     return buffer;
   }
+
+  /**
+   * The bulk operations check the state of the slice once and then work on the buffer directly,
+   * instead of going through `get` and `put` for every sample.
+   *
+   * @return the buffer of this slice.
+   * @throws IllegalStateException if this slice has expired.
+   */
+  final FloatBuffer readableBuffer() {
+    // read the buffer first, it is only cleared after the expiry has been published.
+    final FloatBuffer current = buffer;
+    if (current == null || isExpired()) throw new IllegalStateException("Audio slice has expired.");
+    return current;
+  }
+
+  /**
+   * @return the buffer of the given slice.
+   * @throws IllegalStateException if the slice has expired.
+   */
+  static FloatBuffer readableBufferOf(ImmutableAudioSlice slice) {
+    if (slice.isExpired()) throw new IllegalStateException("Audio slice has expired.");
+    return ((InternalAudioSlice) slice).accessInternalBuffer();
+  }
+
+  /**
+   * @return a buffer sharing the given range of samples with this slice.
+   */
+  final FloatBuffer region(int index, int length) {
+    final FloatBuffer source = readableBuffer();
+    checkRange(index, length, source.limit());
+    FloatBuffer view = source.duplicate();
+    view.limit(index + length);
+    view.position(index);
+    return view.slice();
+  }
+
+  static void checkRange(int index, int length, int size) {
+    if (index < 0 || length < 0 || index > size - length) throw new IndexOutOfBoundsException();
+  }
 }
@@ -27,4 +27,11 @@ public interface InternalAudioSlice extends AudioSlice {
 
   FloatBuffer accessInternalBuffer();
 
+  /**
+   * Stamp a slice that wraps port memory with the running cycle, when it is handed out again.
+   * Other slices ignore this call.
+   */
+  default void renew() {
+  }
+
 }
@@ -15,21 +15,60 @@
  */
 package jackAudio4Java.buffers;
 
-import jackAudio4Java.utilities.NotYetImplementedException;
-
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
+/**
+ * The manager provides the memory for audio slices.
+ * <p>
+ * Slices are carved out of large off-heap slabs. The slabs are divided into size classes,
+ * one for each power of two between {@value #MIN_POOLED_LENGTH} and {@value #MAX_POOLED_LENGTH}
+ * floats (this covers every buffer size JACK can be configured with).
+ * The free buffers of each size class are kept on a lock-free stack. Thus {@link AudioSlice#expire()}
+ * and {@link #makeMutableAudioSlice(int)} neither lock nor allocate slabs.
+ * <p>
+ * The pool only grows in {@link #reserve(int, int)}. Call it before activating a client, with the
+ * number of slices the process thread will need; a request that finds the pool empty gets memory
+ * of its own instead.
+ */
 public class Manager {
 
+  static final int MIN_POOLED_LENGTH = 32;
+  static final int MAX_POOLED_LENGTH = 16384;
+
+  /**
+   * The number of floats in one slab (1 MiB).
+   */
+  private static final int SLAB_LENGTH = 1 << 18;
+
+  private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_POOLED_LENGTH);
+  private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_POOLED_LENGTH) - MIN_SHIFT + 1;
+
+  /**
+   * A ticket identifies a pooled buffer: the size class is in the upper bits, the slot in the lower bits.
+   */
+  private static final int SLOT_BITS = 24;
+  private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+  /**
+   * The ticket of memory that does not belong to the pool.
+   */
+  static final int NO_TICKET = -1;
+
+  private static class DefaultHolder {
+    static final Manager instance = new Manager();
+  }
+
+  private final SizeClass[] sizeClasses = new SizeClass[CLASS_COUNT];
+
   /**
    * Create a direct float buffer of given length.
    *
    * @param length the number float elements provided by the buffer.
    * @return a direct float buffer.
    */
-  private static FloatBuffer makeDirectFloatBuffer(int length) {
+  public static FloatBuffer makeDirectFloatBuffer(int length) {
     ByteBuffer newByteBuffer = ByteBuffer.allocateDirect(length * Float.SIZE / Byte.SIZE);
     newByteBuffer.order(ByteOrder.nativeOrder()); // see https://bugs.openjdk.java.net/browse/JDK-5043362
     FloatBuffer newFloatBuffer = newByteBuffer.asFloatBuffer();
@@ -37,15 +76,151 @@ public class Manager {
     return newFloatBuffer;
   }
 
+  /**
+   * @return the manager shared by the whole application.
+   */
+  public static Manager getDefault() {
+    return DefaultHolder.instance;
+  }
+
   protected Manager(){
+    for (int c = 0; c < CLASS_COUNT; c++) {
+      sizeClasses[c] = new SizeClass(MIN_POOLED_LENGTH << c, SLAB_LENGTH);
+    }
+  }
 
+  /**
+   * Get a writable slice from the pool.
+   * <p>
+   * Note: the content of the slice is undefined, it may contain the samples of an expired slice.
+   * <p>
+   * Slices longer than {@value #MAX_POOLED_LENGTH} floats are not pooled. If the pool holds no free
+   * buffer of the requested size (because {@link #reserve(int, int)} was not called), the slice gets
+   * memory of its own; this costs an off-heap allocation, but never waits for a lock.
+   *
+   * @param length the number of audio samples in the slice.
+   * @return a new slice, it shall be expired when it is not used anymore.
+   */
+  public MutableAudioSlice makeMutableAudioSlice(int length) {
+    if (length <= 0) throw new IllegalArgumentException("Invalid slice length " + length);
+    int c = classOf(length);
+    int slot = (c < 0) ? NO_TICKET : take(c);
+    if (slot == NO_TICKET) {
+      return new MutableAudioSliceImpl(makeDirectFloatBuffer(length), null);
+    }
+    FloatBuffer buffer = sizeClasses[c].buffer(slot);
+    buffer.clear();
+    buffer.limit(length);
+    return new MutableAudioSliceImpl(buffer, this, (c << SLOT_BITS) | slot);
+  }
+
+  /**
+   * Make sure that the pool holds at least the given number of free slices of the given length,
+   * so that later requests do not have to allocate off-heap memory.
+   * <p>
+   * This is the only function that grows the pool. It may allocate and lock, so do not call it
+   * from the process thread.
+   *
+   * @param length the number of audio samples in each slice.
+   * @param count  the number of slices.
+   */
+  public void reserve(int length, int count) {
+    int c = classOf(length);
+    if (c < 0) return;
+    sizeClasses[c].reserve(count);
+  }
+
+  /**
+   * Wrap memory that is owned by someone else (for example the buffer of a JACK port)
+   * into an audio slice.
+   * <p>
+   * Expiring the returned slice does not release the wrapped memory.
+   *
+   * @param buffer a direct float buffer.
+   * @return a slice giving read access to the given buffer.
+   */
+  public static ImmutableAudioSlice wrap(FloatBuffer buffer) {
+    return new ImmutableAudioSliceImpl(buffer, null);
+  }
+
+  /**
+   * Wrap memory that is only valid during one process cycle (the buffer of a JACK port)
+   * into an audio slice. The slice expires when the cycle in which it was handed out is over.
+   *
+   * @param buffer a direct float buffer.
+   * @param clock  the clock of the client owning the memory.
+   * @return a slice giving read access to the given buffer.
+   */
+  public static ImmutableAudioSlice wrap(FloatBuffer buffer, CycleClock clock) {
+    return new CycleBoundAudioSlice(buffer, clock);
+  }
+
+  /**
+   * Wrap memory that is owned by someone else into a writable audio slice.
+   * <p>
+   * Expiring the returned slice does not release the wrapped memory.
+   *
+   * @param buffer a direct float buffer.
+   * @return a slice giving read and write access to the given buffer.
+   */
+  public static MutableAudioSlice wrapMutable(FloatBuffer buffer) {
+    return new MutableAudioSliceImpl(buffer, null);
+  }
+
+  /**
+   * @return a new immutable slice holding a copy of the samples of the given slice.
+   */
+  ImmutableAudioSlice makeImmutableCopy(ImmutableAudioSliceImpl source) {
+    int length = source.length();
+    int c = classOf(length);
+    int slot = (c < 0) ? NO_TICKET : take(c);
+    FloatBuffer buffer;
+    if (slot == NO_TICKET) {
+      buffer = makeDirectFloatBuffer(length);
+    } else {
+      buffer = sizeClasses[c].buffer(slot);
+      buffer.clear();
+      buffer.limit(length);
+    }
+    FloatBuffer from = source.readableBuffer().duplicate();
+    from.position(0);
+    FloatBuffer view = buffer.duplicate();
+    view.put(from);
+    if (slot == NO_TICKET) return new ImmutableAudioSliceImpl(buffer, null);
+    return new ImmutableAudioSliceImpl(buffer, this, (c << SLOT_BITS) | slot);
   }
 
   MutableAudioSlice makeMakeMutableAudioSlice(ImmutableAudioSliceImpl immutableAudioSlice) {
-    throw new NotYetImplementedException();
+    int length = immutableAudioSlice.length();
+    MutableAudioSlice copy = makeMutableAudioSlice(length);
+    copy.copyFrom(immutableAudioSlice, 0, 0, length);
+    return copy;
+  }
+
+  /**
+   * Return a pooled buffer.
+   *
+   * @param ticket the ticket of the buffer, as given to the slice.
+   */
+  void recycle(int ticket) {
+    if (ticket == NO_TICKET) return;
+    sizeClasses[ticket >>> SLOT_BITS].push(ticket & SLOT_MASK);
   }
 
-  void recycle(FloatBuffer buffer) {
-    throw new NotYetImplementedException();
+  /**
+   * @return the index of the smallest size class holding `length` floats, or -1 if there is none.
+   */
+  private static int classOf(int length) {
+    if (length > MAX_POOLED_LENGTH) return -1;
+    if (length <= MIN_POOLED_LENGTH) return 0;
+    return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_SHIFT;
+  }
+
+  /**
+   * @return a free slot of the given class or `NO_TICKET` if there is none; never grows the class.
+   */
+  private int take(int c) {
+    int slot = sizeClasses[c].pop();
+    return (slot == SizeClass.EMPTY) ? NO_TICKET : slot;
   }
 }
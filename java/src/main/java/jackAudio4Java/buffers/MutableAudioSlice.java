@@ -30,9 +30,74 @@ public interface MutableAudioSlice extends ImmutableAudioSlice, AudioSlice {
    */
   void put(int index, float value);
 
+  /**
+   * Bulk put method. Copies samples from an array into this slice.
+   *
+   * @param source the array providing the samples.
+   * @param offset the index in `source` of the first sample to be copied.
+   * @param index  the index in this slice where the first sample is stored.
+   * @param length the number of samples to be copied.
+   * @throws IndexOutOfBoundsException if the range does not fit into `source` or into this slice.
+   */
+  void copyFrom(float[] source, int offset, int index, int length);
+
+  /**
+   * Bulk put method. Copies samples from another slice into this slice.
+   * The two ranges shall not overlap.
+   *
+   * @param source      the slice providing the samples.
+   * @param sourceIndex the index in `source` of the first sample to be copied.
+   * @param index       the index in this slice where the first sample is stored.
+   * @param length      the number of samples to be copied.
+   * @throws IndexOutOfBoundsException if the range does not fit into `source` or into this slice.
+   * @throws IllegalStateException     if one of the slices has expired.
+   */
+  void copyFrom(ImmutableAudioSlice source, int sourceIndex, int index, int length);
+
+  /**
+   * Set all samples of this slice to the given value.
+   *
+   * @param value the new value of all samples (typically zero).
+   */
+  void fill(float value);
+
+  /**
+   * Multiply all samples of this slice by the given factor.
+   *
+   * @param gain the factor.
+   */
+  void scale(float gain);
+
+  /**
+   * Mix another slice into this slice: `this[i] += gain * source[i]` for all samples of this slice.
+   *
+   * @param source the slice to be mixed in, it must be at least as long as this slice.
+   * @param gain   the factor applied to the samples of `source`.
+   * @throws IndexOutOfBoundsException if `source` is shorter than this slice.
+   * @throws IllegalStateException     if one of the slices has expired.
+   */
+  void addScaled(ImmutableAudioSlice source, float gain);
+
+  /**
+   * Returns a writable view of a part of this slice. No data is copied.
+   * <p>
+   * The view is valid as long as this slice is valid. Expiring the view does not expire this slice.
+   *
+   * @param index  the index of the first sample of the view.
+   * @param length the number of samples in the view.
+   * @return a slice sharing its samples with this slice.
+   * @throws IndexOutOfBoundsException if the range does not fit into this slice.
+   */
+  @Override
+  MutableAudioSlice subSlice(int index, int length);
+
 
   /**
    * Returns this slice as immutable data. An  ImmutableAudioSlice can safely be exchanged among threads.
+   * <p>
+   * The samples are copied, so later changes of this slice do not show in the result.
+   * Expire the result when it is not used anymore.
+   *
    * @return an immutable version of this slice.
    */
   ImmutableAudioSlice asImmutable();
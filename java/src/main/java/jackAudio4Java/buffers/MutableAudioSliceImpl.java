@@ -22,13 +22,91 @@ class MutableAudioSliceImpl  extends ImmutableAudioSliceImpl implements MutableA
     super(buffer, manager);
   }
 
+  MutableAudioSliceImpl(FloatBuffer buffer, Manager manager, int ticket) {
+    super(buffer, manager, ticket);
+  }
+
+  MutableAudioSliceImpl(MutableAudioSliceImpl parent, FloatBuffer buffer) {
+    super(parent, buffer);
+  }
+
   @Override
   public void put(int index, float value) {
+    if (isExpired()) throw new IllegalStateException("Audio slice has expired.");
+    accessInternalBuffer().put(index, value);
+  }
+
+  @Override
+  public void copyFrom(float[] source, int offset, int index, int length) {
+    final FloatBuffer target = readableBuffer();
+    checkRange(offset, length, source.length);
+    checkRange(index, length, target.limit());
+    FloatBuffer view = target.duplicate();
+    view.position(index);
+    view.put(source, offset, length);
+  }
+
+  @Override
+  public void copyFrom(ImmutableAudioSlice source, int sourceIndex, int index, int length) {
+    final FloatBuffer target = readableBuffer();
+    final FloatBuffer from = readableBufferOf(source);
+    checkRange(sourceIndex, length, from.limit());
+    checkRange(index, length, target.limit());
+    FloatBuffer fromView = from.duplicate();
+    fromView.limit(sourceIndex + length);
+    fromView.position(sourceIndex);
+    FloatBuffer view = target.duplicate();
+    view.position(index);
+    view.put(fromView);
+  }
 
+  @Override
+  public void fill(float value) {
+    final FloatBuffer target = readableBuffer();
+    final int length = target.limit();
+    if (length == 0) return;
+    // set the first sample, then double the filled part with bulk copies.
+    target.put(0, value);
+    FloatBuffer from = target.duplicate();
+    FloatBuffer view = target.duplicate();
+    for (int filled = 1; filled < length; filled <<= 1) {
+      int count = Math.min(filled, length - filled);
+      from.limit(count);
+      from.position(0);
+      view.limit(filled + count);
+      view.position(filled);
+      view.put(from);
+    }
+  }
+
+  @Override
+  public void scale(float gain) {
+    final FloatBuffer target = readableBuffer();
+    final int length = target.limit();
+    for (int i = 0; i < length; i++) {
+      target.put(i, gain * target.get(i));
+    }
+  }
+
+  @Override
+  public void addScaled(ImmutableAudioSlice source, float gain) {
+    final FloatBuffer target = readableBuffer();
+    final FloatBuffer from = readableBufferOf(source);
+    final int length = target.limit();
+    if (from.limit() < length) throw new IndexOutOfBoundsException();
+    for (int i = 0; i < length; i++) {
+      target.put(i, target.get(i) + gain * from.get(i));
+    }
+  }
+
+  @Override
+  public MutableAudioSlice subSlice(int index, int length) {
+    return new MutableAudioSliceImpl(this, region(index, length));
   }
 
   @Override
   public ImmutableAudioSlice asImmutable() {
-    return null;
+    Manager copyManager = (getManager() == null) ? Manager.getDefault() : getManager();
+    return copyManager.makeImmutableCopy(this);
   }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.buffers;
+
+import jackAudio4Java.types.BufferSizeListener;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fixed number of scratch slices that always have the length of the current JACK period.
+ * <p>
+ * Register the set with {@link jackAudio4Java.Jack#registerBufferSizeListener}. When the period
+ * changes, the replacement slices are taken from the {@link Manager} in the notification thread
+ * and swapped in as a whole; the process thread just calls {@link #get(int)} in every cycle
+ * and never allocates.
+ * <p>
+ * The replaced slices are kept until the next change (or {@link #release()}),
+ * in case a thread still holds on to them.
+ */
+public class PeriodBuffers implements BufferSizeListener {
+
+  private final Manager manager;
+  private final int count;
+  private final AtomicReference<MutableAudioSlice[]> current = new AtomicReference<>();
+
+  /**
+   * The slices replaced by the last change. Guarded by `this`.
+   */
+  private MutableAudioSlice[] retired;
+
+  /**
+   * @param count   the number of slices.
+   * @param nframes the current number of frames per cycle.
+   */
+  public PeriodBuffers(int count, int nframes) {
+    this(Manager.getDefault(), count, nframes);
+  }
+
+  /**
+   * @param manager the manager providing the memory.
+   * @param count   the number of slices.
+   * @param nframes the current number of frames per cycle.
+   */
+  public PeriodBuffers(Manager manager, int count, int nframes) {
+    if (count <= 0) throw new IllegalArgumentException("Invalid count " + count);
+    if (nframes <= 0) throw new IllegalArgumentException("Invalid number of frames " + nframes);
+    this.manager = manager;
+    this.count = count;
+    current.set(allocate(nframes));
+  }
+
+  /**
+   * @param index the index of a slice, between zero and {@link #count()}.
+   * @return the slice, it has the length of the current period.
+   */
+  public MutableAudioSlice get(int index) {
+    return current.get()[index];
+  }
+
+  /**
+   * @return the number of slices.
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * @return the length of the slices.
+   */
+  public int length() {
+    return current.get()[0].length();
+  }
+
+  /**
+   * Replace all slices by slices of the new length.
+   *
+   * @param nframes the new number of frames per cycle.
+   * @return 0 on success, -1 if the length is invalid.
+   */
+  @Override
+  public synchronized int onBufferSize(int nframes) {
+    if (nframes <= 0) return -1;
+    MutableAudioSlice[] previous = current.get();
+    if (previous == null) return -1;
+    if (previous[0].length() == nframes) return 0;
+    current.set(allocate(nframes));
+    expire(retired);
+    retired = previous;
+    return 0;
+  }
+
+  /**
+   * Give all slices back to the manager. The set cannot be used afterwards.
+   */
+  public synchronized void release() {
+    expire(current.getAndSet(null));
+    expire(retired);
+    retired = null;
+  }
+
+  private MutableAudioSlice[] allocate(int nframes) {
+    manager.reserve(nframes, count);
+    MutableAudioSlice[] slices = new MutableAudioSlice[count];
+    for (int i = 0; i < count; i++) {
+      slices[i] = manager.makeMutableAudioSlice(nframes);
+      slices[i].fill(0f);
+    }
+    return slices;
+  }
+
+  private static void expire(MutableAudioSlice[] slices) {
+    if (slices == null) return;
+    for (MutableAudioSlice slice : slices) slice.expire();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.buffers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * All pooled buffers of one size, carved out of large off-heap slabs.
+ * <p>
+ * Free buffers are kept on a lock-free stack of slot numbers. The head of the stack carries a
+ * stamp that is incremented on every change, so a slot that is popped and pushed again
+ * in between cannot fool a competing thread (ABA problem).
+ */
+class SizeClass {
+
+  /**
+   * A size class cannot grow beyond this number of slabs.
+   */
+  static final int MAX_SLABS = 256;
+
+  static final int EMPTY = -1;
+
+  /**
+   * The number of floats in each buffer of this class.
+   */
+  final int bufferLength;
+
+  private final int slotsPerSlab;
+
+  /**
+   * `slabs[s][i]` is the buffer of slot `s * slotsPerSlab + i`.
+   */
+  private final FloatBuffer[][] slabs = new FloatBuffer[MAX_SLABS][];
+
+  /**
+   * `links[s][i]` is the slot below slot `s * slotsPerSlab + i` on the free stack.
+   */
+  private final int[][] links = new int[MAX_SLABS][];
+
+  private int slabCount = 0;
+
+  /**
+   * High 32 bits: stamp, low 32 bits: the slot on top of the free stack (or `EMPTY`).
+   */
+  private final AtomicLong head = new AtomicLong(pack(0, EMPTY));
+
+  /**
+   * The number of slots on the free stack.
+   */
+  private final AtomicInteger free = new AtomicInteger(0);
+
+  SizeClass(int bufferLength, int slabLength) {
+    this.bufferLength = bufferLength;
+    this.slotsPerSlab = Math.max(1, slabLength / bufferLength);
+  }
+
+  private static long pack(long stamp, int slot) {
+    return (stamp << 32) | (slot & 0xFFFFFFFFL);
+  }
+
+  private int linkOf(int slot) {
+    return links[slot / slotsPerSlab][slot % slotsPerSlab];
+  }
+
+  private void setLinkOf(int slot, int below) {
+    links[slot / slotsPerSlab][slot % slotsPerSlab] = below;
+  }
+
+  /**
+   * @param slot a slot that has been taken from this class.
+   * @return the buffer belonging to the slot.
+   */
+  FloatBuffer buffer(int slot) {
+    return slabs[slot / slotsPerSlab][slot % slotsPerSlab];
+  }
+
+  /**
+   * Take a free slot.
+   *
+   * @return a slot number or -1 if no slot is free.
+   */
+  int pop() {
+    while (true) {
+      long current = head.get();
+      int slot = (int) current;
+      if (slot == EMPTY) return EMPTY;
+      long next = pack((current >>> 32) + 1, linkOf(slot));
+      if (head.compareAndSet(current, next)) {
+        free.decrementAndGet();
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * Give a slot back.
+   *
+   * @param slot a slot that has been taken from this class.
+   */
+  void push(int slot) {
+    while (true) {
+      long current = head.get();
+      setLinkOf(slot, (int) current);
+      long next = pack((current >>> 32) + 1, slot);
+      if (head.compareAndSet(current, next)) {
+        free.incrementAndGet();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Grow until at least the given number of slots are free.
+   *
+   * @param slots the wanted number of free slots.
+   */
+  synchronized void reserve(int slots) {
+    while (free.get() < slots) {
+      if (!grow()) return;
+    }
+  }
+
+  /**
+   * Allocate one more slab and put its slots on the free stack.
+   * <p>
+   * This is the only place where memory is allocated; it is only called from {@link #reserve(int)}.
+   *
+   * @return false if the class has reached its maximum size.
+   */
+  private boolean grow() {
+    if (slabCount == MAX_SLABS) return false;
+    ByteBuffer slab = ByteBuffer.allocateDirect(slotsPerSlab * bufferLength * Float.BYTES);
+    FloatBuffer[] buffers = new FloatBuffer[slotsPerSlab];
+    for (int i = 0; i < slotsPerSlab; i++) {
+      slab.limit((i + 1) * bufferLength * Float.BYTES);
+      slab.position(i * bufferLength * Float.BYTES);
+      buffers[i] = slab.slice().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+    int s = slabCount;
+    slabs[s] = buffers;
+    links[s] = new int[slotsPerSlab];
+    slabCount = s + 1;
+    // the stamped compare-and-set in push publishes the new arrays to the popping threads.
+    for (int i = 0; i < slotsPerSlab; i++) {
+      push(s * slotsPerSlab + i);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+/**
+ * A fixed-capacity list of time-stamped events, exchanged between the nodes of a {@link Graph}.
+ * <p>
+ * Each event consists of the frame (within the current cycle) at which it happens and a
+ * 64-bit payload (for example a packed MIDI message). Events are kept in the order of their frames.
+ * The buffer never allocates memory after its creation.
+ */
+public final class EventBuffer {
+
+  private final int[] frames;
+  private final long[] payloads;
+  private int size = 0;
+
+  /**
+   * @param capacity the maximum number of events per cycle.
+   */
+  public EventBuffer(int capacity) {
+    frames = new int[capacity];
+    payloads = new long[capacity];
+  }
+
+  /**
+   * @return the maximum number of events this buffer can hold.
+   */
+  public int capacity() {
+    return frames.length;
+  }
+
+  /**
+   * @return the number of events in this buffer.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param index the index of an event, between zero and `size() - 1`.
+   * @return the frame at which the event happens.
+   */
+  public int frame(int index) {
+    if (index >= size) throw new IndexOutOfBoundsException();
+    return frames[index];
+  }
+
+  /**
+   * @param index the index of an event, between zero and `size() - 1`.
+   * @return the payload of the event.
+   */
+  public long payload(int index) {
+    if (index >= size) throw new IndexOutOfBoundsException();
+    return payloads[index];
+  }
+
+  /**
+   * Add an event. Events shall be added in the order of their frames; an event
+   * with an earlier frame is sorted in.
+   *
+   * @param frame   the frame at which the event happens.
+   * @param payload the payload of the event.
+   * @return false if the buffer is full and the event was dropped.
+   */
+  public boolean add(int frame, long payload) {
+    if (size == frames.length) return false;
+    int i = size;
+    while (i > 0 && frames[i - 1] > frame) {
+      frames[i] = frames[i - 1];
+      payloads[i] = payloads[i - 1];
+      i--;
+    }
+    frames[i] = frame;
+    payloads[i] = payload;
+    size++;
+    return true;
+  }
+
+  /**
+   * Add all events of another buffer, keeping the order of frames.
+   *
+   * @param other the buffer providing the events.
+   * @return false if some events were dropped, because this buffer is full.
+   */
+  public boolean addAll(EventBuffer other) {
+    boolean complete = true;
+    for (int i = 0; i < other.size; i++) {
+      complete &= add(other.frames[i], other.payloads[i]);
+    }
+    return complete;
+  }
+
+  /**
+   * Remove all events.
+   */
+  public void clear() {
+    size = 0;
+  }
+}
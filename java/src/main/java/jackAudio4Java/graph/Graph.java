@@ -0,0 +1,448 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.types.BufferSizeListener;
+import jackAudio4Java.types.ProcessListener;
+
+import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs many small processing {@link Node}s within the process callback of one JACK client.
+ * <p>
+ * The graph is edited on an ordinary thread ({@link #add(Node)}, {@link #connect(NodePort, NodePort)} ...).
+ * Edits take effect when {@link #commit()} is called: the graph is then sorted topologically,
+ * buffers are allocated for all outputs, and the compiled schedule replaces the running one in a single step.
+ * The process thread never sees a half-edited graph and never waits for the editing thread.
+ * <p>
+ * Example:
+ * ```java
+ * Graph graph = new Graph(jack.getBufferSize(client));
+ * graph.add(source); graph.add(gain); graph.add(sink);
+ * graph.connect(source.out, gain.in);
+ * graph.connect(gain.out, sink.in);
+ * graph.commit();
+ * jack.registerProcessListener(client, graph);
+ * jack.registerBufferSizeListener(client, graph);
+ * ```
+ * <p>
+ * Several outputs connected to one audio input are mixed; several outputs connected to one
+ * event input are merged in the order of their frames.
+ * <p>
+ * With {@link #setParallelism(int)} independent nodes are run on several cores within one cycle.
+ * Nodes must then not share mutable state with other nodes.
+ */
+public class Graph implements ProcessListener, BufferSizeListener {
+
+  public static final int DEFAULT_EVENT_CAPACITY = 256;
+
+  private static final class Connection {
+    final NodePort from;
+    final NodePort to;
+
+    Connection(NodePort from, NodePort to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Connection)) return false;
+      Connection that = (Connection) o;
+      return from == that.from && to == that.to;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(from), System.identityHashCode(to));
+    }
+  }
+
+  private volatile int maxFrames;
+  private final int eventCapacity;
+  private final Set<Node> nodes = new LinkedHashSet<>();
+  private final Set<Connection> connections = new LinkedHashSet<>();
+
+  /**
+   * The runner for the next schedule to be compiled (`null` for sequential processing).
+   */
+  private ParallelRunner runner;
+
+  private final AtomicReference<Schedule> schedule = new AtomicReference<>();
+
+  /**
+   * The schedule whose buffers the ports currently point to. Only accessed by the process thread.
+   */
+  private Schedule bound;
+
+  /**
+   * Twice the number of completed cycles, plus one while a cycle is running.
+   * Written by the process thread only.
+   */
+  private volatile long cycleState = 0;
+
+  /**
+   * @param maxFrames the largest number of frames per cycle (the JACK buffer size).
+   */
+  public Graph(int maxFrames) {
+    this(maxFrames, DEFAULT_EVENT_CAPACITY);
+  }
+
+  /**
+   * @param maxFrames     the largest number of frames per cycle (the JACK buffer size).
+   * @param eventCapacity the maximum number of events per cycle and event port.
+   */
+  public Graph(int maxFrames, int eventCapacity) {
+    if (maxFrames <= 0) throw new IllegalArgumentException("Invalid maxFrames " + maxFrames);
+    this.maxFrames = maxFrames;
+    this.eventCapacity = eventCapacity;
+    schedule.set(compile());
+  }
+
+  public int getMaxFrames() {
+    return maxFrames;
+  }
+
+  /**
+   * Run independent nodes on several threads, from the next {@link #commit()} on.
+   * The worker threads are started immediately; they spin between cycles and park when the graph is idle.
+   * <p>
+   * These are plain Java threads. Use {@link #setParallelism(int, WorkerThreads)} with
+   * {@link WorkerThreads#jack} to give the workers the realtime priority of the process thread.
+   *
+   * @param workers the number of worker threads helping the process thread, zero for sequential processing.
+   */
+  public void setParallelism(int workers) {
+    setParallelism(workers, task -> {
+      Thread thread = new Thread(task, "graph-worker");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MAX_PRIORITY);
+      return thread;
+    });
+  }
+
+  /**
+   * Run independent nodes on several threads, from the next {@link #commit()} on.
+   *
+   * @param workers       the number of worker threads helping the process thread, zero for sequential processing.
+   * @param threadFactory creates the worker threads.
+   */
+  public void setParallelism(int workers, ThreadFactory threadFactory) {
+    setParallelism(workers, WorkerThreads.of(threadFactory));
+  }
+
+  /**
+   * Run independent nodes on several threads, from the next {@link #commit()} on.
+   *
+   * @param workers the number of worker threads helping the process thread, zero for sequential processing.
+   * @param threads starts and joins the worker threads (for example {@link WorkerThreads#jack}).
+   */
+  public void setParallelism(int workers, WorkerThreads<?> threads) {
+    setParallelism(workers, threads, ParallelRunner.DEFAULT_SPIN_NANOS);
+  }
+
+  /**
+   * Run independent nodes on several threads, from the next {@link #commit()} on.
+   * <p>
+   * Idle workers spin for the given time before they park. To keep them spinning from one cycle to
+   * the next, this shall be longer than the period, for example twice `bufferSize * 1e9 / sampleRate`.
+   * The default is 25 ms.
+   *
+   * @param workers   the number of worker threads helping the process thread, zero for sequential processing.
+   * @param threads   starts and joins the worker threads (for example {@link WorkerThreads#jack}).
+   * @param spinNanos how long an idle worker spins before it parks.
+   */
+  public synchronized void setParallelism(int workers, WorkerThreads<?> threads, long spinNanos) {
+    if (workers < 0) throw new IllegalArgumentException("Invalid number of workers " + workers);
+    if (spinNanos < 0) throw new IllegalArgumentException("Invalid spin time " + spinNanos);
+    ParallelRunner previous = runner;
+    runner = (workers == 0) ? null : new ParallelRunner(workers, threads, spinNanos);
+    // a runner that never made it into a schedule can be stopped right away.
+    if (previous != null && previous != schedule.get().runner) previous.stop();
+  }
+
+  public synchronized void add(Node node) {
+    nodes.add(node);
+  }
+
+  /**
+   * Remove a node and all its connections.
+   *
+   * @param node the node to be removed.
+   */
+  public synchronized void remove(Node node) {
+    if (!nodes.remove(node)) return;
+    connections.removeIf(c -> c.from.getNode() == node || c.to.getNode() == node);
+  }
+
+  /**
+   * Connect an output port to an input port of the same kind.
+   *
+   * @param from an output port of a node in this graph.
+   * @param to   an input port of a node in this graph.
+   * @throws IllegalArgumentException if the ports cannot be connected.
+   */
+  public synchronized void connect(NodePort from, NodePort to) {
+    if (from.isInput() || !to.isInput()) {
+      throw new IllegalArgumentException("Cannot connect " + from + " to " + to + ", wrong direction.");
+    }
+    if (from.getKind() != to.getKind()) {
+      throw new IllegalArgumentException("Cannot connect " + from + " to " + to + ", different kinds.");
+    }
+    if (!nodes.contains(from.getNode()) || !nodes.contains(to.getNode())) {
+      throw new IllegalArgumentException("Cannot connect " + from + " to " + to + ", unknown node.");
+    }
+    connections.add(new Connection(from, to));
+  }
+
+  public synchronized void disconnect(NodePort from, NodePort to) {
+    connections.remove(new Connection(from, to));
+  }
+
+  /**
+   * Compile the graph and let the process thread run it from the next cycle on.
+   * <p>
+   * This function returns after the process thread has stopped using the previous schedule,
+   * whose buffers are then given back to the pool.
+   *
+   * @throws IllegalStateException if the connections form a cycle.
+   */
+  public synchronized void commit() {
+    Schedule next = compile();
+    Schedule previous = schedule.getAndSet(next);
+    awaitRetirement();
+    previous.release();
+    if (previous.runner != null && previous.runner != next.runner) previous.runner.stop();
+  }
+
+  /**
+   * Wait until no cycle that might have picked up the previous schedule is running.
+   */
+  private void awaitRetirement() {
+    long state = cycleState;
+    if ((state & 1) == 0) return;
+    while (cycleState == state) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Re-compile the graph with larger buffers when JACK is about to pass more than
+   * {@link #getMaxFrames()} frames per cycle. Register the graph with
+   * {@link jackAudio4Java.Jack#registerBufferSizeListener} so that the buffers are allocated
+   * here, outside the process thread.
+   * <p>
+   * Note: changes not yet committed are committed as well.
+   *
+   * @param nframes the new number of frames per cycle.
+   * @return 0 on success, -1 if the graph could not be compiled.
+   */
+  @Override
+  public synchronized int onBufferSize(int nframes) {
+    if (nframes <= maxFrames) return 0;
+    int previous = maxFrames;
+    maxFrames = nframes;
+    try {
+      commit();
+      return 0;
+    } catch (IllegalStateException e) {
+      maxFrames = previous;
+      return -1;
+    }
+  }
+
+  @Override
+  public int onProcess(int nframes) {
+    cycleState = cycleState + 1;
+    try {
+      Schedule current = schedule.get();
+      if (current != bound) {
+        current.bind();
+        bound = current;
+      }
+      if (nframes <= current.maxFrames) {
+        current.run(nframes);
+      }
+      return 0;
+    } finally {
+      cycleState = cycleState + 1;
+    }
+  }
+
+  /**
+   * @return the nodes in an order where every node comes after all nodes feeding it.
+   * @throws IllegalStateException if the connections form a cycle.
+   */
+  private List<Node> sortTopologically() {
+    Map<Node, Set<Node>> successors = new HashMap<>();
+    Map<Node, Integer> inDegree = new HashMap<>();
+    for (Node node : nodes) {
+      successors.put(node, new LinkedHashSet<>());
+      inDegree.put(node, 0);
+    }
+    for (Connection c : connections) {
+      if (successors.get(c.from.getNode()).add(c.to.getNode())) {
+        inDegree.merge(c.to.getNode(), 1, Integer::sum);
+      }
+    }
+    Deque<Node> ready = new ArrayDeque<>();
+    for (Node node : nodes) {
+      if (inDegree.get(node) == 0) ready.add(node);
+    }
+    List<Node> order = new ArrayList<>();
+    while (!ready.isEmpty()) {
+      Node node = ready.poll();
+      order.add(node);
+      for (Node next : successors.get(node)) {
+        if (inDegree.merge(next, -1, Integer::sum) == 0) ready.add(next);
+      }
+    }
+    if (order.size() != nodes.size()) {
+      throw new IllegalStateException("The graph contains a cycle.");
+    }
+    return order;
+  }
+
+  private Schedule compile() {
+    List<Node> order = sortTopologically();
+    Manager manager = Manager.getDefault();
+    List<MutableAudioSlice> owned = new ArrayList<>();
+    // at most: the silence, one slice per audio output and one mix per audio input.
+    int audioPortCount = 0;
+    for (Node node : order) {
+      for (NodePort port : node.getOutputs()) if (port.getKind() == PortKind.AUDIO) audioPortCount++;
+      for (NodePort port : node.getInputs()) if (port.getKind() == PortKind.AUDIO) audioPortCount++;
+    }
+    manager.reserve(maxFrames, 1 + audioPortCount);
+
+    MutableAudioSlice silence = manager.makeMutableAudioSlice(maxFrames);
+    silence.fill(0f);
+    owned.add(silence);
+    EventBuffer noEvents = new EventBuffer(0);
+
+    List<NodePort> audioPorts = new ArrayList<>();
+    List<ImmutableAudioSlice> audioBindings = new ArrayList<>();
+    List<NodePort> eventPorts = new ArrayList<>();
+    List<EventBuffer> eventBindings = new ArrayList<>();
+
+    // the buffers written by the outputs.
+    Map<NodePort, MutableAudioSlice> audioOutputs = new HashMap<>();
+    Map<NodePort, EventBuffer> eventOutputs = new HashMap<>();
+    for (Node node : order) {
+      for (NodePort output : node.getOutputs()) {
+        if (output.getKind() == PortKind.AUDIO) {
+          MutableAudioSlice slice = manager.makeMutableAudioSlice(maxFrames);
+          slice.fill(0f);
+          owned.add(slice);
+          audioOutputs.put(output, slice);
+          audioPorts.add(output);
+          audioBindings.add(slice);
+        } else {
+          EventBuffer events = new EventBuffer(eventCapacity);
+          eventOutputs.put(output, events);
+          eventPorts.add(output);
+          eventBindings.add(events);
+        }
+      }
+    }
+
+    // the level of a node comes after the levels of all nodes feeding it.
+    Map<Node, Integer> levelOf = new HashMap<>();
+    int levelCount = 0;
+    for (Node node : order) {
+      int level = 0;
+      for (Connection c : connections) {
+        if (c.to.getNode() == node) level = Math.max(level, levelOf.get(c.from.getNode()) + 1);
+      }
+      levelOf.put(node, level);
+      levelCount = Math.max(levelCount, level + 1);
+    }
+    List<List<Schedule.Step>> levels = new ArrayList<>();
+    for (int l = 0; l < levelCount; l++) levels.add(new ArrayList<>());
+
+    for (Node node : order) {
+      List<MutableAudioSlice> mixTargets = new ArrayList<>();
+      List<ImmutableAudioSlice[]> mixSources = new ArrayList<>();
+      List<EventBuffer> mergeTargets = new ArrayList<>();
+      List<EventBuffer[]> mergeSources = new ArrayList<>();
+      for (NodePort input : node.getInputs()) {
+        List<NodePort> sources = new ArrayList<>();
+        for (Connection c : connections) {
+          if (c.to == input) sources.add(c.from);
+        }
+        if (input.getKind() == PortKind.AUDIO) {
+          ImmutableAudioSlice binding;
+          if (sources.isEmpty()) {
+            binding = silence;
+          } else if (sources.size() == 1) {
+            binding = audioOutputs.get(sources.get(0));
+          } else {
+            MutableAudioSlice mix = manager.makeMutableAudioSlice(maxFrames);
+            owned.add(mix);
+            ImmutableAudioSlice[] mixed = new ImmutableAudioSlice[sources.size()];
+            for (int s = 0; s < mixed.length; s++) mixed[s] = audioOutputs.get(sources.get(s));
+            mixTargets.add(mix);
+            mixSources.add(mixed);
+            binding = mix;
+          }
+          audioPorts.add(input);
+          audioBindings.add(binding);
+        } else {
+          EventBuffer binding;
+          if (sources.isEmpty()) {
+            binding = noEvents;
+          } else if (sources.size() == 1) {
+            binding = eventOutputs.get(sources.get(0));
+          } else {
+            EventBuffer merge = new EventBuffer(eventCapacity);
+            EventBuffer[] merged = new EventBuffer[sources.size()];
+            for (int s = 0; s < merged.length; s++) merged[s] = eventOutputs.get(sources.get(s));
+            mergeTargets.add(merge);
+            mergeSources.add(merged);
+            binding = merge;
+          }
+          eventPorts.add(input);
+          eventBindings.add(binding);
+        }
+      }
+      List<EventBuffer> ownEventOutputs = new ArrayList<>();
+      for (NodePort output : node.getOutputs()) {
+        if (output.getKind() == PortKind.EVENT) ownEventOutputs.add(eventOutputs.get(output));
+      }
+      levels.get(levelOf.get(node)).add(new Schedule.Step(node,
+              mixTargets.toArray(new MutableAudioSlice[0]),
+              mixSources.toArray(new ImmutableAudioSlice[0][]),
+              mergeTargets.toArray(new EventBuffer[0]),
+              mergeSources.toArray(new EventBuffer[0][]),
+              ownEventOutputs.toArray(new EventBuffer[0])));
+    }
+
+    Schedule.Level[] compiledLevels = new Schedule.Level[levelCount];
+    for (int l = 0; l < levelCount; l++) {
+      compiledLevels[l] = new Schedule.Level(levels.get(l).toArray(new Schedule.Step[0]));
+    }
+    return new Schedule(maxFrames, compiledLevels, runner,
+            audioPorts.toArray(new NodePort[0]), audioBindings.toArray(new ImmutableAudioSlice[0]),
+            eventPorts.toArray(new NodePort[0]), eventBindings.toArray(new EventBuffer[0]),
+            owned);
+  }
+}
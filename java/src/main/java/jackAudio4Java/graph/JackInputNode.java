@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.types.PortHandle;
+
+/**
+ * Brings the audio received by a JACK input port into a {@link Graph}.
+ */
+public class JackInputNode extends Node {
+
+  /**
+   * The audio received by the JACK port.
+   */
+  public final NodePort out = audioOutput("out");
+
+  private final Jack jack;
+  private final PortHandle port;
+
+  /**
+   * @param jack the backend the port belongs to.
+   * @param port a JACK input port of the client running the graph.
+   */
+  public JackInputNode(Jack jack, PortHandle port) {
+    super(jack.portShortName(port));
+    this.jack = jack;
+    this.port = port;
+  }
+
+  @Override
+  public void process(int nframes) {
+    jack.portGetAudioData(port, nframes, out.mutableAudio());
+  }
+}
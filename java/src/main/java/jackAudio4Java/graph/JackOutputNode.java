@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.types.PortHandle;
+
+/**
+ * Sends the audio produced in a {@link Graph} to a JACK output port.
+ */
+public class JackOutputNode extends Node {
+
+  /**
+   * The audio to be sent to the JACK port.
+   */
+  public final NodePort in = audioInput("in");
+
+  private final Jack jack;
+  private final PortHandle port;
+
+  /**
+   * @param jack the backend the port belongs to.
+   * @param port a JACK output port of the client running the graph.
+   */
+  public JackOutputNode(Jack jack, PortHandle port) {
+    super(jack.portShortName(port));
+    this.jack = jack;
+    this.port = port;
+  }
+
+  @Override
+  public void process(int nframes) {
+    jack.portSendAudioData(port, nframes, in.audio());
+  }
+}
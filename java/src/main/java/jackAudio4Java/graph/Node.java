@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A unit of processing in a {@link Graph}.
+ * <p>
+ * A node declares its ports in its constructor and does its work in {@link #process(int)}.
+ * Example:
+ * ```java
+ * class Gain extends Node {
+ *   final NodePort in = audioInput("in");
+ *   final NodePort out = audioOutput("out");
+ *   volatile float gain = 0.5f;
+ *
+ *   Gain() { super("gain"); }
+ *
+ *   public void process(int nframes) {
+ *     out.mutableAudio().copyFrom(in.audio(), 0, 0, nframes);
+ *     out.mutableAudio().scale(gain);
+ *   }
+ * }
+ * ```
+ */
+public abstract class Node {
+
+  private final String name;
+  private final List<NodePort> inputs = new ArrayList<>();
+  private final List<NodePort> outputs = new ArrayList<>();
+
+  protected Node(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  protected final NodePort audioInput(String portName) {
+    return addPort(inputs, portName, PortKind.AUDIO, true);
+  }
+
+  protected final NodePort audioOutput(String portName) {
+    return addPort(outputs, portName, PortKind.AUDIO, false);
+  }
+
+  protected final NodePort eventInput(String portName) {
+    return addPort(inputs, portName, PortKind.EVENT, true);
+  }
+
+  protected final NodePort eventOutput(String portName) {
+    return addPort(outputs, portName, PortKind.EVENT, false);
+  }
+
+  private NodePort addPort(List<NodePort> ports, String portName, PortKind kind, boolean input) {
+    NodePort port = new NodePort(this, portName, kind, input);
+    ports.add(port);
+    return port;
+  }
+
+  public List<NodePort> getInputs() {
+    return Collections.unmodifiableList(inputs);
+  }
+
+  public List<NodePort> getOutputs() {
+    return Collections.unmodifiableList(outputs);
+  }
+
+  /**
+   * Do the work of one cycle. Called on the process thread, after all nodes
+   * feeding this node have been processed.
+   * <p>
+   * The same rules apply as for {@link jackAudio4Java.types.ProcessListener#onProcess(int)}:
+   * no locks, no blocking, no allocation.
+   *
+   * @param nframes the number of frames to process.
+   */
+  public abstract void process(int nframes);
+}
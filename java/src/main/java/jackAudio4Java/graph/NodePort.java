@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.MutableAudioSlice;
+
+/**
+ * An input or output of a {@link Node}.
+ * <p>
+ * Ports are created by the node itself (see {@link Node#audioInput(String)} etc.).
+ * When the graph is compiled, each port is bound to the buffer it reads from or writes to.
+ * Within {@link Node#process(int)} the node accesses these buffers through
+ * {@link #audio()}, {@link #mutableAudio()} and {@link #events()}.
+ */
+public final class NodePort {
+
+  private final Node node;
+  private final String name;
+  private final PortKind kind;
+  private final boolean input;
+
+  private ImmutableAudioSlice audio;
+  private MutableAudioSlice mutableAudio;
+  private EventBuffer events;
+
+  NodePort(Node node, String name, PortKind kind, boolean input) {
+    this.node = node;
+    this.name = name;
+    this.kind = kind;
+    this.input = input;
+  }
+
+  public Node getNode() {
+    return node;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public PortKind getKind() {
+    return kind;
+  }
+
+  public boolean isInput() {
+    return input;
+  }
+
+  /**
+   * @return the audio received by this input port, or the audio written by this output port in this cycle.
+   */
+  public ImmutableAudioSlice audio() {
+    if (kind != PortKind.AUDIO) throw new IllegalStateException("Not an audio port: " + this);
+    return audio;
+  }
+
+  /**
+   * @return the buffer an audio output port writes to. It holds at least `nframes` samples.
+   */
+  public MutableAudioSlice mutableAudio() {
+    if (kind != PortKind.AUDIO || input) throw new IllegalStateException("Not an audio output: " + this);
+    return mutableAudio;
+  }
+
+  /**
+   * @return the events received by this input port, or the buffer an event output writes to.
+   * Event outputs are cleared at the start of each cycle.
+   */
+  public EventBuffer events() {
+    if (kind != PortKind.EVENT) throw new IllegalStateException("Not an event port: " + this);
+    return events;
+  }
+
+  void bindAudio(ImmutableAudioSlice audio, MutableAudioSlice mutableAudio) {
+    this.audio = audio;
+    this.mutableAudio = mutableAudio;
+  }
+
+  void bindEvents(EventBuffer events) {
+    this.events = events;
+  }
+
+  @Override
+  public String toString() {
+    return node.getName() + ":" + name;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A team of worker threads that help the process thread to run the levels of a {@link Schedule}.
+ * <p>
+ * The process thread publishes one level at a time. Process thread and workers claim the steps of
+ * the level one by one; the process thread then spins until all steps are done (the barrier) and
+ * goes on with the next level. Steps that no worker has claimed are run by the process thread itself,
+ * so it only waits for steps that are already running on a worker. If that takes long, the process
+ * thread yields the CPU, in case the worker has been preempted on the same CPU.
+ * <p>
+ * The workers should have the scheduling of the process thread, see {@link WorkerThreads#jack}.
+ * <p>
+ * Between cycles the workers keep spinning, so that they are ready when the next cycle starts.
+ * They only park after they have been idle for longer than the spin time, which shall therefore
+ * exceed the period (for example when the client is deactivated). The process thread only unparks
+ * workers that are actually parked.
+ */
+final class ParallelRunner {
+
+  /**
+   * How long an idle worker spins before it parks, unless told otherwise.
+   * This exceeds the period of 1024 frames at 44.1 kHz.
+   */
+  static final long DEFAULT_SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(25);
+
+  private static final Logger logger = Logger.getLogger(ParallelRunner.class.getName());
+
+  /**
+   * How often the process thread polls the barrier before it starts to yield.
+   */
+  private static final int BARRIER_SPINS = 1 << 12;
+
+  private final Worker[] workers;
+  private final long spinNanos;
+
+  private volatile Schedule.Level current;
+  private volatile int nframes;
+  private volatile boolean running = true;
+  private volatile Throwable failure;
+
+  private final class Worker implements Runnable {
+    volatile boolean parked = false;
+    volatile Thread thread;
+    Runnable join;
+
+    @Override
+    public void run() {
+      thread = Thread.currentThread();
+      long idleSince = System.nanoTime();
+      while (running) {
+        if (work(current)) {
+          idleSince = System.nanoTime();
+        } else if (System.nanoTime() - idleSince > spinNanos) {
+          parked = true;
+          if (running && !hasWork(current)) {
+            LockSupport.park(this);
+          }
+          parked = false;
+          idleSince = System.nanoTime();
+        }
+      }
+    }
+  }
+
+  /**
+   * @param workerCount the number of worker threads (the process thread comes on top).
+   * @param threads     starts and joins the worker threads.
+   * @param spinNanos   how long an idle worker spins before it parks.
+   */
+  <T> ParallelRunner(int workerCount, WorkerThreads<T> threads, long spinNanos) {
+    this.spinNanos = spinNanos;
+    workers = new Worker[workerCount];
+    int started = 0;
+    for (int i = 0; i < workerCount; i++) {
+      Worker worker = new Worker();
+      T handle = threads.start(i, worker);
+      // a worker that could not be started leaves its share to the others.
+      if (handle != null) {
+        worker.join = () -> threads.join(handle);
+        started++;
+      }
+      workers[i] = worker;
+    }
+    if (started < workerCount) {
+      logger.warning("Only " + started + " of " + workerCount + " graph worker threads could be started.");
+    }
+  }
+
+  private static boolean hasWork(Schedule.Level level) {
+    return level != null && level.next.get() < level.steps.length;
+  }
+
+  /**
+   * Claim and run steps of the given level until there are none left.
+   *
+   * @return true if at least one step has been run.
+   */
+  private boolean work(Schedule.Level level) {
+    if (level == null) return false;
+    final Schedule.Step[] steps = level.steps;
+    boolean didWork = false;
+    int i;
+    while ((i = level.next.getAndIncrement()) < steps.length) {
+      try {
+        steps[i].run(nframes);
+      } catch (Throwable t) {
+        failure = t;
+      }
+      level.pending.decrementAndGet();
+      didWork = true;
+    }
+    return didWork;
+  }
+
+  /**
+   * Run one level on all threads. Called by the process thread.
+   *
+   * @param level   the level to run.
+   * @param nframes the number of frames in this cycle.
+   */
+  void run(Schedule.Level level, int nframes) {
+    this.nframes = nframes;
+    // a worker may only claim steps once `pending` is set.
+    level.pending.set(level.steps.length);
+    level.next.set(0);
+    current = level;
+    for (Worker worker : workers) {
+      if (worker.parked) LockSupport.unpark(worker.thread);
+    }
+    // claims every step no worker has picked up yet.
+    work(level);
+    int spins = 0;
+    while (level.pending.get() > 0) {
+      // the remaining steps are being run by the workers.
+      if (spins < BARRIER_SPINS) {
+        spins++;
+      } else {
+        Thread.yield();
+      }
+    }
+    current = null;
+    Throwable t = failure;
+    if (t != null) {
+      failure = null;
+      if (t instanceof RuntimeException) throw (RuntimeException) t;
+      if (t instanceof Error) throw (Error) t;
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Let the worker threads terminate and wait for them. Only call this when no cycle is using this runner.
+   */
+  void stop() {
+    running = false;
+    for (Worker worker : workers) {
+      Thread thread = worker.thread;
+      if (thread != null) LockSupport.unpark(thread);
+    }
+    for (Worker worker : workers) {
+      if (worker.join != null) worker.join.run();
+    }
+  }
+}
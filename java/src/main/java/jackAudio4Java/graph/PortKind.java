@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+/**
+ * The kind of data flowing through a {@link NodePort}.
+ */
+public enum PortKind {
+  /**
+   * One audio sample per frame, see {@link jackAudio4Java.buffers.AudioSlice}.
+   */
+  AUDIO,
+  /**
+   * Time-stamped events (for example MIDI messages), see {@link EventBuffer}.
+   */
+  EVENT
+}
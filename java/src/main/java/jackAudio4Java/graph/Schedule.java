@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.MutableAudioSlice;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The compiled, immutable form of a {@link Graph}: the nodes in processing order and
+ * all buffers connecting them.
+ * <p>
+ * A schedule is built on an ordinary thread and then handed to the process thread as a whole.
+ * Running it does not allocate memory.
+ * <p>
+ * The steps are grouped into levels: a node is in the level after the last level of the nodes
+ * feeding it. Steps within one level are independent of each other and may run in parallel.
+ */
+final class Schedule {
+
+  /**
+   * The work to be done for one node: prepare its inputs, clear its event outputs, process.
+   */
+  static final class Step {
+    final Node node;
+    final MutableAudioSlice[] mixTargets;
+    final ImmutableAudioSlice[][] mixSources;
+    final EventBuffer[] mergeTargets;
+    final EventBuffer[][] mergeSources;
+    final EventBuffer[] eventOutputs;
+
+    Step(Node node,
+         MutableAudioSlice[] mixTargets, ImmutableAudioSlice[][] mixSources,
+         EventBuffer[] mergeTargets, EventBuffer[][] mergeSources,
+         EventBuffer[] eventOutputs) {
+      this.node = node;
+      this.mixTargets = mixTargets;
+      this.mixSources = mixSources;
+      this.mergeTargets = mergeTargets;
+      this.mergeSources = mergeSources;
+      this.eventOutputs = eventOutputs;
+    }
+
+    void run(int nframes) {
+      for (int m = 0; m < mixTargets.length; m++) {
+        MutableAudioSlice target = mixTargets[m];
+        target.fill(0f);
+        for (ImmutableAudioSlice source : mixSources[m]) {
+          target.addScaled(source, 1f);
+        }
+      }
+      for (int m = 0; m < mergeTargets.length; m++) {
+        EventBuffer target = mergeTargets[m];
+        target.clear();
+        for (EventBuffer source : mergeSources[m]) {
+          target.addAll(source);
+        }
+      }
+      for (EventBuffer output : eventOutputs) {
+        output.clear();
+      }
+      node.process(nframes);
+    }
+  }
+
+  /**
+   * Independent steps that may run in parallel.
+   * The counters are used by the {@link ParallelRunner} to distribute the steps.
+   */
+  static final class Level {
+    final Step[] steps;
+    final AtomicInteger next;
+    final AtomicInteger pending = new AtomicInteger();
+
+    Level(Step[] steps) {
+      this.steps = steps;
+      this.next = new AtomicInteger(steps.length);
+    }
+  }
+
+  final int maxFrames;
+  private final Level[] levels;
+
+  /**
+   * The runner sharing the work of this schedule, `null` if all steps run on the process thread.
+   */
+  final ParallelRunner runner;
+
+  private final NodePort[] audioPorts;
+  private final ImmutableAudioSlice[] audioBindings;
+  private final NodePort[] eventPorts;
+  private final EventBuffer[] eventBindings;
+
+  /**
+   * The slices allocated for this schedule, to be expired when it is retired.
+   */
+  private final List<MutableAudioSlice> ownedSlices;
+
+  Schedule(int maxFrames, Level[] levels, ParallelRunner runner,
+           NodePort[] audioPorts, ImmutableAudioSlice[] audioBindings,
+           NodePort[] eventPorts, EventBuffer[] eventBindings,
+           List<MutableAudioSlice> ownedSlices) {
+    this.maxFrames = maxFrames;
+    this.levels = levels;
+    this.runner = runner;
+    this.audioPorts = audioPorts;
+    this.audioBindings = audioBindings;
+    this.eventPorts = eventPorts;
+    this.eventBindings = eventBindings;
+    this.ownedSlices = ownedSlices;
+  }
+
+  /**
+   * Point all ports to the buffers of this schedule. Called on the process thread,
+   * in the first cycle that runs this schedule.
+   */
+  void bind() {
+    for (int i = 0; i < audioPorts.length; i++) {
+      NodePort port = audioPorts[i];
+      ImmutableAudioSlice slice = audioBindings[i];
+      port.bindAudio(slice, port.isInput() ? null : (MutableAudioSlice) slice);
+    }
+    for (int i = 0; i < eventPorts.length; i++) {
+      eventPorts[i].bindEvents(eventBindings[i]);
+    }
+  }
+
+  void run(int nframes) {
+    for (Level level : levels) {
+      if (runner == null || level.steps.length == 1) {
+        for (Step step : level.steps) {
+          step.run(nframes);
+        }
+      } else {
+        runner.run(level, nframes);
+      }
+    }
+  }
+
+  /**
+   * Give the buffers of this schedule back to the pool. Only call this when
+   * the process thread has stopped using this schedule.
+   */
+  void release() {
+    for (MutableAudioSlice slice : ownedSlices) {
+      slice.expire();
+    }
+  }
+}
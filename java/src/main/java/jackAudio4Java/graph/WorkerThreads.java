@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.graph;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.types.ClientHandle;
+import jackAudio4Java.types.ThreadHandle;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Starts and joins the worker threads of a {@link Graph} that runs nodes in parallel.
+ * <p>
+ * The process thread waits for the workers at the end of every level, so the workers should have
+ * the same scheduling as the process thread. Use {@link #jack(Jack, ClientHandle, int)} for threads
+ * created by JACK with realtime priority.
+ *
+ * @param <T> the type of the handle of a started thread.
+ */
+public interface WorkerThreads<T> {
+
+  /**
+   * Start a thread that runs the given task.
+   *
+   * @param index the index of the worker, starting at 0.
+   * @param task  the code the thread shall run.
+   * @return a handle of the thread, or null if the thread could not be started.
+   */
+  T start(int index, Runnable task);
+
+  /**
+   * Wait until a started thread has finished, after its task has been told to return.
+   *
+   * @param thread the handle returned by {@link #start(int, Runnable)}.
+   */
+  void join(T thread);
+
+  /**
+   * Worker threads created by a `ThreadFactory`. These are plain Java threads without realtime scheduling.
+   *
+   * @param threadFactory creates the threads.
+   */
+  static WorkerThreads<Thread> of(ThreadFactory threadFactory) {
+    return new WorkerThreads<Thread>() {
+      @Override
+      public Thread start(int index, Runnable task) {
+        Thread thread = threadFactory.newThread(task);
+        if (thread == null) return null;
+        thread.start();
+        return thread;
+      }
+
+      @Override
+      public void join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+          try {
+            thread.join();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+      }
+    };
+  }
+
+  /**
+   * Worker threads created by JACK, with the realtime priority of the process thread of the client.
+   * <p>
+   * If JACK cannot create a realtime thread, a warning is logged and the worker is created
+   * without realtime scheduling.
+   *
+   * @param jack     the JACK backend of the client.
+   * @param client   the client.
+   * @param firstCpu the CPU the first worker is pinned to; worker `i` is pinned to `firstCpu + i`.
+   *                 A negative value lets the workers run on any CPU.
+   */
+  static WorkerThreads<ThreadHandle> jack(Jack jack, ClientHandle client, int firstCpu) {
+    return new WorkerThreads<ThreadHandle>() {
+      private final Logger logger = Logger.getLogger(WorkerThreads.class.getName());
+
+      @Override
+      public ThreadHandle start(int index, Runnable task) {
+        int cpu = (firstCpu < 0) ? -1 : firstCpu + index;
+        String name = "graph-worker-" + index;
+        ThreadHandle thread = jack.clientCreateThread(client, name, -1, true, cpu, task);
+        if (thread != null) return thread;
+        logger.warning("Could not create the realtime thread " + name + ", trying without realtime scheduling.");
+        return jack.clientCreateThread(client, name, -1, false, cpu, task);
+      }
+
+      @Override
+      public void join(ThreadHandle thread) {
+        jack.threadJoin(thread);
+      }
+    };
+  }
+}
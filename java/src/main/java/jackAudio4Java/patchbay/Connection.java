@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.patchbay;
+
+import java.util.Objects;
+
+/**
+ * A connection from a source (output) port to a destination (input) port, given by their full names.
+ */
+public final class Connection {
+  private final String source;
+  private final String destination;
+
+  /**
+   * @param source      the full name of the source port.
+   * @param destination the full name of the destination port.
+   */
+  public Connection(String source, String destination) {
+    this.source = Objects.requireNonNull(source);
+    this.destination = Objects.requireNonNull(destination);
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Connection)) return false;
+    Connection that = (Connection) o;
+    return source.equals(that.source) && destination.equals(that.destination);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(source, destination);
+  }
+
+  @Override
+  public String toString() {
+    return source + " -> " + destination;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.patchbay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes between two {@link Snapshot}s: connections to be removed and connections to be made.
+ * <p>
+ * A diff is applied by {@link jackAudio4Java.Jack#patchbayApply}, which removes first and then connects.
+ * The results are reported in the order given by {@link #getChanges()}.
+ */
+public final class Diff {
+  private final List<Connection> disconnections;
+  private final List<Connection> connections;
+
+  /**
+   * @param disconnections the connections to be removed.
+   * @param connections    the connections to be made.
+   */
+  public Diff(List<Connection> disconnections, List<Connection> connections) {
+    this.disconnections = Collections.unmodifiableList(new ArrayList<>(disconnections));
+    this.connections = Collections.unmodifiableList(new ArrayList<>(connections));
+  }
+
+  public List<Connection> getDisconnections() {
+    return disconnections;
+  }
+
+  public List<Connection> getConnections() {
+    return connections;
+  }
+
+  /**
+   * @return all changes, the disconnections first.
+   */
+  public List<Connection> getChanges() {
+    List<Connection> changes = new ArrayList<>(size());
+    changes.addAll(disconnections);
+    changes.addAll(connections);
+    return changes;
+  }
+
+  public int size() {
+    return disconnections.size() + connections.size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "Diff{disconnect=" + disconnections + ", connect=" + connections + "}";
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.patchbay;
+
+import java.util.*;
+
+/**
+ * An immutable set of connections, for example all connections of the JACK server at one moment.
+ * <p>
+ * Restoring a session:
+ * ```java
+ * Snapshot target = new Snapshot(savedConnections);
+ * Diff diff = jack.patchbaySnapshot(client).diff(target);
+ * int[] results = jack.patchbayApply(client, diff);
+ * ```
+ */
+public final class Snapshot {
+  private final Set<Connection> connections;
+
+  /**
+   * @param connections the connections of this snapshot (duplicates are ignored).
+   */
+  public Snapshot(Collection<Connection> connections) {
+    this.connections = Collections.unmodifiableSet(new LinkedHashSet<>(connections));
+  }
+
+  /**
+   * Build a snapshot from port names given in pairs.
+   *
+   * @param pairs the source of the first connection, its destination, the source of the second connection...
+   * @return a new snapshot.
+   */
+  public static Snapshot ofPairs(String... pairs) {
+    if (pairs.length % 2 != 0) throw new IllegalArgumentException("Odd number of port names.");
+    List<Connection> connections = new ArrayList<>(pairs.length / 2);
+    for (int i = 0; i < pairs.length; i += 2) {
+      connections.add(new Connection(pairs[i], pairs[i + 1]));
+    }
+    return new Snapshot(connections);
+  }
+
+  public Set<Connection> getConnections() {
+    return connections;
+  }
+
+  public boolean contains(Connection connection) {
+    return connections.contains(connection);
+  }
+
+  public int size() {
+    return connections.size();
+  }
+
+  /**
+   * Compute the changes that turn this snapshot into the target.
+   *
+   * @param target the connections wanted.
+   * @return the connections to be removed (those not in the target) and to be made (those not in this snapshot).
+   */
+  public Diff diff(Snapshot target) {
+    List<Connection> disconnect = new ArrayList<>();
+    for (Connection c : connections) {
+      if (!target.connections.contains(c)) disconnect.add(c);
+    }
+    List<Connection> connect = new ArrayList<>();
+    for (Connection c : target.connections) {
+      if (!connections.contains(c)) connect.add(c);
+    }
+    return new Diff(disconnect, connect);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Snapshot)) return false;
+    return connections.equals(((Snapshot) o).connections);
+  }
+
+  @Override
+  public int hashCode() {
+    return connections.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "Snapshot" + connections;
+  }
+}
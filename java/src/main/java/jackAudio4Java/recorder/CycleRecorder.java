@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.recorder;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.types.ClientHandle;
+import jackAudio4Java.types.CycleTimes;
+import jackAudio4Java.types.PortHandle;
+import jackAudio4Java.types.ProcessListener;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static jackAudio4Java.recorder.RecordingLayout.*;
+
+/**
+ * Records the input of a process listener into a memory-mapped file, so that a glitch can be
+ * reproduced later with {@link CycleReplay}.
+ * <p>
+ * For every cycle, the frame time, the number of frames and the content of the given input
+ * ports are written into the file. The file is allocated once, when the recorder is created,
+ * and holds the last `cycles` cycles (a rolling window); older cycles are overwritten.
+ * <p>
+ * Recording a cycle does not allocate and makes no system calls, all data goes into the
+ * mapping with plain stores. The operating system writes the mapping to disk on its own,
+ * also when the process crashes. Call {@link #flush()} (not from the process thread) to
+ * force the data to disk.
+ * <p>
+ * Usage:
+ * <pre>
+ *   CycleRecorder recorder = new CycleRecorder(file, jack, client, inputs, 4096, 10000);
+ *   jack.registerProcessListener(client, recorder.wrap(listener));
+ * </pre>
+ */
+public class CycleRecorder implements AutoCloseable {
+
+  private final Jack jack;
+  private final ClientHandle client;
+  private final PortHandle[] inputs;
+  private final RecordingLayout layout;
+  private final FileChannel channel;
+  private final MappedByteBuffer mapping;
+  private final FloatBuffer samples;
+  private final CycleTimes cycleTimes = new CycleTimes();
+
+  /**
+   * Receives the samples of one port, so that they go into the mapping with one bulk copy.
+   */
+  private final float[] scratch;
+
+  /**
+   * The number of cycles recorded, only written by the process thread.
+   */
+  private long cycleCount = 0;
+  private volatile long recordedCycles = 0;
+
+  /**
+   * Create the recording file and map it into memory.
+   *
+   * @param file      the file to be written (an existing file is overwritten).
+   * @param jack      the backend of the client.
+   * @param client    the client whose input shall be recorded.
+   * @param inputs    the input ports to be recorded.
+   * @param maxFrames the maximum number of frames recorded per cycle (typically the buffer size,
+   *                  later frames of larger cycles are not recorded).
+   * @param cycles    the number of cycles kept in the file.
+   * @throws IOException if the file cannot be created.
+   */
+  public CycleRecorder(Path file, Jack jack, ClientHandle client, PortHandle[] inputs,
+                       int maxFrames, int cycles) throws IOException {
+    this.jack = jack;
+    this.client = client;
+    this.inputs = inputs.clone();
+    this.layout = new RecordingLayout(inputs.length, maxFrames, cycles);
+    this.scratch = new float[layout.maxFrames];
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.fileSize);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    mapping.order(ByteOrder.nativeOrder());
+    // touch every page now, so that the process thread does not run into page faults.
+    for (int i = 0; i < layout.fileSize; i += 4096) mapping.put(i, (byte) 0);
+    samples = mapping.asFloatBuffer();
+    mapping.putInt(OFFSET_VERSION, VERSION);
+    mapping.putInt(OFFSET_CHANNELS, layout.channels);
+    mapping.putInt(OFFSET_MAX_FRAMES, layout.maxFrames);
+    mapping.putInt(OFFSET_SLOTS, layout.slots);
+    mapping.putInt(OFFSET_SAMPLE_RATE, jack.getSampleRate(client));
+    mapping.putLong(OFFSET_CYCLE_COUNT, 0);
+    for (int i = 0; i < inputs.length; i++) {
+      byte[] name = jack.portName(inputs[i]).getBytes(StandardCharsets.UTF_8);
+      int offset = OFFSET_NAMES + i * NAME_SIZE;
+      for (int j = 0; j < Math.min(name.length, NAME_SIZE - 1); j++) mapping.put(offset + j, name[j]);
+    }
+    mapping.putInt(OFFSET_MAGIC, MAGIC);
+  }
+
+  /**
+   * @param listener the process listener of the client.
+   * @return a process listener that records the input of the cycle and then calls the given listener.
+   */
+  public ProcessListener wrap(ProcessListener listener) {
+    return nframes -> {
+      record(nframes);
+      return listener.onProcess(nframes);
+    };
+  }
+
+  /**
+   * Record the running cycle.
+   * <p>
+   * Shall only be called from within {@link ProcessListener#onProcess(int)}, before the listener
+   * reads its input.
+   *
+   * @param nframes the number of frames in this cycle.
+   */
+  public void record(int nframes) {
+    int slot = layout.slotOf(cycleCount);
+    int base = layout.slotOffset(slot);
+    // mark the slot as incomplete, in case we are interrupted while writing it.
+    mapping.putLong(base + SLOT_SEQUENCE, 0);
+    long frameTime = (jack.getCycleTimes(client, cycleTimes) == 0) ? cycleTimes.currentFrames : -1;
+    int count = Math.min(nframes, layout.maxFrames);
+    for (int c = 0; c < inputs.length; c++) {
+      int index = layout.sampleIndex(slot, c);
+      ImmutableAudioSlice input = jack.portGetAudioData(inputs[c], nframes);
+      int available = (input == null) ? 0 : Math.min(count, input.length());
+      if (available > 0) input.copyTo(0, scratch, 0, available);
+      Arrays.fill(scratch, available, count, 0f);
+      samples.position(index);
+      samples.put(scratch, 0, count);
+    }
+    mapping.putLong(base + SLOT_FRAME_TIME, frameTime);
+    mapping.putInt(base + SLOT_NFRAMES, nframes);
+    cycleCount++;
+    mapping.putLong(base + SLOT_SEQUENCE, cycleCount);
+    mapping.putLong(OFFSET_CYCLE_COUNT, cycleCount);
+    recordedCycles = cycleCount;
+  }
+
+  /**
+   * @return the number of cycles recorded so far (including those that have been overwritten).
+   */
+  public long getRecordedCycles() {
+    return recordedCycles;
+  }
+
+  /**
+   * Force the recording to disk. This makes system calls, do not call it from the process thread.
+   */
+  public void flush() {
+    mapping.force();
+  }
+
+  /**
+   * Flush the recording and close the file. The process listener shall no longer record.
+   * (The mapping itself is released by the garbage collector.)
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    channel.close();
+  }
+}
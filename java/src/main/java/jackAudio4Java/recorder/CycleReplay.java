@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.recorder;
+
+import jackAudio4Java.simulation.SimulatedJack;
+import jackAudio4Java.types.*;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static jackAudio4Java.recorder.RecordingLayout.*;
+
+/**
+ * Feeds a recording made by {@link CycleRecorder} back into a process listener,
+ * running on a {@link SimulatedJack} as fast as the CPU allows.
+ * <p>
+ * To replay, set up the recorded client on a simulated server, with the same client and port
+ * names, register the same process listener and activate it. Then call {@link #replay(SimulatedJack)}:
+ * a feeding client is connected to the recorded ports, and for each recorded cycle one cycle
+ * with the recorded number of frames and the recorded frame time is run. So the listener sees
+ * exactly the input it has seen when the recording was made.
+ * <p>
+ * Usage:
+ * <pre>
+ *   try (CycleReplay replay = new CycleReplay(file)) {
+ *     SimulatedJack jack = new SimulatedJack(replay.getSampleRate(), replay.getMaxFrames(), 0);
+ *     ClientHandle client = jack.clientOpen("myClient", new OpenOption[]{}, new OpenStatus(), null);
+ *     jack.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+ *     jack.registerProcessListener(client, listener);
+ *     jack.activate(client);
+ *     replay.replay(jack);
+ *   }
+ * </pre>
+ */
+public class CycleReplay implements AutoCloseable {
+
+  private final FileChannel channel;
+  private final MappedByteBuffer mapping;
+  private final FloatBuffer samples;
+  private final RecordingLayout layout;
+  private final int sampleRate;
+  private final String[] portNames;
+
+  /**
+   * The slot played by the running cycle.
+   */
+  private int currentSlot;
+
+  /**
+   * Open a recording.
+   *
+   * @param file a file written by {@link CycleRecorder}.
+   * @throws IOException if the file cannot be read or is not a recording.
+   */
+  public CycleReplay(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < OFFSET_NAMES) throw new IOException("Not a cycle recording: " + file);
+      mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      mapping.order(ByteOrder.nativeOrder());
+      if (mapping.getInt(OFFSET_MAGIC) != MAGIC) throw new IOException("Not a cycle recording: " + file);
+      if (mapping.getInt(OFFSET_VERSION) != VERSION)
+        throw new IOException("Unsupported version of cycle recording: " + file);
+      layout = new RecordingLayout(mapping.getInt(OFFSET_CHANNELS), mapping.getInt(OFFSET_MAX_FRAMES),
+              mapping.getInt(OFFSET_SLOTS));
+      if (layout.fileSize > size) throw new IOException("Truncated cycle recording: " + file);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    samples = mapping.asFloatBuffer();
+    sampleRate = mapping.getInt(OFFSET_SAMPLE_RATE);
+    portNames = new String[layout.channels];
+    for (int i = 0; i < layout.channels; i++) {
+      int offset = OFFSET_NAMES + i * NAME_SIZE;
+      int length = 0;
+      while (length < NAME_SIZE && mapping.get(offset + length) != 0) length++;
+      byte[] name = new byte[length];
+      for (int j = 0; j < length; j++) name[j] = mapping.get(offset + j);
+      portNames[i] = new String(name, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * @return the number of recorded ports.
+   */
+  public int getChannels() {
+    return layout.channels;
+  }
+
+  /**
+   * @param channel the index of a recorded port.
+   * @return the full name of the port, as it was when recording.
+   */
+  public String getPortName(int channel) {
+    return portNames[channel];
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * @return the maximum number of frames recorded per cycle.
+   */
+  public int getMaxFrames() {
+    return layout.maxFrames;
+  }
+
+  /**
+   * @return the number of cycles recorded (including those that have been overwritten).
+   */
+  public long getRecordedCycles() {
+    return mapping.getLong(OFFSET_CYCLE_COUNT);
+  }
+
+  /**
+   * @return the number of the oldest cycle still in the recording.
+   */
+  public long getFirstCycle() {
+    return Math.max(0, getRecordedCycles() - layout.slots);
+  }
+
+  /**
+   * Run one simulated cycle per recorded cycle, feeding the recorded data into the recorded ports.
+   * Cycles that were not completely written (the recorder was interrupted) are skipped.
+   *
+   * @param jack a simulated server on which the recorded ports exist (and belong to active clients).
+   * @return the number of cycles replayed, or -1 if the recorded ports could not be connected.
+   */
+  public long replay(SimulatedJack jack) {
+    ClientHandle feeder = jack.clientOpen("replay", new OpenOption[]{}, new OpenStatus(), null);
+    if (feeder == null) return -1;
+    try {
+      PortHandle[] outputs = new PortHandle[layout.channels];
+      for (int c = 0; c < outputs.length; c++) {
+        outputs[c] = jack.portRegister(feeder, "out_" + (c + 1), PortType.defaultAudio(),
+                PortFlag.setOf(PortFlag.isOutput), 0);
+        if (outputs[c] == null) return -1;
+      }
+      float[] data = new float[layout.maxFrames];
+      jack.registerProcessListener(feeder, nframes -> {
+        int base = layout.slotOffset(currentSlot);
+        int count = Math.min(Math.min(nframes, mapping.getInt(base + SLOT_NFRAMES)), layout.maxFrames);
+        for (int c = 0; c < outputs.length; c++) {
+          int index = layout.sampleIndex(currentSlot, c);
+          for (int i = 0; i < count; i++) data[i] = samples.get(index + i);
+          for (int i = count; i < data.length; i++) data[i] = 0f;
+          jack.portSendAudioData(outputs[c], nframes, data);
+        }
+        return 0;
+      });
+      if (jack.activate(feeder) != 0) return -1;
+      for (int c = 0; c < outputs.length; c++) {
+        if (jack.connect(feeder, jack.portName(outputs[c]), portNames[c]) != 0) return -1;
+      }
+      long replayed = 0;
+      long end = getRecordedCycles();
+      for (long cycle = getFirstCycle(); cycle < end; cycle++) {
+        int slot = layout.slotOf(cycle);
+        int base = layout.slotOffset(slot);
+        if (mapping.getLong(base + SLOT_SEQUENCE) != cycle + 1) continue;
+        int nframes = mapping.getInt(base + SLOT_NFRAMES);
+        if (nframes <= 0) continue;
+        long frameTime = mapping.getLong(base + SLOT_FRAME_TIME);
+        currentSlot = slot;
+        jack.setBufferSize(nframes);
+        if (frameTime >= 0) jack.setFrameTime(frameTime);
+        jack.runCycles(1);
+        replayed++;
+      }
+      return replayed;
+    } finally {
+      jack.clientClose(feeder);
+    }
+  }
+
+  /**
+   * Close the file. (The mapping itself is released by the garbage collector.)
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.recorder;
+
+/**
+ * The layout of a cycle recording file, shared by {@link CycleRecorder} and {@link CycleReplay}.
+ * <p>
+ * The file starts with a header:
+ * <pre>
+ *   offset  0: int  magic number
+ *   offset  4: int  version
+ *   offset  8: int  number of channels (recorded ports)
+ *   offset 12: int  maximum number of frames per cycle
+ *   offset 16: int  number of slots (the length of the rolling window, in cycles)
+ *   offset 20: int  sample rate
+ *   offset 24: long number of cycles recorded so far
+ *   offset 64: the full names of the recorded ports, {@value #NAME_SIZE} bytes each (UTF-8, zero padded)
+ * </pre>
+ * followed by the slots. Cycle `n` (counting from zero) is written into slot `n % slots`:
+ * <pre>
+ *   offset  0: long sequence (`n + 1` once the slot is complete, 0 while it is written)
+ *   offset  8: long frame time at the start of the cycle (-1 if not known)
+ *   offset 16: int  number of frames in the cycle
+ *   offset 24: the samples, `maxFrames` floats per channel
+ * </pre>
+ * All values are in the native byte order of the recording machine.
+ */
+final class RecordingLayout {
+
+  static final int MAGIC = 0x4A434352;
+  static final int VERSION = 1;
+
+  static final int NAME_SIZE = 320;
+
+  static final int OFFSET_MAGIC = 0;
+  static final int OFFSET_VERSION = 4;
+  static final int OFFSET_CHANNELS = 8;
+  static final int OFFSET_MAX_FRAMES = 12;
+  static final int OFFSET_SLOTS = 16;
+  static final int OFFSET_SAMPLE_RATE = 20;
+  static final int OFFSET_CYCLE_COUNT = 24;
+  static final int OFFSET_NAMES = 64;
+
+  static final int SLOT_SEQUENCE = 0;
+  static final int SLOT_FRAME_TIME = 8;
+  static final int SLOT_NFRAMES = 16;
+  static final int SLOT_SAMPLES = 24;
+
+  private static final int FLOAT_SIZE = 4;
+
+  final int channels;
+  final int maxFrames;
+  final int slots;
+  final int headerSize;
+  final int slotSize;
+  final long fileSize;
+
+  RecordingLayout(int channels, int maxFrames, int slots) {
+    if (channels < 0) throw new IllegalArgumentException("Invalid number of channels " + channels);
+    if (maxFrames <= 0) throw new IllegalArgumentException("Invalid number of frames " + maxFrames);
+    if (slots <= 0) throw new IllegalArgumentException("Invalid number of cycles " + slots);
+    this.channels = channels;
+    this.maxFrames = maxFrames;
+    this.slots = slots;
+    this.headerSize = OFFSET_NAMES + channels * NAME_SIZE;
+    long samples = (long) channels * maxFrames * FLOAT_SIZE;
+    long slot = (SLOT_SAMPLES + samples + 7) & ~7L;
+    this.fileSize = headerSize + slot * slots;
+    // a mapped byte buffer is indexed by int.
+    if (fileSize > Integer.MAX_VALUE) throw new IllegalArgumentException("The recording would be too large");
+    this.slotSize = (int) slot;
+  }
+
+  int slotOffset(int slot) {
+    return headerSize + slot * slotSize;
+  }
+
+  /**
+   * @return the index of the first sample of the given channel and slot, counted in floats.
+   */
+  int sampleIndex(int slot, int channel) {
+    return (slotOffset(slot) + SLOT_SAMPLES) / FLOAT_SIZE + channel * maxFrames;
+  }
+
+  int slotOf(long cycle) {
+    return (int) (cycle % slots);
+  }
+}
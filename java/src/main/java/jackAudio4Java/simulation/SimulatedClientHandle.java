@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.types.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link SimulatedJack}.
+ * <p>
+ * Besides being the handle, this object holds the whole state of the simulated client.
+ */
+class SimulatedClientHandle extends ClientHandle {
+
+  final String name;
+  final CycleClock clock = new CycleClock();
+  private final FrameClock frameClock;
+  final List<SimulatedPortHandle> ports = new CopyOnWriteArrayList<>();
+
+  volatile boolean active = false;
+  volatile ProcessListener processListener;
+  volatile ShutdownListener shutdownListener;
+  volatile BufferSizeListener bufferSizeListener;
+  volatile SampleRateListener sampleRateListener;
+  volatile FreewheelListener freewheelListener;
+  volatile ProcessThreadListener processThreadListener;
+
+  /**
+   * The thread running the process thread listener, while the client is active.
+   */
+  volatile SimulatedProcessThread processThread;
+
+  /**
+   * The port registry of the client, created on request.
+   */
+  volatile SimulatedPortRegistry portRegistry;
+
+  /**
+   * The number of frames processed by this client, counted at the end of every cycle.
+   */
+  volatile long processedFrames = 0;
+
+  /**
+   * The process times of the client, guarded by the array.
+   */
+  private final long[] processTimeCounts = new long[ProcessTimeHistogram.BUCKET_COUNT];
+  private long maxProcessNanos = 0;
+  private long totalProcessNanos = 0;
+
+  SimulatedClientHandle(long reference, String name, SimulatedJack server) {
+    this.reference = reference;
+    this.name = name;
+    this.frameClock = server.frameClockOf(this);
+  }
+
+  @Override
+  public FrameClock getFrameClock() {
+    return frameClock;
+  }
+
+  void recordProcessTime(long nanos) {
+    int bucket = Math.min(Math.max(64 - Long.numberOfLeadingZeros(nanos) - 10, 0),
+            ProcessTimeHistogram.BUCKET_COUNT - 1);
+    synchronized (processTimeCounts) {
+      processTimeCounts[bucket]++;
+      if (nanos > maxProcessNanos) maxProcessNanos = nanos;
+      totalProcessNanos += nanos;
+    }
+  }
+
+  ProcessTimeHistogram processTimes() {
+    synchronized (processTimeCounts) {
+      return new ProcessTimeHistogram(processTimeCounts, maxProcessNanos, totalProcessNanos);
+    }
+  }
+
+  void resetProcessTimes() {
+    synchronized (processTimeCounts) {
+      Arrays.fill(processTimeCounts, 0);
+      maxProcessNanos = 0;
+      totalProcessNanos = 0;
+    }
+  }
+
+  /**
+   * Call this function when closing the client.
+   */
+  void invalidate() {
+    reference = 0;
+    active = false;
+  }
+}
@@ -0,0 +1,1435 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.PortRegistry;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.patchbay.Connection;
+import jackAudio4Java.patchbay.Diff;
+import jackAudio4Java.patchbay.Snapshot;
+import jackAudio4Java.types.*;
+
+import java.nio.FloatBuffer;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * An implementation of the {@link Jack} API that simulates a JACK server in Java.
+ * <p>
+ * Clients, ports, connections and process cycles behave as with a real server, but time is
+ * virtual: the frame time advances by one period per cycle, regardless of the wall clock.
+ * The cycles are either run on the calling thread ({@link #runCycles(int)}) or by a driver
+ * thread ({@link #start(double)}), which paces them at a chosen rate or runs them as fast as the
+ * CPU allows. This gives reproducible measurements of processing code and allows to render
+ * audio on machines without a JACK server.
+ * <p>
+ * This backend is selected by setting the system property `jackAudio4Java.backend=simulated`,
+ * or obtained explicitly through `Jack.backend(Jack.SIMULATED_BACKEND)`. Several independent
+ * servers can be created with the constructors.
+ * <p>
+ * The server has a client named `system` with the physical ports `system:capture_N` (outputs)
+ * and `system:playback_N` (inputs). A {@link Driver} supplies and receives their audio.
+ * <p>
+ * Within a cycle, the active clients are processed one after the other, ordered by their
+ * connections (a client feeding another one runs first); clients that are not connected run in
+ * the order of activation. An input port connected to exactly one output shares its memory, an
+ * input port with several connections receives their sum.
+ * <p>
+ * A client with a process thread ({@link #registerProcessThread}) gets a Java thread of its own,
+ * which the thread running the cycles hands each cycle of the client over to. As with JACK, that
+ * thread shall not change the graph (clients, ports and connections).
+ * <p>
+ * The transport runs on the virtual clock: a started transport rolls from the next cycle on, and
+ * relocations take effect in the next cycle. There are no slow-sync clients. The timebase listener
+ * of the master is called at the end of each cycle in which the transport rolls or has moved.
+ * <p>
+ * Threads created with {@link #clientCreateThread} are plain Java threads; priority, realtime
+ * scheduling and CPU affinity are ignored, and {@link #isRealtime} is false. The xrun delays are
+ * always zero, the process time histogram measures the process listener (or the process thread)
+ * of each client, except while freewheeling. MIDI data is not supported.
+ * <p>
+ * The static frame clock functions of {@link Jack} follow the virtual clock: the frame time stands
+ * still while a cycle runs, and system times are the microseconds since frame time zero.
+ * <p>
+ * Handles created by this backend cannot be used with other backends and vice versa.
+ */
+public class SimulatedJack extends Jack {
+
+  /**
+   * Exchanges the audio of the physical ports with the outside world.
+   * <p>
+   * Both functions are called on the thread running the cycles, {@link #capture} before the
+   * first client and {@link #playback} after the last client of each cycle.
+   * The buffers hold `nframes` samples starting at index zero; they shall not be retained.
+   */
+  public interface Driver {
+
+    /**
+     * Fill the buffer of the port `system:capture_<channel + 1>`.
+     */
+    void capture(int channel, FloatBuffer buffer, int nframes);
+
+    /**
+     * Consume the buffer of the port `system:playback_<channel + 1>`.
+     */
+    void playback(int channel, FloatBuffer buffer, int nframes);
+  }
+
+  public static final int DEFAULT_SAMPLE_RATE = 48000;
+  public static final int DEFAULT_BUFFER_SIZE = 256;
+  public static final int DEFAULT_CHANNELS = 2;
+
+  private static final String SYSTEM_CLIENT = "system";
+  private static final int CLIENT_NAME_SIZE = 63;
+  private static final int PORT_NAME_SIZE = 319;
+  private static final int PORT_TYPE_SIZE = 31;
+  private static final int EEXIST = 17;
+  private static final int EBUSY = 16;
+  private static final int MAX_NAME_SUFFIX = 99;
+  private static final String[] NO_PORTS = new String[0];
+  private static final SimulatedClientHandle[] NO_CLIENTS = new SimulatedClientHandle[0];
+
+  private static final Logger logger = Logger.getLogger(SimulatedJack.class.getName());
+
+  private final int sampleRate;
+  private volatile int bufferSize;
+
+  /**
+   * Guards the graph (clients, ports, connections) and serializes the cycles.
+   */
+  private final Object graph = new Object();
+  private final Map<String, SimulatedClientHandle> clients = new LinkedHashMap<>();
+  private final Map<String, SimulatedPortHandle> ports = new LinkedHashMap<>();
+  private final List<SimulatedClientHandle> activeClients = new ArrayList<>();
+  private final SimulatedPortHandle[] capturePorts;
+  private final SimulatedPortHandle[] playbackPorts;
+  private long nextReference = 1;
+
+  /**
+   * The active clients in the order in which they are processed, replaced when the graph changes.
+   */
+  private volatile SimulatedClientHandle[] processingOrder = NO_CLIENTS;
+
+  /**
+   * The frame time at the start of the next (or running) cycle.
+   */
+  private volatile long frameTime = 0;
+  private volatile boolean freewheeling = false;
+  private volatile float cpuLoad = 0f;
+  private volatile Driver driver;
+
+  /**
+   * Guards the transport, separate from the graph so that process threads can query it.
+   */
+  private final Object transport = new Object();
+  private TransportState transportState = TransportState.STOPPED;
+  private long transportFrame = 0;
+  private TransportState requestedState;
+  private long requestedFrame = -1;
+  private boolean newPosition = false;
+  private SimulatedClientHandle timebaseMaster;
+  private TimebaseListener timebaseListener;
+
+  /**
+   * The transport position of the running (or next) cycle.
+   */
+  private final TransportPosition position = new TransportPosition();
+
+  /**
+   * The position of the next cycle, while the timebase master extends it.
+   * Only accessed by the thread running the cycles.
+   */
+  private final TransportPosition nextPosition = new TransportPosition();
+
+  private final Object driverLock = new Object();
+  private Thread driverThread;
+  private volatile boolean running = false;
+
+  /**
+   * Create a server with {@value #DEFAULT_SAMPLE_RATE} Hz, {@value #DEFAULT_BUFFER_SIZE} frames per
+   * period and {@value #DEFAULT_CHANNELS} physical channels.
+   */
+  public SimulatedJack() {
+    this(DEFAULT_SAMPLE_RATE, DEFAULT_BUFFER_SIZE, DEFAULT_CHANNELS);
+  }
+
+  /**
+   * @param sampleRate the sample rate in frames per second.
+   * @param bufferSize the number of frames per period.
+   * @param channels   the number of physical capture and playback ports.
+   */
+  public SimulatedJack(int sampleRate, int bufferSize, int channels) {
+    super(false);
+    if (sampleRate <= 0) throw new IllegalArgumentException("Invalid sample rate " + sampleRate);
+    if (bufferSize <= 0) throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+    if (channels < 0) throw new IllegalArgumentException("Invalid number of channels " + channels);
+    this.sampleRate = sampleRate;
+    this.bufferSize = bufferSize;
+    position.setServerFields(0, sampleRate, 0);
+    SimulatedClientHandle system = new SimulatedClientHandle(nextReference++, SYSTEM_CLIENT, this);
+    system.active = true;
+    clients.put(SYSTEM_CLIENT, system);
+    capturePorts = new SimulatedPortHandle[channels];
+    playbackPorts = new SimulatedPortHandle[channels];
+    for (int i = 0; i < channels; i++) {
+      capturePorts[i] = addPort(system, "capture_" + (i + 1), PortType.defaultAudio(),
+              PortFlag.setOf(PortFlag.isOutput, PortFlag.isPhysical, PortFlag.isTerminal));
+    }
+    for (int i = 0; i < channels; i++) {
+      playbackPorts[i] = addPort(system, "playback_" + (i + 1), PortType.defaultAudio(),
+              PortFlag.setOf(PortFlag.isInput, PortFlag.isPhysical, PortFlag.isTerminal));
+    }
+  }
+
+  // ------------------------------------------------------------------------------------------
+  // The simulated server
+
+  /**
+   * Set the driver of the physical ports.
+   *
+   * @param driver the driver, or null to capture silence and discard the playback.
+   */
+  public void setDriver(Driver driver) {
+    this.driver = driver;
+  }
+
+  /**
+   * @return the frame time at the start of the next cycle.
+   */
+  public long getFrameTime() {
+    return frameTime;
+  }
+
+  /**
+   * Move the virtual clock, between two cycles. This allows to replay a recording with its
+   * original frame times.
+   *
+   * @param frameTime the frame time at the start of the next cycle.
+   */
+  public void setFrameTime(long frameTime) {
+    synchronized (graph) {
+      this.frameTime = frameTime;
+      for (SimulatedPortHandle port : ports.values()) port.forgetMix();
+    }
+  }
+
+  /**
+   * Run the given number of cycles on the calling thread.
+   * <p>
+   * Shall not be called from within a listener.
+   *
+   * @param count the number of cycles.
+   * @return the frame time after the last cycle.
+   */
+  public long runCycles(int count) {
+    for (int i = 0; i < count; i++) runCycle();
+    return frameTime;
+  }
+
+  /**
+   * Start a driver thread that runs the cycles.
+   *
+   * @param speed the pace relative to real time (1.0 runs one period per period duration,
+   *              2.0 twice as fast). Zero or less runs the cycles as fast as possible.
+   *              While freewheeling, the pace is ignored.
+   * @return 0 on success, -1 if the driver thread is already running.
+   */
+  public int start(double speed) {
+    synchronized (driverLock) {
+      if (driverThread != null) return -1;
+      running = true;
+      driverThread = new Thread(() -> drive(speed), "jackAudio4Java-simulated-driver");
+      driverThread.setDaemon(true);
+      driverThread.start();
+      return 0;
+    }
+  }
+
+  /**
+   * Stop the driver thread and wait until it has finished its last cycle.
+   */
+  public void stop() {
+    Thread thread;
+    synchronized (driverLock) {
+      thread = driverThread;
+      driverThread = null;
+      running = false;
+    }
+    if (thread == null || thread == Thread.currentThread()) return;
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return true while the driver thread is running.
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Change the number of frames per period, between two cycles.
+   * The buffer size listeners of all active clients are called before the next cycle.
+   *
+   * @param nframes the new buffer size.
+   * @return 0 on success, otherwise a non-zero error code.
+   */
+  public int setBufferSize(int nframes) {
+    if (nframes <= 0) return -1;
+    synchronized (graph) {
+      if (nframes == bufferSize) return 0;
+      bufferSize = nframes;
+      for (SimulatedPortHandle port : ports.values()) port.resize(nframes);
+      for (SimulatedClientHandle client : activeClients) {
+        BufferSizeListener listener = client.bufferSizeListener;
+        if (listener != null) listener.onBufferSize(nframes);
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Simulate the shutdown of the server: the driver is stopped, all clients are removed from the
+   * graph and their shutdown listeners are called. The clients still have to be closed.
+   */
+  public void shutdown() {
+    stop();
+    List<SimulatedClientHandle> stopped;
+    List<SimulatedProcessThread> threads = new ArrayList<>();
+    synchronized (graph) {
+      stopped = new ArrayList<>(activeClients);
+      for (SimulatedClientHandle client : stopped) threads.add(removeFromGraph(client));
+    }
+    for (SimulatedProcessThread thread : threads) {
+      if (thread != null) thread.join();
+    }
+    for (SimulatedClientHandle client : stopped) {
+      ShutdownListener listener = client.shutdownListener;
+      if (listener != null) listener.onShutdown();
+    }
+  }
+
+  private void drive(double speed) {
+    long deadline = System.nanoTime();
+    while (running) {
+      runCycle();
+      if (speed <= 0 || freewheeling) {
+        deadline = System.nanoTime();
+        continue;
+      }
+      deadline += (long) (bufferSize * 1e9 / sampleRate / speed);
+      long delay = deadline - System.nanoTime();
+      if (delay > 0) LockSupport.parkNanos(delay);
+    }
+  }
+
+  private void runCycle() {
+    List<SimulatedClientHandle> failed = null;
+    List<SimulatedProcessThread> threads = null;
+    synchronized (graph) {
+      long start = System.nanoTime();
+      long cycleStart = frameTime;
+      int nframes = bufferSize;
+      Driver current = driver;
+      if (current != null) {
+        for (int i = 0; i < capturePorts.length; i++) {
+          current.capture(i, capturePorts[i].bufferFor(cycleStart), nframes);
+        }
+      }
+      for (SimulatedClientHandle client : processingOrder) {
+        if (!process(client, cycleStart, nframes)) {
+          if (failed == null) failed = new ArrayList<>();
+          failed.add(client);
+        }
+      }
+      if (current != null) {
+        for (int i = 0; i < playbackPorts.length; i++) {
+          current.playback(i, playbackPorts[i].bufferFor(cycleStart), nframes);
+        }
+      }
+      frameTime = cycleStart + nframes;
+      advanceTransport(nframes);
+      if (failed != null) {
+        threads = new ArrayList<>(failed.size());
+        for (SimulatedClientHandle client : failed) threads.add(removeFromGraph(client));
+      }
+      float load = 100f * (System.nanoTime() - start) / (nframes * 1e9f / sampleRate);
+      cpuLoad = 0.9f * cpuLoad + 0.1f * load;
+    }
+    if (failed != null) {
+      for (SimulatedProcessThread thread : threads) {
+        if (thread != null) thread.join();
+      }
+      for (SimulatedClientHandle client : failed) {
+        ShutdownListener listener = client.shutdownListener;
+        if (listener != null) listener.onShutdown();
+      }
+    }
+  }
+
+  /**
+   * Run one cycle of the given client.
+   *
+   * @return false if the process listener (or thread) failed; as JACK does, the client is then
+   * removed from the graph.
+   */
+  private boolean process(SimulatedClientHandle client, long cycleStart, int nframes) {
+    SimulatedProcessThread thread = client.processThread;
+    if (thread != null) {
+      long start = System.nanoTime();
+      int status = thread.runCycle(cycleStart, nframes);
+      // as with JACK, the instrumentation is suspended while freewheeling.
+      if (!freewheeling) client.recordProcessTime(System.nanoTime() - start);
+      client.processedFrames += nframes;
+      return status == 0;
+    }
+    ProcessListener listener = client.processListener;
+    if (listener == null) return true;
+    int status;
+    long start = System.nanoTime();
+    client.clock.begin(cycleStart, nframes);
+    try {
+      status = listener.onProcess(nframes);
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "The process listener of \"" + client.name + "\" failed.", t);
+      status = -1;
+    } finally {
+      client.clock.end();
+    }
+    if (!freewheeling) client.recordProcessTime(System.nanoTime() - start);
+    client.processedFrames += nframes;
+    return status == 0;
+  }
+
+  /**
+   * Move the transport at the end of a cycle and prepare the position of the next cycle.
+   * Called by the thread running the cycles, {@link #frameTime} already is the start of the next cycle.
+   */
+  private void advanceTransport(int nframes) {
+    TimebaseListener listener;
+    TransportState state;
+    boolean moved;
+    synchronized (transport) {
+      if (transportState == TransportState.ROLLING) transportFrame += nframes;
+      moved = newPosition;
+      newPosition = false;
+      if (requestedFrame >= 0) {
+        transportFrame = requestedFrame;
+        requestedFrame = -1;
+        moved = true;
+      }
+      if (requestedState != null) {
+        transportState = requestedState;
+        requestedState = null;
+      }
+      state = transportState;
+      listener = timebaseListener;
+      // the extended fields of the master are kept until it supplies new ones.
+      nextPosition.copyFrom(position);
+      nextPosition.setServerFields(framesToUsecs(frameTime), sampleRate, transportFrame);
+      if (listener == null) nextPosition.setValid(0);
+    }
+    if (listener != null && (moved || state == TransportState.ROLLING)) {
+      try {
+        listener.onTimebase(state, bufferSize, nextPosition, moved);
+      } catch (Throwable t) {
+        logger.log(Level.WARNING, "The timebase listener failed.", t);
+      }
+    }
+    synchronized (transport) {
+      position.copyFrom(nextPosition);
+    }
+  }
+
+  private SimulatedPortHandle addPort(SimulatedClientHandle owner, String shortName,
+                                      PortType type, Set<PortFlag> flags) {
+    SimulatedPortHandle port = new SimulatedPortHandle(nextReference++, owner, shortName, type, flags, bufferSize);
+    owner.ports.add(port);
+    ports.put(port.fullName(), port);
+    for (SimulatedClientHandle client : clients.values()) {
+      SimulatedPortRegistry registry = client.portRegistry;
+      if (registry != null) registry.registered(port, true);
+    }
+    return port;
+  }
+
+  private void removePort(SimulatedPortHandle port) {
+    disconnectAll(port);
+    ports.remove(port.fullName());
+    for (SimulatedClientHandle client : clients.values()) {
+      SimulatedPortRegistry registry = client.portRegistry;
+      if (registry != null) registry.registered(port, false);
+    }
+    port.invalidate();
+  }
+
+  /**
+   * Remove an active client from the graph. Its process thread is told to stop, but not joined,
+   * because the thread may still wait for the graph.
+   *
+   * @return the process thread of the client, to be joined after leaving the graph, or null.
+   */
+  private SimulatedProcessThread removeFromGraph(SimulatedClientHandle client) {
+    if (!client.active) return null;
+    client.active = false;
+    activeClients.remove(client);
+    for (SimulatedPortHandle port : client.ports) disconnectAll(port);
+    updateProcessingOrder();
+    synchronized (transport) {
+      if (timebaseMaster == client) {
+        timebaseMaster = null;
+        timebaseListener = null;
+      }
+    }
+    SimulatedProcessThread thread = client.processThread;
+    client.processThread = null;
+    if (thread != null) thread.stop();
+    return thread;
+  }
+
+  private void disconnectAll(SimulatedPortHandle port) {
+    if (port.isInput()) {
+      for (SimulatedPortHandle source : port.sources) notifyConnect(source, port, false);
+      port.clearSources();
+      return;
+    }
+    for (SimulatedPortHandle other : ports.values()) {
+      if (other.isInput() && other.isConnectedTo(port)) {
+        other.removeSource(port);
+        notifyConnect(port, other, false);
+      }
+    }
+  }
+
+  private void notifyConnect(SimulatedPortHandle source, SimulatedPortHandle destination, boolean connected) {
+    for (SimulatedClientHandle client : clients.values()) {
+      SimulatedPortRegistry registry = client.portRegistry;
+      if (registry != null) registry.connected(source, destination, connected);
+    }
+  }
+
+  /**
+   * Sort the active clients such that every client runs after the clients feeding it.
+   * Clients in a feedback loop run in the order of activation.
+   */
+  private void updateProcessingOrder() {
+    List<SimulatedClientHandle> pending = new ArrayList<>(activeClients);
+    List<SimulatedClientHandle> ordered = new ArrayList<>(pending.size());
+    while (!pending.isEmpty()) {
+      SimulatedClientHandle next = pending.get(0);
+      for (SimulatedClientHandle candidate : pending) {
+        if (!isFedByAny(candidate, pending)) {
+          next = candidate;
+          break;
+        }
+      }
+      pending.remove(next);
+      ordered.add(next);
+    }
+    processingOrder = ordered.toArray(NO_CLIENTS);
+  }
+
+  private static boolean isFedByAny(SimulatedClientHandle client, List<SimulatedClientHandle> others) {
+    for (SimulatedPortHandle port : client.ports) {
+      for (SimulatedPortHandle source : port.sources) {
+        if (source.owner != client && others.contains(source.owner)) return true;
+      }
+    }
+    return false;
+  }
+
+  private static SimulatedClientHandle clientOf(ClientHandle client) {
+    if (!(client instanceof SimulatedClientHandle)) throw new RuntimeException("Invalid client handle");
+    return (SimulatedClientHandle) client;
+  }
+
+  private static SimulatedPortHandle portOf(PortHandle port) {
+    if (!(port instanceof SimulatedPortHandle)) throw new RuntimeException("Invalid port handle");
+    return (SimulatedPortHandle) port;
+  }
+
+  private static SimulatedPortSet portSetOf(PortSet portSet) {
+    if (!(portSet instanceof SimulatedPortSet)) throw new RuntimeException("Invalid port set");
+    return (SimulatedPortSet) portSet;
+  }
+
+  private static Pattern patternOf(String regex) {
+    if (regex == null || regex.isEmpty()) return null;
+    return Pattern.compile(regex);
+  }
+
+  private long framesToUsecs(long frames) {
+    return frames * 1000000L / sampleRate;
+  }
+
+  /**
+   * @return the virtual frame clock of the given client.
+   */
+  FrameClock frameClockOf(SimulatedClientHandle client) {
+    return new FrameClock() {
+      @Override
+      public long frameTime() {
+        if (!client.isValid()) return -1;
+        return frameTime;
+      }
+
+      @Override
+      public long lastFrameTime() {
+        if (!client.isValid()) return -1;
+        long current = client.clock.lastFrameTime();
+        // between two cycles, the virtual time stands at the start of the next one.
+        return (current >= 0) ? current : frameTime;
+      }
+
+      @Override
+      public int framesSinceCycleStart() {
+        if (!client.isValid()) return -1;
+        return 0;
+      }
+
+      @Override
+      public long framesToTime(long frames) {
+        if (!client.isValid()) return -1;
+        return framesToUsecs(frames);
+      }
+
+      @Override
+      public long timeToFrames(long usecs) {
+        if (!client.isValid()) return -1;
+        return usecs * sampleRate / 1000000L;
+      }
+    };
+  }
+
+  // ------------------------------------------------------------------------------------------
+  // The Jack API
+
+  @Override
+  public void setLoggingLevel(Level level) {
+    // there is no native logging in this backend.
+  }
+
+  @Override
+  public long getNativeLogDropCount() {
+    return 0;
+  }
+
+  @Override
+  public int getJniVersion() {
+    return 0;
+  }
+
+  @Override
+  public void getJackVersion(Int majorRef, Int minorRef, Int microRef, Int protoRef) {
+    if (majorRef != null) majorRef.value = 0;
+    if (minorRef != null) minorRef.value = 0;
+    if (microRef != null) microRef.value = 0;
+    if (protoRef != null) protoRef.value = 0;
+  }
+
+  @Override
+  public ClientHandle clientOpen(String clientName,
+                                 OpenOption[] openOptions,
+                                 OpenStatus returnStatus,
+                                 String serverName) {
+    int openOptionsN = OpenOption.arrayToInt(openOptions);
+    int status = 0;
+    SimulatedClientHandle result = null;
+    synchronized (graph) {
+      String name = clientName;
+      if (clientName == null || clientName.isEmpty() || clientName.length() > CLIENT_NAME_SIZE) {
+        status = 0x01;
+        name = null;
+      } else if (clients.containsKey(clientName)) {
+        status = 0x04;
+        name = null;
+        if ((openOptionsN & OpenOption.UseExactName.asInt()) == 0) {
+          for (int i = 1; i <= MAX_NAME_SUFFIX && name == null; i++) {
+            String candidate = String.format("%s-%02d", clientName, i);
+            if (candidate.length() <= CLIENT_NAME_SIZE && !clients.containsKey(candidate)) name = candidate;
+          }
+        }
+        if (name == null) status |= 0x01;
+      }
+      if (name != null) {
+        result = new SimulatedClientHandle(nextReference++, name, this);
+        clients.put(name, result);
+      }
+    }
+    if (returnStatus != null) returnStatus.statusBits = status;
+    return result;
+  }
+
+  @Override
+  public int clientClose(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    SimulatedProcessThread thread;
+    synchronized (graph) {
+      thread = removeFromGraph(handle);
+      for (SimulatedPortHandle port : handle.ports) removePort(port);
+      handle.ports.clear();
+      clients.remove(handle.name);
+      handle.portRegistry = null;
+      handle.invalidate();
+    }
+    if (thread != null) thread.join();
+    return 0;
+  }
+
+  @Override
+  public int clientNameSize() {
+    return CLIENT_NAME_SIZE;
+  }
+
+  @Override
+  public String getClientName(ClientHandle client) {
+    final String invalidClient = "Invalid Client";
+    if (client == null) return invalidClient;
+    if (!client.isValid()) return invalidClient;
+    return clientOf(client).name;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The buffer size and sample rate listeners of the client are called before this function
+   * returns, so the client knows the format of the cycles to come.
+   */
+  @Override
+  public int activate(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    synchronized (graph) {
+      if (handle.active) return 0;
+      BufferSizeListener bufferSizeListener = handle.bufferSizeListener;
+      if (bufferSizeListener != null) bufferSizeListener.onBufferSize(bufferSize);
+      SampleRateListener sampleRateListener = handle.sampleRateListener;
+      if (sampleRateListener != null) sampleRateListener.onSampleRate(sampleRate);
+      ProcessThreadListener processThreadListener = handle.processThreadListener;
+      if (processThreadListener != null) {
+        SimulatedProcessThread thread = new SimulatedProcessThread(handle.name, processThreadListener);
+        handle.processThread = thread;
+        thread.start();
+      }
+      handle.active = true;
+      activeClients.add(handle);
+      updateProcessingOrder();
+      return 0;
+    }
+  }
+
+  @Override
+  public int deactivate(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    SimulatedProcessThread thread;
+    synchronized (graph) {
+      thread = removeFromGraph(handle);
+    }
+    if (thread != null) thread.join();
+    return 0;
+  }
+
+  @Override
+  public int registerShutdownListener(ClientHandle client, ShutdownListener shutdownListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client).shutdownListener = shutdownListener;
+    return 0;
+  }
+
+  @Override
+  public int registerBufferSizeListener(ClientHandle client, BufferSizeListener bufferSizeListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client).bufferSizeListener = bufferSizeListener;
+    return 0;
+  }
+
+  @Override
+  public int registerSampleRateListener(ClientHandle client, SampleRateListener sampleRateListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client).sampleRateListener = sampleRateListener;
+    return 0;
+  }
+
+  @Override
+  public int registerFreewheelListener(ClientHandle client, FreewheelListener freewheelListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client).freewheelListener = freewheelListener;
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, freewheeling only lifts the pace of the driver thread (see {@link #start(double)}).
+   */
+  @Override
+  public int setFreewheel(ClientHandle client, boolean onoff) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    List<SimulatedClientHandle> notified;
+    synchronized (graph) {
+      if (freewheeling == onoff) return 0;
+      freewheeling = onoff;
+      notified = new ArrayList<>(activeClients);
+    }
+    for (SimulatedClientHandle other : notified) {
+      FreewheelListener listener = other.freewheelListener;
+      if (listener != null) listener.onFreewheel(onoff);
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean isFreewheeling(ClientHandle client) {
+    if (client == null) return false;
+    if (!client.isValid()) return false;
+    clientOf(client);
+    return freewheeling;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, the cycles are run on the calling thread (interleaved with those of a
+   * running driver thread, if any).
+   */
+  @Override
+  public long render(ClientHandle client, long frames, long timeoutMillis) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (frames <= 0) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    if (!handle.active) return -1;
+    if (handle.processListener == null && handle.processThreadListener == null) return -1;
+    if (setFreewheel(client, true) != 0) return -1;
+    long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+    long start = handle.processedFrames;
+    try {
+      while (handle.processedFrames - start < frames && handle.active && System.nanoTime() < deadline) {
+        runCycle();
+      }
+    } finally {
+      setFreewheel(client, false);
+    }
+    return Math.min(handle.processedFrames - start, frames);
+  }
+
+  @Override
+  public int registerProcessListener(ClientHandle client, ProcessListener processListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    if (handle.active) return -1;
+    if (handle.processThreadListener != null) return -1;
+    handle.processListener = processListener;
+    return 0;
+  }
+
+  @Override
+  public int registerProcessThread(ClientHandle client, ProcessThreadListener processThreadListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    if (processThreadListener == null) return -1;
+    if (handle.active) return -1;
+    if (handle.processListener != null) return -1;
+    handle.processThreadListener = processThreadListener;
+    return 0;
+  }
+
+  @Override
+  public int cycleWait(ClientHandle client) {
+    if (client == null) return 0;
+    if (!client.isValid()) return 0;
+    SimulatedClientHandle handle = clientOf(client);
+    SimulatedProcessThread thread = handle.processThread;
+    if (thread == null) return 0;
+    return thread.await(handle.clock);
+  }
+
+  @Override
+  public void cycleSignal(ClientHandle client, int status) {
+    if (client == null) return;
+    if (!client.isValid()) return;
+    SimulatedClientHandle handle = clientOf(client);
+    SimulatedProcessThread thread = handle.processThread;
+    if (thread == null) {
+      handle.clock.end();
+      return;
+    }
+    thread.signal(handle.clock, status);
+  }
+
+  @Override
+  public int getSampleRate(ClientHandle client) {
+    if (client == null) return 0;
+    if (!client.isValid()) return 0;
+    clientOf(client);
+    return sampleRate;
+  }
+
+  @Override
+  public int getBufferSize(ClientHandle client) {
+    if (client == null) return 0;
+    if (!client.isValid()) return 0;
+    clientOf(client);
+    return bufferSize;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, the load is the (smoothed) time spent in a cycle relative to the
+   * duration of the period it simulates.
+   */
+  @Override
+  public float getCpuLoad(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    return cpuLoad;
+  }
+
+  @Override
+  public long getXrunCount(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    return 0;
+  }
+
+  @Override
+  public float getXrunDelayedUsecs(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    return 0;
+  }
+
+  @Override
+  public float getMaxDelayedUsecs(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, the durations are measured around the process listener, or around the
+   * hand-over of the cycle to the process thread.
+   */
+  @Override
+  public ProcessTimeHistogram getProcessTimeHistogram(ClientHandle client) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    return clientOf(client).processTimes();
+  }
+
+  @Override
+  public int resetInstrumentation(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client).resetProcessTimes();
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, a daemon Java thread is started; the priority, realtime scheduling and
+   * CPU are ignored.
+   */
+  @Override
+  public ThreadHandle clientCreateThread(ClientHandle client, String name, int priority,
+                                         boolean realtime, int cpu, Runnable runnable) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    SimulatedClientHandle handle = clientOf(client);
+    if (runnable == null) return null;
+    Thread thread = new Thread(runnable, (name != null) ? name : "jackAudio4Java-simulated-" + handle.name);
+    thread.setDaemon(true);
+    thread.start();
+    return new SimulatedThreadHandle(thread);
+  }
+
+  @Override
+  public int threadJoin(ThreadHandle thread) {
+    if (thread == null) return -1;
+    if (!(thread instanceof SimulatedThreadHandle)) return -1;
+    SimulatedThreadHandle handle = (SimulatedThreadHandle) thread;
+    if (!handle.release()) return -1;
+    try {
+      handle.thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+    return 0;
+  }
+
+  @Override
+  public int getCycleTimes(ClientHandle client, CycleTimes cycleTimes) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (cycleTimes == null) return -1;
+    long current = clientOf(client).clock.lastFrameTime();
+    if (current < 0) return -1;
+    cycleTimes.currentFrames = current;
+    cycleTimes.currentUsecs = framesToUsecs(current);
+    cycleTimes.nextUsecs = framesToUsecs(current + bufferSize);
+    cycleTimes.periodUsecs = bufferSize * 1e6f / sampleRate;
+    return 0;
+  }
+
+  @Override
+  public PortHandle portRegister(ClientHandle client,
+                                 String portName,
+                                 PortType portType,
+                                 Set<PortFlag> portFlags,
+                                 long bufferSize) {
+    if (client == null || !client.isValid()) throw new RuntimeException("Invalid client handle");
+    SimulatedClientHandle handle = clientOf(client);
+    if (portName == null || portName.isEmpty() || portType == null) return null;
+    if (portType.toString().length() > PORT_TYPE_SIZE) return null;
+    long flags = PortFlag.setToLong(portFlags);
+    boolean isInput = (flags & PortFlag.isInput.getBits()) != 0;
+    boolean isOutput = (flags & PortFlag.isOutput.getBits()) != 0;
+    if (isInput == isOutput) return null;
+    synchronized (graph) {
+      String fullName = handle.name + ":" + portName;
+      if (fullName.length() > PORT_NAME_SIZE) return null;
+      if (ports.containsKey(fullName)) return null;
+      return addPort(handle, portName, portType, portFlags);
+    }
+  }
+
+  @Override
+  public int portUnregister(ClientHandle client, PortHandle port) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (port == null) return -1;
+    if (!port.isValid()) return -1;
+    SimulatedClientHandle clientHandle = clientOf(client);
+    SimulatedPortHandle portHandle = portOf(port);
+    synchronized (graph) {
+      if (portHandle.owner != clientHandle) return -1;
+      clientHandle.ports.remove(portHandle);
+      removePort(portHandle);
+      updateProcessingOrder();
+      return 0;
+    }
+  }
+
+  @Override
+  public String portName(PortHandle port) {
+    if (port == null) return "invalid-port";
+    if (!port.isValid()) return "invalid-port";
+    return portOf(port).fullName();
+  }
+
+  @Override
+  public String portShortName(PortHandle port) {
+    if (port == null) return "invalid-port";
+    if (!port.isValid()) return "invalid-port";
+    return portOf(port).shortName;
+  }
+
+  @Override
+  public ImmutableAudioSlice portGetAudioData(PortHandle port, int nframes) {
+    if (port == null) return null;
+    if (!port.isValid()) return null;
+    if (nframes <= 0) return null;
+    SimulatedPortHandle portHandle = portOf(port);
+    return portHandle.audioViewOf(portHandle.bufferFor(frameTime));
+  }
+
+  @Override
+  public int portGetAudioData(PortHandle port, int nframes, MutableAudioSlice inputContainer) {
+    if (port == null) return -1;
+    if (!port.isValid()) return -1;
+    SimulatedPortHandle portHandle = portOf(port);
+    if (inputContainer == null) return -1;
+    if (inputContainer.isExpired()) return -1;
+    final FloatBuffer target = ((InternalAudioSlice) inputContainer).accessInternalBuffer();
+    final FloatBuffer source = portHandle.bufferFor(frameTime);
+    int count = Math.min(nframes, Math.min(source.capacity(), target.capacity()));
+    for (int i = 0; i < count; i++) target.put(i, source.get(i));
+    return 0;
+  }
+
+  @Override
+  public int portSendAudioData(PortHandle outputPort, int nframes, float[] output) {
+    if (outputPort == null) return -1;
+    if (!outputPort.isValid()) return -1;
+    if (output == null) return -1;
+    SimulatedPortHandle portHandle = portOf(outputPort);
+    if (!portHandle.isOutput()) return -1;
+    final FloatBuffer target = portHandle.bufferFor(frameTime);
+    int length = Math.min(nframes, target.capacity());
+    int count = Math.min(length, output.length);
+    for (int i = 0; i < count; i++) target.put(i, output[i]);
+    for (int i = count; i < length; i++) target.put(i, 0f);
+    return 0;
+  }
+
+  @Override
+  public int portSendAudioData(PortHandle outputPort, int nframes, ImmutableAudioSlice output) {
+    if (outputPort == null) return -1;
+    if (!outputPort.isValid()) return -1;
+    if (output == null) return -1;
+    if (output.isExpired()) return -1;
+    SimulatedPortHandle portHandle = portOf(outputPort);
+    if (!portHandle.isOutput()) return -1;
+    final FloatBuffer source = ((InternalAudioSlice) output).accessInternalBuffer();
+    final FloatBuffer target = portHandle.bufferFor(frameTime);
+    int length = Math.min(nframes, target.capacity());
+    int count = Math.min(length, Math.min(output.length(), source.capacity()));
+    for (int i = 0; i < count; i++) target.put(i, source.get(i));
+    for (int i = count; i < length; i++) target.put(i, 0f);
+    return 0;
+  }
+
+  @Override
+  public PortSet portSetCreate(PortHandle[] inputs, PortHandle[] outputs, int capacity) {
+    if (inputs == null) inputs = new PortHandle[0];
+    if (outputs == null) outputs = new PortHandle[0];
+    if (capacity <= 0) return null;
+    SimulatedPortHandle[] inputPorts = new SimulatedPortHandle[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      if (inputs[i] == null || !inputs[i].isValid()) return null;
+      inputPorts[i] = portOf(inputs[i]);
+    }
+    SimulatedPortHandle[] outputPorts = new SimulatedPortHandle[outputs.length];
+    for (int i = 0; i < outputs.length; i++) {
+      if (outputs[i] == null || !outputs[i].isValid()) return null;
+      outputPorts[i] = portOf(outputs[i]);
+    }
+    return new SimulatedPortSet(inputPorts, outputPorts, capacity);
+  }
+
+  @Override
+  public int portSetRelease(PortSet portSet) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    portSetOf(portSet).invalidate();
+    return 0;
+  }
+
+  @Override
+  public int portSetFetch(PortSet portSet, int nframes) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    SimulatedPortSet set = portSetOf(portSet);
+    if (nframes <= 0 || nframes > set.capacity) return -1;
+    set.prepareFrames(nframes);
+    for (int i = 0; i < set.inputPorts.length; i++) {
+      SimulatedPortHandle port = set.inputPorts[i];
+      if (!port.isValid()) return -1;
+      FloatBuffer source = port.bufferFor(frameTime).duplicate();
+      if (source.capacity() < nframes) return -1;
+      source.limit(nframes);
+      FloatBuffer target = set.inputBuffers[i].duplicate();
+      target.put(source);
+    }
+    return 0;
+  }
+
+  @Override
+  public int portSetPublish(PortSet portSet, int nframes) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    SimulatedPortSet set = portSetOf(portSet);
+    if (nframes <= 0 || nframes > set.capacity) return -1;
+    set.prepareFrames(nframes);
+    for (int i = 0; i < set.outputPorts.length; i++) {
+      SimulatedPortHandle port = set.outputPorts[i];
+      if (!port.isValid()) return -1;
+      FloatBuffer target = port.bufferFor(frameTime).duplicate();
+      if (target.capacity() < nframes) return -1;
+      FloatBuffer source = set.outputBuffers[i].duplicate();
+      source.limit(nframes);
+      target.put(source);
+    }
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * As with JACK2, both ports must belong to active clients.
+   */
+  @Override
+  public int connect(ClientHandle client, String sourcePort, String destinationPort) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    synchronized (graph) {
+      SimulatedPortHandle source = ports.get(sourcePort);
+      SimulatedPortHandle destination = ports.get(destinationPort);
+      if (source == null || destination == null) return -1;
+      if (!source.isOutput() || !destination.isInput()) return -1;
+      if (!source.type.equals(destination.type)) return -1;
+      if (!source.owner.active || !destination.owner.active) return -1;
+      if (destination.isConnectedTo(source)) return EEXIST;
+      destination.addSource(source);
+      notifyConnect(source, destination, true);
+      updateProcessingOrder();
+      return 0;
+    }
+  }
+
+  @Override
+  public int disconnect(ClientHandle client, String sourcePort, String destinationPort) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    synchronized (graph) {
+      SimulatedPortHandle source = ports.get(sourcePort);
+      SimulatedPortHandle destination = ports.get(destinationPort);
+      if (source == null || destination == null) return -1;
+      if (!destination.isConnectedTo(source)) return -1;
+      destination.removeSource(source);
+      notifyConnect(source, destination, false);
+      updateProcessingOrder();
+      return 0;
+    }
+  }
+
+  @Override
+  public Snapshot patchbaySnapshot(ClientHandle client) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    clientOf(client);
+    List<Connection> connections = new ArrayList<>();
+    synchronized (graph) {
+      for (SimulatedPortHandle port : ports.values()) {
+        for (SimulatedPortHandle source : port.sources) {
+          connections.add(new Connection(source.fullName(), port.fullName()));
+        }
+      }
+    }
+    return new Snapshot(connections);
+  }
+
+  @Override
+  public int[] patchbayApply(ClientHandle client, Diff diff) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    clientOf(client);
+    List<Connection> changes = diff.getChanges();
+    int disconnectCount = diff.getDisconnections().size();
+    int[] results = new int[changes.size()];
+    synchronized (graph) {
+      for (int i = 0; i < results.length; i++) {
+        Connection change = changes.get(i);
+        results[i] = (i < disconnectCount)
+                ? disconnect(client, change.getSource(), change.getDestination())
+                : connect(client, change.getSource(), change.getDestination());
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public int portNameSize() {
+    return PORT_NAME_SIZE;
+  }
+
+  @Override
+  public int portTypeSize() {
+    return PORT_TYPE_SIZE;
+  }
+
+  @Override
+  public String[] getPorts(ClientHandle client,
+                           String portNamePattern,
+                           String typeNamePattern,
+                           Set<PortFlag> portFlags) {
+    if (client == null) return NO_PORTS;
+    if (!client.isValid()) return NO_PORTS;
+    clientOf(client);
+    Pattern namePattern = patternOf(portNamePattern);
+    Pattern typePattern = patternOf(typeNamePattern);
+    long required = PortFlag.setToLong(portFlags);
+    List<String> result = new ArrayList<>();
+    synchronized (graph) {
+      for (SimulatedPortHandle port : ports.values()) {
+        if ((port.flags & required) != required) continue;
+        String name = port.fullName();
+        if (namePattern != null && !namePattern.matcher(name).find()) continue;
+        if (typePattern != null && !typePattern.matcher(port.type.toString()).find()) continue;
+        result.add(name);
+      }
+    }
+    return result.toArray(NO_PORTS);
+  }
+
+  @Override
+  public PortHandle portByName(ClientHandle client, String portName) {
+    if (client == null || !client.isValid()) throw new RuntimeException("Invalid client handle");
+    clientOf(client);
+    synchronized (graph) {
+      return ports.get(portName);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, the registry may also be requested after activation.
+   */
+  @Override
+  public PortRegistry getPortRegistry(ClientHandle client) {
+    if (client == null || !client.isValid()) throw new RuntimeException("Invalid client handle");
+    SimulatedClientHandle handle = clientOf(client);
+    synchronized (graph) {
+      SimulatedPortRegistry registry = handle.portRegistry;
+      if (registry != null) return registry;
+      registry = new SimulatedPortRegistry();
+      registry.load(ports.values());
+      handle.portRegistry = registry;
+      return registry;
+    }
+  }
+
+  @Override
+  public TransportState transportQuery(ClientHandle client, TransportPosition position) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    clientOf(client);
+    synchronized (transport) {
+      if (position != null) position.copyFrom(this.position);
+      return transportState;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, the frame stands still while a cycle runs, as the virtual clock does.
+   */
+  @Override
+  public long getCurrentTransportFrame(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    synchronized (transport) {
+      return transportFrame;
+    }
+  }
+
+  @Override
+  public int transportStart(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    synchronized (transport) {
+      requestedState = TransportState.ROLLING;
+    }
+    return 0;
+  }
+
+  @Override
+  public int transportStop(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    synchronized (transport) {
+      requestedState = TransportState.STOPPED;
+    }
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, the new position takes effect in the next cycle.
+   */
+  @Override
+  public int transportLocate(ClientHandle client, long frame) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    if (frame < 0 || frame > 0xFFFFFFFFL) return -1;
+    synchronized (transport) {
+      requestedFrame = frame;
+    }
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * In this backend, only the frame number is used; the extended fields are supplied by the timebase master.
+   */
+  @Override
+  public int transportReposition(ClientHandle client, TransportPosition position) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client);
+    if (position == null) return -1;
+    return transportLocate(client, position.getFrame());
+  }
+
+  @Override
+  public int setTimebaseListener(ClientHandle client, boolean conditional, TimebaseListener listener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    if (listener == null) return -1;
+    synchronized (transport) {
+      if (conditional && timebaseMaster != null && timebaseMaster != handle) return EBUSY;
+      timebaseMaster = handle;
+      timebaseListener = listener;
+      newPosition = true;
+    }
+    return 0;
+  }
+
+  @Override
+  public int releaseTimebase(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    SimulatedClientHandle handle = clientOf(client);
+    synchronized (transport) {
+      if (timebaseMaster != handle) return -1;
+      timebaseMaster = null;
+      timebaseListener = null;
+    }
+    return 0;
+  }
+}
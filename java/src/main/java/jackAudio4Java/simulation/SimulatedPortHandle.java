@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.types.PortFlag;
+import jackAudio4Java.types.PortHandle;
+import jackAudio4Java.types.PortType;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link SimulatedJack}.
+ * <p>
+ * Besides being the handle, this object holds the state of the simulated port:
+ * its buffer and, for input ports, the output ports connected to it.
+ */
+class SimulatedPortHandle extends PortHandle {
+
+  private static final SimulatedPortHandle[] NO_SOURCES = new SimulatedPortHandle[0];
+
+  final SimulatedClientHandle owner;
+  final String shortName;
+  final PortType type;
+  final long flags;
+
+  /**
+   * The memory of the port. Output ports are written by their owner, input ports with more than
+   * one connection receive the mix of their sources here.
+   */
+  private FloatBuffer buffer;
+
+  /**
+   * The output ports connected to this (input) port, replaced as a whole when the graph changes.
+   */
+  volatile SimulatedPortHandle[] sources = NO_SOURCES;
+
+  /**
+   * The frame time of the cycle in which the mix of the sources has been computed.
+   */
+  private long mixedAt = -1;
+
+  /**
+   * A slice wrapping the buffer handed out last and the buffer it wraps.
+   * Only accessed from the cycle that is running.
+   */
+  private ImmutableAudioSlice audioView;
+  private FloatBuffer audioViewBuffer;
+
+  SimulatedPortHandle(long reference, SimulatedClientHandle owner, String shortName,
+                      PortType type, Set<PortFlag> flags, int bufferSize) {
+    super(reference);
+    this.owner = owner;
+    this.shortName = shortName;
+    this.type = type;
+    this.flags = PortFlag.setToLong(flags);
+    this.buffer = Manager.makeDirectFloatBuffer(bufferSize);
+  }
+
+  /**
+   * @return the port id as reported to a port registry.
+   */
+  int id() {
+    return (int) reference;
+  }
+
+  String fullName() {
+    return owner.name + ":" + shortName;
+  }
+
+  boolean isInput() {
+    return (flags & PortFlag.isInput.getBits()) != 0;
+  }
+
+  boolean isOutput() {
+    return (flags & PortFlag.isOutput.getBits()) != 0;
+  }
+
+  boolean isConnectedTo(SimulatedPortHandle source) {
+    for (SimulatedPortHandle other : sources) {
+      if (other == source) return true;
+    }
+    return false;
+  }
+
+  void addSource(SimulatedPortHandle source) {
+    SimulatedPortHandle[] current = sources;
+    SimulatedPortHandle[] extended = Arrays.copyOf(current, current.length + 1);
+    extended[current.length] = source;
+    sources = extended;
+  }
+
+  void removeSource(SimulatedPortHandle source) {
+    SimulatedPortHandle[] current = sources;
+    int kept = 0;
+    SimulatedPortHandle[] reduced = new SimulatedPortHandle[current.length];
+    for (SimulatedPortHandle other : current) {
+      if (other != source) reduced[kept++] = other;
+    }
+    sources = (kept == 0) ? NO_SOURCES : Arrays.copyOf(reduced, kept);
+  }
+
+  void clearSources() {
+    sources = NO_SOURCES;
+  }
+
+  /**
+   * Replace the memory of the port, when the buffer size changes (between cycles).
+   */
+  void resize(int bufferSize) {
+    buffer = Manager.makeDirectFloatBuffer(bufferSize);
+    mixedAt = -1;
+  }
+
+  /**
+   * Get the memory of the port for the running cycle.
+   * <p>
+   * An output port gives its own buffer. An input port gives the buffer of its only source
+   * (no copy, as JACK does), the mix of all its sources, or silence.
+   *
+   * @param frameTime the frame time at the start of the running cycle.
+   */
+  FloatBuffer bufferFor(long frameTime) {
+    if (!isInput()) return buffer;
+    SimulatedPortHandle[] current = sources;
+    if (current.length == 1) return current[0].buffer;
+    if (mixedAt != frameTime) {
+      mix(current);
+      mixedAt = frameTime;
+    }
+    return buffer;
+  }
+
+  private void mix(SimulatedPortHandle[] current) {
+    int length = buffer.capacity();
+    for (int i = 0; i < length; i++) buffer.put(i, 0f);
+    for (SimulatedPortHandle source : current) {
+      FloatBuffer other = source.buffer;
+      int count = Math.min(length, other.capacity());
+      for (int i = 0; i < count; i++) buffer.put(i, buffer.get(i) + other.get(i));
+    }
+  }
+
+  /**
+   * Compute the mix again in the next cycle, even if it has the same frame time.
+   */
+  void forgetMix() {
+    mixedAt = -1;
+  }
+
+  /**
+   * @return a slice bound to the cycle of the owner, re-used as long as the port memory does not move.
+   */
+  ImmutableAudioSlice audioViewOf(FloatBuffer portBuffer) {
+    if (audioView == null || audioViewBuffer != portBuffer) {
+      audioView = Manager.wrap(portBuffer.duplicate(), owner.clock);
+      audioViewBuffer = portBuffer;
+    } else {
+      ((InternalAudioSlice) audioView).renew();
+    }
+    return audioView;
+  }
+
+  /**
+   * Call this function when the port is unregistered.
+   */
+  void invalidate() {
+    reference = 0;
+    sources = NO_SOURCES;
+    audioView = null;
+    audioViewBuffer = null;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.PortRegistry;
+
+import java.util.Collection;
+
+/**
+ * The port registry of a simulated client, fed by {@link SimulatedJack} whenever the graph changes.
+ */
+class SimulatedPortRegistry extends PortRegistry {
+
+  /**
+   * Load the present state of the graph.
+   */
+  void load(Collection<SimulatedPortHandle> ports) {
+    beginLoad();
+    for (SimulatedPortHandle port : ports) registered(port, true);
+    for (SimulatedPortHandle port : ports) {
+      for (SimulatedPortHandle source : port.sources) connected(source, port, true);
+    }
+    endLoad();
+  }
+
+  void registered(SimulatedPortHandle port, boolean registered) {
+    onPortRegistration(port.id(), port.fullName(), port.type.toString(), (int) port.flags, registered);
+  }
+
+  void connected(SimulatedPortHandle source, SimulatedPortHandle destination, boolean connected) {
+    onPortConnect(source.fullName(), destination.fullName(), connected);
+  }
+}
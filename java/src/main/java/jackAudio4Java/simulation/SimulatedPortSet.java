@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.types.PortSet;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link SimulatedJack}.
+ * <p>
+ * Each port of the set has its own buffer, the data is copied from and to the port memory.
+ */
+class SimulatedPortSet extends PortSet {
+
+  final SimulatedPortHandle[] inputPorts;
+  final SimulatedPortHandle[] outputPorts;
+  final FloatBuffer[] inputBuffers;
+  final FloatBuffer[] outputBuffers;
+  final int capacity;
+
+  /**
+   * The number of frames the slices have been prepared for.
+   */
+  private int frames;
+
+  SimulatedPortSet(SimulatedPortHandle[] inputPorts, SimulatedPortHandle[] outputPorts, int capacity) {
+    // there is no native object behind this set, a non-zero reference marks it as valid.
+    this.reference = 1;
+    this.inputPorts = inputPorts;
+    this.outputPorts = outputPorts;
+    this.capacity = capacity;
+    this.frames = capacity;
+    inputs = new ImmutableAudioSlice[inputPorts.length];
+    inputBuffers = new FloatBuffer[inputPorts.length];
+    for (int i = 0; i < inputPorts.length; i++) {
+      inputBuffers[i] = Manager.makeDirectFloatBuffer(capacity);
+      inputs[i] = Manager.wrap(inputBuffers[i].duplicate());
+    }
+    outputs = new MutableAudioSlice[outputPorts.length];
+    outputBuffers = new FloatBuffer[outputPorts.length];
+    for (int i = 0; i < outputPorts.length; i++) {
+      outputBuffers[i] = Manager.makeDirectFloatBuffer(capacity);
+      outputs[i] = Manager.wrapMutable(outputBuffers[i].duplicate());
+    }
+  }
+
+  /**
+   * Make the slices report the number of frames of the current cycle.
+   * This only costs something when the period size changes.
+   *
+   * @param nframes the number of frames in the current cycle.
+   */
+  void prepareFrames(int nframes) {
+    if (nframes == frames) return;
+    for (ImmutableAudioSlice input : inputs) {
+      ((InternalAudioSlice) input).accessInternalBuffer().limit(nframes);
+    }
+    for (MutableAudioSlice output : outputs) {
+      ((InternalAudioSlice) output).accessInternalBuffer().limit(nframes);
+    }
+    frames = nframes;
+  }
+
+  /**
+   * Call this function when releasing the port set.
+   */
+  void invalidate() {
+    reference = 0;
+  }
+}
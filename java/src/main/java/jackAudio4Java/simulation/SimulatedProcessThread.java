@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.types.ProcessThreadListener;
+
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The process thread of a simulated client that uses a {@link ProcessThreadListener}.
+ * <p>
+ * The thread running the cycles hands every cycle of the client over to this thread and waits
+ * until the listener signals the end of the cycle, so the client is processed in the same
+ * order as a client with a process listener. One instance serves one activation of the client.
+ */
+final class SimulatedProcessThread {
+
+  private static final Logger logger = Logger.getLogger(SimulatedProcessThread.class.getName());
+
+  private final Semaphore cycleStart = new Semaphore(0);
+  private final Semaphore cycleEnd = new Semaphore(0);
+  private final Thread thread;
+
+  private volatile long frameTime;
+  private volatile int nframes;
+  private volatile int status;
+  private volatile boolean exited = false;
+
+  SimulatedProcessThread(String clientName, ProcessThreadListener listener) {
+    thread = new Thread(() -> {
+      try {
+        listener.onProcessThread();
+      } catch (Throwable t) {
+        logger.log(Level.WARNING, "The process thread of \"" + clientName + "\" failed.", t);
+      } finally {
+        exited = true;
+        cycleEnd.release();
+      }
+    }, "jackAudio4Java-simulated-" + clientName);
+    thread.setDaemon(true);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  /**
+   * Let the listener process one cycle. Called by the thread running the cycles.
+   *
+   * @return the status given to {@link #signal}, or -1 if the listener has left its loop.
+   */
+  int runCycle(long frameTime, int nframes) {
+    if (exited) return -1;
+    this.status = -1;
+    this.frameTime = frameTime;
+    this.nframes = nframes;
+    cycleStart.release();
+    cycleEnd.acquireUninterruptibly();
+    return status;
+  }
+
+  /**
+   * Wait for the next cycle. Called by the listener.
+   *
+   * @return the number of frames of the cycle, or zero if the listener shall leave its loop.
+   */
+  int await(CycleClock clock) {
+    cycleStart.acquireUninterruptibly();
+    int frames = nframes;
+    if (frames > 0) clock.begin(frameTime, frames);
+    return frames;
+  }
+
+  /**
+   * Finish the running cycle. Called by the listener.
+   */
+  void signal(CycleClock clock, int status) {
+    clock.end();
+    this.status = status;
+    cycleEnd.release();
+  }
+
+  /**
+   * Make the next (or the pending) {@link #await} return zero.
+   */
+  void stop() {
+    nframes = 0;
+    cycleStart.release();
+  }
+
+  /**
+   * Wait until the listener has left its loop, after {@link #stop()}.
+   */
+  void join() {
+    if (thread == Thread.currentThread()) return;
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+  }
+}
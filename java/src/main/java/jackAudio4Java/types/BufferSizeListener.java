@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * The BufferSizeListener interface should be implemented by any class
+ * that needs to know when the number of frames per process cycle changes.
+ *
+ * @see jackAudio4Java.Jack#registerBufferSizeListener(ClientHandle, BufferSizeListener)
+ */
+public interface BufferSizeListener {
+  /**
+   * Prototype for the client supplied function that is called
+   * whenever the size of the buffer that will be passed to
+   * {@link ProcessListener#onProcess(int)} is about to change.
+   * <p>
+   * The function is called from a notification thread, not from the process thread,
+   * and no process cycle is running while it executes. It is thus the place to
+   * allocate the buffers needed for the new size.
+   *
+   * @param nframes the new number of frames per cycle.
+   * @return zero on success, non-zero on error
+   */
+  int onBufferSize(int nframes);
+}
@@ -39,5 +39,15 @@ public class ClientHandle {
   public boolean isValid() {
     return (reference != 0);
   }
+
+  /**
+   * The clock used by the static clock functions of {@link jackAudio4Java.Jack}.
+   * Backends return the clock of their clients here.
+   *
+   * @return the frame clock of this client, or null if its backend does not provide one.
+   */
+  public FrameClock getFrameClock() {
+    return null;
+  }
 }
 
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * Container receiving the timing of the current process cycle,
+ * as filled in by {@link jackAudio4Java.Jack#getCycleTimes}.
+ * <p>
+ * The container is meant to be allocated once and re-used in every cycle,
+ * so that the process thread does not allocate.
+ */
+public class CycleTimes {
+  /**
+   * The frame time counter at the start of the current cycle.
+   */
+  public long currentFrames;
+
+  /**
+   * The microsecond time at the start of the current cycle.
+   */
+  public long currentUsecs;
+
+  /**
+   * The estimated microsecond time at the start of the next cycle.
+   */
+  public long nextUsecs;
+
+  /**
+   * The estimated duration of one cycle in microseconds.
+   */
+  public float periodUsecs;
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * The clock of the JACK server as seen by one client: relates frame times to system times.
+ * <p>
+ * Each backend provides the clock of its clients through {@link ClientHandle#getFrameClock()}.
+ * The static clock functions of {@link jackAudio4Java.Jack} (`frameTime`, `lastFrameTime`, ...)
+ * dispatch to it, so they work with the handles of every backend.
+ */
+public interface FrameClock {
+
+  /**
+   * @return the estimated current time in frames, or -1 if the client is invalid.
+   */
+  long frameTime();
+
+  /**
+   * @return the frame time at the start of the current process cycle, or -1 if the client is invalid.
+   */
+  long lastFrameTime();
+
+  /**
+   * @return the estimated number of frames since the current process cycle began, or -1 if the client is invalid.
+   */
+  int framesSinceCycleStart();
+
+  /**
+   * @param frames a frame time.
+   * @return the (estimated) system time in microseconds, or -1 if the client is invalid.
+   */
+  long framesToTime(long frames);
+
+  /**
+   * @param usecs a system time in microseconds.
+   * @return the (estimated) frame time, or -1 if the client is invalid.
+   */
+  long timeToFrames(long usecs);
+}
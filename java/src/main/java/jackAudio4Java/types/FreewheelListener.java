@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * The FreewheelListener interface should be implemented by any class
+ * that needs to know when the JACK server enters or leaves freewheel mode.
+ *
+ * @see jackAudio4Java.Jack#registerFreewheelListener(ClientHandle, FreewheelListener)
+ */
+public interface FreewheelListener {
+  /**
+   * Prototype for the client supplied function that is called
+   * whenever the JACK server starts or stops freewheeling.
+   * <p>
+   * The function is called from a notification thread, not from the process thread.
+   *
+   * @param starting true if freewheel mode starts, false if it stops.
+   */
+  void onFreewheel(boolean starting);
+}
@@ -138,4 +138,18 @@ public enum PortFlag {
     return result;
   }
 
+  /**
+   * The inverse of {@link #setToLong(Set)}.
+   *
+   * @param bits the integer values of flags, OR-ed together.
+   * @return an unmodifiable set of the flags whose bits are set.
+   */
+  public static Set<PortFlag> longToSet(long bits) {
+    Set<PortFlag> set = new HashSet<>();
+    for (PortFlag flag : values()) {
+      if ((bits & flag.getBits()) != 0) set.add(flag);
+    }
+    return Collections.unmodifiableSet(set);
+  }
+
 }
@@ -33,7 +33,8 @@ public class PortHandle {
    * Only the class InternalPortHandle
    * shall have write access to this item.
    * <p>
-   *   Note: there may be several handle objects representing the same physical port.
+   *   Note: {@link jackAudio4Java.Jack} hands out one canonical handle object per port and client,
+   *   handles obtained through different clients are still equal.
    * </p>
    */
   protected volatile long reference;
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Describes a port known to the JACK server, as seen by {@link jackAudio4Java.PortRegistry}.
+ * <p>
+ * Instances are immutable.
+ */
+public final class PortInfo {
+  private final String name;
+  private final PortType type;
+  private final long flagBits;
+  private final Set<PortFlag> flags;
+
+  /**
+   * @param name     the full name of the port (including the leading `clientName:`).
+   * @param type     the type of the port.
+   * @param flagBits the flags of the port, as given by {@link PortFlag#setToLong(Set)}.
+   */
+  public PortInfo(String name, PortType type, long flagBits) {
+    this.name = Objects.requireNonNull(name);
+    this.type = Objects.requireNonNull(type);
+    this.flagBits = flagBits;
+    this.flags = PortFlag.longToSet(flagBits);
+  }
+
+  /**
+   * @return the full name of the port (including the leading `clientName:`).
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the name of the port without the leading `clientName:`.
+   */
+  public String getShortName() {
+    int colon = name.indexOf(':');
+    return (colon < 0) ? name : name.substring(colon + 1);
+  }
+
+  /**
+   * @return the name of the client owning the port.
+   */
+  public String getClientName() {
+    int colon = name.indexOf(':');
+    return (colon < 0) ? "" : name.substring(0, colon);
+  }
+
+  public PortType getType() {
+    return type;
+  }
+
+  public Set<PortFlag> getFlags() {
+    return flags;
+  }
+
+  /**
+   * @return the flags of the port, OR-ed together.
+   */
+  public long getFlagBits() {
+    return flagBits;
+  }
+
+  /**
+   * @param renamed the new full name.
+   * @return a copy of this description carrying the new name.
+   */
+  public PortInfo withName(String renamed) {
+    return new PortInfo(renamed, type, flagBits);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof PortInfo)) return false;
+    PortInfo that = (PortInfo) o;
+    return flagBits == that.flagBits && name.equals(that.name) && type.equals(that.type);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, type, flagBits);
+  }
+
+  @Override
+  public String toString() {
+    return name + " (" + type + ", " + flags + ")";
+  }
+}
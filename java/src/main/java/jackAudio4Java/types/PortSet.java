@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.MutableAudioSlice;
+
+/**
+ * A PortSet groups several ports, so that the audio data of all these ports
+ * can be exchanged with JACK in one single call per cycle.
+ * <p>
+ * Use {@link jackAudio4Java.Jack#portSetFetch(PortSet, int)} at the beginning of a cycle to
+ * receive the data of all input ports and {@link jackAudio4Java.Jack#portSetPublish(PortSet, int)}
+ * at the end of the cycle to send the data of all output ports.
+ */
+public class PortSet {
+
+  /**
+   * The native address of this port set. Only the class InternalPortSet
+   * shall have write access to this item.
+   */
+  protected volatile long reference;
+
+  /**
+   * The slices holding the data received by the input ports.
+   */
+  protected ImmutableAudioSlice[] inputs;
+
+  /**
+   * The slices holding the data to be sent by the output ports.
+   */
+  protected MutableAudioSlice[] outputs;
+
+  /**
+   * Port sets should not be created by any object other than the Jack object.
+   */
+  protected PortSet() {
+  }
+
+  /**
+   * A port set is considered valid, if it is not referencing a null pointer.
+   *
+   * @return true if the port set has not been released.
+   */
+  public boolean isValid() {
+    return (reference != 0);
+  }
+
+  /**
+   * @return the number of input ports in this set.
+   */
+  public int inputCount() {
+    return inputs.length;
+  }
+
+  /**
+   * @return the number of output ports in this set.
+   */
+  public int outputCount() {
+    return outputs.length;
+  }
+
+  /**
+   * The data received by an input port in the current cycle.
+   *
+   * @param index the index of the port in the array given on creation.
+   * @return the data received by the port at the given index.
+   */
+  public ImmutableAudioSlice input(int index) {
+    return inputs[index];
+  }
+
+  /**
+   * The data that the output port shall send in the current cycle.
+   *
+   * @param index the index of the port in the array given on creation.
+   * @return the container for the data to be sent by the port at the given index.
+   */
+  public MutableAudioSlice output(int index) {
+    return outputs[index];
+  }
+}
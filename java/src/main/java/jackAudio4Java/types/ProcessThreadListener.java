@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * A ProcessThreadListener is the alternative to a {@link ProcessListener} for clients
+ * that want to run their own processing loop.
+ * <p>
+ * JACK calls {@link #onProcessThread()} once, in its real-time thread, when the client is
+ * activated. The implementation stays in Java and loops for the lifetime of the client:
+ * ```
+ * public void onProcessThread() {
+ *   while (true) {
+ *     int nframes = Jack.server().cycleWait(client);
+ *     if (nframes == 0) break; // the client is being shut down
+ *     process(nframes);
+ *     Jack.server().cycleSignal(client, 0);
+ *   }
+ * }
+ * ```
+ * As the loop never leaves Java, there is no native-to-Java call per cycle, and the
+ * JIT can compile the whole loop as one hot method.
+ * <p>
+ * The same real-time restrictions as for {@link ProcessListener#onProcess(int)} apply
+ * to the code between `cycleWait` and `cycleSignal`.
+ */
+public interface ProcessThreadListener {
+  /**
+   * Prototype for the client supplied function that runs the processing loop.
+   */
+  void onProcessThread();
+}
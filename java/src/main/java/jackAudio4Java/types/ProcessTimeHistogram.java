@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * A snapshot of how long the Java process callback of a client took.
+ * <p>
+ * The durations are collected into buckets on a logarithmic scale: bucket {@code i}
+ * counts the calls that took less than {@link #upperBoundNanos(int) 2^(i+10)} nanoseconds
+ * (and at least as long as the bound of the bucket before). The last bucket also
+ * counts all calls that took longer.
+ */
+public class ProcessTimeHistogram {
+  /**
+   * The number of buckets.
+   */
+  public static final int BUCKET_COUNT = 24;
+
+  private final long[] counts;
+  private final long maxNanos;
+  private final long totalNanos;
+  private final long callCount;
+
+  /**
+   * Build a snapshot.
+   *
+   * @param counts     the number of calls per bucket, must have {@link #BUCKET_COUNT} elements.
+   * @param maxNanos   the longest call observed.
+   * @param totalNanos the sum of the durations of all calls.
+   */
+  public ProcessTimeHistogram(long[] counts, long maxNanos, long totalNanos) {
+    if (counts.length != BUCKET_COUNT) {
+      throw new IllegalArgumentException("Expected " + BUCKET_COUNT + " buckets, got " + counts.length);
+    }
+    this.counts = counts.clone();
+    this.maxNanos = maxNanos;
+    this.totalNanos = totalNanos;
+    long calls = 0;
+    for (long count : counts) calls += count;
+    this.callCount = calls;
+  }
+
+  /**
+   * @param bucket the index of a bucket.
+   * @return the number of calls counted in the given bucket.
+   */
+  public long count(int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * @param bucket the index of a bucket.
+   * @return the (exclusive) upper bound of the durations counted in the given bucket.
+   */
+  public static long upperBoundNanos(int bucket) {
+    return 1L << (bucket + 10);
+  }
+
+  /**
+   * @return the longest call observed.
+   */
+  public long maxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * @return the sum of the durations of all calls.
+   */
+  public long totalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * @return the number of calls recorded.
+   */
+  public long callCount() {
+    return callCount;
+  }
+
+  /**
+   * @return the average duration of a call, or zero if no call has been recorded.
+   */
+  public long meanNanos() {
+    return callCount == 0 ? 0 : totalNanos / callCount;
+  }
+
+  /**
+   * Estimate a percentile of the call durations.
+   * <p>
+   * The estimate is the upper bound of the bucket holding the requested percentile,
+   * but never more than the longest call observed.
+   *
+   * @param percentile a value between 0 and 100.
+   * @return the estimated duration, or zero if no call has been recorded.
+   */
+  public long percentileNanos(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile out of range: " + percentile);
+    }
+    if (callCount == 0) return 0;
+    long rank = (long) Math.ceil(callCount * percentile / 100.0);
+    if (rank < 1) rank = 1;
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundNanos(i), maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * The SampleRateListener interface should be implemented by any class
+ * that needs to know when the sample rate of the JACK server changes.
+ *
+ * @see jackAudio4Java.Jack#registerSampleRateListener(ClientHandle, SampleRateListener)
+ */
+public interface SampleRateListener {
+  /**
+   * Prototype for the client supplied function that is called
+   * whenever the sample rate of the system changes.
+   * <p>
+   * The function is called from a notification thread, not from the process thread.
+   *
+   * @param sampleRate the new sample rate in samples per second.
+   * @return zero on success, non-zero on error
+   */
+  int onSampleRate(int sampleRate);
+}
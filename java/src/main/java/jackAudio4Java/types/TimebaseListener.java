@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * The TimebaseListener interface should be implemented by the client that
+ * acts as the timebase master, supplying the musical position (bar, beat, tick)
+ * of the transport.
+ *
+ * @see jackAudio4Java.Jack#setTimebaseListener(ClientHandle, boolean, TimebaseListener)
+ */
+public interface TimebaseListener {
+  /**
+   * Prototype for the timebase master function.
+   * <p>
+   * The function is called from the process thread, immediately after the process callbacks
+   * of all clients have finished. It must be real-time safe: it shall not block and
+   * it should not allocate.
+   * <p>
+   * The frame number, frame rate and usecs of the position are already filled in by JACK.
+   * The listener shall extend them by the fields it supplies (for example the BBT fields)
+   * and set the corresponding bits with {@link TransportPosition#setValid(int)}.
+   *
+   * @param state       the current transport state.
+   * @param nframes     the number of frames in the current period.
+   * @param position    the position to be extended. The object is re-used in every cycle,
+   *                    it shall not be kept beyond the call.
+   * @param newPosition true for a newly requested position, or for the first cycle
+   *                    after this listener has been registered.
+   */
+  void onTimebase(TransportState state, int nframes, TransportPosition position, boolean newPosition);
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Container receiving the position of the JACK transport,
+ * as filled in by {@link jackAudio4Java.Jack#transportQuery(ClientHandle, TransportPosition)}.
+ * <p>
+ * The position lives in a direct buffer that mirrors the native `jack_position_t`, the native
+ * code copies the structure in one go. The container is meant to be allocated once and re-used
+ * in every cycle, none of its accessors allocate.
+ * <p>
+ * Fields are only meaningful if the corresponding bit is set in {@link #getValid()}.
+ */
+public class TransportPosition {
+
+  /**
+   * Bar, Beat, Tick fields are valid.
+   */
+  public static final int POSITION_BBT = 0x10;
+  /**
+   * The `frameTime` and `nextTime` fields (external timecode) are valid.
+   */
+  public static final int POSITION_TIMECODE = 0x20;
+  /**
+   * The frame offset of BBT information is valid.
+   */
+  public static final int BBT_FRAME_OFFSET = 0x40;
+  /**
+   * The audio frames per video frame are valid.
+   */
+  public static final int AUDIO_VIDEO_RATIO = 0x80;
+  /**
+   * The frame offset of the first video frame is valid.
+   */
+  public static final int VIDEO_FRAME_OFFSET = 0x100;
+
+  /**
+   * The size of the native `jack_position_t` in bytes.
+   */
+  public static final int SIZE = 136;
+
+  // offsets of the fields of `jack_position_t` (the native structure is packed).
+  private static final int UNIQUE_1 = 0;
+  private static final int USECS = 8;
+  private static final int FRAME_RATE = 16;
+  private static final int FRAME = 20;
+  private static final int VALID = 24;
+  private static final int BAR = 28;
+  private static final int BEAT = 32;
+  private static final int TICK = 36;
+  private static final int BAR_START_TICK = 40;
+  private static final int BEATS_PER_BAR = 48;
+  private static final int BEAT_TYPE = 52;
+  private static final int TICKS_PER_BEAT = 56;
+  private static final int BEATS_PER_MINUTE = 64;
+  private static final int FRAME_TIME = 72;
+  private static final int NEXT_TIME = 80;
+  private static final int BBT_OFFSET = 88;
+  private static final int AUDIO_FRAMES_PER_VIDEO_FRAME = 92;
+  private static final int VIDEO_OFFSET = 96;
+  private static final int UNIQUE_2 = 128;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE).order(ByteOrder.nativeOrder());
+
+  /**
+   * @return the direct buffer holding the native `jack_position_t`.
+   */
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return true if the position was copied consistently (the two unique identifiers
+   * of `jack_position_t` are equal).
+   */
+  public boolean isConsistent() {
+    return buffer.getLong(UNIQUE_1) == buffer.getLong(UNIQUE_2);
+  }
+
+  /**
+   * @return the monotonic, free-rolling microsecond time of the position.
+   */
+  public long getUsecs() {
+    return buffer.getLong(USECS);
+  }
+
+  /**
+   * @return the current frame rate (frames per second).
+   */
+  public int getFrameRate() {
+    return buffer.getInt(FRAME_RATE);
+  }
+
+  /**
+   * @return the frame number, always present.
+   */
+  public long getFrame() {
+    return buffer.getInt(FRAME) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Fill in the fields that are owned by the server and mark the position as a new, consistent copy.
+   * <p>
+   * This is meant for backends that do not receive the position from JACK, such as the simulated one.
+   *
+   * @param usecs     the monotonic microsecond time of the position.
+   * @param frameRate the current frame rate (frames per second).
+   * @param frame     the frame number.
+   */
+  public void setServerFields(long usecs, int frameRate, long frame) {
+    long unique = buffer.getLong(UNIQUE_1) + 1;
+    buffer.putLong(UNIQUE_1, unique);
+    buffer.putLong(USECS, usecs);
+    buffer.putInt(FRAME_RATE, frameRate);
+    buffer.putInt(FRAME, (int) frame);
+    buffer.putLong(UNIQUE_2, unique);
+  }
+
+  /**
+   * @return the bits that tell which of the optional fields are present.
+   */
+  public int getValid() {
+    return buffer.getInt(VALID);
+  }
+
+  /**
+   * @param valid the bits that tell which of the optional fields are present.
+   */
+  public void setValid(int valid) {
+    buffer.putInt(VALID, valid);
+  }
+
+  /**
+   * @return the current bar (starting with 1).
+   */
+  public int getBar() {
+    return buffer.getInt(BAR);
+  }
+
+  public void setBar(int bar) {
+    buffer.putInt(BAR, bar);
+  }
+
+  /**
+   * @return the current beat within the bar (starting with 1).
+   */
+  public int getBeat() {
+    return buffer.getInt(BEAT);
+  }
+
+  public void setBeat(int beat) {
+    buffer.putInt(BEAT, beat);
+  }
+
+  /**
+   * @return the current tick within the beat (starting with 0).
+   */
+  public int getTick() {
+    return buffer.getInt(TICK);
+  }
+
+  public void setTick(int tick) {
+    buffer.putInt(TICK, tick);
+  }
+
+  /**
+   * @return the number of ticks from the start of the song to the start of the current bar.
+   */
+  public double getBarStartTick() {
+    return buffer.getDouble(BAR_START_TICK);
+  }
+
+  public void setBarStartTick(double barStartTick) {
+    buffer.putDouble(BAR_START_TICK, barStartTick);
+  }
+
+  /**
+   * @return the time signature "numerator".
+   */
+  public float getBeatsPerBar() {
+    return buffer.getFloat(BEATS_PER_BAR);
+  }
+
+  public void setBeatsPerBar(float beatsPerBar) {
+    buffer.putFloat(BEATS_PER_BAR, beatsPerBar);
+  }
+
+  /**
+   * @return the time signature "denominator".
+   */
+  public float getBeatType() {
+    return buffer.getFloat(BEAT_TYPE);
+  }
+
+  public void setBeatType(float beatType) {
+    buffer.putFloat(BEAT_TYPE, beatType);
+  }
+
+  public double getTicksPerBeat() {
+    return buffer.getDouble(TICKS_PER_BEAT);
+  }
+
+  public void setTicksPerBeat(double ticksPerBeat) {
+    buffer.putDouble(TICKS_PER_BEAT, ticksPerBeat);
+  }
+
+  public double getBeatsPerMinute() {
+    return buffer.getDouble(BEATS_PER_MINUTE);
+  }
+
+  public void setBeatsPerMinute(double beatsPerMinute) {
+    buffer.putDouble(BEATS_PER_MINUTE, beatsPerMinute);
+  }
+
+  /**
+   * @return the current time in seconds (external timecode).
+   */
+  public double getFrameTime() {
+    return buffer.getDouble(FRAME_TIME);
+  }
+
+  public void setFrameTime(double frameTime) {
+    buffer.putDouble(FRAME_TIME, frameTime);
+  }
+
+  /**
+   * @return the time in seconds at the start of the next cycle (external timecode).
+   */
+  public double getNextTime() {
+    return buffer.getDouble(NEXT_TIME);
+  }
+
+  public void setNextTime(double nextTime) {
+    buffer.putDouble(NEXT_TIME, nextTime);
+  }
+
+  /**
+   * @return the frame offset of the BBT information.
+   */
+  public int getBbtOffset() {
+    return buffer.getInt(BBT_OFFSET);
+  }
+
+  public void setBbtOffset(int bbtOffset) {
+    buffer.putInt(BBT_OFFSET, bbtOffset);
+  }
+
+  public float getAudioFramesPerVideoFrame() {
+    return buffer.getFloat(AUDIO_FRAMES_PER_VIDEO_FRAME);
+  }
+
+  public void setAudioFramesPerVideoFrame(float audioFramesPerVideoFrame) {
+    buffer.putFloat(AUDIO_FRAMES_PER_VIDEO_FRAME, audioFramesPerVideoFrame);
+  }
+
+  /**
+   * @return the audio frame at which the first video frame in this cycle occurs.
+   */
+  public int getVideoOffset() {
+    return buffer.getInt(VIDEO_OFFSET);
+  }
+
+  public void setVideoOffset(int videoOffset) {
+    buffer.putInt(VIDEO_OFFSET, videoOffset);
+  }
+
+  /**
+   * Copy the whole position from another container.
+   *
+   * @param other the position to copy.
+   */
+  public void copyFrom(TransportPosition other) {
+    for (int i = 0; i < SIZE; i += 8) {
+      buffer.putLong(i, other.buffer.getLong(i));
+    }
+  }
+}
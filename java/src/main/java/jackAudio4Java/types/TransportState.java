@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.types;
+
+/**
+ * The states of the JACK transport.
+ *
+ * @see jackAudio4Java.Jack#transportQuery(ClientHandle, TransportPosition)
+ */
+public enum TransportState {
+  /**
+   * The transport is halted.
+   */
+  STOPPED,
+  /**
+   * The transport is playing.
+   */
+  ROLLING,
+  /**
+   * For OLD_TRANSPORT, now ignored.
+   */
+  LOOPING,
+  /**
+   * The transport is waiting for all slow-sync clients to become ready.
+   */
+  STARTING,
+  /**
+   * The transport is waiting for the network peers (netjack) to become ready.
+   */
+  NET_STARTING;
+
+  private static final TransportState[] BY_CODE = values();
+
+  /**
+   * Translate the native `jack_transport_state_t` into a TransportState (without allocating).
+   *
+   * @param code the native state.
+   * @return the corresponding state, or null if the code is unknown.
+   */
+  public static TransportState fromCode(int code) {
+    if (code < 0 || code >= BY_CODE.length) return null;
+    return BY_CODE[code];
+  }
+}
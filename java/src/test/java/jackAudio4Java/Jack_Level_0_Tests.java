@@ -4,7 +4,12 @@ import jackAudio4Java.types.*;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -184,6 +189,57 @@ public class Jack_Level_0_Tests {
 
   }
 
+  /**
+   * The function {@link Jack#backend(String)} shall return the same
+   * JNI backend on every call.
+   */
+  @Test
+  public void backendJni() {
+    Jack jni = Jack.backend(Jack.JNI_BACKEND);
+    assertThat(jni).isSameInstanceAs(Jack.backend(Jack.JNI_BACKEND));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void backendUnknown() {
+    Jack.backend("no.such.Backend");
+  }
+
+  /**
+   * Native log records shall arrive in the `java.util.logging` logger `jackAudio4Java.native`.
+   *
+   * @throws InterruptedException we'll sleep for a short while, an exception should never be thrown.
+   */
+  @Test
+  public void nativeLogReachesJavaLogging() throws InterruptedException {
+    List<LogRecord> records = new CopyOnWriteArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    Logger logger = Logger.getLogger(NativeLog.LOGGER_NAME);
+    logger.addHandler(handler);
+    try {
+      Jack.server().setLoggingLevel(Level.INFO);
+      for (int i = 0; i < 50 && records.isEmpty(); i++) Thread.sleep(20);
+      assertThat(records).isNotEmpty();
+      assertThat(records.get(0).getMessage()).contains("Native Log-level now set to");
+      assertThat(Jack.server().getNativeLogDropCount()).isAtLeast(0L);
+    } finally {
+      logger.removeHandler(handler);
+      Jack.server().setLoggingLevel(Level.ALL);
+    }
+  }
+
   /**
    * A ShutdownListener that simply counts the number of times,
    * the `onShutdown` function has been called.
@@ -91,16 +91,17 @@ public class Jack_Level_1_Tests {
     final String portName = "testPort_3";
     // create a first port handle
     PortHandle handle_1 =  Jack.server().portRegister(client, portName, defaultAudio(), setOf(isInput), 0);
-    // create a second handle pointing to the same port
+    // looking the port up by name gives the very same handle
     PortHandle handle_2 = Jack.server().portByName(client, clientName+":"+portName);
+    assertThat(handle_2).isSameInstanceAs(handle_1);
     // kill the port using handle_1
     Jack.server().portUnregister(client, handle_1);
-    // now handle_1 is invalid but unfortunately handle_2 is not.
+    // now both are invalid.
     assertThat(handle_1.isValid()).isFalse();
-    assertThat(handle_2.isValid()).isTrue();
+    assertThat(handle_2.isValid()).isFalse();
 
     // try to do something with the handle_2 pointing to the now non-existent port
-    assertThat(Jack.server().portShortName(handle_2)).isEqualTo("testPort_3");
+    assertThat(Jack.server().portShortName(handle_2)).isEqualTo("invalid-port");
   }
   /**
    * A client can be activated and can be deactivated.
@@ -184,6 +185,102 @@ public class Jack_Level_1_Tests {
     assertThat(portNames.length).isEqualTo(0);
   }
 
+  /**
+   * The port registry of a new client shall know the same ports as the server.
+   */
+  @Test
+  public void portRegistry() {
+    ClientHandle other = Jack.server().clientOpen("PortRegistryTest", new OpenOption[]{}, null, null);
+    assertThat(other).isNotNull();
+    try {
+      PortRegistry registry = Jack.server().getPortRegistry(other);
+      assertThat(registry).isNotNull();
+      assertThat(Jack.server().getPortRegistry(other)).isSameInstanceAs(registry);
+
+      String[] fromServer = Jack.server().getPorts(other, null, defaultAudio().toString(),
+              PortFlag.setOf(isPhysical, isOutput));
+      String[] fromRegistry = registry.getPorts(null, defaultAudio().toString(),
+              PortFlag.setOf(isPhysical, isOutput));
+      assertThat(fromRegistry).asList().containsExactlyElementsIn(fromServer);
+
+      assertThat(Jack.server().activate(other)).isEqualTo(0);
+      assertThat(registry.getAll()).isNotEmpty();
+    } finally {
+      Jack.server().clientClose(other);
+    }
+  }
+
+  /**
+   * A Runnable shall run in a thread created by JACK, pinned to the first CPU.
+   */
+  @Test
+  public void clientCreateThread() throws InterruptedException {
+    final int[] ranOn = {-1};
+    ThreadHandle thread = Jack.server().clientCreateThread(client, "worker", -1,
+            Jack.server().isRealtime(client), 0, () -> ranOn[0] = 0);
+    assertThat(thread).isNotNull();
+    assertThat(thread.isValid()).isTrue();
+    assertThat(Jack.server().threadJoin(thread)).isEqualTo(0);
+    assertThat(thread.isValid()).isFalse();
+    assertThat(ranOn[0]).isEqualTo(0);
+    assertThat(Jack.server().threadJoin(thread)).isNotEqualTo(0);
+  }
+
+  /**
+   * The frame clock shall advance with the system clock and the conversions shall be consistent.
+   */
+  @Test
+  public void frameClock() throws InterruptedException {
+    long first = Jack.frameTime(client);
+    assertThat(first).isAtLeast(0L);
+    Thread.sleep(50);
+    long second = Jack.frameTime(client);
+    assertThat(second).isGreaterThan(first);
+    long usecs = Jack.framesToTime(client, second);
+    assertThat(Math.abs(Jack.timeToFrames(client, usecs) - second)).isAtMost(1L);
+    assertThat(Jack.getTime()).isAtLeast(usecs - 1_000_000L);
+    assertThat(Jack.lastFrameTime(client)).isAtLeast(0L);
+  }
+
+  /**
+   * The transport shall be queried into a re-usable position and
+   * a locate request shall be accepted.
+   */
+  @Test
+  public void transportQuery() {
+    TransportPosition position = new TransportPosition();
+    TransportState state = Jack.server().transportQuery(client, position);
+    assertThat(state).isNotNull();
+    assertThat(position.getFrameRate()).isEqualTo(Jack.server().getSampleRate(client));
+    assertThat(Jack.server().getCurrentTransportFrame(client)).isAtLeast(0L);
+    assertThat(Jack.server().transportQuery(client, null)).isNotNull();
+
+    assertThat(Jack.server().transportLocate(client, 0)).isEqualTo(0);
+    assertThat(Jack.server().transportLocate(client, -1)).isNotEqualTo(0);
+  }
+
+  /**
+   * An active client shall render a given number of frames in freewheel mode.
+   */
+  @Test
+  public void renderInFreewheelMode() {
+    ClientHandle other = Jack.server().clientOpen("RenderTest", new OpenOption[]{}, null, null);
+    assertThat(other).isNotNull();
+    try {
+      TestProcessListener listener = new TestProcessListener();
+      assertThat(Jack.server().registerProcessListener(other, listener)).isEqualTo(0);
+      assertThat(Jack.server().registerFreewheelListener(other, starting -> { })).isEqualTo(0);
+      assertThat(Jack.server().activate(other)).isEqualTo(0);
+
+      long frames = 10L * Jack.server().getSampleRate(other);
+      long rendered = Jack.server().render(other, frames, 10_000);
+      assertThat(rendered).isAtLeast(frames);
+      assertThat(listener.count).isAtLeast(frames / Jack.server().getBufferSize(other));
+    } finally {
+      Jack.server().clientClose(other);
+    }
+  }
+
   /**
    * A ProcessListener that simply counts the number of times,
    * the `onProcess` function has been called.
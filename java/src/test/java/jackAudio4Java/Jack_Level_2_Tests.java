@@ -1,10 +1,15 @@
 package jackAudio4Java;
 
+import jackAudio4Java.patchbay.Connection;
+import jackAudio4Java.patchbay.Diff;
+import jackAudio4Java.patchbay.Snapshot;
 import jackAudio4Java.types.*;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Level;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -74,6 +79,19 @@ public class Jack_Level_2_Tests {
     assertThat(error).isEqualTo(0);
   }
 
+  /**
+   * A thread asking for realtime scheduling with the priority of the process thread shall be
+   * created, also when the server does not run with realtime scheduling.
+   */
+  @Test
+  public void clientCreateThreadWithProcessPriority() throws InterruptedException {
+    final boolean[] ran = {false};
+    ThreadHandle thread = Jack.server().clientCreateThread(client, "worker", -1, true, -1, () -> ran[0] = true);
+    assertThat(thread).isNotNull();
+    assertThat(Jack.server().threadJoin(thread)).isEqualTo(0);
+    assertThat(ran[0]).isTrue();
+  }
+
   /**
    * The function `Jack.portName` shall return the full name of the port.
    */
@@ -101,12 +119,21 @@ public class Jack_Level_2_Tests {
     assertThat(handle).isEqualTo(inputPortHandle);
   }
   /**
-   * The function `Jack.portByName` shall return an invalid handle for a nonexistent port.
+   * The function `Jack.portByName` shall return the canonical handle of a port.
+   */
+  @Test
+  public void getPortByNameIsCanonical() {
+    PortHandle handle = Jack.server().portByName(client, inputPortFullName);
+    assertThat(handle).isSameInstanceAs(inputPortHandle);
+    assertThat(Jack.server().portByName(client, inputPortFullName)).isSameInstanceAs(handle);
+  }
+  /**
+   * The function `Jack.portByName` shall return `null` for a nonexistent port.
    */
   @Test
   public void getPortByInvalidName() {
     PortHandle handle = Jack.server().portByName(client, "nonexistent-port");
-    assertThat(handle.isValid()).isFalse();
+    assertThat(handle).isNull();
   }
   /**
    * It shall be possible to connect a systems capture-port to the clients input-port created in above initialization.
@@ -118,6 +145,27 @@ public class Jack_Level_2_Tests {
     // Thread.sleep(10000); // uncomment, if you want to see the connection in QjackCtl
   }
 
+  /**
+   * A patchbay diff shall be applied in one call, and `disconnect` shall undo a connection.
+   */
+  @Test
+  public void patchbayApply() {
+    Connection own = new Connection(outputPortFullName, inputPortFullName);
+    Snapshot before = Jack.server().patchbaySnapshot(client);
+    assertThat(before).isNotNull();
+
+    Set<Connection> wanted = new HashSet<>(before.getConnections());
+    wanted.add(own);
+    Diff diff = before.diff(new Snapshot(wanted));
+    int[] results = Jack.server().patchbayApply(client, diff);
+    assertThat(results).hasLength(diff.size());
+    for (int result : results) assertThat(result).isEqualTo(0);
+    assertThat(Jack.server().patchbaySnapshot(client).contains(own)).isTrue();
+
+    assertThat(Jack.server().disconnect(client, outputPortFullName, inputPortFullName)).isEqualTo(0);
+    assertThat(Jack.server().patchbaySnapshot(client).contains(own)).isFalse();
+  }
+
   /**
    * A ProcessListener that simply counts the number of times,
    * the `onProcess` function has been called.
@@ -0,0 +1,104 @@
+package jackAudio4Java;
+
+import jackAudio4Java.types.PortFlag;
+import jackAudio4Java.types.PortType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static jackAudio4Java.types.PortFlag.*;
+
+/**
+ * Feeds notifications into a {@link PortRegistry}, as the native callbacks would do.
+ */
+public class PortRegistryTest {
+
+  private static final String AUDIO = PortType.defaultAudio().toString();
+  private static final String MIDI = PortType.defaultMidi().toString();
+
+  private PortRegistry registry;
+
+  @Before
+  public void setUp() {
+    registry = new PortRegistry();
+    registry.onPortRegistration(1, "system:capture_1", AUDIO, (int) (isOutput.getBits() | isPhysical.getBits()), true);
+    registry.onPortRegistration(2, "system:playback_1", AUDIO, (int) (isInput.getBits() | isPhysical.getBits()), true);
+    registry.onPortRegistration(3, "synth:out", AUDIO, (int) isOutput.getBits(), true);
+    registry.onPortRegistration(4, "synth:midi_in", MIDI, (int) isInput.getBits(), true);
+  }
+
+  @Test
+  public void lookups() {
+    assertThat(registry.get("synth:out").getType()).isEqualTo(PortType.defaultAudio());
+    assertThat(registry.get("synth:out").getShortName()).isEqualTo("out");
+    assertThat(registry.get("nobody:out")).isNull();
+    assertThat(registry.getAll()).hasSize(4);
+    assertThat(registry.getPortsOfClient("synth")).hasSize(2);
+    assertThat(registry.getPortsOfType(PortType.defaultMidi())).hasSize(1);
+    assertThat(registry.getPortsWithFlags(PortFlag.setOf(isOutput))).hasSize(2);
+    assertThat(registry.getPortsWithFlags(PortFlag.setOf(isOutput, isPhysical))).hasSize(1);
+  }
+
+  @Test
+  public void snapshotIsRebuiltOnlyAfterChanges() {
+    assertThat(registry.getAll()).isSameInstanceAs(registry.getAll());
+    for (int i = 0; i < 100; i++) {
+      registry.onPortRegistration(10 + i, "many:out_" + i, AUDIO, (int) isOutput.getBits(), true);
+    }
+    assertThat(registry.getAll()).hasSize(104);
+    assertThat(registry.getPortsOfClient("many")).hasSize(100);
+    assertThat(registry.getAll()).isSameInstanceAs(registry.getAll());
+  }
+
+  @Test
+  public void getPortsMatchesLikeJack() {
+    assertThat(registry.getPorts("system", null, null)).asList()
+        .containsExactly("system:capture_1", "system:playback_1").inOrder();
+    assertThat(registry.getPorts(null, "audio", PortFlag.setOf(isOutput))).asList()
+        .containsExactly("system:capture_1", "synth:out");
+    assertThat(registry.getPorts("", "", PortFlag.emptySet())).hasLength(4);
+    assertThat(registry.getPorts("impossible", null, null)).hasLength(0);
+  }
+
+  @Test
+  public void connections() {
+    registry.onPortConnect("synth:out", "system:playback_1", true);
+    assertThat(registry.getConnections("synth:out")).containsExactly("system:playback_1");
+    assertThat(registry.getConnections("system:playback_1")).containsExactly("synth:out");
+
+    registry.onPortConnect("synth:out", "system:playback_1", false);
+    assertThat(registry.getConnections("synth:out")).isEmpty();
+    assertThat(registry.getConnections("system:playback_1")).isEmpty();
+  }
+
+  @Test
+  public void unregistrationRemovesConnections() {
+    registry.onPortConnect("synth:out", "system:playback_1", true);
+    // the name is not needed when the id is known.
+    registry.onPortRegistration(3, null, null, 0, false);
+    assertThat(registry.get("synth:out")).isNull();
+    assertThat(registry.getConnections("system:playback_1")).isEmpty();
+  }
+
+  @Test
+  public void rename() {
+    registry.onPortConnect("synth:out", "system:playback_1", true);
+    registry.onPortRename(3, "synth:out", "synth:left");
+    assertThat(registry.get("synth:out")).isNull();
+    assertThat(registry.get("synth:left").getFlags()).containsExactly(isOutput);
+    assertThat(registry.getConnections("system:playback_1")).containsExactly("synth:left");
+  }
+
+  @Test
+  public void loadReplacesTheContent() {
+    registry.beginLoad();
+    registry.onPortRegistration(-1, "other:in", AUDIO, (int) isInput.getBits(), true);
+    // nothing is published while loading.
+    assertThat(registry.getAll()).hasSize(4);
+    registry.endLoad();
+    assertThat(registry.getAll()).hasSize(1);
+    // ports loaded without an id are removed by name.
+    registry.onPortRegistration(7, "other:in", null, 0, false);
+    assertThat(registry.getAll()).isEmpty();
+  }
+}
@@ -0,0 +1,59 @@
+package jackAudio4Java;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PortTableTest {
+
+  @Test
+  public void oneHandlePerPort() {
+    PortTable table = new PortTable();
+    InternalPortHandle handle = table.canonical(0x1000, null);
+    assertThat(table.canonical(0x1000, null)).isSameInstanceAs(handle);
+    assertThat(table.get(0x1000)).isSameInstanceAs(handle);
+    assertThat(table.get(0x2000)).isNull();
+    assertThat(table.get(0)).isNull();
+  }
+
+  @Test
+  public void growsAndRemoves() {
+    PortTable table = new PortTable();
+    for (long p = 1; p <= 100; p++) table.canonical(p * 64, null);
+    assertThat(table.size()).isEqualTo(100);
+    for (long p = 1; p <= 100; p += 2) table.remove(p * 64);
+    assertThat(table.size()).isEqualTo(50);
+    for (long p = 1; p <= 100; p++) {
+      if (p % 2 == 0) {
+        assertThat(table.get(p * 64).getReference()).isEqualTo(p * 64);
+      } else {
+        assertThat(table.get(p * 64)).isNull();
+      }
+    }
+  }
+
+  @Test
+  public void notifications() {
+    PortTable table = new PortTable();
+    InternalPortHandle handle = table.canonical(0x1000, null);
+    handle.setName("client:old");
+    table.onPortRenamed(0x1000);
+    assertThat(handle.getName()).isNull();
+    assertThat(handle.isValid()).isTrue();
+
+    table.onPortUnregistered(0x1000);
+    assertThat(handle.isValid()).isFalse();
+    assertThat(table.get(0x1000)).isNull();
+  }
+
+  @Test
+  public void invalidateAll() {
+    PortTable table = new PortTable();
+    InternalPortHandle a = table.canonical(0x1000, null);
+    InternalPortHandle b = table.canonical(0x2000, null);
+    table.invalidateAll();
+    assertThat(a.isValid()).isFalse();
+    assertThat(b.isValid()).isFalse();
+    assertThat(table.size()).isEqualTo(0);
+  }
+}
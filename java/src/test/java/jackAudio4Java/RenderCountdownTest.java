@@ -0,0 +1,52 @@
+package jackAudio4Java;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RenderCountdownTest {
+
+  @Test
+  public void reachesTargetWithWholeCycles() throws InterruptedException {
+    RenderCountdown countdown = new RenderCountdown(1000);
+    countdown.onCycle(256);
+    countdown.onCycle(256);
+    countdown.onCycle(256);
+    assertThat(countdown.await(0)).isFalse();
+    countdown.onCycle(256);
+    assertThat(countdown.await(0)).isTrue();
+    assertThat(countdown.getRendered()).isEqualTo(1024);
+  }
+
+  /**
+   * A render shall only be started once per client at a time and be counted by the client.
+   */
+  @Test
+  public void clientCountsCyclesOfTheRunningRender() {
+    InternalClientHandle client = new InternalClientHandle(0);
+    client.onFreewheel(true);
+    RenderCountdown first = new RenderCountdown(512);
+    assertThat(client.startRender(first)).isTrue();
+    assertThat(client.startRender(new RenderCountdown(512))).isFalse();
+    client.cycleDone(128);
+    assertThat(first.getRendered()).isEqualTo(128);
+    client.stopRender(first);
+    client.cycleDone(128);
+    assertThat(first.getRendered()).isEqualTo(128);
+  }
+
+  /**
+   * Realtime cycles that run before the server has entered freewheel mode shall not be counted.
+   */
+  @Test
+  public void cyclesBeforeFreewheelModeAreNotCounted() {
+    InternalClientHandle client = new InternalClientHandle(0);
+    RenderCountdown countdown = new RenderCountdown(512);
+    client.startRender(countdown);
+    client.cycleDone(128);
+    assertThat(countdown.getRendered()).isEqualTo(0);
+    client.onFreewheel(true);
+    client.cycleDone(128);
+    assertThat(countdown.getRendered()).isEqualTo(128);
+  }
+}
@@ -0,0 +1,98 @@
+package jackAudio4Java.buffers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class AudioRingBufferTest {
+
+  private AudioRingBuffer candidate;
+
+  @Before
+  public void setUp() {
+    candidate = new AudioRingBuffer(6);
+  }
+
+  @Test
+  public void capacityIsPowerOfTwo() {
+    assertThat(candidate.capacity()).isEqualTo(8);
+    assertThat(new AudioRingBuffer(1).capacity()).isEqualTo(1);
+    assertThat(new AudioRingBuffer(1024).capacity()).isEqualTo(1024);
+  }
+
+  @Test
+  public void writeStopsWhenFull() {
+    int written = candidate.write(new float[10], 0, 10);
+    assertThat(written).isEqualTo(8);
+    assertThat(candidate.writeAvailable()).isEqualTo(0);
+    assertThat(candidate.readAvailable()).isEqualTo(8);
+  }
+
+  @Test
+  public void readWrapsAround() {
+    float[] out = new float[8];
+    for (int round = 0; round < 5; round++) {
+      float[] in = {round, round + 1, round + 2, round + 3, round + 4};
+      assertThat(candidate.write(in, 0, in.length)).isEqualTo(5);
+      assertThat(candidate.read(out, 0, out.length)).isEqualTo(5);
+      assertThat(out[0]).isEqualTo((float) round);
+      assertThat(out[4]).isEqualTo((float) round + 4);
+    }
+    assertThat(candidate.readAvailable()).isEqualTo(0);
+  }
+
+  @Test
+  public void slices() {
+    MutableAudioSlice in = Manager.wrapMutable(Manager.makeDirectFloatBuffer(4));
+    for (int i = 0; i < 4; i++) in.put(i, i * 0.5f);
+    candidate.skip(candidate.write(new float[7], 0, 7)); // move the indices close to the end
+    assertThat(candidate.write(in, 4)).isEqualTo(4);
+
+    MutableAudioSlice out = Manager.wrapMutable(Manager.makeDirectFloatBuffer(4));
+    assertThat(candidate.read(out, 4)).isEqualTo(4);
+    for (int i = 0; i < 4; i++) assertThat(out.get(i)).isEqualTo(i * 0.5f);
+
+    // the array functions shall still see the whole buffer after the slice functions wrapped around.
+    float[] array = new float[8];
+    assertThat(candidate.write(new float[]{1, 2, 3, 4, 5, 6, 7, 8}, 0, 8)).isEqualTo(8);
+    assertThat(candidate.read(array, 0, 8)).isEqualTo(8);
+    assertThat(array).usingExactEquality().containsExactly(1f, 2f, 3f, 4f, 5f, 6f, 7f, 8f).inOrder();
+  }
+
+  /**
+   * A producer and a consumer thread shall see every sample exactly once and in order.
+   */
+  @Test
+  public void twoThreads() throws InterruptedException {
+    final int total = 1_000_000;
+    final AudioRingBuffer ring = new AudioRingBuffer(256);
+    Thread producer = new Thread(() -> {
+      float[] chunk = new float[64];
+      int next = 0;
+      while (next < total) {
+        int n = Math.min(chunk.length, total - next);
+        for (int i = 0; i < n; i++) chunk[i] = (next + i) % 4096;
+        int written = ring.write(chunk, 0, n);
+        next += written;
+        if (written == 0) Thread.yield();
+      }
+    });
+    producer.start();
+
+    float[] chunk = new float[100];
+    int expected = 0;
+    boolean inOrder = true;
+    while (expected < total) {
+      int read = ring.read(chunk, 0, chunk.length);
+      for (int i = 0; i < read; i++) {
+        inOrder &= chunk[i] == (expected + i) % 4096;
+      }
+      expected += read;
+      if (read == 0) Thread.yield();
+    }
+    producer.join();
+    assertThat(inOrder).isTrue();
+    assertThat(ring.readAvailable()).isEqualTo(0);
+  }
+}
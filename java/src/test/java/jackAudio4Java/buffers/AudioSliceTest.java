@@ -0,0 +1,115 @@
+package jackAudio4Java.buffers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class AudioSliceTest {
+
+  private MutableAudioSlice candidate;
+
+  @Before
+  public void setUp() {
+    candidate = Manager.getDefault().makeMutableAudioSlice(8);
+    candidate.copyFrom(new float[]{0, 1, 2, 3, 4, 5, 6, 7}, 0, 0, 8);
+  }
+
+  @Test
+  public void copyTo() {
+    float[] target = new float[5];
+    candidate.copyTo(2, target, 1, 4);
+    assertThat(target).usingExactEquality().containsExactly(0f, 2f, 3f, 4f, 5f).inOrder();
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void copyToBeyondEnd() {
+    candidate.copyTo(6, new float[4], 0, 4);
+  }
+
+  @Test
+  public void fillAndScale() {
+    candidate.scale(0.5f);
+    assertThat(candidate.get(7)).isEqualTo(3.5f);
+    candidate.fill(0f);
+    assertThat(candidate.get(7)).isEqualTo(0f);
+  }
+
+  @Test
+  public void addScaled() {
+    MutableAudioSlice other = Manager.getDefault().makeMutableAudioSlice(8);
+    other.fill(2f);
+    candidate.addScaled(other, 0.25f);
+    assertThat(candidate.get(0)).isEqualTo(0.5f);
+    assertThat(candidate.get(7)).isEqualTo(7.5f);
+  }
+
+  @Test
+  public void subSliceSharesSamples() {
+    MutableAudioSlice view = candidate.subSlice(4, 3);
+    assertThat(view.length()).isEqualTo(3);
+    assertThat(view.get(0)).isEqualTo(4f);
+    view.put(2, -1f);
+    assertThat(candidate.get(6)).isEqualTo(-1f);
+    view.expire();
+    assertThat(candidate.isExpired()).isFalse();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void subSliceExpiresWithParent() {
+    MutableAudioSlice view = candidate.subSlice(4, 3);
+    candidate.expire();
+    assertThat(view.isExpired()).isTrue();
+    view.get(0);
+  }
+
+  @Test
+  public void fillOddLength() {
+    MutableAudioSlice other = Manager.getDefault().makeMutableAudioSlice(37);
+    other.fill(3f);
+    for (int i = 0; i < 37; i++) {
+      assertThat(other.get(i)).isEqualTo(3f);
+    }
+  }
+
+  @Test
+  public void asImmutableIsACopy() {
+    ImmutableAudioSlice copy = candidate.asImmutable();
+    candidate.put(7, -1f);
+    assertThat(copy.length()).isEqualTo(8);
+    assertThat(copy.get(7)).isEqualTo(7f);
+    candidate.expire();
+    assertThat(copy.isExpired()).isFalse();
+  }
+
+  @Test
+  public void copyFromSlice() {
+    MutableAudioSlice other = Manager.getDefault().makeMutableAudioSlice(4);
+    other.copyFrom(candidate, 5, 1, 3);
+    assertThat(other.get(1)).isEqualTo(5f);
+    assertThat(other.get(3)).isEqualTo(7f);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void bulkOperationOnExpiredSlice() {
+    candidate.expire();
+    candidate.fill(0f);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void lengthOfExpiredSlice() {
+    candidate.expire();
+    assertThat(candidate.isExpired()).isTrue();
+    candidate.length();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void subSliceOfPortViewExpiresWithCycle() {
+    CycleClock clock = new CycleClock();
+    clock.begin(0, 8);
+    ImmutableAudioSlice portView = Manager.wrap(Manager.makeDirectFloatBuffer(8), clock);
+    ImmutableAudioSlice view = portView.subSlice(0, 4);
+    clock.end();
+    view.copyTo(0, new float[4], 0, 4);
+  }
+}
@@ -0,0 +1,77 @@
+package jackAudio4Java.buffers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CycleClockTest {
+
+  private CycleClock clock;
+  private ImmutableAudioSlice portView;
+
+  @Before
+  public void setUp() {
+    clock = new CycleClock();
+    portView = Manager.wrap(Manager.makeDirectFloatBuffer(4), clock);
+  }
+
+  @Test
+  public void validThruIsEndOfCycle() {
+    clock.begin(1000, 256);
+    assertThat(clock.validThru()).isEqualTo(1256);
+    clock.end();
+    assertThat(clock.validThru()).isEqualTo(0);
+  }
+
+  @Test
+  public void lastFrameTimeOnlyWhileRunning() {
+    assertThat(clock.lastFrameTime()).isEqualTo(-1);
+    clock.begin(1000, 256);
+    assertThat(clock.lastFrameTime()).isEqualTo(1000);
+    clock.end();
+    assertThat(clock.lastFrameTime()).isEqualTo(-1);
+  }
+
+  /**
+   * A slice handed out outside of any cycle can be read until the next cycle begins.
+   */
+  @Test
+  public void sliceOutsideOfCycle() {
+    assertThat(portView.validThru()).isEqualTo(0);
+    assertThat(portView.isExpired()).isFalse();
+    assertThat(portView.get(0)).isEqualTo(0f);
+    clock.begin(1000, 256);
+    assertThat(portView.isExpired()).isTrue();
+  }
+
+  @Test
+  public void sliceExpiresWithItsCycle() {
+    clock.begin(1000, 256);
+    ((InternalAudioSlice) portView).renew();
+    assertThat(portView.validThru()).isEqualTo(1256);
+    assertThat(portView.get(0)).isEqualTo(0f);
+    clock.end();
+    assertThat(portView.isExpired()).isTrue();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void readingAfterTheCycleFails() {
+    clock.begin(1000, 256);
+    ((InternalAudioSlice) portView).renew();
+    clock.end();
+    clock.begin(1256, 256);
+    portView.get(0);
+  }
+
+  @Test
+  public void sliceCanBeRenewedInNextCycle() {
+    clock.begin(1000, 256);
+    ((InternalAudioSlice) portView).renew();
+    clock.end();
+    clock.begin(1256, 256);
+    ((InternalAudioSlice) portView).renew();
+    assertThat(portView.isExpired()).isFalse();
+    assertThat(portView.validThru()).isEqualTo(1512);
+  }
+}
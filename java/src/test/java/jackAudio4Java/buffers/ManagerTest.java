@@ -0,0 +1,143 @@
+package jackAudio4Java.buffers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ManagerTest {
+
+  private Manager candidate;
+
+  @Before
+  public void setUp() {
+    candidate = new Manager();
+  }
+
+  private static FloatBuffer bufferOf(AudioSlice slice) {
+    return ((InternalAudioSlice) slice).accessInternalBuffer();
+  }
+
+  @Test
+  public void sliceHasRequestedLength() {
+    candidate.reserve(100, 1);
+    MutableAudioSlice slice = candidate.makeMutableAudioSlice(100);
+    assertThat(slice.length()).isEqualTo(100);
+    assertThat(bufferOf(slice).capacity()).isEqualTo(128);
+    assertThat(bufferOf(slice).isDirect()).isTrue();
+  }
+
+  /**
+   * An expired buffer shall be handed out again.
+   */
+  @Test
+  public void expiredBufferIsReused() {
+    candidate.reserve(256, 1);
+    MutableAudioSlice first = candidate.makeMutableAudioSlice(256);
+    FloatBuffer memory = bufferOf(first);
+    first.expire();
+    assertThat(first.isExpired()).isTrue();
+    MutableAudioSlice second = candidate.makeMutableAudioSlice(200);
+    assertThat(bufferOf(second)).isSameInstanceAs(memory);
+  }
+
+  /**
+   * Without a reservation, the pool does not grow; the slice gets memory of its own.
+   */
+  @Test
+  public void emptyPoolDoesNotGrow() {
+    MutableAudioSlice first = candidate.makeMutableAudioSlice(256);
+    assertThat(bufferOf(first).capacity()).isEqualTo(256);
+    FloatBuffer memory = bufferOf(first);
+    first.expire();
+    assertThat(bufferOf(candidate.makeMutableAudioSlice(256))).isNotSameInstanceAs(memory);
+  }
+
+  /**
+   * Expiring a slice twice shall give its memory back only once.
+   */
+  @Test
+  public void doubleExpireRecyclesOnce() {
+    candidate.reserve(64, 1);
+    MutableAudioSlice slice = candidate.makeMutableAudioSlice(64);
+    slice.expire();
+    slice.expire();
+    FloatBuffer first = bufferOf(candidate.makeMutableAudioSlice(64));
+    FloatBuffer second = bufferOf(candidate.makeMutableAudioSlice(64));
+    assertThat(first).isNotSameInstanceAs(second);
+  }
+
+  @Test
+  public void liveSlicesDoNotShareMemory() {
+    candidate.reserve(64, 50);
+    List<FloatBuffer> buffers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      buffers.add(bufferOf(candidate.makeMutableAudioSlice(64)));
+    }
+    for (int i = 0; i < buffers.size(); i++) {
+      for (int j = i + 1; j < buffers.size(); j++) {
+        assertThat(buffers.get(i)).isNotSameInstanceAs(buffers.get(j));
+      }
+    }
+  }
+
+  @Test
+  public void largeSlicesAreNotPooled() {
+    MutableAudioSlice slice = candidate.makeMutableAudioSlice(Manager.MAX_POOLED_LENGTH + 1);
+    assertThat(slice.length()).isEqualTo(Manager.MAX_POOLED_LENGTH + 1);
+    slice.expire();
+    assertThat(slice.isExpired()).isTrue();
+  }
+
+  @Test
+  public void mutableCopy() {
+    MutableAudioSlice original = Manager.wrapMutable(Manager.makeDirectFloatBuffer(3));
+    original.put(2, 0.25f);
+    MutableAudioSlice copy = original.mutableCopy();
+    original.put(2, 0.5f);
+    assertThat(copy.length()).isEqualTo(3);
+    assertThat(copy.get(2)).isEqualTo(0.25f);
+  }
+
+  /**
+   * Slices created on one thread and expired on another shall never be handed out twice.
+   */
+  @Test
+  public void crossThreadRecycling() throws InterruptedException {
+    final AudioRingBuffer handOver = new AudioRingBuffer(1);
+    final List<MutableAudioSlice> inFlight = new ArrayList<>();
+    final int rounds = 20000;
+    candidate.reserve(512, 4);
+    Thread consumer = new Thread(() -> {
+      float[] token = new float[1];
+      for (int done = 0; done < rounds; ) {
+        if (handOver.read(token, 0, 1) == 0) {
+          Thread.yield();
+          continue;
+        }
+        MutableAudioSlice slice;
+        synchronized (inFlight) {
+          slice = inFlight.remove(0);
+        }
+        slice.expire();
+        done++;
+      }
+    });
+    consumer.start();
+    boolean unique = true;
+    for (int i = 0; i < rounds; i++) {
+      MutableAudioSlice slice = candidate.makeMutableAudioSlice(512);
+      synchronized (inFlight) {
+        for (MutableAudioSlice other : inFlight) unique &= bufferOf(other) != bufferOf(slice);
+        inFlight.add(slice);
+      }
+      while (handOver.write(new float[1], 0, 1) == 0) Thread.yield();
+    }
+    consumer.join();
+    assertThat(unique).isTrue();
+  }
+}
@@ -0,0 +1,45 @@
+package jackAudio4Java.buffers;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PeriodBuffersTest {
+
+  @Test
+  public void slicesHaveThePeriodLength() {
+    PeriodBuffers buffers = new PeriodBuffers(3, 128);
+    assertThat(buffers.count()).isEqualTo(3);
+    assertThat(buffers.length()).isEqualTo(128);
+    assertThat(buffers.get(2).length()).isEqualTo(128);
+    buffers.release();
+  }
+
+  @Test
+  public void changeSwapsAllSlices() {
+    PeriodBuffers buffers = new PeriodBuffers(2, 128);
+    MutableAudioSlice before = buffers.get(0);
+
+    assertThat(buffers.onBufferSize(512)).isEqualTo(0);
+    assertThat(buffers.length()).isEqualTo(512);
+    assertThat(buffers.get(0)).isNotSameInstanceAs(before);
+    assertThat(buffers.get(1).length()).isEqualTo(512);
+    assertThat(buffers.get(1).get(511)).isEqualTo(0f);
+    // the replaced slices are kept until the next change.
+    assertThat(before.isExpired()).isFalse();
+
+    buffers.onBufferSize(256);
+    assertThat(before.isExpired()).isTrue();
+    buffers.release();
+  }
+
+  @Test
+  public void sameSizeKeepsTheSlices() {
+    PeriodBuffers buffers = new PeriodBuffers(1, 128);
+    MutableAudioSlice before = buffers.get(0);
+    assertThat(buffers.onBufferSize(128)).isEqualTo(0);
+    assertThat(buffers.get(0)).isSameInstanceAs(before);
+    assertThat(buffers.onBufferSize(0)).isEqualTo(-1);
+    buffers.release();
+  }
+}
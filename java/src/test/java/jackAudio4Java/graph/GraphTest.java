@@ -0,0 +1,359 @@
+package jackAudio4Java.graph;
+
+import jackAudio4Java.simulation.SimulatedJack;
+import jackAudio4Java.types.ClientHandle;
+import jackAudio4Java.types.OpenOption;
+import jackAudio4Java.types.OpenStatus;
+import jackAudio4Java.types.ThreadHandle;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class GraphTest {
+
+  private static final int FRAMES = 64;
+
+  /**
+   * Produces a constant signal and one event per cycle.
+   */
+  static class Source extends Node {
+    final NodePort out = audioOutput("out");
+    final NodePort notes = eventOutput("notes");
+    final float value;
+
+    Source(String name, float value) {
+      super(name);
+      this.value = value;
+    }
+
+    @Override
+    public void process(int nframes) {
+      out.mutableAudio().fill(value);
+      notes.events().add((int) value, (long) value);
+    }
+  }
+
+  static class Gain extends Node {
+    final NodePort in = audioInput("in");
+    final NodePort out = audioOutput("out");
+    final float gain;
+
+    Gain(String name, float gain) {
+      super(name);
+      this.gain = gain;
+    }
+
+    @Override
+    public void process(int nframes) {
+      out.mutableAudio().copyFrom(in.audio(), 0, 0, nframes);
+      out.mutableAudio().scale(gain);
+    }
+  }
+
+  /**
+   * Records what it receives and the order of processing.
+   */
+  static class Sink extends Node {
+    final NodePort in = audioInput("in");
+    final NodePort notes = eventInput("notes");
+    float received = Float.NaN;
+    int eventCount = -1;
+
+    Sink(String name) {
+      super(name);
+    }
+
+    @Override
+    public void process(int nframes) {
+      received = in.audio().get(nframes - 1);
+      eventCount = notes.events().size();
+    }
+  }
+
+  private Graph graph;
+
+  @Before
+  public void setUp() {
+    graph = new Graph(FRAMES);
+  }
+
+  @Test
+  public void emptyGraphRuns() {
+    assertThat(graph.onProcess(FRAMES)).isEqualTo(0);
+  }
+
+  @Test
+  public void chain() {
+    Source source = new Source("source", 2f);
+    Gain gain = new Gain("gain", 0.25f);
+    Sink sink = new Sink("sink");
+    // added in reverse order, the schedule has to sort them.
+    graph.add(sink);
+    graph.add(gain);
+    graph.add(source);
+    graph.connect(gain.out, sink.in);
+    graph.connect(source.out, gain.in);
+    graph.connect(source.notes, sink.notes);
+    graph.commit();
+
+    graph.onProcess(FRAMES);
+    assertThat(sink.received).isEqualTo(0.5f);
+    assertThat(sink.eventCount).isEqualTo(1);
+
+    // the event output is cleared in every cycle.
+    graph.onProcess(FRAMES);
+    assertThat(sink.eventCount).isEqualTo(1);
+  }
+
+  @Test
+  public void inputsAreMixedAndMerged() {
+    Source a = new Source("a", 1f);
+    Source b = new Source("b", 3f);
+    Sink sink = new Sink("sink");
+    graph.add(a);
+    graph.add(b);
+    graph.add(sink);
+    graph.connect(a.out, sink.in);
+    graph.connect(b.out, sink.in);
+    graph.connect(b.notes, sink.notes);
+    graph.connect(a.notes, sink.notes);
+    graph.commit();
+
+    graph.onProcess(FRAMES);
+    assertThat(sink.received).isEqualTo(4f);
+    assertThat(sink.eventCount).isEqualTo(2);
+  }
+
+  @Test
+  public void unconnectedInputIsSilent() {
+    Sink sink = new Sink("sink");
+    graph.add(sink);
+    graph.commit();
+    graph.onProcess(FRAMES);
+    assertThat(sink.received).isEqualTo(0f);
+    assertThat(sink.eventCount).isEqualTo(0);
+  }
+
+  @Test
+  public void editsTakeEffectOnCommit() {
+    Source source = new Source("source", 2f);
+    Sink sink = new Sink("sink");
+    graph.add(source);
+    graph.add(sink);
+    graph.connect(source.out, sink.in);
+    graph.commit();
+    graph.onProcess(FRAMES);
+    assertThat(sink.received).isEqualTo(2f);
+
+    Gain gain = new Gain("gain", 0.5f);
+    graph.add(gain);
+    graph.disconnect(source.out, sink.in);
+    graph.connect(source.out, gain.in);
+    graph.connect(gain.out, sink.in);
+    graph.onProcess(FRAMES);
+    assertThat(sink.received).isEqualTo(2f);
+
+    graph.commit();
+    graph.onProcess(FRAMES);
+    assertThat(sink.received).isEqualTo(1f);
+  }
+
+  @Test
+  public void largerPeriodReallocatesBuffers() {
+    Source source = new Source("source", 2f);
+    Sink sink = new Sink("sink");
+    graph.add(source);
+    graph.add(sink);
+    graph.connect(source.out, sink.in);
+    graph.commit();
+
+    assertThat(graph.onBufferSize(FRAMES * 4)).isEqualTo(0);
+    assertThat(graph.getMaxFrames()).isEqualTo(FRAMES * 4);
+    graph.onProcess(FRAMES * 4);
+    assertThat(sink.received).isEqualTo(2f);
+
+    // a smaller period fits into the present buffers.
+    assertThat(graph.onBufferSize(FRAMES)).isEqualTo(0);
+    assertThat(graph.getMaxFrames()).isEqualTo(FRAMES * 4);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void cyclesAreRejected() {
+    Gain first = new Gain("first", 1f);
+    Gain second = new Gain("second", 1f);
+    graph.add(first);
+    graph.add(second);
+    graph.connect(first.out, second.in);
+    graph.connect(second.out, first.in);
+    graph.commit();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void kindsMustMatch() {
+    Source source = new Source("source", 1f);
+    Sink sink = new Sink("sink");
+    graph.add(source);
+    graph.add(sink);
+    graph.connect(source.out, sink.notes);
+  }
+
+  /**
+   * Commits from another thread while the graph is being processed.
+   */
+  @Test
+  public void commitWhileProcessing() throws InterruptedException {
+    Source source = new Source("source", 2f);
+    Sink sink = new Sink("sink");
+    graph.add(source);
+    graph.add(sink);
+    graph.connect(source.out, sink.in);
+    graph.commit();
+
+    List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+    Thread editor = new Thread(() -> {
+      try {
+        for (int i = 0; i < 200; i++) {
+          Gain gain = new Gain("gain" + i, 1f);
+          graph.add(gain);
+          graph.commit();
+          graph.remove(gain);
+          graph.commit();
+        }
+      } catch (Throwable t) {
+        failures.add(t);
+      }
+    });
+    editor.start();
+    while (editor.isAlive()) {
+      graph.onProcess(FRAMES);
+      if (sink.received != 2f) failures.add(new AssertionError("received " + sink.received));
+    }
+    editor.join();
+    assertThat(failures).isEmpty();
+  }
+
+  /**
+   * Independent branches shall be processed on several threads, dependent nodes in order.
+   */
+  @Test
+  public void parallelBranches() {
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    final int branches = 32;
+    List<Sink> sinks = new ArrayList<>();
+    for (int b = 0; b < branches; b++) {
+      Source source = new Source("source" + b, b);
+      Gain gain = new Gain("gain" + b, 2f) {
+        @Override
+        public void process(int nframes) {
+          threads.add(Thread.currentThread());
+          // some work, so that the workers get a chance to join in.
+          for (int i = 0; i < 50; i++) super.process(nframes);
+        }
+      };
+      Sink sink = new Sink("sink" + b);
+      graph.add(source);
+      graph.add(gain);
+      graph.add(sink);
+      graph.connect(source.out, gain.in);
+      graph.connect(gain.out, sink.in);
+      sinks.add(sink);
+    }
+    graph.setParallelism(3);
+    graph.commit();
+
+    for (int cycle = 0; cycle < 200; cycle++) {
+      graph.onProcess(FRAMES);
+      for (int b = 0; b < branches; b++) {
+        assertThat(sinks.get(b).received).isEqualTo(2f * b);
+      }
+    }
+    assertThat(threads.size()).isGreaterThan(1);
+
+    graph.setParallelism(0);
+    graph.commit();
+    graph.onProcess(FRAMES);
+    assertThat(sinks.get(branches - 1).received).isEqualTo(2f * (branches - 1));
+  }
+
+  @Test
+  public void workerThreadsAreJoinedWhenReplaced() {
+    final List<Thread> started = Collections.synchronizedList(new ArrayList<>());
+    final WorkerThreads<Thread> plain = WorkerThreads.of(Thread::new);
+    graph.add(new Source("source", 1f));
+    graph.setParallelism(2, new WorkerThreads<Thread>() {
+      @Override
+      public Thread start(int index, Runnable task) {
+        Thread thread = plain.start(index, task);
+        started.add(thread);
+        return thread;
+      }
+
+      @Override
+      public void join(Thread thread) {
+        plain.join(thread);
+      }
+    });
+    graph.commit();
+    graph.onProcess(FRAMES);
+    graph.setParallelism(0);
+    graph.commit();
+
+    assertThat(started).hasSize(2);
+    for (Thread thread : started) {
+      assertThat(thread.isAlive()).isFalse();
+    }
+  }
+
+  /**
+   * When JACK refuses realtime threads, the workers shall be created without realtime scheduling.
+   */
+  @Test
+  public void jackWorkersFallBackToNormalScheduling() {
+    final List<Boolean> requested = Collections.synchronizedList(new ArrayList<>());
+    SimulatedJack jack = new SimulatedJack() {
+      @Override
+      public ThreadHandle clientCreateThread(ClientHandle client, String name, int priority,
+                                             boolean realtime, int cpu, Runnable runnable) {
+        requested.add(realtime);
+        return realtime ? null : super.clientCreateThread(client, name, priority, realtime, cpu, runnable);
+      }
+    };
+    ClientHandle client = jack.clientOpen("graph", new OpenOption[]{}, new OpenStatus(), null);
+    graph.add(new Source("source", 1f));
+    graph.setParallelism(2, WorkerThreads.jack(jack, client, -1));
+    graph.commit();
+    graph.onProcess(FRAMES);
+    graph.setParallelism(0);
+    graph.commit();
+    jack.clientClose(client);
+
+    assertThat(requested).containsExactly(true, false, true, false).inOrder();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void failuresOfWorkersReachTheProcessThread() {
+    for (int b = 0; b < 4; b++) {
+      graph.add(new Node("failing" + b) {
+        @Override
+        public void process(int nframes) {
+          throw new IllegalStateException("failing node");
+        }
+      });
+    }
+    graph.setParallelism(2);
+    graph.commit();
+    try {
+      graph.onProcess(FRAMES);
+    } finally {
+      graph.setParallelism(0);
+      graph.commit();
+    }
+  }
+}
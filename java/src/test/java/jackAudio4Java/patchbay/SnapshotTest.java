@@ -0,0 +1,38 @@
+package jackAudio4Java.patchbay;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SnapshotTest {
+
+  private static final Connection A = new Connection("synth:out_1", "system:playback_1");
+  private static final Connection B = new Connection("synth:out_2", "system:playback_2");
+  private static final Connection C = new Connection("system:capture_1", "recorder:in_1");
+
+  @Test
+  public void diffRemovesAndAdds() {
+    Snapshot current = new Snapshot(Arrays.asList(A, B));
+    Snapshot target = new Snapshot(Arrays.asList(B, C));
+    Diff diff = current.diff(target);
+    assertThat(diff.getDisconnections()).containsExactly(A);
+    assertThat(diff.getConnections()).containsExactly(C);
+    assertThat(diff.getChanges()).containsExactly(A, C).inOrder();
+  }
+
+  @Test
+  public void sameSnapshotsGiveAnEmptyDiff() {
+    Snapshot current = Snapshot.ofPairs("synth:out_1", "system:playback_1");
+    Diff diff = current.diff(new Snapshot(Collections.singleton(A)));
+    assertThat(diff.isEmpty()).isTrue();
+    assertThat(current).isEqualTo(new Snapshot(Collections.singleton(A)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void oddPairs() {
+    Snapshot.ofPairs("synth:out_1");
+  }
+}
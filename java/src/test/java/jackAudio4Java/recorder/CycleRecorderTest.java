@@ -0,0 +1,97 @@
+package jackAudio4Java.recorder;
+
+import jackAudio4Java.simulation.SimulatedJack;
+import jackAudio4Java.types.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CycleRecorderTest {
+
+  private static final int BUFFER_SIZE = 32;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Replaying the rolling window shall feed the listener exactly what it has seen during the last recorded cycles.
+   */
+  @Test
+  public void replayRepeatsTheLastCycles() throws IOException {
+    Path file = folder.newFile("cycles.rec").toPath();
+    List<String> original = new ArrayList<>();
+
+    SimulatedJack live = new SimulatedJack(44100, BUFFER_SIZE, 1);
+    live.setDriver(new RampDriver());
+    ClientHandle client = live.clientOpen("observed", new OpenOption[]{}, new OpenStatus(), null);
+    PortHandle in = live.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    try (CycleRecorder recorder = new CycleRecorder(file, live, client, new PortHandle[]{in}, BUFFER_SIZE, 4)) {
+      live.registerProcessListener(client, recorder.wrap(observer(live, client, in, original)));
+      live.activate(client);
+      live.connect(client, "system:capture_1", "observed:in");
+      live.runCycles(6);
+      assertThat(recorder.getRecordedCycles()).isEqualTo(6);
+    }
+    live.clientClose(client);
+
+    List<String> replayed = new ArrayList<>();
+    try (CycleReplay replay = new CycleReplay(file)) {
+      assertThat(replay.getChannels()).isEqualTo(1);
+      assertThat(replay.getPortName(0)).isEqualTo("observed:in");
+      assertThat(replay.getSampleRate()).isEqualTo(44100);
+      assertThat(replay.getFirstCycle()).isEqualTo(2);
+
+      SimulatedJack jack = new SimulatedJack(replay.getSampleRate(), replay.getMaxFrames(), 0);
+      ClientHandle copy = jack.clientOpen("observed", new OpenOption[]{}, new OpenStatus(), null);
+      PortHandle copyIn = jack.portRegister(copy, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+      jack.registerProcessListener(copy, observer(jack, copy, copyIn, replayed));
+      jack.activate(copy);
+      assertThat(replay.replay(jack)).isEqualTo(4);
+    }
+    assertThat(replayed).containsExactlyElementsIn(original.subList(2, 6)).inOrder();
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    Path file = folder.newFile("other.rec").toPath();
+    Files.write(file, new byte[128]);
+    new CycleReplay(file).close();
+  }
+
+  /**
+   * @return a listener that describes each cycle by its frame time, its first and its last sample.
+   */
+  private static ProcessListener observer(SimulatedJack jack, ClientHandle client, PortHandle in, List<String> cycles) {
+    CycleTimes times = new CycleTimes();
+    return nframes -> {
+      jack.getCycleTimes(client, times);
+      float first = jack.portGetAudioData(in, nframes).get(0);
+      float last = jack.portGetAudioData(in, nframes).get(nframes - 1);
+      cycles.add(times.currentFrames + ":" + first + ":" + last);
+      return 0;
+    };
+  }
+
+  private static class RampDriver implements SimulatedJack.Driver {
+    private long frames = 0;
+
+    @Override
+    public void capture(int channel, FloatBuffer buffer, int nframes) {
+      for (int i = 0; i < nframes; i++) buffer.put(i, (frames + i) * 0.5f);
+      frames += nframes;
+    }
+
+    @Override
+    public void playback(int channel, FloatBuffer buffer, int nframes) {
+    }
+  }
+}
@@ -0,0 +1,344 @@
+package jackAudio4Java.simulation;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.PortRegistry;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.patchbay.Snapshot;
+import jackAudio4Java.types.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SimulatedJackTest {
+
+  private static final int BUFFER_SIZE = 64;
+
+  private SimulatedJack jack;
+  private ClientHandle client;
+
+  @Before
+  public void setUp() {
+    jack = new SimulatedJack(48000, BUFFER_SIZE, 2);
+    client = jack.clientOpen("simulated", new OpenOption[]{}, new OpenStatus(), null);
+  }
+
+  @After
+  public void tearDown() {
+    jack.stop();
+    jack.clientClose(client);
+  }
+
+  @Test
+  public void backendByName() {
+    assertThat(Jack.backend(Jack.SIMULATED_BACKEND)).isInstanceOf(SimulatedJack.class);
+  }
+
+  @Test
+  public void clientNamesAreMadeUnique() {
+    OpenStatus status = new OpenStatus();
+    ClientHandle other = jack.clientOpen("simulated", new OpenOption[]{}, status, null);
+    assertThat(status.hasNameNotUnique()).isTrue();
+    assertThat(status.hasFailure()).isFalse();
+    assertThat(jack.getClientName(other)).isEqualTo("simulated-01");
+
+    ClientHandle exact = jack.clientOpen("simulated", new OpenOption[]{OpenOption.UseExactName}, status, null);
+    assertThat(exact).isNull();
+    assertThat(status.hasFailure()).isTrue();
+
+    assertThat(jack.clientClose(other)).isEqualTo(0);
+    assertThat(other.isValid()).isFalse();
+  }
+
+  @Test
+  public void portsAndConnections() {
+    PortHandle in = jack.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    assertThat(jack.portName(in)).isEqualTo("simulated:in");
+    assertThat(jack.portShortName(in)).isEqualTo("in");
+    assertThat(jack.portByName(client, "simulated:in")).isSameInstanceAs(in);
+    assertThat(jack.getPorts(client, "system:capture", null, PortFlag.setOf(PortFlag.isPhysical)))
+            .asList().containsExactly("system:capture_1", "system:capture_2").inOrder();
+
+    // ports of inactive clients cannot be connected.
+    assertThat(jack.connect(client, "system:capture_1", "simulated:in")).isNotEqualTo(0);
+    jack.activate(client);
+    assertThat(jack.connect(client, "system:capture_1", "simulated:in")).isEqualTo(0);
+    assertThat(jack.connect(client, "system:capture_1", "simulated:in")).isEqualTo(17);
+    assertThat(jack.connect(client, "simulated:in", "system:playback_1")).isNotEqualTo(0);
+    assertThat(jack.patchbaySnapshot(client)).isEqualTo(Snapshot.ofPairs("system:capture_1", "simulated:in"));
+
+    assertThat(jack.portUnregister(client, in)).isEqualTo(0);
+    assertThat(jack.patchbaySnapshot(client).size()).isEqualTo(0);
+  }
+
+  /**
+   * A signal captured by the driver shall travel through a client and be played back in the same cycle.
+   */
+  @Test
+  public void processPassesAudioThrough() {
+    PortHandle in = jack.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    PortHandle out = jack.portRegister(client, "out", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isOutput), 0);
+    float[] samples = new float[BUFFER_SIZE];
+    jack.registerProcessListener(client, nframes -> {
+      ImmutableAudioSlice input = jack.portGetAudioData(in, nframes);
+      for (int i = 0; i < nframes; i++) samples[i] = 2 * input.get(i);
+      return jack.portSendAudioData(out, nframes, samples);
+    });
+    RecordingDriver driver = new RecordingDriver();
+    jack.setDriver(driver);
+    jack.activate(client);
+    jack.connect(client, "system:capture_1", "simulated:in");
+    jack.connect(client, "simulated:out", "system:playback_1");
+    jack.connect(client, "simulated:out", "system:playback_2");
+
+    assertThat(jack.runCycles(3)).isEqualTo(3 * BUFFER_SIZE);
+    assertThat(driver.played).hasSize(6);
+    assertThat(driver.played.get(4)).isEqualTo(2f * (2 * BUFFER_SIZE + 10));
+    assertThat(driver.played.get(5)).isEqualTo(2f * (2 * BUFFER_SIZE + 10));
+  }
+
+  /**
+   * Clients shall run in the order of their connections, an input with several connections gets the sum.
+   */
+  @Test
+  public void graphOrderAndMixing() {
+    List<String> order = new ArrayList<>();
+    ClientHandle sink = jack.clientOpen("sink", new OpenOption[]{}, new OpenStatus(), null);
+    PortHandle sinkIn = jack.portRegister(sink, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    float[] received = new float[1];
+    jack.registerProcessListener(sink, nframes -> {
+      order.add("sink");
+      received[0] = jack.portGetAudioData(sinkIn, nframes).get(0);
+      return 0;
+    });
+    PortHandle out = jack.portRegister(client, "out", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isOutput), 0);
+    jack.registerProcessListener(client, nframes -> {
+      order.add("source");
+      return jack.portSendAudioData(out, nframes, new float[]{0.25f});
+    });
+    jack.activate(sink);
+    jack.activate(client);
+    jack.connect(client, "simulated:out", "sink:in");
+    jack.connect(client, "system:capture_1", "sink:in");
+    jack.setDriver(new RecordingDriver());
+
+    jack.runCycles(1);
+    assertThat(order).containsExactly("source", "sink").inOrder();
+    assertThat(received[0]).isEqualTo(0.25f + 10f);
+    jack.clientClose(sink);
+  }
+
+  /**
+   * The frame time is virtual; rendering runs exactly as many cycles as needed.
+   */
+  @Test
+  public void renderIsDeterministic() {
+    CycleTimes times = new CycleTimes();
+    List<Long> frames = new ArrayList<>();
+    List<Boolean> freewheel = new ArrayList<>();
+    jack.registerProcessListener(client, nframes -> {
+      jack.getCycleTimes(client, times);
+      frames.add(times.currentFrames);
+      return 0;
+    });
+    jack.registerFreewheelListener(client, freewheel::add);
+    assertThat(jack.render(client, BUFFER_SIZE, 1000)).isEqualTo(-1);
+    jack.activate(client);
+
+    assertThat(jack.render(client, 4 * BUFFER_SIZE, 1000)).isEqualTo(4 * BUFFER_SIZE);
+    assertThat(frames).containsExactly(0L, 64L, 128L, 192L).inOrder();
+    assertThat(freewheel).containsExactly(true, false).inOrder();
+    assertThat(jack.getCycleTimes(client, times)).isNotEqualTo(0);
+  }
+
+  /**
+   * The static clock functions of Jack shall follow the virtual clock of simulated clients.
+   */
+  @Test
+  public void staticClockFollowsTheVirtualClock() {
+    List<Long> lastFrames = new ArrayList<>();
+    jack.registerProcessListener(client, nframes -> {
+      lastFrames.add(Jack.lastFrameTime(client));
+      return 0;
+    });
+    jack.activate(client);
+    jack.runCycles(2);
+
+    assertThat(lastFrames).containsExactly(0L, 64L).inOrder();
+    assertThat(Jack.frameTime(client)).isEqualTo(128L);
+    assertThat(Jack.framesToTime(client, 48000)).isEqualTo(1000000L);
+    assertThat(Jack.timeToFrames(client, 1000000L)).isEqualTo(48000L);
+    assertThat(Jack.frameTime(null)).isEqualTo(-1L);
+    assertThat(Jack.getTime()).isGreaterThan(0L);
+  }
+
+  /**
+   * A client whose process listener fails shall be removed from the graph and notified.
+   */
+  @Test
+  public void failingClientIsShutDown() {
+    int[] shutdowns = new int[1];
+    jack.registerProcessListener(client, nframes -> 1);
+    jack.registerShutdownListener(client, () -> shutdowns[0]++);
+    jack.activate(client);
+    jack.runCycles(2);
+    assertThat(shutdowns[0]).isEqualTo(1);
+  }
+
+  @Test
+  public void driverThreadRunsCycles() throws InterruptedException {
+    long[] cycles = new long[1];
+    jack.registerProcessListener(client, nframes -> {
+      cycles[0]++;
+      return 0;
+    });
+    jack.activate(client);
+    assertThat(jack.start(0)).isEqualTo(0);
+    assertThat(jack.start(0)).isEqualTo(-1);
+    for (int i = 0; i < 100 && jack.getFrameTime() < 10 * BUFFER_SIZE; i++) Thread.sleep(10);
+    jack.stop();
+    assertThat(jack.isRunning()).isFalse();
+    assertThat(cycles[0] * BUFFER_SIZE).isEqualTo(jack.getFrameTime());
+    assertThat(cycles[0]).isAtLeast(10L);
+  }
+
+  @Test
+  public void bufferSizeChange() {
+    List<Integer> sizes = new ArrayList<>();
+    jack.registerBufferSizeListener(client, nframes -> {
+      sizes.add(nframes);
+      return 0;
+    });
+    jack.activate(client);
+    assertThat(jack.setBufferSize(128)).isEqualTo(0);
+    assertThat(jack.getBufferSize(client)).isEqualTo(128);
+    assertThat(sizes).containsExactly(BUFFER_SIZE, 128).inOrder();
+    assertThat(jack.runCycles(1)).isEqualTo(128);
+  }
+
+  /**
+   * A process thread shall be handed the cycles in graph order and exchange its audio through a port set.
+   */
+  @Test
+  public void processThreadWithPortSet() {
+    PortHandle in = jack.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    PortHandle out = jack.portRegister(client, "out", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isOutput), 0);
+    PortSet set = jack.portSetCreate(new PortHandle[]{in}, new PortHandle[]{out}, BUFFER_SIZE);
+    assertThat(jack.registerProcessThread(client, () -> {
+      int nframes;
+      while ((nframes = jack.cycleWait(client)) > 0) {
+        jack.portSetFetch(set, nframes);
+        for (int i = 0; i < nframes; i++) set.output(0).put(i, 2 * set.input(0).get(i));
+        jack.cycleSignal(client, jack.portSetPublish(set, nframes));
+      }
+    })).isEqualTo(0);
+    assertThat(jack.registerProcessListener(client, nframes -> 0)).isNotEqualTo(0);
+    RecordingDriver driver = new RecordingDriver();
+    jack.setDriver(driver);
+    jack.activate(client);
+    jack.connect(client, "system:capture_1", "simulated:in");
+    jack.connect(client, "simulated:out", "system:playback_1");
+
+    jack.runCycles(2);
+    assertThat(driver.played.get(2)).isEqualTo(2f * (BUFFER_SIZE + 10));
+    assertThat(jack.getProcessTimeHistogram(client).callCount()).isEqualTo(2L);
+    assertThat(jack.deactivate(client)).isEqualTo(0);
+    assertThat(jack.cycleWait(client)).isEqualTo(0);
+    assertThat(jack.portSetRelease(set)).isEqualTo(0);
+    assertThat(jack.portSetFetch(set, BUFFER_SIZE)).isEqualTo(-1);
+  }
+
+  @Test
+  public void transportRollsOnTheVirtualClock() {
+    List<Boolean> newPositions = new ArrayList<>();
+    assertThat(jack.setTimebaseListener(client, true, (state, nframes, position, newPosition) -> {
+      newPositions.add(newPosition);
+      position.setBar((int) (position.getFrame() / BUFFER_SIZE) + 1);
+      position.setValid(TransportPosition.POSITION_BBT);
+    })).isEqualTo(0);
+    ClientHandle other = jack.clientOpen("other", new OpenOption[]{}, new OpenStatus(), null);
+    assertThat(jack.setTimebaseListener(other, true, (state, nframes, position, newPosition) -> { })).isEqualTo(16);
+    assertThat(jack.releaseTimebase(other)).isNotEqualTo(0);
+    jack.activate(client);
+
+    TransportPosition position = new TransportPosition();
+    assertThat(jack.transportQuery(client, position)).isEqualTo(TransportState.STOPPED);
+    jack.transportLocate(client, 1000);
+    jack.transportStart(client);
+    jack.runCycles(1);
+    assertThat(jack.transportQuery(client, position)).isEqualTo(TransportState.ROLLING);
+    assertThat(position.getFrame()).isEqualTo(1000L);
+    assertThat(position.getBar()).isEqualTo(1000 / BUFFER_SIZE + 1);
+    assertThat(position.isConsistent()).isTrue();
+    jack.runCycles(2);
+    assertThat(jack.getCurrentTransportFrame(client)).isEqualTo(1000L + 2 * BUFFER_SIZE);
+    assertThat(newPositions).containsExactly(true, false, false).inOrder();
+
+    jack.transportStop(client);
+    jack.runCycles(2);
+    assertThat(jack.transportQuery(client, null)).isEqualTo(TransportState.STOPPED);
+    assertThat(jack.getCurrentTransportFrame(client)).isEqualTo(1000L + 3 * BUFFER_SIZE);
+    assertThat(jack.releaseTimebase(client)).isEqualTo(0);
+    jack.clientClose(other);
+  }
+
+  @Test
+  public void portRegistryFollowsTheGraph() {
+    PortRegistry registry = jack.getPortRegistry(client);
+    assertThat(jack.getPortRegistry(client)).isSameInstanceAs(registry);
+    assertThat(registry.get("system:capture_1")).isNotNull();
+    jack.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    jack.activate(client);
+    jack.connect(client, "system:capture_1", "simulated:in");
+    assertThat(registry.getConnections("simulated:in")).containsExactly("system:capture_1");
+    jack.deactivate(client);
+    assertThat(registry.getConnections("simulated:in")).isEmpty();
+    jack.portUnregister(client, jack.portByName(client, "simulated:in"));
+    assertThat(registry.get("simulated:in")).isNull();
+  }
+
+  @Test
+  public void processTimesAreNotRecordedWhileFreewheeling() {
+    jack.registerProcessListener(client, nframes -> 0);
+    jack.activate(client);
+    jack.runCycles(2);
+    assertThat(jack.render(client, 4 * BUFFER_SIZE, 1000)).isEqualTo(4L * BUFFER_SIZE);
+    assertThat(jack.getProcessTimeHistogram(client).callCount()).isEqualTo(2L);
+    assertThat(jack.resetInstrumentation(client)).isEqualTo(0);
+    assertThat(jack.getProcessTimeHistogram(client).callCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void createdThreadsAreJoined() {
+    boolean[] ran = new boolean[1];
+    ThreadHandle thread = jack.clientCreateThread(client, "worker", -1, true, 0, () -> ran[0] = true);
+    assertThat(thread.isValid()).isTrue();
+    assertThat(jack.threadJoin(thread)).isEqualTo(0);
+    assertThat(ran[0]).isTrue();
+    assertThat(jack.threadJoin(thread)).isEqualTo(-1);
+  }
+
+  /**
+   * Captures a ramp continuing over the cycles, offset by 10, and records the first played sample of each cycle.
+   */
+  private static class RecordingDriver implements SimulatedJack.Driver {
+    final List<Float> played = new ArrayList<>();
+    private long captured = 0;
+
+    @Override
+    public void capture(int channel, FloatBuffer buffer, int nframes) {
+      for (int i = 0; i < nframes; i++) buffer.put(i, captured + i + 10);
+      if (channel == 1) captured += nframes;
+    }
+
+    @Override
+    public void playback(int channel, FloatBuffer buffer, int nframes) {
+      played.add(buffer.get(0));
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package jackAudio4Java.types;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class ProcessTimeHistogramTest {
+
+  private static ProcessTimeHistogram histogram(long maxNanos, long totalNanos, long... leadingCounts) {
+    long[] counts = new long[ProcessTimeHistogram.BUCKET_COUNT];
+    System.arraycopy(leadingCounts, 0, counts, 0, leadingCounts.length);
+    return new ProcessTimeHistogram(counts, maxNanos, totalNanos);
+  }
+
+  @Test
+  public void upperBounds() {
+    assertThat(ProcessTimeHistogram.upperBoundNanos(0)).isEqualTo(1024);
+    assertThat(ProcessTimeHistogram.upperBoundNanos(1)).isEqualTo(2048);
+  }
+
+  @Test
+  public void callCountAndMean() {
+    ProcessTimeHistogram h = histogram(3000, 6000, 1, 2, 1);
+    assertThat(h.callCount()).isEqualTo(4);
+    assertThat(h.meanNanos()).isEqualTo(1500);
+  }
+
+  @Test
+  public void percentiles() {
+    ProcessTimeHistogram h = histogram(3000, 0, 50, 45, 5);
+    assertThat(h.percentileNanos(50)).isEqualTo(1024);
+    assertThat(h.percentileNanos(90)).isEqualTo(2048);
+    // the bound of the last bucket is capped by the observed maximum.
+    assertThat(h.percentileNanos(99)).isEqualTo(3000);
+  }
+
+  @Test
+  public void emptyHistogram() {
+    ProcessTimeHistogram h = histogram(0, 0);
+    assertThat(h.callCount()).isEqualTo(0);
+    assertThat(h.meanNanos()).isEqualTo(0);
+    assertThat(h.percentileNanos(99)).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrongBucketCount() {
+    new ProcessTimeHistogram(new long[3], 0, 0);
+  }
+}
@@ -0,0 +1,61 @@
+package jackAudio4Java.types;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TransportPositionTest {
+
+  /**
+   * The buffer of a position shall have the size and byte order of the native `jack_position_t`.
+   */
+  @Test
+  public void bufferMirrorsNativeStructure() {
+    TransportPosition position = new TransportPosition();
+    assertThat(position.getBuffer().isDirect()).isTrue();
+    assertThat(position.getBuffer().capacity()).isEqualTo(TransportPosition.SIZE);
+    assertThat(position.isConsistent()).isTrue();
+  }
+
+  /**
+   * The BBT fields written by a timebase master shall be read back unchanged.
+   */
+  @Test
+  public void bbtRoundTrip() {
+    TransportPosition position = new TransportPosition();
+    position.setValid(TransportPosition.POSITION_BBT);
+    position.setBar(3);
+    position.setBeat(2);
+    position.setTick(960);
+    position.setBarStartTick(7680.0);
+    position.setBeatsPerBar(4.0f);
+    position.setBeatType(4.0f);
+    position.setTicksPerBeat(1920.0);
+    position.setBeatsPerMinute(120.0);
+
+    TransportPosition copy = new TransportPosition();
+    copy.copyFrom(position);
+    assertThat(copy.getValid()).isEqualTo(TransportPosition.POSITION_BBT);
+    assertThat(copy.getBar()).isEqualTo(3);
+    assertThat(copy.getBeat()).isEqualTo(2);
+    assertThat(copy.getTick()).isEqualTo(960);
+    assertThat(copy.getBarStartTick()).isEqualTo(7680.0);
+    assertThat(copy.getBeatsPerBar()).isEqualTo(4.0f);
+    assertThat(copy.getBeatType()).isEqualTo(4.0f);
+    assertThat(copy.getTicksPerBeat()).isEqualTo(1920.0);
+    assertThat(copy.getBeatsPerMinute()).isEqualTo(120.0);
+  }
+
+  /**
+   * The native state codes shall map onto the transport states.
+   */
+  @Test
+  public void stateFromCode() {
+    assertThat(TransportState.fromCode(0)).isEqualTo(TransportState.STOPPED);
+    assertThat(TransportState.fromCode(1)).isEqualTo(TransportState.ROLLING);
+    assertThat(TransportState.fromCode(3)).isEqualTo(TransportState.STARTING);
+    assertThat(TransportState.fromCode(4)).isEqualTo(TransportState.NET_STARTING);
+    assertThat(TransportState.fromCode(5)).isNull();
+    assertThat(TransportState.fromCode(-1)).isNull();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.benchmarks;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.types.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the public entry points of {@link Jack}.
+ * <p>
+ * Each benchmark crosses into native code once (`clientOpen` twice, as it has to close the client again).
+ * Run it with `./gradlew :jmh:jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntryPointBenchmark {
+
+  private static final int NFRAMES = 256;
+  private static final OpenOption[] NO_START_SERVER = new OpenOption[]{OpenOption.NoStartServer};
+
+  private Jack jack;
+  private ClientHandle client;
+  private PortHandle output;
+  private PortHandle input;
+  private String outputName;
+  private String inputName;
+  private MutableAudioSlice inputContainer;
+
+  @Setup
+  public void setup() {
+    jack = Jack.server();
+    client = jack.clientOpen("EntryPointBenchmark", NO_START_SERVER, null, null);
+    if (client == null) throw new IllegalStateException("Could not open a JACK client, is the server running?");
+    output = jack.portRegister(client, "out", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isOutput), 0);
+    input = jack.portRegister(client, "in", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isInput), 0);
+    outputName = jack.portName(output);
+    inputName = jack.portName(input);
+    inputContainer = Manager.getDefault().makeMutableAudioSlice(NFRAMES);
+    if (jack.activate(client) != 0) throw new IllegalStateException("Could not activate the client");
+    // from now on `connect` measures the round trip to the server for an existing connection.
+    jack.connect(client, outputName, inputName);
+  }
+
+  @TearDown
+  public void tearDown() {
+    jack.clientClose(client);
+  }
+
+  /**
+   * Opening and closing a client, the cost of the whole handshake with the server.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int clientOpenClose() {
+    ClientHandle other = jack.clientOpen("EntryPointBenchmarkOther", NO_START_SERVER, null, null);
+    return jack.clientClose(other);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public String[] getPorts() {
+    return jack.getPorts(client, null, null, null);
+  }
+
+  @Benchmark
+  public PortHandle portByName() {
+    return jack.portByName(client, outputName);
+  }
+
+  @Benchmark
+  public String portName() {
+    return jack.portName(output);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int connect() {
+    return jack.connect(client, outputName, inputName);
+  }
+
+  /**
+   * Getting the input data as a zero-copy view of the port buffer.
+   */
+  @Benchmark
+  public ImmutableAudioSlice portGetAudioData() {
+    return jack.portGetAudioData(input, NFRAMES);
+  }
+
+  /**
+   * Copying the input data into a container owned by the caller.
+   */
+  @Benchmark
+  public int portGetAudioDataInto() {
+    return jack.portGetAudioData(input, NFRAMES, inputContainer);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.benchmarks;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.types.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the end-to-end overhead of the up-call from the native process callback
+ * into {@link ProcessListener#onProcess(int)}.
+ * <p>
+ * The up-call happens in the JACK process thread, so it cannot be timed by JMH directly.
+ * Instead the benchmark registers an empty listener and reports the durations recorded by
+ * the native callback (see {@link Jack#getProcessTimeHistogram(ClientHandle)}) as auxiliary
+ * counters. The primary score is the time from one cycle to the next and serves as a
+ * sanity check of the server's period.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessCallbackBenchmark {
+
+  private Jack jack;
+  private ClientHandle client;
+  private volatile long cycles;
+
+  /**
+   * The process time statistics of the current iteration.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class UpCall {
+    public long meanNanos;
+    public long p99Nanos;
+    public long maxNanos;
+  }
+
+  @Setup
+  public void setup() {
+    jack = Jack.server();
+    client = jack.clientOpen("ProcessCallbackBenchmark", new OpenOption[]{OpenOption.NoStartServer}, null, null);
+    if (client == null) throw new IllegalStateException("Could not open a JACK client, is the server running?");
+    jack.registerProcessListener(client, nframes -> {
+      cycles++;
+      return 0;
+    });
+    if (jack.activate(client) != 0) throw new IllegalStateException("Could not activate the client");
+  }
+
+  @Setup(Level.Iteration)
+  public void resetStatistics() {
+    jack.resetInstrumentation(client);
+  }
+
+  @TearDown
+  public void tearDown() {
+    jack.deactivate(client);
+    jack.clientClose(client);
+  }
+
+  /**
+   * Waits for the next process cycle and publishes the up-call statistics collected so far.
+   */
+  @Benchmark
+  public long nextCycle(UpCall upCall) {
+    long start = cycles;
+    while (cycles == start) {
+      LockSupport.parkNanos(20_000);
+    }
+    ProcessTimeHistogram histogram = jack.getProcessTimeHistogram(client);
+    upCall.meanNanos = histogram.meanNanos();
+    upCall.p99Nanos = histogram.percentileNanos(99);
+    upCall.maxNanos = histogram.maxNanos();
+    return histogram.callCount();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * File: ClientContext.cpp
+ *
+ *
+ * Copyright 2019 Harald Postner <Harald at free_creations.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * This unit implements the per-client bookkeeping used by the JACK callbacks.
+ *
+ */
+#include <map>
+#include <mutex>
+#include "ClientContext.h"
+
+#include "spdlog/spdlog.h"
+
+using namespace std;
+
+/**
+ * All living contexts, indexed by their client.
+ *
+ * The map is only consulted when listeners are registered or a client is closed,
+ * never from within a callback (the callbacks get their context through the `arg` parameter).
+ */
+static map<jack_client_t *, ClientContext *> contexts;
+
+/**
+ * Guards the `contexts` map.
+ */
+static mutex contextsLock;
+
+/**
+ * Attaching a thread to the Java virtual machine is very costly.
+ *
+ * Doing this in each audio cycle would cause XRuns even with 256 Frames/Period.
+ * Therefore we cache the JNIEnv on the first invocation of the process callback.
+ *
+ * @return the JNI-Environment pointer for the current thread.
+ */
+JNIEnv *ClientContext::getJNIEnvForCallbackThread() {
+
+    if (this_thread::get_id() == callbackThreadId) {
+        return callbackJNIEnv;
+    }
+    SPDLOG_TRACE("getJNIEnvForCallbackThread: new thread.");
+    if (jvm == nullptr) {
+        SPDLOG_ERROR("jvm is NULL");
+        return nullptr;
+    }
+    JNIEnv *env;
+    jint success = jvm->AttachCurrentThread((void **) &env, nullptr);
+    if (success != JNI_OK) {
+        SPDLOG_ERROR("Could not attach to the current thread");
+        return nullptr;
+    }
+    callbackJNIEnv = env;
+    callbackThreadId = this_thread::get_id();
+    return callbackJNIEnv;
+}
+
+void ClientContext::detachCallbackThread() {
+    if (jvm == nullptr) return;
+    if (this_thread::get_id() == callbackThreadId) {
+        callbackJNIEnv = nullptr;
+        callbackThreadId = thread::id();
+    }
+    jvm->DetachCurrentThread();
+}
+
+void ClientContext::releaseReferences(JNIEnv *env) {
+    if (env) {
+        if (processListener) env->DeleteGlobalRef(processListener);
+        if (processThreadListener) env->DeleteGlobalRef(processThreadListener);
+        if (shutdownListener) env->DeleteGlobalRef(shutdownListener);
+        if (bufferSizeListener) env->DeleteGlobalRef(bufferSizeListener);
+        if (sampleRateListener) env->DeleteGlobalRef(sampleRateListener);
+        if (clientHandle) env->DeleteGlobalRef(clientHandle);
+        if (freewheelListener) env->DeleteGlobalRef(freewheelListener);
+        if (portRegistry) env->DeleteGlobalRef(portRegistry);
+        if (portTable) env->DeleteGlobalRef(portTable);
+        if (timebaseAdapter) env->DeleteGlobalRef(timebaseAdapter);
+    }
+    processListener = nullptr;
+    processListener_onProcess = nullptr;
+    processThreadListener = nullptr;
+    processThreadListener_onProcessThread = nullptr;
+    shutdownListener = nullptr;
+    shutdownListener_onShutdown = nullptr;
+    bufferSizeListener = nullptr;
+    bufferSizeListener_onBufferSize = nullptr;
+    sampleRateListener = nullptr;
+    sampleRateListener_onSampleRate = nullptr;
+    clientHandle = nullptr;
+    clientHandle_onFreewheel = nullptr;
+    freewheelListener = nullptr;
+    freewheelListener_onFreewheel = nullptr;
+    portRegistry = nullptr;
+    portRegistry_onPortRegistration = nullptr;
+    portRegistry_onPortConnect = nullptr;
+    portRegistry_onPortRename = nullptr;
+    portTable = nullptr;
+    portTable_onPortRenamed = nullptr;
+    portTable_onPortUnregistered = nullptr;
+    timebaseAdapter = nullptr;
+    timebaseAdapter_onTimebase = nullptr;
+    timebasePosition = nullptr;
+}
+
+ClientContext *ClientContext::of(jack_client_t *client) {
+    lock_guard<mutex> guard(contextsLock);
+    auto found = contexts.find(client);
+    if (found != contexts.end()) {
+        return found->second;
+    }
+    auto context = new ClientContext(client);
+    contexts[client] = context;
+    return context;
+}
+
+ClientContext *ClientContext::find(jack_client_t *client) {
+    lock_guard<mutex> guard(contextsLock);
+    auto found = contexts.find(client);
+    return (found == contexts.end()) ? nullptr : found->second;
+}
+
+void ClientContext::dispose(JNIEnv *env, jack_client_t *client) {
+    ClientContext *context = nullptr;
+    {
+        lock_guard<mutex> guard(contextsLock);
+        auto found = contexts.find(client);
+        if (found == contexts.end()) return;
+        context = found->second;
+        contexts.erase(found);
+    }
+    context->releaseReferences(env);
+    delete context;
+}
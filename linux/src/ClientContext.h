@@ -0,0 +1,238 @@
+/*
+ * File: ClientContext.h
+ *
+ *
+ * Copyright 2019 Harald Postner <Harald at free_creations.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+#pragma once
+
+#include <jni.h>
+#include <thread>
+#include <atomic>
+#include <cstdint>
+#include <jack/jack.h>
+#include <jack/transport.h>
+#include "ProcessTimeHistogram.h"
+
+/**
+ * The `ClientContext` holds everything the native callbacks need to know about one JACK client.
+ *
+ * A pointer to the context is handed to JACK as the `arg` parameter of
+ * `jack_set_process_callback`, `jack_on_shutdown` etc. Thus every callback
+ * finds the listeners of its own client and several clients can live side by side
+ * in one JVM.
+ *
+ * Contexts are created lazily, when the first listener of a client is registered,
+ * and are destroyed when the client is closed.
+ */
+class ClientContext {
+public:
+    explicit ClientContext(jack_client_t *client) : client(client) {}
+
+    /**
+     * The JACK client this context belongs to.
+     */
+    jack_client_t *const client;
+
+    /**
+     * Pointer to the java virtual machine.
+     */
+    JavaVM *jvm = nullptr;
+
+    /**
+     * Pointer to the java process adapter object (a global reference).
+     * The adapter wraps the process listener of the user.
+     */
+    jobject processListener = nullptr;
+
+    /**
+     * Pointer to the java `onCycle` method of the process adapter.
+     */
+    jmethodID processListener_onProcess = nullptr;
+
+    /**
+     * Pointer to the java process thread listener object (a global reference).
+     */
+    jobject processThreadListener = nullptr;
+
+    /**
+     * Pointer to the java `onProcessThread` callback.
+     */
+    jmethodID processThreadListener_onProcessThread = nullptr;
+
+    /**
+     * Pointer to the java shutdown listener object (a global reference).
+     */
+    jobject shutdownListener = nullptr;
+
+    /**
+     * Pointer to the java `onShutdown` callback.
+     */
+    jmethodID shutdownListener_onShutdown = nullptr;
+
+    /**
+     * Pointer to the java buffer size listener object (a global reference).
+     */
+    jobject bufferSizeListener = nullptr;
+
+    /**
+     * Pointer to the java `onBufferSize` callback.
+     */
+    jmethodID bufferSizeListener_onBufferSize = nullptr;
+
+    /**
+     * Pointer to the java sample rate listener object (a global reference).
+     */
+    jobject sampleRateListener = nullptr;
+
+    /**
+     * Pointer to the java `onSampleRate` callback.
+     */
+    jmethodID sampleRateListener_onSampleRate = nullptr;
+
+    /**
+     * Pointer to the java handle of this client (a global reference).
+     */
+    jobject clientHandle = nullptr;
+
+    /**
+     * Pointer to the java `onFreewheel` method of the client handle.
+     */
+    jmethodID clientHandle_onFreewheel = nullptr;
+
+    /**
+     * Pointer to the java freewheel listener object (a global reference).
+     */
+    jobject freewheelListener = nullptr;
+
+    /**
+     * Pointer to the java `onFreewheel` callback.
+     */
+    jmethodID freewheelListener_onFreewheel = nullptr;
+
+    /**
+     * Pointer to the java port registry (a global reference), kept current by the
+     * port registration, connect and rename callbacks.
+     */
+    jobject portRegistry = nullptr;
+
+    /**
+     * Pointers to the java callbacks of the port registry.
+     */
+    jmethodID portRegistry_onPortRegistration = nullptr;
+    jmethodID portRegistry_onPortConnect = nullptr;
+    jmethodID portRegistry_onPortRename = nullptr;
+
+    /**
+     * Pointer to the java table of canonical port handles (a global reference).
+     */
+    jobject portTable = nullptr;
+
+    /**
+     * Pointers to the java callbacks of the port table.
+     */
+    jmethodID portTable_onPortRenamed = nullptr;
+    jmethodID portTable_onPortUnregistered = nullptr;
+
+    /**
+     * Pointer to the java timebase adapter (a global reference), set while this client is timebase master.
+     */
+    jobject timebaseAdapter = nullptr;
+
+    /**
+     * Pointer to the java `onTimebase` method of the timebase adapter.
+     */
+    jmethodID timebaseAdapter_onTimebase = nullptr;
+
+    /**
+     * The address of the direct buffer of the timebase adapter that mirrors `jack_position_t`.
+     */
+    jack_position_t *timebasePosition = nullptr;
+
+    /**
+     * Pointer to the java-Environment belonging
+     * to the JACK process thread of this client.
+     * It is cached in the first call of `getJNIEnvForCallbackThread`.
+     */
+    JNIEnv *callbackJNIEnv = nullptr;
+
+    /**
+     * Identity of the thread executing the JACK process callbacks of this client.
+     * It is determined in the first call of `getJNIEnvForCallbackThread`.
+     */
+    std::thread::id callbackThreadId;
+
+    /**
+     * The number of xruns reported by JACK since the client was opened (or the counters were reset).
+     */
+    std::atomic<uint64_t> xrunCount{0};
+
+    /**
+     * True while the server is in freewheel mode; the instrumentation is suspended meanwhile.
+     */
+    std::atomic<bool> freewheeling{false};
+
+    /**
+     * How long the Java process callback took, recorded in every cycle.
+     */
+    ProcessTimeHistogram processTimes;
+
+    /**
+     * Get the JNI-Environment of the current (JACK callback) thread,
+     * attaching the thread to the JVM on first use.
+     *
+     * @return the JNI-Environment pointer for the current thread or `nullptr` if attaching failed.
+     */
+    JNIEnv *getJNIEnvForCallbackThread();
+
+    /**
+     * Detach the current (JACK callback) thread from the JVM and forget the cached JNI-Environment.
+     */
+    void detachCallbackThread();
+
+    /**
+     * Release the global references held by this context.
+     * @param env pointer to the JNI environment (may be `nullptr`, then the references are just forgotten).
+     */
+    void releaseReferences(JNIEnv *env);
+
+    /**
+     * Find the context of the given client, creating it if it does not yet exist.
+     *
+     * Note: this function takes a lock, it must not be called from a real-time thread.
+     * @param client a valid JACK client.
+     * @return the context of the given client.
+     */
+    static ClientContext *of(jack_client_t *client);
+
+    /**
+     * Find the context of the given client, without creating one.
+     *
+     * Note: this function takes a lock, it must not be called from a real-time thread.
+     * @param client a JACK client.
+     * @return the context of the given client, or `nullptr` if it has none.
+     */
+    static ClientContext *find(jack_client_t *client);
+
+    /**
+     * Destroy the context of the given client (if there is one).
+     *
+     * This function shall only be called after the client has been closed,
+     * when no more callbacks can arrive.
+     * @param env pointer to the JNI environment (may be `nullptr`).
+     * @param client the JACK client whose context shall be destroyed.
+     */
+    static void dispose(JNIEnv *env, jack_client_t *client);
+};
@@ -23,8 +23,21 @@
  */
 #include <jni.h>
 #include <thread>
+#include <cstring>
+#include <algorithm>
+#include <vector>
+#include <chrono>
 #include <jack/jack.h>
+#include <jack/statistics.h>
+#include <jack/transport.h>
+#include <jack/thread.h>
+#include <pthread.h>
+#include <sched.h>
+#include <cerrno>
 #include "Jack.h"
+#include "ClientContext.h"
+#include "WorkerThread.h"
+#include "LogRing.h"
 
 
 #ifndef JNI_VERSION_1_2
@@ -171,12 +184,70 @@ JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_clientNameSizeN
 /**
  * Disconnects an external client from a JACK server.
  *
+ * Once the client is closed, no more callbacks can arrive. So it is safe
+ * to release the listeners held in the client's context.
+ *
  * @return 0 on success, otherwise a non-zero error code
  */
 JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_clientCloseN
-        (JNIEnv *, jclass, jlong clientHandle) {
+        (JNIEnv *env, jclass, jlong clientHandle) {
     SPDLOG_TRACE("Java_jackAudio4Java_Jack_clientCloseN");
-    return jack_client_close((jack_client_t *) clientHandle);
+    int result = jack_client_close((jack_client_t *) clientHandle);
+    ClientContext::dispose(env, (jack_client_t *) clientHandle);
+    return result;
+}
+
+/**
+ * Called by JACK (in its notification thread) whenever an xrun has occurred.
+ *
+ * @param arg the `ClientContext` of the client.
+ * @return always zero.
+ */
+int localXrunCallback(void *arg) {
+    auto context = static_cast<ClientContext *>(arg);
+    if (context && !context->freewheeling.load(memory_order_relaxed)) {
+        context->xrunCount.fetch_add(1, memory_order_relaxed);
+    }
+    return 0;
+}
+
+static JNIEnv *notificationThreadEnv(ClientContext *context);
+
+/**
+ * Called by JACK (in a non real-time thread) when the server starts or stops freewheeling.
+ *
+ * The freewheel state is recorded in the context, to suspend the instrumentation,
+ * and handed over to the java client handle and to the java freewheel listener (if there is one).
+ *
+ * @param starting non-zero if freewheel mode starts, zero if it stops.
+ * @param arg the `ClientContext` of the client.
+ */
+void localFreewheelCallback(int starting, void *arg) {
+    SPDLOG_TRACE("localFreewheelCallback");
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) return;
+    context->freewheeling.store(starting != 0, memory_order_relaxed);
+
+    bool hasHandle = context->clientHandle != nullptr && context->clientHandle_onFreewheel != nullptr;
+    bool hasListener = context->freewheelListener != nullptr && context->freewheelListener_onFreewheel != nullptr;
+    if (!hasHandle && !hasListener) return;
+    JNIEnv *env = notificationThreadEnv(context);
+    if (env == nullptr) return;
+    if (hasHandle) {
+        env->CallVoidMethod(context->clientHandle, context->clientHandle_onFreewheel, (jboolean) (starting != 0));
+        if (env->ExceptionCheck()) {
+            env->ExceptionDescribe();
+            env->ExceptionClear();
+        }
+    }
+    if (hasListener) {
+        env->CallVoidMethod(context->freewheelListener, context->freewheelListener_onFreewheel,
+                            (jboolean) (starting != 0));
+        if (env->ExceptionCheck()) {
+            env->ExceptionDescribe();
+            env->ExceptionClear();
+        }
+    }
 }
 
 /**
@@ -234,6 +305,13 @@ JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_clientOpenN
     // push the return status into the given container
     if (returnStatus) types::Int::setValue(env, (types::jIntObject) returnStatus, returnStatusN);
 
+    // count the xruns of this client from the very start, and know when the server is freewheeling.
+    if (clientHandle) {
+        auto context = ClientContext::of(clientHandle);
+        jack_set_xrun_callback(clientHandle, localXrunCallback, context);
+        jack_set_freewheel_callback(clientHandle, localFreewheelCallback, context);
+    }
+
     return (jlong) clientHandle;
 }
 
@@ -305,6 +383,7 @@ JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_portRegisterN
     return reinterpret_cast<jlong> (portHandle);
 }
 
+
 /**
  * Remove the port from the client, disconnecting any existing
  * connections.
@@ -324,81 +403,6 @@ JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_portUnregisterN
 }
 
 
-/**
- * Pointer to the java `onProcess` callback.
- * It is allocated in procedure
- * `Java_jackAudio4Java_Jack_registerProcessListenerN`.
- */
-static jmethodID processListener_onProcess = nullptr;
-
-/**
- * Pointer to the java `onShutdown` callback.
- * It is allocated in procedure
- * `Java_jackAudio4Java_Jack_registerProcessListenerN`.
- */
-static jmethodID shutdownListener_onShutdown = nullptr;
-/**
- * Pointer to the java process listener object.
- * It is allocated in procedure
- * `Java_jackAudio4Java_Jack_registerProcessListenerN`.
- */
-static jobject processListener = nullptr;
-
-/**
- * Pointer to the java shutdown listener object.
- * It is allocated in procedure
- * `Java_jackAudio4Java_Jack_registerProcessListenerN`.
- * @ToDo investigate whether we better pass this as last argument in jack_on_shutdown call. see also localShutdownCallback
- */
-static jobject shutdownListener = nullptr;
-/**
- * Pointer to the java virtual machine. It is allocated in procedure
- * `Java_jackAudio4Java_Jack_registerProcessListenerN`.
- */
-static JavaVM *jvm = nullptr;
-/**
- * Pointer to the java-Environment belonging
- * to the JACK callback thread.
- * It is cached in the first call of procedure
- * `getJNIEnvForThread`.
- */
-static JNIEnv *jackCallbackJNIEnv = nullptr;
-/**
- * Identity of the thread executing the JACK callbacks.
- * It is determined in the first call of procedure
- * `getJNIEnvForThread`.
- */
-static thread::id jackCallbackThreadId;
-
-/**
- * Attaching a thread to the Java virtual machine is very costly.
- *
- * Doing this in each audio cycle would cause XRuns even with 256 Frames/Period.
- * Therefore we cache the JNIEnv on the first invocation of localProcessCallback.
- *
- * @return the JNI-Environment pointer for the current thread.
- */
-JNIEnv *getJNIEnvForCallbackThread() {
-
-    if (this_thread::get_id() == jackCallbackThreadId) {
-        return jackCallbackJNIEnv;
-    }
-    SPDLOG_TRACE("getJNIEnvForCallbackThread: new thread.");
-    if (jvm == nullptr) {
-        SPDLOG_ERROR("jvm is NULL");
-        return nullptr;
-    }
-    JNIEnv *env;
-    jint success = jvm->AttachCurrentThread((void **) &env, NULL);
-    if (success != JNI_OK) {
-        SPDLOG_ERROR("Could not attach to the current thread");
-        return nullptr;
-    }
-    jackCallbackJNIEnv = env;
-    jackCallbackThreadId = this_thread::get_id();
-    return jackCallbackJNIEnv;
-}
-
 /**
  * The local process callback intercepts the callbacks from JACK
  * and maps these into the corresponding java calls.
@@ -406,28 +410,45 @@ JNIEnv *getJNIEnvForCallbackThread() {
  * The process callback for this JACK application is called in a
  * special realtime thread once for each audio cycle.
  * The native callback delegates to the "onProcess" method
- * defined in the java "ProcessListener" object.
+ * defined in the java "ProcessListener" object of the client.
  *
  * @param nframes number of frames to process
+ * @param arg the `ClientContext` of the client.
  * @return zero on success, non-zero on error
  */
-int localProcessCallback(jack_nframes_t nframes, void *) {
+int localProcessCallback(jack_nframes_t nframes, void *arg) {
+
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) {
+        // no context given...
+        return -1;
+    }
 
-    if (processListener == nullptr) {
+    if (context->processListener == nullptr) {
         // java callback routine not set...
         return -1;
     }
 
-    if (processListener_onProcess == nullptr) {
+    if (context->processListener_onProcess == nullptr) {
         // java callback routine not set...
         return -1;
     }
 
-    JNIEnv *env = getJNIEnvForCallbackThread();
+    JNIEnv *env = context->getJNIEnvForCallbackThread();
     jint result;
     if (env) {
-        // here we go... now we call the Java implementation of the ProcessCallback.
-        result = env->CallIntMethod(processListener, processListener_onProcess, nframes);
+        // here we go... now we call the Java adapter, which calls the Java implementation of the ProcessCallback.
+        jlong lastFrameTime = jack_last_frame_time(context->client);
+        if (context->freewheeling.load(memory_order_relaxed)) {
+            // no instrumentation while rendering faster than real-time.
+            return env->CallIntMethod(context->processListener, context->processListener_onProcess,
+                                      (jint) nframes, lastFrameTime);
+        }
+        auto start = chrono::steady_clock::now();
+        result = env->CallIntMethod(context->processListener, context->processListener_onProcess,
+                                    (jint) nframes, lastFrameTime);
+        auto duration = chrono::steady_clock::now() - start;
+        context->processTimes.record((uint64_t) chrono::duration_cast<chrono::nanoseconds>(duration).count());
     } else {
         result = -1;
         SPDLOG_ERROR("Could not attach to the current thread");
@@ -441,73 +462,403 @@ int localProcessCallback(jack_nframes_t nframes, void *) {
  * Tell the Jack server to call {@link ProcessListener#onProcess(int)}
  * whenever there is work be done.
  * <p>
+ * Each client has its own listener. Registering a new listener for a client
+ * replaces the listener previously registered for this very client only.
  * <p>
  * NOTE: this function cannot be called while the client is active
  * (after {@link #activate(ClientHandle)} has been called.)
  *
  * Class:     jackAudio4Java_Jack
  * Method:    registerProcessListenerN
- * Signature: (JLjackAudio4Java/types/ProcessListener;)I
+ * Signature: (JLjackAudio4Java/InternalProcessAdapter;)I
  *
  * @param client          an opaque handle representing this client.
- * @param newListener     the listener that will be called for each process cycle.
+ * @param newListener     the adapter (wrapping the java process listener) that will be called for each process cycle.
  * @return 0 on success, otherwise a non-zero error code.
  */
 JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerProcessListenerN
         (JNIEnv *env, jclass, jlong client, jobject newListener) {
     SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerProcessListenerN");
+    auto context = ClientContext::of(reinterpret_cast<jack_client_t *>(client));
+
     if (newListener == nullptr) {
         SPDLOG_WARN("process callbacks now switched off.");
-        processListener_onProcess = nullptr;
+        context->processListener_onProcess = nullptr;
         return -1;
     }
 
     // cache a pointer to the Java machine, for use in the "getJNIEnvForCallbackThread" routine.
-    env->GetJavaVM(&jvm);
+    env->GetJavaVM(&context->jvm);
 
     // pin the process Listener Object, so it will not be garbage collected.
-    processListener = env->NewGlobalRef(newListener);
+    jobject previousListener = context->processListener;
+    context->processListener = env->NewGlobalRef(newListener);
+    if (previousListener) env->DeleteGlobalRef(previousListener);
 
     // cache the method identifier, for use in the "localProcessCallback" routine.
-    jclass clazz = env->GetObjectClass(processListener);
-    processListener_onProcess = env->GetMethodID(clazz, "onProcess", "(I)I");
-    if (processListener_onProcess == nullptr) {
+    jclass clazz = env->GetObjectClass(context->processListener);
+    context->processListener_onProcess = env->GetMethodID(clazz, "onCycle", "(IJ)I");
+    if (context->processListener_onProcess == nullptr) {
         SPDLOG_ERROR("Could not register the Process Listener.");
         return -1;
     }
-    return jack_set_process_callback(reinterpret_cast<jack_client_t *>(client), localProcessCallback, nullptr);
+    return jack_set_process_callback(reinterpret_cast<jack_client_t *>(client), localProcessCallback, context);
+
+}
+
+/**
+ * The local process thread is started by JACK in the client's realtime thread.
+ *
+ * It attaches the thread to the JVM and then hands control to the
+ * "onProcessThread" method of the java "ProcessThreadListener" object, which loops in Java,
+ * calling `cycleWait` and `cycleSignal`. When the Java loop returns, the thread is detached again.
+ *
+ * @param arg the `ClientContext` of the client.
+ * @return always `nullptr`.
+ */
+void *localProcessThread(void *arg) {
+    SPDLOG_TRACE("localProcessThread");
+
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) {
+        SPDLOG_ERROR("client context not set...");
+        return nullptr;
+    }
+    if (context->processThreadListener == nullptr || context->processThreadListener_onProcessThread == nullptr) {
+        SPDLOG_ERROR("java process thread listener not set...");
+        return nullptr;
+    }
+
+    JNIEnv *env = context->getJNIEnvForCallbackThread();
+    if (env == nullptr) {
+        SPDLOG_ERROR("Could not attach to the current thread");
+        return nullptr;
+    }
+    // here we go... the Java loop only returns when the client shall stop processing.
+    env->CallVoidMethod(context->processThreadListener, context->processThreadListener_onProcessThread);
+    if (env->ExceptionCheck()) {
+        SPDLOG_ERROR("The process thread terminated with an exception.");
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+    context->detachCallbackThread();
+    return nullptr;
+}
+
+/**
+ * Tell the Jack server to run the java process thread listener in the client's real-time thread.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerProcessThreadN
+ * Signature: (JLjackAudio4Java/types/ProcessThreadListener;)I
+ *
+ * @param client          an opaque handle representing this client.
+ * @param newListener     the listener that runs the processing loop.
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerProcessThreadN
+        (JNIEnv *env, jclass, jlong client, jobject newListener) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerProcessThreadN");
+    if (newListener == nullptr) {
+        return -1;
+    }
+    auto context = ClientContext::of(reinterpret_cast<jack_client_t *>(client));
+
+    // cache a pointer to the Java machine, for use in the "getJNIEnvForCallbackThread" routine.
+    env->GetJavaVM(&context->jvm);
+
+    // pin the listener Object, so it will not be garbage collected.
+    jobject previousListener = context->processThreadListener;
+    context->processThreadListener = env->NewGlobalRef(newListener);
+    if (previousListener) env->DeleteGlobalRef(previousListener);
+
+    // cache the method identifier, for use in the "localProcessThread" routine.
+    jclass clazz = env->GetObjectClass(context->processThreadListener);
+    context->processThreadListener_onProcessThread = env->GetMethodID(clazz, "onProcessThread", "()V");
+    if (context->processThreadListener_onProcessThread == nullptr) {
+        SPDLOG_ERROR("Could not register the Process Thread Listener.");
+        return -1;
+    }
+    return jack_set_process_thread(reinterpret_cast<jack_client_t *>(client), localProcessThread, context);
+}
+
+// thread.h
+
+/**
+ * Pin the calling thread to one CPU.
+ *
+ * @param cpu the index of the CPU.
+ * @return 0 on success, an error code otherwise.
+ */
+static int pinCurrentThread(int cpu) {
+    if (cpu < 0 || cpu >= CPU_SETSIZE) return EINVAL;
+    cpu_set_t cpus;
+    CPU_ZERO(&cpus);
+    CPU_SET(cpu, &cpus);
+    return pthread_setaffinity_np(pthread_self(), sizeof(cpu_set_t), &cpus);
+}
+
+/**
+ * The start routine of the threads created by `clientCreateThreadN`.
+ *
+ * The thread pins itself to its CPU (if one is given), attaches to the JVM once and
+ * hands control to the java `Runnable`. When `run()` returns, the thread is detached again.
+ *
+ * @param arg the `WorkerThread` describing the thread.
+ * @return always `nullptr`.
+ */
+static void *localWorkerThread(void *arg) {
+    SPDLOG_TRACE("localWorkerThread");
+    auto worker = static_cast<WorkerThread *>(arg);
+
+    if (worker->cpu >= 0 && pinCurrentThread(worker->cpu) != 0) {
+        SPDLOG_ERROR("Could not pin the worker thread to cpu {}", worker->cpu);
+    }
+
+    JNIEnv *env;
+    JavaVMAttachArgs attachArgs{JNI_VERSION_1_8, const_cast<char *>(worker->name.c_str()), nullptr};
+    if (worker->jvm->AttachCurrentThreadAsDaemon((void **) &env, &attachArgs) != JNI_OK) {
+        SPDLOG_ERROR("Could not attach to the current thread");
+        return nullptr;
+    }
+    // here we go... the Java method may loop for as long as the worker is needed.
+    env->CallVoidMethod(worker->runnable, worker->runnable_run);
+    if (env->ExceptionCheck()) {
+        SPDLOG_ERROR("The worker thread terminated with an exception.");
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+    worker->jvm->DetachCurrentThread();
+    return nullptr;
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    clientRealTimePriorityN
+ * Signature: (J)I
+ *
+ * @return the priority of the client's process thread, or -1 if JACK is not running with realtime scheduling.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_clientRealTimePriorityN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_clientRealTimePriorityN");
+    return jack_client_real_time_priority(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    clientMaxRealTimePriorityN
+ * Signature: (J)I
+ *
+ * @return the maximum priority a realtime client thread may use, or -1 if JACK is not running with realtime scheduling.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_clientMaxRealTimePriorityN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_clientMaxRealTimePriorityN");
+    return jack_client_max_real_time_priority(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    isRealtimeN
+ * Signature: (J)Z
+ *
+ * @return true if JACK is running with realtime scheduling.
+ */
+JNIEXPORT jboolean JNICALL Java_jackAudio4Java_Jack_isRealtimeN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_isRealtimeN");
+    return (jboolean) (jack_is_realtime(reinterpret_cast<jack_client_t *>(client)) != 0);
+}
+
+/**
+ * Create a thread for a java `Runnable`, with the same scheduling JACK uses for its own threads.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    clientCreateThreadN
+ * Signature: (JLjava/lang/String;IZILjava/lang/Runnable;)J
+ *
+ * @param client pointer to JACK client structure.
+ * @param name the name of the thread, as seen by the JVM.
+ * @param priority the realtime priority, or a negative value for the priority of the client's process thread.
+ * @param realtime true if the thread shall use realtime scheduling (ignored for a negative priority
+ *                 when the server does not run with realtime scheduling).
+ * @param cpu the CPU the thread shall be pinned to, or a negative value if it may run on any CPU.
+ * @param runnable the java `Runnable`.
+ * @return a pointer to the `WorkerThread`, or 0 if the thread could not be created.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_clientCreateThreadN
+        (JNIEnv *env, jclass, jlong client, jstring name, jint priority, jboolean realtime, jint cpu,
+         jobject runnable) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_clientCreateThreadN");
+    if (runnable == nullptr) return 0;
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+
+    auto worker = new WorkerThread();
+    env->GetJavaVM(&worker->jvm);
+    worker->runnable = env->NewGlobalRef(runnable);
+    jclass clazz = env->GetObjectClass(runnable);
+    worker->runnable_run = env->GetMethodID(clazz, "run", "()V");
+    worker->cpu = (cpu < 0) ? -1 : cpu;
+    if (name != nullptr) {
+        const char *nameN = env->GetStringUTFChars(name, nullptr);
+        if (nameN != nullptr) {
+            worker->name = nameN;
+            env->ReleaseStringUTFChars(name, nameN);
+        }
+    }
+    if (worker->runnable_run == nullptr) {
+        SPDLOG_ERROR("Could not find the run method of the Runnable.");
+        env->DeleteGlobalRef(worker->runnable);
+        delete worker;
+        return 0;
+    }
+
+    int priorityN = priority;
+    int realtimeN = realtime ? 1 : 0;
+    if (priority < 0) {
+        // a server without realtime scheduling has no priority to inherit (it reports -1),
+        // which JACK would reject; the thread then gets the normal scheduling of the process thread.
+        priorityN = jack_client_real_time_priority(clientN);
+        if (priorityN < 0 || jack_is_realtime(clientN) == 0) {
+            priorityN = 0;
+            realtimeN = 0;
+        }
+    }
+    int error = jack_client_create_thread(clientN, &worker->thread, priorityN, realtimeN,
+                                          localWorkerThread, worker);
+    if (error != 0) {
+        SPDLOG_ERROR("Could not create the worker thread, error {}", error);
+        env->DeleteGlobalRef(worker->runnable);
+        delete worker;
+        return 0;
+    }
+    return reinterpret_cast<jlong>(worker);
+}
+
+/**
+ * Wait for a worker thread to finish and release it.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    threadJoinN
+ * Signature: (J)I
+ *
+ * @param thread a pointer to the `WorkerThread`.
+ * @return 0 on success, an error code otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_threadJoinN
+        (JNIEnv *env, jclass, jlong thread) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_threadJoinN");
+    auto worker = reinterpret_cast<WorkerThread *>(thread);
+    if (worker == nullptr) return -1;
+    int error = pthread_join(worker->thread, nullptr);
+    env->DeleteGlobalRef(worker->runnable);
+    delete worker;
+    return error;
+}
+
+/**
+ * Pin the calling thread to one CPU.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    setCurrentThreadAffinityN
+ * Signature: (I)I
+ *
+ * @param cpu the index of the CPU.
+ * @return 0 on success, an error code otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_setCurrentThreadAffinityN
+        (JNIEnv *, jclass, jint cpu) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_setCurrentThreadAffinityN");
+    return pinCurrentThread(cpu);
+}
+
+/**
+ * Wait until this client shall process the next cycle.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    cycleWaitN
+ * Signature: (J)I
+ *
+ * @return the number of frames to process.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_cycleWaitN
+        (JNIEnv *, jclass, jlong client) {
+    return jack_cycle_wait(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Get the frame time at the start of the current cycle.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    lastFrameTimeN
+ * Signature: (J)J
+ *
+ * @return the value of `jack_last_frame_time`.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_lastFrameTimeN
+        (JNIEnv *, jclass, jlong client) {
+    return jack_last_frame_time(reinterpret_cast<jack_client_t *>(client));
+}
 
+/**
+ * Signal the next clients that this client has finished the current cycle.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    cycleSignalN
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_jackAudio4Java_Jack_cycleSignalN
+        (JNIEnv *, jclass, jlong client, jint status) {
+    jack_cycle_signal(reinterpret_cast<jack_client_t *>(client), status);
 }
 
 /**
  * The local shutdown callback intercepts the callbacks from JACK
  * and maps these into the corresponding java calls.
-  * @ToDo investigate whether we better get shutdownListener from the void argument.
+ *
+ * @param arg the `ClientContext` of the client.
  */
-void localShutdownCallback(void *) {
+void localShutdownCallback(void *arg) {
     SPDLOG_TRACE("localShutdownCallback");
 
-    if (shutdownListener == nullptr) {
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) {
+        SPDLOG_ERROR("client context not set...");
+        return;
+    }
+    if (context->shutdownListener == nullptr) {
         SPDLOG_ERROR("java shutdown-listener object not set...");
         return;
     }
-    if (shutdownListener_onShutdown == nullptr) {
+    if (context->shutdownListener_onShutdown == nullptr) {
         SPDLOG_ERROR("java onShutdown callback routine not set...");
         return;
     }
 
-    if (jvm == nullptr) {
+    if (context->jvm == nullptr) {
         SPDLOG_ERROR("jvm is NULL");
         return;
     }
+    // the thread may already be attached (for example the process thread), then it stays attached.
     JNIEnv *env;
-    jint success = jvm->AttachCurrentThread((void **) &env, NULL);
-    if (success != JNI_OK) {
-        SPDLOG_ERROR("Could not attach to the current thread");
-        return;
+    bool attachedHere = false;
+    if (context->jvm->GetEnv((void **) &env, JNI_VERSION_1_8) == JNI_EDETACHED) {
+        jint success = context->jvm->AttachCurrentThread((void **) &env, nullptr);
+        if (success != JNI_OK) {
+            SPDLOG_ERROR("Could not attach to the current thread");
+            return;
+        }
+        attachedHere = true;
     }
     // Everything is fine. At last, let's call the Java "onShutdown" method.
-    env->CallVoidMethod(shutdownListener, shutdownListener_onShutdown);
+    env->CallVoidMethod(context->shutdownListener, context->shutdownListener_onShutdown);
+    if (env->ExceptionCheck()) {
+        SPDLOG_ERROR("The shutdown listener terminated with an exception.");
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+    if (attachedHere) context->jvm->DetachCurrentThread();
 }
 
 // jack.h - line 316
@@ -554,22 +905,26 @@ JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerShutdownListenerN
         return -1;
     }
 
+    auto context = ClientContext::of(reinterpret_cast<jack_client_t *>(client));
+
     // cache a pointer to the Java machine, for use in the `localShutdownCallback` routine.
-    env->GetJavaVM(&jvm);
+    env->GetJavaVM(&context->jvm);
 
-    // pin and than cache the process Listener Object, so it will not be garbage collected.
-    shutdownListener = env->NewGlobalRef(newListener);
+    // pin and than cache the shutdown Listener Object, so it will not be garbage collected.
+    jobject previousListener = context->shutdownListener;
+    context->shutdownListener = env->NewGlobalRef(newListener);
+    if (previousListener) env->DeleteGlobalRef(previousListener);
 
     // cache the method identifier, for use in the `localShutdownCallback` routine.
-    jclass clazz = env->GetObjectClass(shutdownListener);
-    shutdownListener_onShutdown = env->GetMethodID(clazz, "onShutdown", "()V");
+    jclass clazz = env->GetObjectClass(context->shutdownListener);
+    context->shutdownListener_onShutdown = env->GetMethodID(clazz, "onShutdown", "()V");
 
-    if (shutdownListener_onShutdown == nullptr) {
+    if (context->shutdownListener_onShutdown == nullptr) {
         SPDLOG_ERROR("Could not register the Shutdown Listener.");
         return -1;
     }
     // install the local callback routine.
-    jack_on_shutdown(reinterpret_cast<jack_client_t *>(client), localShutdownCallback, nullptr);
+    jack_on_shutdown(reinterpret_cast<jack_client_t *>(client), localShutdownCallback, context);
     SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerShutdownListenerN - done");
 
     return 0;
@@ -579,74 +934,695 @@ JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerShutdownListenerN
 
 
 
-// jack.h - line 668
-
 /**
- * Get the sample rate of the jack system, as set by the user when
- * jackd was started.
+ * Get the JNI environment of a JACK notification thread.
  *
- * @return the sample rate of the jack system in samples per second.
+ * Notifications arrive in a thread created by JACK, which is attached to the JVM on first use
+ * (attaching an already attached thread is cheap).
  *
- * Class:     jackAudio4Java_Jack
- * Method:    getSampleRateN
- * Signature: (J)I
+ * @param context the `ClientContext` of the client.
+ * @return the JNI environment, or `nullptr` if the thread could not be attached.
  */
-JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_getSampleRateN
-        (JNIEnv *, jclass, jlong client) {
-    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getSampleRateN");
-    return jack_get_sample_rate(reinterpret_cast<jack_client_t *>(client));
+static JNIEnv *notificationThreadEnv(ClientContext *context) {
+    if (context->jvm == nullptr) {
+        SPDLOG_ERROR("jvm is NULL");
+        return nullptr;
+    }
+    JNIEnv *env;
+    jint success = context->jvm->AttachCurrentThread((void **) &env, nullptr);
+    if (success != JNI_OK) {
+        SPDLOG_ERROR("Could not attach to the current thread");
+        return nullptr;
+    }
+    return env;
 }
 
 /**
- * Tell the Jack server that the program is ready to start processing.
- *
- * @return 0 on success, otherwise a non-zero error code
+ * Hand a notification (buffer size or sample rate change) over to a java listener.
  *
- * Class:     jackAudio4Java_Jack
- * Method:    activateN
- * Signature: (J)I
+ * @param context  the `ClientContext` of the client.
+ * @param listener the java listener object (may be `nullptr`).
+ * @param method   the method of the listener to be called (may be `nullptr`).
+ * @param value    the new value.
+ * @return the result of the java method, or -1 if it could not be called.
  */
-JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_activateN
-        (JNIEnv *, jclass, jlong client) {
-    SPDLOG_TRACE("Java_jackAudio4Java_Jack_activateN");
-    return jack_activate(reinterpret_cast<jack_client_t *>(client));
+static int notifyListener(ClientContext *context, jobject listener, jmethodID method, jack_nframes_t value) {
+    if (listener == nullptr || method == nullptr) {
+        SPDLOG_ERROR("java listener not set...");
+        return -1;
+    }
+    JNIEnv *env = notificationThreadEnv(context);
+    if (env == nullptr) return -1;
+    jint result = env->CallIntMethod(listener, method, (jint) value);
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+        return -1;
+    }
+    return result;
 }
 
 /**
- * Tell the Jack server to remove this client from the process
- * graph.  Also, disconnect all ports belonging to it, since inactive
- * clients have no port connections.
+ * Called by JACK when the number of frames per cycle is about to change.
  *
- * @return 0 on success, otherwise a non-zero error code
- *
- * Class:     jackAudio4Java_Jack
- * Method:    deactivateN
- * Signature: (J)I
+ * @param nframes the new number of frames per cycle.
+ * @param arg the `ClientContext` of the client.
+ * @return the result of the java listener.
  */
-JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_deactivateN
-        (JNIEnv *, jclass, jlong client) {
-    SPDLOG_TRACE("Java_jackAudio4Java_Jack_deactivateN");
-    return jack_deactivate(reinterpret_cast<jack_client_t *>(client));
+int localBufferSizeCallback(jack_nframes_t nframes, void *arg) {
+    SPDLOG_TRACE("localBufferSizeCallback");
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) {
+        SPDLOG_ERROR("client context not set...");
+        return -1;
+    }
+    return notifyListener(context, context->bufferSizeListener, context->bufferSizeListener_onBufferSize, nframes);
 }
 
 /**
- * Count the number of ports in the given array.
- * @param ports a NULL-terminated array of port names.
- * @return the number of port names found in the given array.
+ * Called by JACK when the sample rate of the system changes.
+ *
+ * @param sampleRate the new sample rate.
+ * @param arg the `ClientContext` of the client.
+ * @return the result of the java listener.
  */
-int portCount(const char **ports) {
-    if (!ports) return 0;
-    int i = 0;
-    while (ports[i] != nullptr) {
-        i++;
+int localSampleRateCallback(jack_nframes_t sampleRate, void *arg) {
+    SPDLOG_TRACE("localSampleRateCallback");
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) {
+        SPDLOG_ERROR("client context not set...");
+        return -1;
     }
-    return i;
+    return notifyListener(context, context->sampleRateListener, context->sampleRateListener_onSampleRate, sampleRate);
 }
 
 /**
- * Look up ports - search ports.
+ * Pin a java listener and look up its callback method.
  *
- * @param client          A valid client handle.
+ * @param env pointer to the Java environment.
+ * @param listener receives the global reference to the new listener (a previous listener is released).
+ * @param method receives the identifier of the callback method.
+ * @param newListener the java listener.
+ * @param name the name of the callback method, its signature must be `(I)I`.
+ * @return 0 when successful, -1 if the listener does not have the callback method.
+ */
+static int pinListener(JNIEnv *env, jobject &listener, jmethodID &method, jobject newListener, const char *name) {
+    jobject previousListener = listener;
+    listener = env->NewGlobalRef(newListener);
+    if (previousListener) env->DeleteGlobalRef(previousListener);
+
+    jclass clazz = env->GetObjectClass(listener);
+    method = env->GetMethodID(clazz, name, "(I)I");
+    return (method == nullptr) ? -1 : 0;
+}
+
+// jack.h - line 470
+/**
+ * Tell JACK to call the java buffer size listener whenever the size of the buffer
+ * that will be passed to the process callback is about to change.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerBufferSizeListenerN
+ * Signature: (JLjackAudio4Java/types/BufferSizeListener;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param newListener a java object implementing `jackAudio4Java.types.BufferSizeListener`.
+ * @return 0 when successful, a non zero value otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerBufferSizeListenerN
+        (JNIEnv *env, jclass, jlong client, jobject newListener) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerBufferSizeListenerN");
+    if (newListener == nullptr) {
+        return -1;
+    }
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::of(clientN);
+    env->GetJavaVM(&context->jvm);
+    if (pinListener(env, context->bufferSizeListener, context->bufferSizeListener_onBufferSize,
+                    newListener, "onBufferSize") != 0) {
+        SPDLOG_ERROR("Could not register the Buffer Size Listener.");
+        return -1;
+    }
+    return jack_set_buffer_size_callback(clientN, localBufferSizeCallback, context);
+}
+
+// jack.h - line 482
+/**
+ * Tell JACK to call the java sample rate listener whenever the sample rate of the system changes.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerSampleRateListenerN
+ * Signature: (JLjackAudio4Java/types/SampleRateListener;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param newListener a java object implementing `jackAudio4Java.types.SampleRateListener`.
+ * @return 0 when successful, a non zero value otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerSampleRateListenerN
+        (JNIEnv *env, jclass, jlong client, jobject newListener) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerSampleRateListenerN");
+    if (newListener == nullptr) {
+        return -1;
+    }
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::of(clientN);
+    env->GetJavaVM(&context->jvm);
+    if (pinListener(env, context->sampleRateListener, context->sampleRateListener_onSampleRate,
+                    newListener, "onSampleRate") != 0) {
+        SPDLOG_ERROR("Could not register the Sample Rate Listener.");
+        return -1;
+    }
+    return jack_set_sample_rate_callback(clientN, localSampleRateCallback, context);
+}
+
+/**
+ * Tell JACK to call the java freewheel listener whenever the server starts or stops freewheeling.
+ *
+ * The native freewheel callback is installed when the client is opened, so the listener
+ * can be registered (or replaced) at any time.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerFreewheelListenerN
+ * Signature: (JLjackAudio4Java/types/FreewheelListener;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param newListener a java object implementing `jackAudio4Java.types.FreewheelListener`.
+ * @return 0 when successful, a non zero value otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerFreewheelListenerN
+        (JNIEnv *env, jclass, jlong client, jobject newListener) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerFreewheelListenerN");
+    if (newListener == nullptr) {
+        return -1;
+    }
+    auto context = ClientContext::of(reinterpret_cast<jack_client_t *>(client));
+    env->GetJavaVM(&context->jvm);
+
+    jclass clazz = env->GetObjectClass(newListener);
+    jmethodID onFreewheel = env->GetMethodID(clazz, "onFreewheel", "(Z)V");
+    if (onFreewheel == nullptr) {
+        SPDLOG_ERROR("Could not register the Freewheel Listener.");
+        return -1;
+    }
+    jobject previousListener = context->freewheelListener;
+    context->freewheelListener_onFreewheel = onFreewheel;
+    context->freewheelListener = env->NewGlobalRef(newListener);
+    if (previousListener) env->DeleteGlobalRef(previousListener);
+    return 0;
+}
+
+/**
+ * Start or stop JACK's "freewheel" mode.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    setFreewheelN
+ * Signature: (JZ)I
+ *
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_setFreewheelN
+        (JNIEnv *, jclass, jlong client, jboolean onoff) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_setFreewheelN");
+    return jack_set_freewheel(reinterpret_cast<jack_client_t *>(client), onoff ? 1 : 0);
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    isFreewheelingN
+ * Signature: (J)Z
+ *
+ * @return true if the freewheel callback has reported that the server is freewheeling.
+ */
+JNIEXPORT jboolean JNICALL Java_jackAudio4Java_Jack_isFreewheelingN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_isFreewheelingN");
+    auto context = ClientContext::find(reinterpret_cast<jack_client_t *>(client));
+    if (context == nullptr) return JNI_FALSE;
+    return (jboolean) context->freewheeling.load(memory_order_relaxed);
+}
+
+/**
+ * Get the current CPU load estimated by JACK.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getCpuLoadN
+ * Signature: (J)F
+ *
+ * @return the DSP load in percent.
+ */
+JNIEXPORT jfloat JNICALL Java_jackAudio4Java_Jack_getCpuLoadN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getCpuLoadN");
+    return jack_cpu_load(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Get the number of xruns counted for this client.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getXrunCountN
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_getXrunCountN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getXrunCountN");
+    auto context = ClientContext::find(reinterpret_cast<jack_client_t *>(client));
+    if (context == nullptr) return 0;
+    return (jlong) context->xrunCount.load(memory_order_relaxed);
+}
+
+/**
+ * Get the delay in microseconds that caused the last xrun.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getXrunDelayedUsecsN
+ * Signature: (J)F
+ */
+JNIEXPORT jfloat JNICALL Java_jackAudio4Java_Jack_getXrunDelayedUsecsN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getXrunDelayedUsecsN");
+    return jack_get_xrun_delayed_usecs(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Get the largest delay in microseconds observed by JACK.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getMaxDelayedUsecsN
+ * Signature: (J)F
+ */
+JNIEXPORT jfloat JNICALL Java_jackAudio4Java_Jack_getMaxDelayedUsecsN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getMaxDelayedUsecsN");
+    return jack_get_max_delayed_usecs(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Reset the xrun counter, the process time histogram and the maximum delay of this client.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    resetInstrumentationN
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jackAudio4Java_Jack_resetInstrumentationN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_resetInstrumentationN");
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::find(clientN);
+    if (context != nullptr) {
+        context->xrunCount.store(0, memory_order_relaxed);
+        context->processTimes.reset();
+    }
+    jack_reset_max_delayed_usecs(clientN);
+}
+
+/**
+ * Copy the process time histogram of this client.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getProcessTimesN
+ * Signature: (J[J)I
+ *
+ * @param target receives the bucket counts, followed by the maximum and the total duration.
+ * @return 0 on success, -1 if the target array is too small.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_getProcessTimesN
+        (JNIEnv *env, jclass, jlong client, jlongArray target) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getProcessTimesN");
+    if (target == nullptr) return -1;
+    if (env->GetArrayLength(target) < ProcessTimeHistogram::VALUES) return -1;
+    jlong values[ProcessTimeHistogram::VALUES] = {0};
+    auto context = ClientContext::find(reinterpret_cast<jack_client_t *>(client));
+    if (context != nullptr) context->processTimes.copyTo(values);
+    env->SetLongArrayRegion(target, 0, ProcessTimeHistogram::VALUES, values);
+    return 0;
+}
+
+/**
+ * Get the timing of the current cycle. Shall only be called from the process thread.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getCycleTimesN
+ * Signature: (J[J)I
+ *
+ * @param target receives the frame count at the start of the cycle, the microseconds at the
+ * start of the cycle, the estimated microseconds at the start of the next cycle and the
+ * bits of the float giving the estimated period in microseconds.
+ * @return zero on success, non-zero on error.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_getCycleTimesN
+        (JNIEnv *env, jclass, jlong client, jlongArray target) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getCycleTimesN");
+    if (target == nullptr || env->GetArrayLength(target) < 4) return -1;
+    jack_nframes_t currentFrames;
+    jack_time_t currentUsecs;
+    jack_time_t nextUsecs;
+    float periodUsecs;
+    int result = jack_get_cycle_times(reinterpret_cast<jack_client_t *>(client),
+                                      &currentFrames, &currentUsecs, &nextUsecs, &periodUsecs);
+    if (result != 0) return result;
+    jint periodBits;
+    memcpy(&periodBits, &periodUsecs, sizeof(periodBits));
+    jlong values[4] = {(jlong) currentFrames, (jlong) currentUsecs, (jlong) nextUsecs, (jlong) periodBits};
+    env->SetLongArrayRegion(target, 0, 4, values);
+    return 0;
+}
+
+// jack.h - line 572
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    frameTimeN
+ * Signature: (J)J
+ *
+ * @return the value of `jack_frame_time`.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_frameTimeN
+        (JNIEnv *, jclass, jlong client) {
+    return jack_frame_time(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    framesSinceCycleStartN
+ * Signature: (J)I
+ *
+ * @return the value of `jack_frames_since_cycle_start`.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_framesSinceCycleStartN
+        (JNIEnv *, jclass, jlong client) {
+    return jack_frames_since_cycle_start(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    framesToTimeN
+ * Signature: (JJ)J
+ *
+ * @return the value of `jack_frames_to_time`.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_framesToTimeN
+        (JNIEnv *, jclass, jlong client, jlong frames) {
+    return jack_frames_to_time(reinterpret_cast<jack_client_t *>(client), (jack_nframes_t) frames);
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    timeToFramesN
+ * Signature: (JJ)J
+ *
+ * @return the value of `jack_time_to_frames`.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_timeToFramesN
+        (JNIEnv *, jclass, jlong client, jlong usecs) {
+    return jack_time_to_frames(reinterpret_cast<jack_client_t *>(client), (jack_time_t) usecs);
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    getTimeN
+ * Signature: ()J
+ *
+ * @return the value of `jack_get_time`.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_getTimeN
+        (JNIEnv *, jclass) {
+    return jack_get_time();
+}
+
+// transport.h
+
+static_assert(sizeof(jack_position_t) == 136,
+              "jack_position_t does not match the layout assumed by jackAudio4Java.types.TransportPosition");
+
+/**
+ * Get the `jack_position_t` mirrored by a java direct buffer.
+ *
+ * @param env pointer to the Java environment.
+ * @param buffer a direct buffer (may be `nullptr`).
+ * @return the address of the buffer, or `nullptr` if the buffer is null or too small.
+ */
+static jack_position_t *positionOf(JNIEnv *env, jobject buffer) {
+    if (buffer == nullptr) return nullptr;
+    if (env->GetDirectBufferCapacity(buffer) < (jlong) sizeof(jack_position_t)) return nullptr;
+    return static_cast<jack_position_t *>(env->GetDirectBufferAddress(buffer));
+}
+
+/**
+ * Query the current transport state and position.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    transportQueryN
+ * Signature: (JLjava/nio/ByteBuffer;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param position a direct buffer that receives the `jack_position_t`, or `nullptr`.
+ * @return the `jack_transport_state_t`.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_transportQueryN
+        (JNIEnv *env, jclass, jlong client, jobject position) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_transportQueryN");
+    return jack_transport_query(reinterpret_cast<jack_client_t *>(client), positionOf(env, position));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    getCurrentTransportFrameN
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_getCurrentTransportFrameN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getCurrentTransportFrameN");
+    return jack_get_current_transport_frame(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    transportStartN
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jackAudio4Java_Jack_transportStartN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_transportStartN");
+    jack_transport_start(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    transportStopN
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jackAudio4Java_Jack_transportStopN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_transportStopN");
+    jack_transport_stop(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    transportLocateN
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_transportLocateN
+        (JNIEnv *, jclass, jlong client, jlong frame) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_transportLocateN");
+    return jack_transport_locate(reinterpret_cast<jack_client_t *>(client), (jack_nframes_t) frame);
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    transportRepositionN
+ * Signature: (JLjava/nio/ByteBuffer;)I
+ *
+ * @param position a direct buffer holding the requested `jack_position_t`.
+ * @return 0 if the request is valid, non-zero otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_transportRepositionN
+        (JNIEnv *env, jclass, jlong client, jobject position) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_transportRepositionN");
+    jack_position_t *positionN = positionOf(env, position);
+    if (positionN == nullptr) return -1;
+    return jack_transport_reposition(reinterpret_cast<jack_client_t *>(client), positionN);
+}
+
+/**
+ * The timebase callback of the timebase master, called in the process thread after the
+ * process callbacks of all clients.
+ *
+ * The position is copied into the direct buffer of the java adapter, the adapter is called
+ * and the (extended) position is copied back. Nothing is allocated.
+ *
+ * @param state the current transport state.
+ * @param nframes the number of frames in the current period.
+ * @param pos the position to be extended.
+ * @param newPos non-zero for a newly requested position.
+ * @param arg the `ClientContext` of the client.
+ */
+void localTimebaseCallback(jack_transport_state_t state, jack_nframes_t nframes,
+                           jack_position_t *pos, int newPos, void *arg) {
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) {
+        // no context given...
+        return;
+    }
+    if (context->timebaseAdapter == nullptr
+        || context->timebaseAdapter_onTimebase == nullptr
+        || context->timebasePosition == nullptr) {
+        // java callback routine not set...
+        return;
+    }
+    JNIEnv *env = context->getJNIEnvForCallbackThread();
+    if (env == nullptr) {
+        SPDLOG_ERROR("Could not attach to the current thread");
+        return;
+    }
+    memcpy(context->timebasePosition, pos, sizeof(jack_position_t));
+    env->CallVoidMethod(context->timebaseAdapter, context->timebaseAdapter_onTimebase,
+                        (jint) state, (jint) nframes, (jboolean) (newPos != 0));
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+        return;
+    }
+    memcpy(pos, context->timebasePosition, sizeof(jack_position_t));
+}
+
+/**
+ * Register as timebase master.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    setTimebaseListenerN
+ * Signature: (JZLjackAudio4Java/InternalTimebaseAdapter;Ljava/nio/ByteBuffer;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param conditional true if the registration shall fail when there already is a timebase master.
+ * @param adapter the java timebase adapter.
+ * @param position the direct buffer of the adapter, mirroring `jack_position_t`.
+ * @return 0 on success, EBUSY if a conditional request fails, another non-zero value on error.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_setTimebaseListenerN
+        (JNIEnv *env, jclass, jlong client, jboolean conditional, jobject adapter, jobject position) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_setTimebaseListenerN");
+    if (adapter == nullptr) return -1;
+    jack_position_t *positionN = positionOf(env, position);
+    if (positionN == nullptr) return -1;
+    jclass clazz = env->GetObjectClass(adapter);
+    jmethodID onTimebase = env->GetMethodID(clazz, "onTimebase", "(IIZ)V");
+    if (onTimebase == nullptr) {
+        SPDLOG_ERROR("Could not register the Timebase Listener.");
+        return -1;
+    }
+
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::of(clientN);
+    env->GetJavaVM(&context->jvm);
+    // stop the callback from using the previous adapter while it is being replaced.
+    jack_release_timebase(clientN);
+    jobject previousAdapter = context->timebaseAdapter;
+    context->timebaseAdapter = env->NewGlobalRef(adapter);
+    context->timebaseAdapter_onTimebase = onTimebase;
+    context->timebasePosition = positionN;
+    if (previousAdapter) env->DeleteGlobalRef(previousAdapter);
+
+    return jack_set_timebase_callback(clientN, conditional ? 1 : 0, localTimebaseCallback, context);
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    releaseTimebaseN
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_releaseTimebaseN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_releaseTimebaseN");
+    return jack_release_timebase(reinterpret_cast<jack_client_t *>(client));
+}
+
+// jack.h - line 668
+
+/**
+ * Get the sample rate of the jack system, as set by the user when
+ * jackd was started.
+ *
+ * @return the sample rate of the jack system in samples per second.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getSampleRateN
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_getSampleRateN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getSampleRateN");
+    return jack_get_sample_rate(reinterpret_cast<jack_client_t *>(client));
+}
+
+// jack.h - line 674
+
+/**
+ * Get the current maximum size that will ever be passed to the process callback.
+ *
+ * @return the number of frames per cycle.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getBufferSizeN
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_getBufferSizeN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getBufferSizeN");
+    return jack_get_buffer_size(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Tell the Jack server that the program is ready to start processing.
+ *
+ * @return 0 on success, otherwise a non-zero error code
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    activateN
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_activateN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_activateN");
+    return jack_activate(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Tell the Jack server to remove this client from the process
+ * graph.  Also, disconnect all ports belonging to it, since inactive
+ * clients have no port connections.
+ *
+ * @return 0 on success, otherwise a non-zero error code
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    deactivateN
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_deactivateN
+        (JNIEnv *, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_deactivateN");
+    return jack_deactivate(reinterpret_cast<jack_client_t *>(client));
+}
+
+/**
+ * Count the number of ports in the given array.
+ * @param ports a NULL-terminated array of port names.
+ * @return the number of port names found in the given array.
+ */
+int portCount(const char **ports) {
+    if (!ports) return 0;
+    int i = 0;
+    while (ports[i] != nullptr) {
+        i++;
+    }
+    return i;
+}
+
+/**
+ * Look up ports - search ports.
+ *
+ * @param client          A valid client handle.
  * @param portNamePatternJ A regular expression used to select ports by name.
  *                        If `null` or of zero length, no selection based
  *                        on name will be carried out.
@@ -738,6 +1714,293 @@ JNIEXPORT jstring JNICALL Java_jackAudio4Java_Jack_portShortNameN
     const char *portName = jack_port_short_name(reinterpret_cast<jack_port_t *>( portHandle));
     return env->NewStringUTF(portName);
 }
+/**
+ * Give Java direct access to the buffer of an (input) port.
+ *
+ * A new direct `ByteBuffer` is only created when the port buffer has moved
+ * or the period size has changed. Otherwise the given `current` buffer is returned, so that
+ * no Java object needs to be allocated in a regular process cycle.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portGetAudioBufferN
+ * Signature: (JILjava/nio/FloatBuffer;)Ljava/nio/Buffer;
+ *
+ * @param env        pointer to the Java environment.
+ * @param portHandle an opaque handle representing the port.
+ * @param nframes    the number of frames in the current cycle.
+ * @param current    the direct float buffer that Java currently uses to access this port (may be null).
+ * @return `current` if it still wraps the port buffer, a new direct `ByteBuffer` if the port buffer has moved,
+ *         or `nullptr` on error.
+ */
+JNIEXPORT jobject JNICALL Java_jackAudio4Java_Jack_portGetAudioBufferN
+        (JNIEnv *env, jclass, jlong portHandle, jint nframes, jobject current) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portGetAudioBufferN");
+    if (nframes <= 0) return nullptr;
+
+    void *portBuffer = jack_port_get_buffer(reinterpret_cast<jack_port_t *>(portHandle), (jack_nframes_t) nframes);
+    if (portBuffer == nullptr) return nullptr;
+
+    if (current != nullptr
+        && env->GetDirectBufferAddress(current) == portBuffer
+        && env->GetDirectBufferCapacity(current) == nframes) {
+        // the Java side can keep its view.
+        return current;
+    }
+    return env->NewDirectByteBuffer(portBuffer, nframes * sizeof(jack_default_audio_sample_t));
+}
+
+/**
+ * Copy the audio data received by an input port into a direct float buffer.
+ *
+ * The copy is bounds-safe, at most `capacity` samples of the destination buffer are written.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portGetAudioDataN
+ * Signature: (JILjava/nio/FloatBuffer;)I
+ *
+ * @param env         pointer to the Java environment.
+ * @param portHandle  an opaque handle representing the port.
+ * @param nframes     the number of frames in the current cycle.
+ * @param destination a direct float buffer receiving the data.
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_portGetAudioDataN
+        (JNIEnv *env, jclass, jlong portHandle, jint nframes, jobject destination) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portGetAudioDataN");
+    if (nframes <= 0) return -1;
+    if (destination == nullptr) return -1;
+
+    auto destinationN = static_cast<jack_default_audio_sample_t *>(env->GetDirectBufferAddress(destination));
+    jlong capacity = env->GetDirectBufferCapacity(destination);
+    if (destinationN == nullptr || capacity < 0) return -1;
+
+    auto source = static_cast<jack_default_audio_sample_t *>(
+            jack_port_get_buffer(reinterpret_cast<jack_port_t *>(portHandle), (jack_nframes_t) nframes));
+    if (source == nullptr) return -1;
+
+    jlong count = min((jlong) nframes, capacity);
+    memcpy(destinationN, source, count * sizeof(jack_default_audio_sample_t));
+    return 0;
+}
+
+/**
+ * Copy the content of a Java float array into the buffer of an output port.
+ *
+ * `GetFloatArrayRegion` copies straight into the port buffer, so neither the Java nor the native
+ * heap is touched.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portSendAudioDataN
+ * Signature: (JI[F)I
+ *
+ * @param env        pointer to the Java environment.
+ * @param portHandle an opaque handle representing the port.
+ * @param nframes    the number of frames in the current cycle.
+ * @param source     the samples to be sent.
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_portSendAudioDataN
+        (JNIEnv *env, jclass, jlong portHandle, jint nframes, jfloatArray source) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portSendAudioDataN");
+    if (nframes <= 0) return -1;
+    if (source == nullptr) return -1;
+
+    auto destination = static_cast<jack_default_audio_sample_t *>(
+            jack_port_get_buffer(reinterpret_cast<jack_port_t *>(portHandle), (jack_nframes_t) nframes));
+    if (destination == nullptr) return -1;
+
+    jsize count = min(nframes, env->GetArrayLength(source));
+    env->GetFloatArrayRegion(source, 0, count, destination);
+    if (count < nframes) {
+        memset(destination + count, 0, (nframes - count) * sizeof(jack_default_audio_sample_t));
+    }
+    return 0;
+}
+
+/**
+ * Copy the content of a direct float buffer into the buffer of an output port.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portSendAudioBufferN
+ * Signature: (JILjava/nio/FloatBuffer;I)I
+ *
+ * @param env        pointer to the Java environment.
+ * @param portHandle an opaque handle representing the port.
+ * @param nframes    the number of frames in the current cycle.
+ * @param source     a direct float buffer holding the samples to be sent.
+ * @param length     the number of valid samples in `source`.
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_portSendAudioBufferN
+        (JNIEnv *env, jclass, jlong portHandle, jint nframes, jobject source, jint length) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portSendAudioBufferN");
+    if (nframes <= 0) return -1;
+    if (source == nullptr) return -1;
+
+    auto sourceN = static_cast<jack_default_audio_sample_t *>(env->GetDirectBufferAddress(source));
+    jlong capacity = env->GetDirectBufferCapacity(source);
+    if (sourceN == nullptr || capacity < 0) return -1;
+
+    auto destination = static_cast<jack_default_audio_sample_t *>(
+            jack_port_get_buffer(reinterpret_cast<jack_port_t *>(portHandle), (jack_nframes_t) nframes));
+    if (destination == nullptr) return -1;
+
+    jlong count = min((jlong) nframes, min((jlong) length, capacity));
+    if (count < 0) count = 0;
+    memcpy(destination, sourceN, count * sizeof(jack_default_audio_sample_t));
+    if (count < nframes) {
+        memset(destination + count, 0, (nframes - count) * sizeof(jack_default_audio_sample_t));
+    }
+    return 0;
+}
+
+/**
+ * The native part of a `jackAudio4Java.types.PortSet`.
+ *
+ * The addresses of the Java-owned direct buffers are resolved once on creation,
+ * so the per-cycle functions never need to consult the JNI environment.
+ */
+struct PortSet {
+    jack_port_t **inputs;
+    jsize inputCount;
+    jack_port_t **outputs;
+    jsize outputCount;
+    jack_default_audio_sample_t *inputBuffer;
+    jack_default_audio_sample_t *outputBuffer;
+    jint capacity;
+};
+
+/**
+ * Build the native part of a port set.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portSetCreateN
+ * Signature: ([J[JLjava/nio/FloatBuffer;Ljava/nio/FloatBuffer;I)J
+ *
+ * @param env          pointer to the Java environment.
+ * @param inputs       handles of the input ports.
+ * @param outputs      handles of the output ports.
+ * @param inputBuffer  a direct buffer of at least `capacity` floats per input port.
+ * @param outputBuffer a direct buffer of at least `capacity` floats per output port.
+ * @param capacity     the maximum number of frames per cycle.
+ * @return an opaque handle of the port set, or zero on error.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_portSetCreateN
+        (JNIEnv *env, jclass, jlongArray inputs, jlongArray outputs, jobject inputBuffer, jobject outputBuffer,
+         jint capacity) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portSetCreateN");
+    if (inputs == nullptr || outputs == nullptr || capacity <= 0) return 0;
+
+    jsize inputCount = env->GetArrayLength(inputs);
+    jsize outputCount = env->GetArrayLength(outputs);
+
+    auto inputBufferN = static_cast<jack_default_audio_sample_t *>(env->GetDirectBufferAddress(inputBuffer));
+    auto outputBufferN = static_cast<jack_default_audio_sample_t *>(env->GetDirectBufferAddress(outputBuffer));
+    if (inputCount > 0 && (inputBufferN == nullptr ||
+                           env->GetDirectBufferCapacity(inputBuffer) < (jlong) inputCount * capacity)) {
+        SPDLOG_ERROR("portSetCreateN: input buffer too small.");
+        return 0;
+    }
+    if (outputCount > 0 && (outputBufferN == nullptr ||
+                            env->GetDirectBufferCapacity(outputBuffer) < (jlong) outputCount * capacity)) {
+        SPDLOG_ERROR("portSetCreateN: output buffer too small.");
+        return 0;
+    }
+
+    auto portSet = new PortSet;
+    portSet->inputCount = inputCount;
+    portSet->outputCount = outputCount;
+    portSet->inputs = new jack_port_t *[inputCount];
+    portSet->outputs = new jack_port_t *[outputCount];
+    portSet->inputBuffer = inputBufferN;
+    portSet->outputBuffer = outputBufferN;
+    portSet->capacity = capacity;
+
+    static_assert(sizeof(jlong) == sizeof(jack_port_t *), "port handles must fit into a jlong");
+    env->GetLongArrayRegion(inputs, 0, inputCount, reinterpret_cast<jlong *>(portSet->inputs));
+    env->GetLongArrayRegion(outputs, 0, outputCount, reinterpret_cast<jlong *>(portSet->outputs));
+
+    return reinterpret_cast<jlong>(portSet);
+}
+
+/**
+ * Free the native part of a port set.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portSetReleaseN
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_jackAudio4Java_Jack_portSetReleaseN
+        (JNIEnv *, jclass, jlong portSetHandle) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portSetReleaseN");
+    auto portSet = reinterpret_cast<PortSet *>(portSetHandle);
+    if (portSet == nullptr) return;
+    delete[] portSet->inputs;
+    delete[] portSet->outputs;
+    delete portSet;
+}
+
+/**
+ * Copy the buffers of all input ports of the set into the Java-owned input buffer.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portSetFetchN
+ * Signature: (JI)I
+ *
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_portSetFetchN
+        (JNIEnv *, jclass, jlong portSetHandle, jint nframes) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portSetFetchN");
+    auto portSet = reinterpret_cast<PortSet *>(portSetHandle);
+    if (portSet == nullptr) return -1;
+    if (nframes <= 0 || nframes > portSet->capacity) return -1;
+
+    int error = 0;
+    for (jsize i = 0; i < portSet->inputCount; i++) {
+        auto destination = portSet->inputBuffer + (size_t) i * portSet->capacity;
+        auto source = static_cast<jack_default_audio_sample_t *>(
+                jack_port_get_buffer(portSet->inputs[i], (jack_nframes_t) nframes));
+        if (source) {
+            memcpy(destination, source, nframes * sizeof(jack_default_audio_sample_t));
+        } else {
+            memset(destination, 0, nframes * sizeof(jack_default_audio_sample_t));
+            error = -1;
+        }
+    }
+    return error;
+}
+
+/**
+ * Copy the Java-owned output buffer into the buffers of all output ports of the set.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    portSetPublishN
+ * Signature: (JI)I
+ *
+ * @return 0 on success, otherwise a non-zero error code.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_portSetPublishN
+        (JNIEnv *, jclass, jlong portSetHandle, jint nframes) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_portSetPublishN");
+    auto portSet = reinterpret_cast<PortSet *>(portSetHandle);
+    if (portSet == nullptr) return -1;
+    if (nframes <= 0 || nframes > portSet->capacity) return -1;
+
+    int error = 0;
+    for (jsize i = 0; i < portSet->outputCount; i++) {
+        auto source = portSet->outputBuffer + (size_t) i * portSet->capacity;
+        auto destination = static_cast<jack_default_audio_sample_t *>(
+                jack_port_get_buffer(portSet->outputs[i], (jack_nframes_t) nframes));
+        if (destination) {
+            memcpy(destination, source, nframes * sizeof(jack_default_audio_sample_t));
+        } else {
+            error = -1;
+        }
+    }
+    return error;
+}
+
 /**
  * Establish a connection between two ports.
  * <p>
@@ -778,6 +2041,140 @@ JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_connectN
 
     return result;
 }
+
+/**
+ * Remove a connection between two ports.
+ *
+ * ## Native function reference
+ * see `int jack_disconnect(jack_client_t, const char *, const char *)` at line 1010 in jack.h
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    disconnectN
+ * Signature: (JLjava/lang/String;Ljava/lang/String;)I
+ *
+ * @param env             pointer to the Java environment.
+ * @param client          an opaque handle representing this client.
+ * @param sourcePort      the  name of the source port.
+ * @param destinationPort the  name of the destination port.
+ * @return 0 on success, otherwise a non-zero error code
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_disconnectN
+        (JNIEnv *env, jclass, jlong client, jstring sourcePort, jstring destinationPort) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_disconnectN");
+
+    const char *sourcePortN = nullptr;
+    if (sourcePort) sourcePortN = env->GetStringUTFChars(sourcePort, nullptr);
+    const char *destinationPortN = nullptr;
+    if (destinationPort) destinationPortN = env->GetStringUTFChars(destinationPort, nullptr);
+
+    int result = jack_disconnect(reinterpret_cast<jack_client_t *>(client), sourcePortN, destinationPortN);
+
+    if (destinationPort) env->ReleaseStringUTFChars(destinationPort, destinationPortN);
+    if (sourcePort) env->ReleaseStringUTFChars(sourcePort, sourcePortN);
+
+    return result;
+}
+
+/**
+ * Get all connections from output ports to input ports.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    getConnectionsN
+ * Signature: (J)[Ljava/lang/String;
+ *
+ * @param env    pointer to the Java environment.
+ * @param client an opaque handle representing this client.
+ * @return the names of the connected ports in pairs (source, destination),
+ *         or `nullptr` if there are no connections.
+ */
+JNIEXPORT jobjectArray JNICALL Java_jackAudio4Java_Jack_getConnectionsN
+        (JNIEnv *env, jclass, jlong client) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_getConnectionsN");
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+
+    auto outputs = jack_get_ports(clientN, nullptr, nullptr, JackPortIsOutput);
+    if (outputs == nullptr) return nullptr;
+
+    vector<const char *> pairs;
+    vector<const char **> connectionLists;
+    for (int i = 0; outputs[i] != nullptr; i++) {
+        jack_port_t *port = jack_port_by_name(clientN, outputs[i]);
+        if (port == nullptr) continue;
+        auto connections = jack_port_get_all_connections(clientN, port);
+        if (connections == nullptr) continue;
+        connectionLists.push_back(connections);
+        for (int c = 0; connections[c] != nullptr; c++) {
+            pairs.push_back(outputs[i]);
+            pairs.push_back(connections[c]);
+        }
+    }
+
+    jobjectArray result = nullptr;
+    if (!pairs.empty()) {
+        auto stringClazz = env->FindClass("java/lang/String");
+        result = env->NewObjectArray((jsize) pairs.size(), stringClazz, nullptr);
+        for (size_t i = 0; result != nullptr && i < pairs.size(); i++) {
+            auto name = env->NewStringUTF(pairs[i]);
+            env->SetObjectArrayElement(result, (jsize) i, name);
+            env->DeleteLocalRef(name);
+        }
+    }
+    for (auto connections : connectionLists) jack_free(connections);
+    jack_free(outputs);
+    return result;
+}
+
+/**
+ * Disconnect and connect many pairs of ports in one call.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    patchN
+ * Signature: (J[Ljava/lang/String;[Ljava/lang/String;I[I)I
+ *
+ * @param env             pointer to the Java environment.
+ * @param client          an opaque handle representing this client.
+ * @param sources         the names of the source ports.
+ * @param destinations    the names of the destination ports (as many as there are sources).
+ * @param disconnectCount the number of leading pairs to be disconnected, the remaining pairs are connected.
+ * @param results         receives the result of `jack_disconnect` or `jack_connect` for each pair.
+ * @return the number of pairs that failed, or -1 if the arguments are inconsistent.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_patchN
+        (JNIEnv *env, jclass, jlong client, jobjectArray sources, jobjectArray destinations,
+         jint disconnectCount, jintArray results) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_patchN");
+    if (sources == nullptr || destinations == nullptr || results == nullptr) return -1;
+    jsize count = env->GetArrayLength(sources);
+    if (env->GetArrayLength(destinations) != count || env->GetArrayLength(results) < count) return -1;
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+
+    vector<jint> resultsN((size_t) count);
+    jint failures = 0;
+    for (jsize i = 0; i < count; i++) {
+        auto source = static_cast<jstring>(env->GetObjectArrayElement(sources, i));
+        auto destination = static_cast<jstring>(env->GetObjectArrayElement(destinations, i));
+        const char *sourceN = source ? env->GetStringUTFChars(source, nullptr) : nullptr;
+        const char *destinationN = destination ? env->GetStringUTFChars(destination, nullptr) : nullptr;
+
+        int result;
+        if (sourceN == nullptr || destinationN == nullptr) {
+            result = -1;
+        } else if (i < disconnectCount) {
+            result = jack_disconnect(clientN, sourceN, destinationN);
+        } else {
+            result = jack_connect(clientN, sourceN, destinationN);
+        }
+        resultsN[i] = result;
+        if (result != 0) failures++;
+
+        if (destinationN) env->ReleaseStringUTFChars(destination, destinationN);
+        if (sourceN) env->ReleaseStringUTFChars(source, sourceN);
+        if (destination) env->DeleteLocalRef(destination);
+        if (source) env->DeleteLocalRef(source);
+    }
+    if (count > 0) env->SetIntArrayRegion(results, 0, count, resultsN.data());
+    return failures;
+}
 /**
  * Get a port handle for a named port.
  * <p>
@@ -809,4 +2206,344 @@ JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_portByNameN
     if (portName) env->ReleaseStringUTFChars(portName, portNameN);
 
     return reinterpret_cast<jlong> (portHandle);
-}
\ No newline at end of file
+}
+
+/**
+ * Create a java string, or return `nullptr` for a `nullptr`.
+ */
+static jstring newStringOrNull(JNIEnv *env, const char *text) {
+    return (text == nullptr) ? nullptr : env->NewStringUTF(text);
+}
+
+/**
+ * Release a local reference, if there is one.
+ *
+ * Notification threads are never returning to Java, so their local references would pile up otherwise.
+ */
+static void deleteLocalRef(JNIEnv *env, jobject ref) {
+    if (ref) env->DeleteLocalRef(ref);
+}
+
+/**
+ * Report the registration or unregistration of a port to the java registry.
+ *
+ * @param env pointer to the Java environment.
+ * @param context the `ClientContext` holding the registry.
+ * @param id the JACK port id, or -1 if not known.
+ * @param port the port (may be `nullptr` when the port is gone).
+ * @param registered true if the port has been registered.
+ */
+static void reportPortRegistration(JNIEnv *env, ClientContext *context, jint id, jack_port_t *port, bool registered) {
+    jstring name = port ? newStringOrNull(env, jack_port_name(port)) : nullptr;
+    jstring type = port ? newStringOrNull(env, jack_port_type(port)) : nullptr;
+    jint flags = port ? jack_port_flags(port) : 0;
+    env->CallVoidMethod(context->portRegistry, context->portRegistry_onPortRegistration,
+                        id, name, type, flags, (jboolean) registered);
+    deleteLocalRef(env, name);
+    deleteLocalRef(env, type);
+}
+
+/**
+ * Report a connection between two ports to the java registry.
+ */
+static void reportPortConnect(JNIEnv *env, ClientContext *context, const char *a, const char *b, bool connected) {
+    jstring nameA = newStringOrNull(env, a);
+    jstring nameB = newStringOrNull(env, b);
+    env->CallVoidMethod(context->portRegistry, context->portRegistry_onPortConnect,
+                        nameA, nameB, (jboolean) connected);
+    deleteLocalRef(env, nameA);
+    deleteLocalRef(env, nameB);
+}
+
+/**
+ * Called by JACK (in its notification thread) when a port has been registered or unregistered.
+ *
+ * The notification goes to the port table (which invalidates the handle of a port that is gone)
+ * and to the port registry (if there is one).
+ */
+void localPortRegistrationCallback(jack_port_id_t portId, int registered, void *arg) {
+    SPDLOG_TRACE("localPortRegistrationCallback");
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) return;
+    if (context->portRegistry == nullptr && context->portTable == nullptr) return;
+    JNIEnv *env = notificationThreadEnv(context);
+    if (env == nullptr) return;
+    jack_port_t *port = jack_port_by_id(context->client, portId);
+    if (context->portTable && !registered && port) {
+        env->CallVoidMethod(context->portTable, context->portTable_onPortUnregistered, reinterpret_cast<jlong>(port));
+    }
+    if (context->portRegistry && !env->ExceptionCheck()) {
+        reportPortRegistration(env, context, (jint) portId, port, registered != 0);
+    }
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+}
+
+/**
+ * Called by JACK (in its notification thread) when two ports have been connected or disconnected.
+ */
+void localPortConnectCallback(jack_port_id_t a, jack_port_id_t b, int connected, void *arg) {
+    SPDLOG_TRACE("localPortConnectCallback");
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr || context->portRegistry == nullptr) return;
+    JNIEnv *env = notificationThreadEnv(context);
+    if (env == nullptr) return;
+    jack_port_t *portA = jack_port_by_id(context->client, a);
+    jack_port_t *portB = jack_port_by_id(context->client, b);
+    if (portA == nullptr || portB == nullptr) return;
+    reportPortConnect(env, context, jack_port_name(portA), jack_port_name(portB), connected != 0);
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+}
+
+/**
+ * Called by JACK (in its notification thread) when a port has been renamed.
+ */
+int localPortRenameCallback(jack_port_id_t portId, const char *oldName, const char *newName, void *arg) {
+    SPDLOG_TRACE("localPortRenameCallback");
+    auto context = static_cast<ClientContext *>(arg);
+    if (context == nullptr) return 0;
+    if (context->portRegistry == nullptr && context->portTable == nullptr) return 0;
+    JNIEnv *env = notificationThreadEnv(context);
+    if (env == nullptr) return 0;
+    jack_port_t *port = jack_port_by_id(context->client, portId);
+    if (context->portTable && port) {
+        env->CallVoidMethod(context->portTable, context->portTable_onPortRenamed, reinterpret_cast<jlong>(port));
+    }
+    if (context->portRegistry && !env->ExceptionCheck()) {
+        jstring oldNameJ = newStringOrNull(env, oldName);
+        jstring newNameJ = newStringOrNull(env, newName);
+        env->CallVoidMethod(context->portRegistry, context->portRegistry_onPortRename,
+                            (jint) portId, oldNameJ, newNameJ);
+        deleteLocalRef(env, oldNameJ);
+        deleteLocalRef(env, newNameJ);
+    }
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+    return 0;
+}
+
+/**
+ * Remember the java handle of the client, so that the freewheel callback can keep its freewheel state current.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerClientHandleN
+ * Signature: (JLjackAudio4Java/InternalClientHandle;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param handle the `jackAudio4Java.InternalClientHandle` of the client.
+ * @return 0 when successful, a non zero value otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerClientHandleN
+        (JNIEnv *env, jclass, jlong client, jobject handle) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerClientHandleN");
+    if (handle == nullptr) return -1;
+    auto context = ClientContext::of(reinterpret_cast<jack_client_t *>(client));
+    env->GetJavaVM(&context->jvm);
+
+    jclass clazz = env->GetObjectClass(handle);
+    jmethodID onFreewheel = env->GetMethodID(clazz, "onFreewheel", "(Z)V");
+    if (onFreewheel == nullptr) {
+        SPDLOG_ERROR("Could not register the client handle.");
+        return -1;
+    }
+    jobject previousHandle = context->clientHandle;
+    context->clientHandle_onFreewheel = onFreewheel;
+    context->clientHandle = env->NewGlobalRef(handle);
+    if (previousHandle) env->DeleteGlobalRef(previousHandle);
+    return 0;
+}
+
+/**
+ * Install the port registration and rename callbacks, forwarding to the given java table of port handles.
+ *
+ * NOTE: this function cannot be called while the client is active.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerPortTableN
+ * Signature: (JLjackAudio4Java/PortTable;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param table the `jackAudio4Java.PortTable` of the client.
+ * @return 0 when successful, a non zero value otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerPortTableN
+        (JNIEnv *env, jclass, jlong client, jobject table) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerPortTableN");
+    if (table == nullptr) return -1;
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::of(clientN);
+    env->GetJavaVM(&context->jvm);
+
+    jobject previousTable = context->portTable;
+    context->portTable = env->NewGlobalRef(table);
+    if (previousTable) env->DeleteGlobalRef(previousTable);
+
+    jclass clazz = env->GetObjectClass(context->portTable);
+    context->portTable_onPortRenamed = env->GetMethodID(clazz, "onPortRenamed", "(J)V");
+    context->portTable_onPortUnregistered = env->GetMethodID(clazz, "onPortUnregistered", "(J)V");
+    if (context->portTable_onPortRenamed == nullptr || context->portTable_onPortUnregistered == nullptr) {
+        SPDLOG_ERROR("Could not register the Port Table.");
+        return -1;
+    }
+    int result = jack_set_port_registration_callback(clientN, localPortRegistrationCallback, context);
+    if (result != 0) return result;
+    return jack_set_port_rename_callback(clientN, localPortRenameCallback, context);
+}
+
+/**
+ * Install the port registration, connect and rename callbacks, forwarding to the given java registry.
+ *
+ * NOTE: this function cannot be called while the client is active.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    registerPortRegistryN
+ * Signature: (JLjackAudio4Java/PortRegistry;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param registry the `jackAudio4Java.PortRegistry` to be kept current.
+ * @return 0 when successful, a non zero value otherwise.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_registerPortRegistryN
+        (JNIEnv *env, jclass, jlong client, jobject registry) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_registerPortRegistryN");
+    if (registry == nullptr) return -1;
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::of(clientN);
+    env->GetJavaVM(&context->jvm);
+
+    jobject previousRegistry = context->portRegistry;
+    context->portRegistry = env->NewGlobalRef(registry);
+    if (previousRegistry) env->DeleteGlobalRef(previousRegistry);
+
+    jclass clazz = env->GetObjectClass(context->portRegistry);
+    context->portRegistry_onPortRegistration = env->GetMethodID(clazz, "onPortRegistration",
+                                                                "(ILjava/lang/String;Ljava/lang/String;IZ)V");
+    context->portRegistry_onPortConnect = env->GetMethodID(clazz, "onPortConnect",
+                                                           "(Ljava/lang/String;Ljava/lang/String;Z)V");
+    context->portRegistry_onPortRename = env->GetMethodID(clazz, "onPortRename",
+                                                          "(ILjava/lang/String;Ljava/lang/String;)V");
+    if (context->portRegistry_onPortRegistration == nullptr || context->portRegistry_onPortConnect == nullptr ||
+        context->portRegistry_onPortRename == nullptr) {
+        SPDLOG_ERROR("Could not register the Port Registry.");
+        return -1;
+    }
+    int result = jack_set_port_registration_callback(clientN, localPortRegistrationCallback, context);
+    if (result != 0) return result;
+    result = jack_set_port_connect_callback(clientN, localPortConnectCallback, context);
+    if (result != 0) return result;
+    return jack_set_port_rename_callback(clientN, localPortRenameCallback, context);
+}
+
+/**
+ * Report every existing port and all connections to the given java registry.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    loadPortRegistryN
+ * Signature: (JLjackAudio4Java/PortRegistry;)I
+ *
+ * @param client pointer to JACK client structure.
+ * @param registry the `jackAudio4Java.PortRegistry` to be loaded.
+ * @return the number of ports reported, or -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_loadPortRegistryN
+        (JNIEnv *env, jclass, jlong client, jobject registry) {
+    SPDLOG_TRACE("Java_jackAudio4Java_Jack_loadPortRegistryN");
+    auto clientN = reinterpret_cast<jack_client_t *>(client);
+    auto context = ClientContext::of(clientN);
+    if (registry == nullptr || !env->IsSameObject(registry, context->portRegistry)) return -1;
+
+    auto ports = jack_get_ports(clientN, nullptr, nullptr, 0);
+    if (ports == nullptr) return 0;
+    int count = portCount(ports);
+    for (int i = 0; i < count && !env->ExceptionCheck(); i++) {
+        jack_port_t *port = jack_port_by_name(clientN, ports[i]);
+        if (port == nullptr) continue;
+        reportPortRegistration(env, context, -1, port, true);
+        auto connections = jack_port_get_all_connections(clientN, port);
+        if (connections == nullptr) continue;
+        for (int c = 0; connections[c] != nullptr && !env->ExceptionCheck(); c++) {
+            reportPortConnect(env, context, ports[i], connections[c], true);
+        }
+        jack_free(connections);
+    }
+    jack_free(ports);
+    return count;
+}
+
+/**
+ * The ring that receives the native log records once the java side has installed it.
+ */
+static LogRing logRing;
+
+/**
+ * Route the native logging into the `LogRing`, from where `NativeLog` hands the records
+ * over to `java.util.logging`. Afterwards no thread does any I/O when it logs.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    installLogRingN
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_jackAudio4Java_Jack_installLogRingN
+        (JNIEnv *, jclass) {
+    auto level = spdlog::default_logger()->level();
+    auto logger = make_shared<spdlog::logger>("jackAudio4Java", make_shared<LogRingSink>(logRing));
+    logger->set_level(level);
+    spdlog::set_default_logger(logger);
+}
+
+/**
+ * Hand the records waiting in the `LogRing` over to java. Shall only be called by one thread.
+ *
+ * Class:     jackAudio4Java_Jack
+ * Method:    drainLogN
+ * Signature: (Ljava/lang/Object;I)I
+ *
+ * @param log the java `NativeLog`, whose method `publish(IJJLjava/lang/String;Ljava/lang/String;ILjava/lang/String;)V`
+ * is called once per record.
+ * @param max the maximum number of records to hand over.
+ * @return the number of records handed over, or -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_jackAudio4Java_Jack_drainLogN
+        (JNIEnv *env, jclass, jobject log, jint max) {
+    if (log == nullptr) return -1;
+    jclass clazz = env->GetObjectClass(log);
+    jmethodID publish = env->GetMethodID(clazz, "publish",
+                                         "(IJJLjava/lang/String;Ljava/lang/String;ILjava/lang/String;)V");
+    env->DeleteLocalRef(clazz);
+    if (publish == nullptr) return -1;
+
+    LogRing::Record record{};
+    jint count = 0;
+    while (count < max && logRing.pop(record)) {
+        count++;
+        jstring text = env->NewStringUTF(record.text);
+        jstring file = newStringOrNull(env, record.file);
+        jstring function = newStringOrNull(env, record.function);
+        env->CallVoidMethod(log, publish, (jint) record.level, (jlong) record.millis, (jlong) record.threadId,
+                            text, file, (jint) record.line, function);
+        deleteLocalRef(env, text);
+        deleteLocalRef(env, file);
+        deleteLocalRef(env, function);
+        if (env->ExceptionCheck()) return -1;
+    }
+    return count;
+}
+
+/**
+ * Class:     jackAudio4Java_Jack
+ * Method:    getLogDropCountN
+ * Signature: ()J
+ *
+ * @return the number of native log records dropped because the `LogRing` was full.
+ */
+JNIEXPORT jlong JNICALL Java_jackAudio4Java_Jack_getLogDropCountN
+        (JNIEnv *, jclass) {
+    return (jlong) logRing.dropped();
+}
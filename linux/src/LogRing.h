@@ -0,0 +1,164 @@
+/*
+ * File: LogRing.h
+ *
+ *
+ * Copyright 2019 Harald Postner <Harald at free_creations.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+#pragma once
+
+#include <atomic>
+#include <chrono>
+#include <cstddef>
+#include <cstdint>
+#include <cstring>
+#include "spdlog/spdlog.h"
+#include "spdlog/sinks/base_sink.h"
+#include "spdlog/details/null_mutex.h"
+
+/**
+ * A bounded, lock-free ring of pre-formatted log records.
+ *
+ * Any thread may `push` (including the JACK real-time threads): pushing never blocks, never
+ * allocates and never does I/O. When the ring is full the record is dropped and counted.
+ * A single, non real-time thread shall `pop` the records and hand them over to `java.util.logging`.
+ *
+ * The implementation is the bounded queue of Dmitry Vyukov: every slot carries a sequence number
+ * telling whether it is free for the producer of a given position or filled for the consumer.
+ */
+class LogRing {
+public:
+    /**
+     * The number of records the ring can hold (a power of two).
+     */
+    static const size_t CAPACITY = 1024;
+
+    /**
+     * The maximum length of a message; longer messages are truncated.
+     */
+    static const size_t TEXT_SIZE = 232;
+
+    struct Record {
+        int level;
+        int line;
+        int64_t millis;
+        uint64_t threadId;
+        // `file` and `function` point to string literals (`__FILE__` and `__func__`).
+        const char *file;
+        const char *function;
+        char text[TEXT_SIZE];
+    };
+
+    LogRing() {
+        for (size_t i = 0; i < CAPACITY; i++) {
+            slots[i].sequence.store(i, std::memory_order_relaxed);
+        }
+    }
+
+    /**
+     * Append a record, dropping it if the ring is full.
+     *
+     * @return true if the record has been stored, false if it has been dropped.
+     */
+    bool push(int level, const char *text, size_t length, int64_t millis, uint64_t threadId,
+              const char *file, int line, const char *function) {
+        size_t position = enqueuePosition.load(std::memory_order_relaxed);
+        Slot *slot;
+        for (;;) {
+            slot = &slots[position & (CAPACITY - 1)];
+            size_t sequence = slot->sequence.load(std::memory_order_acquire);
+            auto difference = (intptr_t) sequence - (intptr_t) position;
+            if (difference == 0) {
+                if (enqueuePosition.compare_exchange_weak(position, position + 1, std::memory_order_relaxed)) break;
+            } else if (difference < 0) {
+                dropCount.fetch_add(1, std::memory_order_relaxed);
+                return false;
+            } else {
+                position = enqueuePosition.load(std::memory_order_relaxed);
+            }
+        }
+        Record &record = slot->record;
+        record.level = level;
+        record.line = line;
+        record.millis = millis;
+        record.threadId = threadId;
+        record.file = file;
+        record.function = function;
+        size_t count = (length < TEXT_SIZE - 1) ? length : TEXT_SIZE - 1;
+        // do not cut a multi-byte UTF-8 character in two.
+        if (count < length) {
+            while (count > 0 && (text[count] & 0xC0) == 0x80) count--;
+        }
+        memcpy(record.text, text, count);
+        record.text[count] = '\0';
+        slot->sequence.store(position + 1, std::memory_order_release);
+        return true;
+    }
+
+    /**
+     * Take the oldest record out of the ring. Shall only be called by one (consumer) thread.
+     *
+     * @param target receives the record.
+     * @return true if a record has been taken, false if the ring is empty.
+     */
+    bool pop(Record &target) {
+        Slot &slot = slots[dequeuePosition & (CAPACITY - 1)];
+        size_t sequence = slot.sequence.load(std::memory_order_acquire);
+        if (sequence != dequeuePosition + 1) return false;
+        target = slot.record;
+        slot.sequence.store(dequeuePosition + CAPACITY, std::memory_order_release);
+        dequeuePosition++;
+        return true;
+    }
+
+    /**
+     * @return the number of records dropped because the ring was full.
+     */
+    uint64_t dropped() const {
+        return dropCount.load(std::memory_order_relaxed);
+    }
+
+private:
+    struct Slot {
+        std::atomic<size_t> sequence;
+        Record record;
+    };
+
+    Slot slots[CAPACITY];
+    alignas(64) std::atomic<size_t> enqueuePosition{0};
+    alignas(64) size_t dequeuePosition = 0;
+    std::atomic<uint64_t> dropCount{0};
+};
+
+/**
+ * A spdlog sink that pushes the (already formatted) message into a `LogRing`.
+ *
+ * The ring is thread-safe on its own, therefore the sink uses no mutex.
+ */
+class LogRingSink : public spdlog::sinks::base_sink<spdlog::details::null_mutex> {
+public:
+    explicit LogRingSink(LogRing &ring) : ring(ring) {}
+
+protected:
+    void sink_it_(const spdlog::details::log_msg &msg) override {
+        auto millis = std::chrono::duration_cast<std::chrono::milliseconds>(msg.time.time_since_epoch()).count();
+        ring.push((int) msg.level, msg.payload.data(), msg.payload.size(), (int64_t) millis,
+                  (uint64_t) msg.thread_id, msg.source.filename, msg.source.line, msg.source.funcname);
+    }
+
+    void flush_() override {}
+
+private:
+    LogRing &ring;
+};
@@ -0,0 +1,88 @@
+/*
+ * File: ProcessTimeHistogram.h
+ *
+ *
+ * Copyright 2019 Harald Postner <Harald at free_creations.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+#pragma once
+
+#include <jni.h>
+#include <atomic>
+#include <cstdint>
+
+/**
+ * A lock-free histogram of the time spent in the Java process callback.
+ *
+ * Bucket 0 counts the calls that took less than 1024 nanoseconds; bucket `i` (for `i > 0`) counts
+ * the calls that took between `2^(i+9)` and `2^(i+10)` nanoseconds. The last bucket also counts all longer calls.
+ *
+ * `record` shall only be called by the process thread. All other functions may be called from any thread.
+ */
+class ProcessTimeHistogram {
+public:
+    /**
+     * The number of buckets. Must match `ProcessTimeHistogram.BUCKET_COUNT` in Java.
+     */
+    static const int BUCKETS = 24;
+
+    /**
+     * The number of values delivered by `copyTo`: the buckets, the maximum and the total.
+     */
+    static const int VALUES = BUCKETS + 2;
+
+    /**
+     * Count one call of the process callback.
+     * @param nanos the duration of the call in nanoseconds.
+     */
+    void record(uint64_t nanos) {
+        int index = (nanos == 0) ? 0 : 64 - __builtin_clzll(nanos) - 10;
+        if (index < 0) index = 0;
+        if (index >= BUCKETS) index = BUCKETS - 1;
+        buckets[index].fetch_add(1, std::memory_order_relaxed);
+        totalNanos.fetch_add(nanos, std::memory_order_relaxed);
+        // single writer, no need for a compare-and-swap loop.
+        if (nanos > maxNanos.load(std::memory_order_relaxed)) {
+            maxNanos.store(nanos, std::memory_order_relaxed);
+        }
+    }
+
+    /**
+     * Copy the buckets, followed by the maximum and the total duration.
+     * @param target receives `VALUES` numbers.
+     */
+    void copyTo(jlong *target) const {
+        for (int i = 0; i < BUCKETS; i++) {
+            target[i] = (jlong) buckets[i].load(std::memory_order_relaxed);
+        }
+        target[BUCKETS] = (jlong) maxNanos.load(std::memory_order_relaxed);
+        target[BUCKETS + 1] = (jlong) totalNanos.load(std::memory_order_relaxed);
+    }
+
+    /**
+     * Set all counters to zero. Calls recorded at the same time may be lost.
+     */
+    void reset() {
+        for (auto &bucket : buckets) {
+            bucket.store(0, std::memory_order_relaxed);
+        }
+        maxNanos.store(0, std::memory_order_relaxed);
+        totalNanos.store(0, std::memory_order_relaxed);
+    }
+
+private:
+    std::atomic<uint64_t> buckets[BUCKETS]{};
+    std::atomic<uint64_t> maxNanos{0};
+    std::atomic<uint64_t> totalNanos{0};
+};
@@ -0,0 +1,64 @@
+/*
+ * File: WorkerThread.h
+ *
+ *
+ * Copyright 2019 Harald Postner <Harald at free_creations.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+#pragma once
+
+#include <jni.h>
+#include <string>
+#include <jack/jack.h>
+
+/**
+ * A Java `Runnable` that runs in a thread created by `jack_client_create_thread`.
+ *
+ * The thread attaches itself to the JVM once, when it starts, calls `run()` and detaches
+ * when `run()` returns. Thus the cost of attaching is paid once per worker, not per task:
+ * a worker that shall serve many cycles loops inside `run()`.
+ *
+ * The object is created by `clientCreateThreadN` and destroyed by `threadJoinN`.
+ */
+struct WorkerThread {
+    /**
+     * Pointer to the java virtual machine.
+     */
+    JavaVM *jvm = nullptr;
+
+    /**
+     * The java `Runnable` (a global reference).
+     */
+    jobject runnable = nullptr;
+
+    /**
+     * Pointer to the java `run` method of the runnable.
+     */
+    jmethodID runnable_run = nullptr;
+
+    /**
+     * The name under which the thread is attached to the JVM.
+     */
+    std::string name;
+
+    /**
+     * The CPU the thread shall be pinned to, or -1 if it may run on any CPU.
+     */
+    int cpu = -1;
+
+    /**
+     * The native thread, as created by JACK.
+     */
+    jack_native_thread_t thread{};
+};
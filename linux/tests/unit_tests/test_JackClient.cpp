@@ -18,6 +18,7 @@
  */
 #include <exception>
 #include <jack/jack.h>
+#include <jack/transport.h>
 #include "spdlog/spdlog.h"
 
 #include "gtest/gtest.h"
@@ -26,6 +27,7 @@
 #include "jni_headers/jackAudio4Java_Jack.h"
 
 #include "Jack.h"
+#include "ProcessTimeHistogram.h"
 
 using testing::Return;
 using testing::NiceMock; // Note: "NiceMock" does not nag with useless warnings.
@@ -148,6 +150,86 @@ TEST_F(JackTestClient, registerProcessListener) {
     EXPECT_EQ(error, 0);
 }
 
+/**
+ * Two clients can register their own ProcessListeners side by side.
+ */
+TEST_F(JackTestClient, registerProcessListenerOnTwoClients) {
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jobject firstListener;
+    _jobject secondListener;
+    _jmethodID processListener_onProcess;
+
+    // make the jniEnvMock return a non null value for GetMethodID
+    ON_CALL(jniEnvMock, GetMethodID(_, _, _))
+            .WillByDefault(Return(&processListener_onProcess));
+
+    jack_status_t status;
+    auto secondClient = (jlong) jack_client_open("Nervensäge-2", JackNullOption, &status, nullptr);
+    ASSERT_NE(secondClient, 0);
+
+    jint error = Java_jackAudio4Java_Jack_registerProcessListenerN(&jniEnvMock, nullptr, clientHandle, &firstListener);
+    EXPECT_EQ(error, 0);
+    error = Java_jackAudio4Java_Jack_registerProcessListenerN(&jniEnvMock, nullptr, secondClient, &secondListener);
+    EXPECT_EQ(error, 0);
+
+    error = Java_jackAudio4Java_Jack_clientCloseN(&jniEnvMock, nullptr, secondClient);
+    EXPECT_EQ(error, 0);
+}
+
+/**
+ * A client can register a ProcessThreadListener instead of a ProcessListener.
+ */
+TEST_F(JackTestClient, registerProcessThread) {
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jobject newListener;
+    _jmethodID processThreadListener_onProcessThread;
+
+    // make the jniEnvMock return a non null value for GetMethodID
+    ON_CALL(jniEnvMock, GetMethodID(_, _, _))
+            .WillByDefault(Return(&processThreadListener_onProcessThread));
+
+    jint error = Java_jackAudio4Java_Jack_registerProcessThreadN(&jniEnvMock, nullptr, clientHandle, &newListener);
+    EXPECT_EQ(error, 0);
+}
+
+/**
+ * The frame time of the current cycle can be read (it is handed to the cycle clock in Java).
+ */
+TEST_F(JackTestClient, lastFrameTime) {
+    jlong frameTime = Java_jackAudio4Java_Jack_lastFrameTimeN(nullptr, nullptr, clientHandle);
+    EXPECT_GE(frameTime, 0);
+}
+
+/**
+ * The realtime scheduling of the client can be queried and a thread can be pinned to a CPU.
+ */
+TEST_F(JackTestClient, realtimeScheduling) {
+    jboolean realtime = Java_jackAudio4Java_Jack_isRealtimeN(nullptr, nullptr, clientHandle);
+    jint priority = Java_jackAudio4Java_Jack_clientRealTimePriorityN(nullptr, nullptr, clientHandle);
+    jint maxPriority = Java_jackAudio4Java_Jack_clientMaxRealTimePriorityN(nullptr, nullptr, clientHandle);
+    if (realtime) {
+        EXPECT_GT(priority, 0);
+        EXPECT_GE(maxPriority, priority);
+    } else {
+        EXPECT_EQ(priority, -1);
+    }
+    EXPECT_EQ(Java_jackAudio4Java_Jack_setCurrentThreadAffinityN(nullptr, nullptr, 0), 0);
+    EXPECT_NE(Java_jackAudio4Java_Jack_setCurrentThreadAffinityN(nullptr, nullptr, -1), 0);
+}
+
+/**
+ * Frame times and microsecond times can be converted into each other.
+ */
+TEST_F(JackTestClient, frameClock) {
+    jlong frameTime = Java_jackAudio4Java_Jack_frameTimeN(nullptr, nullptr, clientHandle);
+    EXPECT_GE(frameTime, 0);
+    jlong usecs = Java_jackAudio4Java_Jack_framesToTimeN(nullptr, nullptr, clientHandle, frameTime);
+    EXPECT_GE(Java_jackAudio4Java_Jack_getTimeN(nullptr, nullptr), 0);
+    jlong frames = Java_jackAudio4Java_Jack_timeToFramesN(nullptr, nullptr, clientHandle, usecs);
+    EXPECT_NEAR(frames, frameTime, 1);
+    EXPECT_GE(Java_jackAudio4Java_Jack_framesSinceCycleStartN(nullptr, nullptr, clientHandle), 0);
+}
+
 /**
  * A client can register a ProcessListener.
  */
@@ -167,6 +249,49 @@ TEST_F(JackTestClient, registerShutdownListener) {
     EXPECT_EQ(error, 0);
 }
 
+/**
+ * The buffer size of a client should be a power of two.
+ */
+TEST_F(JackTestClient, getBufferSize) {
+    jint bufferSize = Java_jackAudio4Java_Jack_getBufferSizeN(nullptr, nullptr, clientHandle);
+    EXPECT_GT(bufferSize, 0);
+    EXPECT_EQ(bufferSize & (bufferSize - 1), 0);
+}
+
+/**
+ * A client can register a BufferSizeListener and a SampleRateListener.
+ */
+TEST_F(JackTestClient, registerBufferSizeAndSampleRateListener) {
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jobject newListener;
+    _jmethodID callback;
+
+    // make the jniEnvMock return a non null value for GetMethodID
+    ON_CALL(jniEnvMock, GetMethodID(_, _, _))
+            .WillByDefault(Return(&callback));
+
+    jint error = Java_jackAudio4Java_Jack_registerBufferSizeListenerN(&jniEnvMock, nullptr, clientHandle, &newListener);
+    EXPECT_EQ(error, 0);
+    error = Java_jackAudio4Java_Jack_registerSampleRateListenerN(&jniEnvMock, nullptr, clientHandle, &newListener);
+    EXPECT_EQ(error, 0);
+}
+
+
+/**
+ * A client can register a FreewheelListener; it is not freewheeling by default.
+ */
+TEST_F(JackTestClient, registerFreewheelListener) {
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jobject newListener;
+    _jmethodID callback;
+
+    ON_CALL(jniEnvMock, GetMethodID(_, _, _))
+            .WillByDefault(Return(&callback));
+
+    jint error = Java_jackAudio4Java_Jack_registerFreewheelListenerN(&jniEnvMock, nullptr, clientHandle, &newListener);
+    EXPECT_EQ(error, 0);
+    EXPECT_FALSE(Java_jackAudio4Java_Jack_isFreewheelingN(nullptr, nullptr, clientHandle));
+}
 
 /**
  * A client can be activated and deactivated.
@@ -189,6 +314,55 @@ TEST_F(JackTestClient, getSampleRate) {
     EXPECT_LE(sampleRate, 96000);
 }
 
+/**
+ * The CPU load is a percentage, a freshly opened client has not seen any xruns.
+ */
+TEST_F(JackTestClient, instrumentation) {
+    jfloat load = Java_jackAudio4Java_Jack_getCpuLoadN(nullptr, nullptr, clientHandle);
+    EXPECT_GE(load, 0.0f);
+    Java_jackAudio4Java_Jack_resetInstrumentationN(nullptr, nullptr, clientHandle);
+    EXPECT_EQ(Java_jackAudio4Java_Jack_getXrunCountN(nullptr, nullptr, clientHandle), 0);
+    EXPECT_GE(Java_jackAudio4Java_Jack_getMaxDelayedUsecsN(nullptr, nullptr, clientHandle), 0.0f);
+}
+
+/**
+ * The process time histogram is copied into the given java array.
+ */
+TEST_F(JackTestClient, getProcessTimes) {
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jlongArray values;
+
+    ON_CALL(jniEnvMock, GetArrayLength(&values))
+            .WillByDefault(Return(ProcessTimeHistogram::VALUES));
+    EXPECT_CALL(jniEnvMock, SetLongArrayRegion(&values, 0, ProcessTimeHistogram::VALUES, _))
+            .Times(1);
+
+    jint result = Java_jackAudio4Java_Jack_getProcessTimesN(&jniEnvMock, nullptr, clientHandle, &values);
+    EXPECT_EQ(result, 0);
+}
+
+/**
+ * The transport can be queried with and without a position buffer.
+ */
+TEST_F(JackTestClient, transportQuery) {
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jobject positionBuffer;
+    jack_position_t position;
+
+    ON_CALL(jniEnvMock, GetDirectBufferCapacity(&positionBuffer))
+            .WillByDefault(Return(sizeof(jack_position_t)));
+    ON_CALL(jniEnvMock, GetDirectBufferAddress(&positionBuffer))
+            .WillByDefault(Return(&position));
+
+    jint state = Java_jackAudio4Java_Jack_transportQueryN(&jniEnvMock, nullptr, clientHandle, &positionBuffer);
+    EXPECT_GE(state, JackTransportStopped);
+    EXPECT_LE(state, JackTransportStarting);
+    EXPECT_EQ(position.frame_rate, Java_jackAudio4Java_Jack_getSampleRateN(nullptr, nullptr, clientHandle));
+
+    state = Java_jackAudio4Java_Jack_transportQueryN(&jniEnvMock, nullptr, clientHandle, nullptr);
+    EXPECT_GE(state, JackTransportStopped);
+}
+
 /**
   * There should be at least one physical output port in the driver backend.
   */
@@ -0,0 +1,73 @@
+/*
+ * File: test_LogRing.cpp
+ *
+ *
+ * Copyright 2019 Harald Postner <Harald at free_creations.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include <string>
+#include "gtest/gtest.h"
+#include "LogRing.h"
+
+/**
+ * Records come out of the ring in the order they went in.
+ */
+TEST(LogRing, pushAndPop) {
+    LogRing ring;
+    LogRing::Record record{};
+    EXPECT_FALSE(ring.pop(record));
+
+    EXPECT_TRUE(ring.push(2, "first", 5, 1000, 7, "Jack.cpp", 10, "f"));
+    EXPECT_TRUE(ring.push(4, "second", 6, 1001, 8, "Jack.cpp", 11, "g"));
+
+    EXPECT_TRUE(ring.pop(record));
+    EXPECT_STREQ(record.text, "first");
+    EXPECT_EQ(record.level, 2);
+    EXPECT_EQ(record.millis, 1000);
+    EXPECT_EQ(record.line, 10);
+    EXPECT_TRUE(ring.pop(record));
+    EXPECT_STREQ(record.text, "second");
+    EXPECT_FALSE(ring.pop(record));
+    EXPECT_EQ(ring.dropped(), 0u);
+}
+
+/**
+ * When the ring is full, records are dropped and counted; after draining there is room again.
+ */
+TEST(LogRing, dropWhenFull) {
+    LogRing ring;
+    for (size_t i = 0; i < LogRing::CAPACITY; i++) {
+        EXPECT_TRUE(ring.push(0, "x", 1, 0, 0, nullptr, 0, nullptr));
+    }
+    EXPECT_FALSE(ring.push(0, "y", 1, 0, 0, nullptr, 0, nullptr));
+    EXPECT_EQ(ring.dropped(), 1u);
+
+    LogRing::Record record{};
+    EXPECT_TRUE(ring.pop(record));
+    EXPECT_TRUE(ring.push(0, "z", 1, 0, 0, nullptr, 0, nullptr));
+}
+
+/**
+ * Long messages are truncated, without cutting a multi-byte character in two.
+ */
+TEST(LogRing, truncate) {
+    LogRing ring;
+    std::string text(LogRing::TEXT_SIZE - 2, 'a');
+    text += "\xC3\xA4\xC3\xA4";
+    EXPECT_TRUE(ring.push(0, text.c_str(), text.size(), 0, 0, nullptr, 0, nullptr));
+    LogRing::Record record{};
+    EXPECT_TRUE(ring.pop(record));
+    EXPECT_EQ(std::string(record.text), std::string(LogRing::TEXT_SIZE - 2, 'a'));
+}
@@ -165,4 +165,141 @@ TEST_F(TestLevel_2_Ports, connect) {
     jint error = Java_jackAudio4Java_Jack_connectN(&jniEnvMock,nullptr, clientHandle, &sourcePortJ, &destinationPortJ);
 
     EXPECT_NE(error, 0);
-}
\ No newline at end of file
+}
+
+/**
+ * Function `Java_jackAudio4Java_Jack_patchN` shall report one result per pair
+ * and count the failures, here a disconnect and a connect of nonexistent ports.
+ */
+TEST_F(TestLevel_2_Ports, patch) {
+
+    NiceMock<JNIEnvMock> jniEnvMock;
+    _jobjectArray sourcesJ;
+    _jobjectArray destinationsJ;
+    _jintArray resultsJ;
+    _jstring sourcePortJ;
+    _jstring destinationPortJ;
+    const char *sourcePortN = "Level_2_Tests:nonexistent_1";
+    const char *destinationPortN = "Level_2_Tests:nonexistent_2";
+
+    ON_CALL(jniEnvMock, GetArrayLength(_))
+            .WillByDefault(Return(2));
+    ON_CALL(jniEnvMock, GetObjectArrayElement(&sourcesJ, _))
+            .WillByDefault(Return(&sourcePortJ));
+    ON_CALL(jniEnvMock, GetObjectArrayElement(&destinationsJ, _))
+            .WillByDefault(Return(&destinationPortJ));
+    ON_CALL(jniEnvMock, GetStringUTFChars(&sourcePortJ, nullptr))
+            .WillByDefault(Return(sourcePortN));
+    ON_CALL(jniEnvMock, GetStringUTFChars(&destinationPortJ, nullptr))
+            .WillByDefault(Return(destinationPortN));
+    EXPECT_CALL(jniEnvMock, SetIntArrayRegion(&resultsJ, 0, 2, _))
+            .Times(1);
+
+    // here we go...
+    jint failures = Java_jackAudio4Java_Jack_patchN(&jniEnvMock, nullptr, clientHandle,
+                                                    &sourcesJ, &destinationsJ, 1, &resultsJ);
+
+    EXPECT_EQ(failures, 2);
+}
+
+/**
+ * Function `Java_jackAudio4Java_Jack_portGetAudioBufferN` shall wrap the port buffer
+ * into a new direct buffer, when no current buffer is given.
+ */
+TEST_F(TestLevel_2_Ports, portGetAudioBuffer) {
+
+    NiceMock<JNIEnvMock> jniEnvMock;
+    const jint nframes = 64;
+
+    EXPECT_CALL(jniEnvMock, NewDirectByteBuffer(_, nframes * sizeof(float)))
+            .Times(1);
+
+    // here we go...
+    Java_jackAudio4Java_Jack_portGetAudioBufferN(&jniEnvMock, nullptr, inputPortHandle, nframes, nullptr);
+}
+
+/**
+ * Function `Java_jackAudio4Java_Jack_portGetAudioDataN` shall copy the port buffer
+ * into the given destination without writing beyond its capacity.
+ */
+TEST_F(TestLevel_2_Ports, portGetAudioData) {
+
+    NiceMock<JNIEnvMock> jniEnvMock;
+    const jint nframes = 64;
+    float destinationN[nframes / 2 + 1];
+    _jobject destinationJ;
+
+    destinationN[nframes / 2] = 42.0f; // a guard value beyond the capacity.
+
+    ON_CALL(jniEnvMock, GetDirectBufferAddress(&destinationJ))
+            .WillByDefault(Return(destinationN));
+    ON_CALL(jniEnvMock, GetDirectBufferCapacity(&destinationJ))
+            .WillByDefault(Return(nframes / 2));
+
+    // here we go...
+    jint error = Java_jackAudio4Java_Jack_portGetAudioDataN(&jniEnvMock, nullptr, inputPortHandle, nframes,
+                                                            &destinationJ);
+    EXPECT_EQ(error, 0);
+    EXPECT_EQ(destinationN[nframes / 2], 42.0f);
+}
+
+/**
+ * Function `Java_jackAudio4Java_Jack_portSendAudioDataN` shall copy the Java array
+ * into the output port buffer.
+ */
+TEST_F(TestLevel_2_Ports, portSendAudioData) {
+
+    NiceMock<JNIEnvMock> jniEnvMock;
+    const jint nframes = 64;
+    _jfloatArray sourceJ;
+
+    ON_CALL(jniEnvMock, GetArrayLength(&sourceJ))
+            .WillByDefault(Return(nframes));
+    EXPECT_CALL(jniEnvMock, GetFloatArrayRegion(&sourceJ, 0, nframes, _))
+            .Times(1);
+
+    // here we go...
+    jint error = Java_jackAudio4Java_Jack_portSendAudioDataN(&jniEnvMock, nullptr, outputPortHandle, nframes,
+                                                             &sourceJ);
+    EXPECT_EQ(error, 0);
+}
+
+/**
+ * A port set made of one input and one output port shall exchange the data of both ports
+ * and refuse cycles larger than its capacity.
+ */
+TEST_F(TestLevel_2_Ports, portSetFetchPublish) {
+
+    NiceMock<JNIEnvMock> jniEnvMock;
+    const jint capacity = 64;
+    float inputBufferN[capacity];
+    float outputBufferN[capacity];
+    _jlongArray inputsJ;
+    _jlongArray outputsJ;
+    _jobject inputBufferJ;
+    _jobject outputBufferJ;
+
+    ON_CALL(jniEnvMock, GetArrayLength(_))
+            .WillByDefault(Return(1));
+    ON_CALL(jniEnvMock, GetDirectBufferAddress(&inputBufferJ))
+            .WillByDefault(Return(inputBufferN));
+    ON_CALL(jniEnvMock, GetDirectBufferAddress(&outputBufferJ))
+            .WillByDefault(Return(outputBufferN));
+    ON_CALL(jniEnvMock, GetDirectBufferCapacity(_))
+            .WillByDefault(Return(capacity));
+    ON_CALL(jniEnvMock, GetLongArrayRegion(&inputsJ, 0, 1, _))
+            .WillByDefault(testing::SetArgPointee<3>(inputPortHandle));
+    ON_CALL(jniEnvMock, GetLongArrayRegion(&outputsJ, 0, 1, _))
+            .WillByDefault(testing::SetArgPointee<3>(outputPortHandle));
+
+    // here we go...
+    jlong portSet = Java_jackAudio4Java_Jack_portSetCreateN(&jniEnvMock, nullptr, &inputsJ, &outputsJ,
+                                                           &inputBufferJ, &outputBufferJ, capacity);
+    ASSERT_NE(portSet, 0);
+
+    EXPECT_EQ(Java_jackAudio4Java_Jack_portSetFetchN(&jniEnvMock, nullptr, portSet, capacity), 0);
+    EXPECT_EQ(Java_jackAudio4Java_Jack_portSetPublishN(&jniEnvMock, nullptr, portSet, capacity), 0);
+    EXPECT_NE(Java_jackAudio4Java_Jack_portSetFetchN(&jniEnvMock, nullptr, portSet, capacity + 1), 0);
+
+    Java_jackAudio4Java_Jack_portSetReleaseN(&jniEnvMock, nullptr, portSet);
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.panama;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.types.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of crossing into `libjack` through JNI and through `java.lang.foreign`.
+ * <p>
+ * Needs a running JACK server. Run it with `./gradlew :panama:jmh -Pjdk22Home=...`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackendBenchmark {
+
+  @Param({Jack.JNI_BACKEND, Jack.PANAMA_BACKEND})
+  public String backend;
+
+  private Jack jack;
+  private ClientHandle client;
+  private PortHandle port;
+  private final float[] silence = new float[256];
+
+  @Setup
+  public void setup() {
+    jack = Jack.backend(backend);
+    client = jack.clientOpen("BackendBenchmark", new OpenOption[]{OpenOption.NoStartServer}, null, null);
+    if (client == null) throw new IllegalStateException("Could not open a JACK client, is the server running?");
+    port = jack.portRegister(client, "out", PortType.defaultAudio(), PortFlag.setOf(PortFlag.isOutput), 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    jack.clientClose(client);
+  }
+
+  @Benchmark
+  public int getSampleRate() {
+    return jack.getSampleRate(client);
+  }
+
+  @Benchmark
+  public String portName() {
+    return jack.portName(port);
+  }
+
+  @Benchmark
+  public ImmutableAudioSlice portGetAudioData() {
+    return jack.portGetAudioData(port, silence.length);
+  }
+
+  @Benchmark
+  public int portSendAudioData() {
+    return jack.portSendAudioData(port, silence.length, silence);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.panama;
+
+import jackAudio4Java.RenderCountdown;
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.types.ClientHandle;
+import jackAudio4Java.types.FreewheelListener;
+import jackAudio4Java.types.FrameClock;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link PanamaJack}.
+ */
+class PanamaClientHandle extends ClientHandle {
+
+  /**
+   * Owns the upcall stubs of the listeners registered for this client.
+   */
+  private final Arena arena = Arena.ofShared();
+
+  /**
+   * Tells which process cycle is running; the port views of this client are bound to it.
+   */
+  final CycleClock clock = new CycleClock();
+
+  private final FrameClock frameClock = new PanamaJack.PanamaFrameClock(this);
+
+  /**
+   * The canonical handles of the ports used by this client, keyed by the native address of the port.
+   * There is at most one handle per port, so that handles can be compared by identity, as with the JNI backend.
+   */
+  private final ConcurrentHashMap<Long, PanamaPortHandle> ports = new ConcurrentHashMap<>();
+
+  /**
+   * Set by the freewheel callback, which is installed when the client is opened.
+   */
+  volatile boolean freewheeling = false;
+  volatile FreewheelListener freewheelListener;
+
+  /**
+   * Counts the rendered frames while {@link PanamaJack#render} is running, null otherwise.
+   */
+  final AtomicReference<RenderCountdown> render = new AtomicReference<>();
+
+  PanamaClientHandle(MemorySegment client) {
+    this.reference = client.address();
+  }
+
+  MemorySegment segment() {
+    return MemorySegment.ofAddress(reference);
+  }
+
+  Arena arena() {
+    return arena;
+  }
+
+  /**
+   * @param port the native address of a port (not zero).
+   * @return the canonical handle of the port, created if it does not exist yet.
+   */
+  PanamaPortHandle canonical(MemorySegment port) {
+    return ports.computeIfAbsent(port.address(), address -> new PanamaPortHandle(port, clock));
+  }
+
+  /**
+   * Forget the handle of a port, because the port is gone. The handle is not invalidated.
+   */
+  void forget(PanamaPortHandle port) {
+    ports.remove(port.segment().address(), port);
+  }
+
+  /**
+   * Called by the process thread at the end of every cycle.
+   *
+   * @param nframes the number of frames processed in the cycle.
+   */
+  void cycleDone(int nframes) {
+    RenderCountdown countdown = render.get();
+    // only cycles run in freewheel mode are rendered, the switch to freewheel mode is asynchronous.
+    if (countdown != null && freewheeling) countdown.onCycle(nframes);
+  }
+
+  @Override
+  public FrameClock getFrameClock() {
+    return frameClock;
+  }
+
+  /**
+   * Call this function after closing the client, when no more callbacks can arrive.
+   */
+  void invalidate() {
+    reference = 0;
+    for (PanamaPortHandle port : ports.values()) port.invalidate();
+    ports.clear();
+    arena.close();
+  }
+}
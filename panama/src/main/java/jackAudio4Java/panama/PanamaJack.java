@@ -0,0 +1,1009 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.panama;
+
+import jackAudio4Java.Jack;
+import jackAudio4Java.RenderCountdown;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.patchbay.Connection;
+import jackAudio4Java.patchbay.Diff;
+import jackAudio4Java.patchbay.Snapshot;
+import jackAudio4Java.types.*;
+
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * An implementation of the {@link Jack} API that calls `libjack` through the
+ * foreign function and memory API (`java.lang.foreign`) instead of JNI.
+ * <p>
+ * This backend needs Java 22 or newer and the JVM option `--enable-native-access=ALL-UNNAMED`.
+ * It is selected by setting the system property `jackAudio4Java.backend=panama`, or obtained
+ * explicitly through `Jack.backend(Jack.PANAMA_BACKEND)`.
+ * <p>
+ * Only the core of the API is covered: clients, process listener and process thread, shutdown,
+ * buffer size, sample rate and freewheel listeners, freewheel mode and rendering, audio ports and
+ * port sets, connections and the patchbay, the frame clock. The functions that are not covered behave as if they were
+ * given a handle of another backend: depending on the function, they return their error value
+ * (-1, 0 or null) or throw a `RuntimeException` ("Invalid client handle").
+ * <p>
+ * Handles created by this backend cannot be used with the JNI backend and vice versa.
+ */
+public class PanamaJack extends Jack {
+
+  private static final int FLOAT_SIZE = (int) JAVA_FLOAT.byteSize();
+
+  private static final Linker linker = Linker.nativeLinker();
+  private static final SymbolLookup libjack = SymbolLookup.libraryLookup("libjack.so.0", Arena.global());
+
+  private static final MethodHandle jack_get_version = downcall("jack_get_version",
+          FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_client_open = downcall("jack_client_open",
+          FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT, ADDRESS, ADDRESS),
+          Linker.Option.firstVariadicArg(3));
+  private static final MethodHandle jack_client_close = downcall("jack_client_close",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  private static final MethodHandle jack_client_name_size = downcall("jack_client_name_size",
+          FunctionDescriptor.of(JAVA_INT));
+  private static final MethodHandle jack_get_client_name = downcall("jack_get_client_name",
+          FunctionDescriptor.of(ADDRESS, ADDRESS));
+  private static final MethodHandle jack_activate = downcall("jack_activate",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  private static final MethodHandle jack_deactivate = downcall("jack_deactivate",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  private static final MethodHandle jack_on_shutdown = downcall("jack_on_shutdown",
+          FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_set_process_callback = downcall("jack_set_process_callback",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_get_sample_rate = downcall("jack_get_sample_rate",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  private static final MethodHandle jack_get_buffer_size = downcall("jack_get_buffer_size",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  private static final MethodHandle jack_set_buffer_size_callback = downcall("jack_set_buffer_size_callback",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_set_sample_rate_callback = downcall("jack_set_sample_rate_callback",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_port_register = downcall("jack_port_register",
+          FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG, JAVA_LONG));
+  private static final MethodHandle jack_port_unregister = downcall("jack_port_unregister",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_port_name = downcall("jack_port_name",
+          FunctionDescriptor.of(ADDRESS, ADDRESS));
+  private static final MethodHandle jack_port_short_name = downcall("jack_port_short_name",
+          FunctionDescriptor.of(ADDRESS, ADDRESS));
+  private static final MethodHandle jack_port_get_buffer = downcall("jack_port_get_buffer",
+          FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT), Linker.Option.critical(false));
+  private static final MethodHandle jack_connect = downcall("jack_connect",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_disconnect = downcall("jack_disconnect",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_port_get_all_connections = downcall("jack_port_get_all_connections",
+          FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_port_name_size = downcall("jack_port_name_size",
+          FunctionDescriptor.of(JAVA_INT));
+  private static final MethodHandle jack_port_type_size = downcall("jack_port_type_size",
+          FunctionDescriptor.of(JAVA_INT));
+  private static final MethodHandle jack_get_ports = downcall("jack_get_ports",
+          FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG));
+  private static final MethodHandle jack_port_by_name = downcall("jack_port_by_name",
+          FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_free = downcall("jack_free",
+          FunctionDescriptor.ofVoid(ADDRESS));
+  private static final MethodHandle jack_cycle_wait = downcall("jack_cycle_wait",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  private static final MethodHandle jack_cycle_signal = downcall("jack_cycle_signal",
+          FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT));
+  private static final MethodHandle jack_last_frame_time = downcall("jack_last_frame_time",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS), Linker.Option.critical(false));
+  private static final MethodHandle jack_frame_time = downcall("jack_frame_time",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS), Linker.Option.critical(false));
+  private static final MethodHandle jack_frames_since_cycle_start = downcall("jack_frames_since_cycle_start",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS), Linker.Option.critical(false));
+  private static final MethodHandle jack_frames_to_time = downcall("jack_frames_to_time",
+          FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT), Linker.Option.critical(false));
+  private static final MethodHandle jack_time_to_frames = downcall("jack_time_to_frames",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG), Linker.Option.critical(false));
+  private static final MethodHandle jack_set_freewheel = downcall("jack_set_freewheel",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+  private static final MethodHandle jack_set_freewheel_callback = downcall("jack_set_freewheel_callback",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+  private static final MethodHandle jack_set_process_thread = downcall("jack_set_process_thread",
+          FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+
+  /**
+   * Process, buffer size and sample rate callbacks: `int (*)(jack_nframes_t, void *)`.
+   */
+  private static final FunctionDescriptor processCallbackDescriptor =
+          FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor shutdownCallbackDescriptor =
+          FunctionDescriptor.ofVoid(ADDRESS);
+  private static final FunctionDescriptor freewheelCallbackDescriptor =
+          FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor threadCallbackDescriptor =
+          FunctionDescriptor.of(ADDRESS, ADDRESS);
+  private static final MethodHandle onProcess;
+  private static final MethodHandle onShutdown;
+  private static final MethodHandle onProcessThread;
+  private static final MethodHandle onBufferSize;
+  private static final MethodHandle onFreewheel;
+  private static final MethodHandle onSampleRate;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      onProcess = lookup.findStatic(PanamaJack.class, "onProcess",
+              MethodType.methodType(int.class, ProcessListener.class, PanamaClientHandle.class,
+                      int.class, MemorySegment.class));
+      onShutdown = lookup.findStatic(PanamaJack.class, "onShutdown",
+              MethodType.methodType(void.class, ShutdownListener.class, MemorySegment.class));
+      onProcessThread = lookup.findStatic(PanamaJack.class, "onProcessThread",
+              MethodType.methodType(MemorySegment.class, ProcessThreadListener.class, MemorySegment.class));
+      onFreewheel = lookup.findStatic(PanamaJack.class, "onFreewheel",
+              MethodType.methodType(void.class, PanamaClientHandle.class, int.class, MemorySegment.class));
+      onBufferSize = lookup.findStatic(PanamaJack.class, "onBufferSize",
+              MethodType.methodType(int.class, BufferSizeListener.class, int.class, MemorySegment.class));
+      onSampleRate = lookup.findStatic(PanamaJack.class, "onSampleRate",
+              MethodType.methodType(int.class, SampleRateListener.class, int.class, MemorySegment.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * Called by `Jack.backend(..)` through reflection.
+   */
+  public PanamaJack() {
+    super(false);
+  }
+
+  private static MethodHandle downcall(String name, FunctionDescriptor descriptor, Linker.Option... options) {
+    MemorySegment symbol = libjack.find(name)
+            .orElseThrow(() -> new UnsatisfiedLinkError("libjack does not export " + name));
+    return linker.downcallHandle(symbol, descriptor, options);
+  }
+
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException) return (RuntimeException) t;
+    if (t instanceof Error) throw (Error) t;
+    return new RuntimeException(t);
+  }
+
+  private static String stringAt(MemorySegment cString) {
+    if (cString.equals(MemorySegment.NULL)) return null;
+    return cString.reinterpret(Long.MAX_VALUE).getString(0);
+  }
+
+  /**
+   * Read a NULL terminated array of strings allocated by JACK, and free it.
+   */
+  private static List<String> takeStrings(MemorySegment strings) throws Throwable {
+    List<String> result = new ArrayList<>();
+    if (strings.equals(MemorySegment.NULL)) return result;
+    try {
+      MemorySegment array = strings.reinterpret(Long.MAX_VALUE);
+      for (long i = 0; ; i++) {
+        MemorySegment string = array.getAtIndex(ADDRESS, i);
+        if (string.equals(MemorySegment.NULL)) break;
+        result.add(stringAt(string));
+      }
+      return result;
+    } finally {
+      jack_free.invokeExact(strings);
+    }
+  }
+
+  private static MemorySegment cStringOrNull(Arena arena, String s) {
+    return (s == null) ? MemorySegment.NULL : arena.allocateFrom(s);
+  }
+
+  private static PanamaClientHandle clientOf(ClientHandle client) {
+    if (!(client instanceof PanamaClientHandle)) throw new RuntimeException("Invalid client handle");
+    return (PanamaClientHandle) client;
+  }
+
+  private static PanamaPortHandle portOf(PortHandle port) {
+    if (!(port instanceof PanamaPortHandle)) throw new RuntimeException("Invalid port handle");
+    return (PanamaPortHandle) port;
+  }
+
+  private static PanamaPortSet portSetOf(PortSet portSet) {
+    if (!(portSet instanceof PanamaPortSet)) throw new RuntimeException("Invalid port set");
+    return (PanamaPortSet) portSet;
+  }
+
+  /**
+   * Target of the process upcall. An exception must not unwind into JACK, it would abort the VM.
+   */
+  private static int onProcess(ProcessListener listener, PanamaClientHandle client, int nframes, MemorySegment arg) {
+    try {
+      client.clock.begin(lastFrameTime(client), nframes);
+      return listener.onProcess(nframes);
+    } catch (Throwable t) {
+      return -1;
+    } finally {
+      client.clock.end();
+      client.cycleDone(nframes);
+    }
+  }
+
+  private static long lastFrameTime(PanamaClientHandle client) throws Throwable {
+    return Integer.toUnsignedLong((int) jack_last_frame_time.invokeExact(client.segment()));
+  }
+
+  /**
+   * The frame clock of a client of this backend.
+   */
+  static final class PanamaFrameClock implements FrameClock {
+
+    private final PanamaClientHandle client;
+
+    PanamaFrameClock(PanamaClientHandle client) {
+      this.client = client;
+    }
+
+    @Override
+    public long frameTime() {
+      if (!client.isValid()) return -1;
+      try {
+        return Integer.toUnsignedLong((int) jack_frame_time.invokeExact(client.segment()));
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    public long lastFrameTime() {
+      if (!client.isValid()) return -1;
+      long cached = client.clock.lastFrameTime();
+      if (cached >= 0) return cached;
+      try {
+        return PanamaJack.lastFrameTime(client);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    public int framesSinceCycleStart() {
+      if (!client.isValid()) return -1;
+      try {
+        return (int) jack_frames_since_cycle_start.invokeExact(client.segment());
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    public long framesToTime(long frames) {
+      if (!client.isValid()) return -1;
+      try {
+        return (long) jack_frames_to_time.invokeExact(client.segment(), (int) frames);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    public long timeToFrames(long usecs) {
+      if (!client.isValid()) return -1;
+      try {
+        return Integer.toUnsignedLong((int) jack_time_to_frames.invokeExact(client.segment(), usecs));
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  /**
+   * Target of the process thread upcall. The listener loops until the client shuts down.
+   */
+  private static MemorySegment onProcessThread(ProcessThreadListener listener, MemorySegment arg) {
+    try {
+      listener.onProcessThread();
+    } catch (Throwable ignored) {
+    }
+    return MemorySegment.NULL;
+  }
+
+  /**
+   * Target of the freewheel upcall. Records the state and hands it over to the listener of the client.
+   */
+  private static void onFreewheel(PanamaClientHandle client, int starting, MemorySegment arg) {
+    client.freewheeling = (starting != 0);
+    try {
+      FreewheelListener listener = client.freewheelListener;
+      if (listener != null) listener.onFreewheel(starting != 0);
+    } catch (Throwable ignored) {
+    }
+  }
+
+  /**
+   * Target of the buffer size upcall, called from a notification thread.
+   */
+  private static int onBufferSize(BufferSizeListener listener, int nframes, MemorySegment arg) {
+    try {
+      return listener.onBufferSize(nframes);
+    } catch (Throwable t) {
+      return -1;
+    }
+  }
+
+  /**
+   * Target of the sample rate upcall, called from a notification thread.
+   */
+  private static int onSampleRate(SampleRateListener listener, int sampleRate, MemorySegment arg) {
+    try {
+      return listener.onSampleRate(sampleRate);
+    } catch (Throwable t) {
+      return -1;
+    }
+  }
+
+  /**
+   * Target of the shutdown upcall.
+   */
+  private static void onShutdown(ShutdownListener listener, MemorySegment arg) {
+    try {
+      listener.onShutdown();
+    } catch (Throwable ignored) {
+    }
+  }
+
+  @Override
+  public void setLoggingLevel(Level level) {
+    // there is no native logging in this backend.
+  }
+
+  @Override
+  public int getJniVersion() {
+    return 0;
+  }
+
+  @Override
+  public void getJackVersion(Int majorRef, Int minorRef, Int microRef, Int protoRef) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment versions = arena.allocate(JAVA_INT, 4);
+      jack_get_version.invokeExact(versions, versions.asSlice(4), versions.asSlice(8), versions.asSlice(12));
+      if (majorRef != null) majorRef.value = versions.getAtIndex(JAVA_INT, 0);
+      if (minorRef != null) minorRef.value = versions.getAtIndex(JAVA_INT, 1);
+      if (microRef != null) microRef.value = versions.getAtIndex(JAVA_INT, 2);
+      if (protoRef != null) protoRef.value = versions.getAtIndex(JAVA_INT, 3);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public ClientHandle clientOpen(String clientName,
+                                 OpenOption[] openOptions,
+                                 OpenStatus returnStatus,
+                                 String serverName) {
+    int openOptionsN = OpenOption.arrayToInt(openOptions);
+    if (serverName != null) {
+      openOptionsN |= OpenOption.ServerName.asInt();
+    }
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment status = arena.allocate(JAVA_INT);
+      MemorySegment client = (MemorySegment) jack_client_open.invokeExact(
+              arena.allocateFrom(clientName), openOptionsN, status, cStringOrNull(arena, serverName));
+      if (returnStatus != null) {
+        returnStatus.statusBits = status.get(JAVA_INT, 0);
+      }
+      if (client.equals(MemorySegment.NULL)) return null;
+      PanamaClientHandle handle = new PanamaClientHandle(client);
+      // know when the server is freewheeling from the very start, as the JNI backend does.
+      MemorySegment stub = linker.upcallStub(onFreewheel.bindTo(handle),
+              freewheelCallbackDescriptor, handle.arena());
+      int ignored = (int) jack_set_freewheel_callback.invokeExact(client, stub, MemorySegment.NULL);
+      return handle;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int clientClose(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      int result = (int) jack_client_close.invokeExact(handle.segment());
+      handle.invalidate();
+      return result;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int clientNameSize() {
+    try {
+      return (int) jack_client_name_size.invokeExact() - 1;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public String getClientName(ClientHandle client) {
+    final String invalidClient = "Invalid Client";
+    if (client == null) return invalidClient;
+    if (!client.isValid()) return invalidClient;
+    try {
+      return stringAt((MemorySegment) jack_get_client_name.invokeExact(clientOf(client).segment()));
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int activate(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    try {
+      return (int) jack_activate.invokeExact(clientOf(client).segment());
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int deactivate(ClientHandle client) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    try {
+      return (int) jack_deactivate.invokeExact(clientOf(client).segment());
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int registerShutdownListener(ClientHandle client, ShutdownListener shutdownListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (shutdownListener == null) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      MemorySegment stub = linker.upcallStub(onShutdown.bindTo(shutdownListener),
+              shutdownCallbackDescriptor, handle.arena());
+      jack_on_shutdown.invokeExact(handle.segment(), stub, MemorySegment.NULL);
+      return 0;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int registerProcessListener(ClientHandle client, ProcessListener processListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (processListener == null) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      MemorySegment stub = linker.upcallStub(MethodHandles.insertArguments(onProcess, 0, processListener, handle),
+              processCallbackDescriptor, handle.arena());
+      return (int) jack_set_process_callback.invokeExact(handle.segment(), stub, MemorySegment.NULL);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int registerProcessThread(ClientHandle client, ProcessThreadListener processThreadListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (processThreadListener == null) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      MemorySegment stub = linker.upcallStub(onProcessThread.bindTo(processThreadListener),
+              threadCallbackDescriptor, handle.arena());
+      return (int) jack_set_process_thread.invokeExact(handle.segment(), stub, MemorySegment.NULL);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int registerFreewheelListener(ClientHandle client, FreewheelListener freewheelListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    clientOf(client).freewheelListener = freewheelListener;
+    return 0;
+  }
+
+  @Override
+  public int setFreewheel(ClientHandle client, boolean onoff) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    try {
+      return (int) jack_set_freewheel.invokeExact(clientOf(client).segment(), onoff ? 1 : 0);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public boolean isFreewheeling(ClientHandle client) {
+    if (client == null) return false;
+    if (!client.isValid()) return false;
+    return clientOf(client).freewheeling;
+  }
+
+  @Override
+  public long render(ClientHandle client, long frames, long timeoutMillis) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (frames <= 0) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    RenderCountdown countdown = new RenderCountdown(frames);
+    if (!handle.render.compareAndSet(null, countdown)) return -1;
+    try {
+      if (setFreewheel(client, true) != 0) return -1;
+      try {
+        countdown.await(timeoutMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        setFreewheel(client, false);
+      }
+      return countdown.getRendered();
+    } finally {
+      handle.render.compareAndSet(countdown, null);
+    }
+  }
+
+  @Override
+  public int registerBufferSizeListener(ClientHandle client, BufferSizeListener bufferSizeListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (bufferSizeListener == null) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      MemorySegment stub = linker.upcallStub(onBufferSize.bindTo(bufferSizeListener),
+              processCallbackDescriptor, handle.arena());
+      return (int) jack_set_buffer_size_callback.invokeExact(handle.segment(), stub, MemorySegment.NULL);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int registerSampleRateListener(ClientHandle client, SampleRateListener sampleRateListener) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (sampleRateListener == null) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      MemorySegment stub = linker.upcallStub(onSampleRate.bindTo(sampleRateListener),
+              processCallbackDescriptor, handle.arena());
+      return (int) jack_set_sample_rate_callback.invokeExact(handle.segment(), stub, MemorySegment.NULL);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int cycleWait(ClientHandle client) {
+    if (client == null) return 0;
+    if (!client.isValid()) return 0;
+    PanamaClientHandle handle = clientOf(client);
+    try {
+      int nframes = (int) jack_cycle_wait.invokeExact(handle.segment());
+      if (nframes > 0) handle.clock.begin(lastFrameTime(handle), nframes);
+      return nframes;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public void cycleSignal(ClientHandle client, int status) {
+    if (client == null) return;
+    if (!client.isValid()) return;
+    PanamaClientHandle handle = clientOf(client);
+    long lastFrameTime = handle.clock.lastFrameTime();
+    int nframes = (int) (handle.clock.validThru() - lastFrameTime);
+    handle.clock.end();
+    if (lastFrameTime >= 0) handle.cycleDone(nframes);
+    try {
+      jack_cycle_signal.invokeExact(handle.segment(), status);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int getSampleRate(ClientHandle client) {
+    if (client == null) return 0;
+    if (!client.isValid()) return 0;
+    try {
+      return (int) jack_get_sample_rate.invokeExact(clientOf(client).segment());
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int getBufferSize(ClientHandle client) {
+    if (client == null) return 0;
+    if (!client.isValid()) return 0;
+    try {
+      return (int) jack_get_buffer_size.invokeExact(clientOf(client).segment());
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public PortHandle portRegister(ClientHandle client,
+                                 String portName,
+                                 PortType portType,
+                                 Set<PortFlag> portFlags,
+                                 long bufferSize) {
+    long portFlagsN = PortFlag.setToLong(portFlags);
+    PanamaClientHandle handle = clientOf(client);
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment port = (MemorySegment) jack_port_register.invokeExact(handle.segment(),
+              arena.allocateFrom(portName), arena.allocateFrom(portType.toString()), portFlagsN, bufferSize);
+      if (port.equals(MemorySegment.NULL)) return null;
+      return handle.canonical(port);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portUnregister(ClientHandle client, PortHandle port) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    if (port == null) return -1;
+    if (!port.isValid()) return -1;
+    PanamaClientHandle clientHandle = clientOf(client);
+    PanamaPortHandle portHandle = portOf(port);
+    try {
+      int error = (int) jack_port_unregister.invokeExact(clientHandle.segment(), portHandle.segment());
+      clientHandle.forget(portHandle);
+      portHandle.invalidate();
+      return error;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public String portName(PortHandle port) {
+    if (port == null) return "invalid-port";
+    if (!port.isValid()) return "invalid-port";
+    try {
+      return stringAt((MemorySegment) jack_port_name.invokeExact(portOf(port).segment()));
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public String portShortName(PortHandle port) {
+    if (port == null) return "invalid-port";
+    if (!port.isValid()) return "invalid-port";
+    try {
+      return stringAt((MemorySegment) jack_port_short_name.invokeExact(portOf(port).segment()));
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  /**
+   * @return the native audio buffer of the given port, sized to `nframes` floats, or `null` on error.
+   */
+  private static MemorySegment portBuffer(PanamaPortHandle port, int nframes) throws Throwable {
+    if (nframes <= 0) return null;
+    MemorySegment buffer = (MemorySegment) jack_port_get_buffer.invokeExact(port.segment(), nframes);
+    if (buffer.equals(MemorySegment.NULL)) return null;
+    return buffer.reinterpret((long) nframes * FLOAT_SIZE);
+  }
+
+  @Override
+  public ImmutableAudioSlice portGetAudioData(PortHandle port, int nframes) {
+    if (port == null) return null;
+    if (!port.isValid()) return null;
+    PanamaPortHandle portHandle = portOf(port);
+    try {
+      MemorySegment buffer = portBuffer(portHandle, nframes);
+      if (buffer == null) return null;
+      ImmutableAudioSlice view = portHandle.getAudioView(buffer.address(), nframes);
+      if (view == null) {
+        // JACK has moved the buffer, we have to re-point our view.
+        FloatBuffer floatBuffer = buffer.asByteBuffer().order(ByteOrder.nativeOrder()).asFloatBuffer();
+        view = Manager.wrap(floatBuffer, portHandle.clock);
+        portHandle.setAudioView(view, buffer.address());
+      } else {
+        ((InternalAudioSlice) view).renew();
+      }
+      return view;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portGetAudioData(PortHandle port, int nframes, MutableAudioSlice inputContainer) {
+    if (port == null) return -1;
+    if (!port.isValid()) return -1;
+    PanamaPortHandle portHandle = portOf(port);
+    if (inputContainer == null) return -1;
+    if (inputContainer.isExpired()) return -1;
+    final FloatBuffer internalBuffer = ((InternalAudioSlice) inputContainer).accessInternalBuffer();
+    if (!internalBuffer.isDirect()) return -1;
+    try {
+      MemorySegment buffer = portBuffer(portHandle, nframes);
+      if (buffer == null) return -1;
+      MemorySegment target = MemorySegment.ofBuffer(internalBuffer);
+      long bytes = Math.min(buffer.byteSize(), target.byteSize());
+      MemorySegment.copy(buffer, 0, target, 0, bytes);
+      return 0;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portSendAudioData(PortHandle outputPort, int nframes, float[] output) {
+    if (outputPort == null) return -1;
+    if (!outputPort.isValid()) return -1;
+    if (output == null) return -1;
+    PanamaPortHandle portHandle = portOf(outputPort);
+    try {
+      MemorySegment buffer = portBuffer(portHandle, nframes);
+      if (buffer == null) return -1;
+      int count = Math.min(nframes, output.length);
+      MemorySegment.copy(output, 0, buffer, JAVA_FLOAT, 0, count);
+      buffer.asSlice((long) count * FLOAT_SIZE).fill((byte) 0);
+      return 0;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portSendAudioData(PortHandle outputPort, int nframes, ImmutableAudioSlice output) {
+    if (outputPort == null) return -1;
+    if (!outputPort.isValid()) return -1;
+    if (output == null) return -1;
+    if (output.isExpired()) return -1;
+    PanamaPortHandle portHandle = portOf(outputPort);
+    final FloatBuffer internalBuffer = ((InternalAudioSlice) output).accessInternalBuffer();
+    if (!internalBuffer.isDirect()) return -1;
+    try {
+      MemorySegment buffer = portBuffer(portHandle, nframes);
+      if (buffer == null) return -1;
+      MemorySegment source = MemorySegment.ofBuffer(internalBuffer);
+      long bytes = Math.min(buffer.byteSize(), Math.min(source.byteSize(), (long) output.length() * FLOAT_SIZE));
+      MemorySegment.copy(source, 0, buffer, 0, bytes);
+      buffer.asSlice(bytes).fill((byte) 0);
+      return 0;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public PortSet portSetCreate(PortHandle[] inputs, PortHandle[] outputs, int capacity) {
+    if (inputs == null) inputs = new PortHandle[0];
+    if (outputs == null) outputs = new PortHandle[0];
+    if (capacity <= 0) return null;
+    PanamaPortHandle[] inputPorts = new PanamaPortHandle[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      if (inputs[i] == null || !inputs[i].isValid()) return null;
+      inputPorts[i] = portOf(inputs[i]);
+    }
+    PanamaPortHandle[] outputPorts = new PanamaPortHandle[outputs.length];
+    for (int i = 0; i < outputs.length; i++) {
+      if (outputs[i] == null || !outputs[i].isValid()) return null;
+      outputPorts[i] = portOf(outputs[i]);
+    }
+    return new PanamaPortSet(inputPorts, outputPorts, capacity);
+  }
+
+  @Override
+  public int portSetRelease(PortSet portSet) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    portSetOf(portSet).invalidate();
+    return 0;
+  }
+
+  @Override
+  public int portSetFetch(PortSet portSet, int nframes) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    PanamaPortSet set = portSetOf(portSet);
+    if (nframes <= 0 || nframes > set.getCapacity()) return -1;
+    set.prepareFrames(nframes);
+    long bytes = (long) nframes * FLOAT_SIZE;
+    try {
+      for (int i = 0; i < set.inputPorts.length; i++) {
+        MemorySegment buffer = portBuffer(set.inputPorts[i], nframes);
+        if (buffer == null) return -1;
+        MemorySegment.copy(buffer, 0, set.inputSegments[i], 0, bytes);
+      }
+      return 0;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portSetPublish(PortSet portSet, int nframes) {
+    if (portSet == null) return -1;
+    if (!portSet.isValid()) return -1;
+    PanamaPortSet set = portSetOf(portSet);
+    if (nframes <= 0 || nframes > set.getCapacity()) return -1;
+    set.prepareFrames(nframes);
+    long bytes = (long) nframes * FLOAT_SIZE;
+    try {
+      for (int i = 0; i < set.outputPorts.length; i++) {
+        MemorySegment buffer = portBuffer(set.outputPorts[i], nframes);
+        if (buffer == null) return -1;
+        MemorySegment.copy(set.outputSegments[i], 0, buffer, 0, bytes);
+      }
+      return 0;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int connect(ClientHandle client, String sourcePort, String destinationPort) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try (Arena arena = Arena.ofConfined()) {
+      return (int) jack_connect.invokeExact(handle.segment(),
+              arena.allocateFrom(sourcePort), arena.allocateFrom(destinationPort));
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int disconnect(ClientHandle client, String sourcePort, String destinationPort) {
+    if (client == null) return -1;
+    if (!client.isValid()) return -1;
+    PanamaClientHandle handle = clientOf(client);
+    try (Arena arena = Arena.ofConfined()) {
+      return (int) jack_disconnect.invokeExact(handle.segment(),
+              arena.allocateFrom(sourcePort), arena.allocateFrom(destinationPort));
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public Snapshot patchbaySnapshot(ClientHandle client) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    PanamaClientHandle handle = clientOf(client);
+    try (Arena arena = Arena.ofConfined()) {
+      List<String> outputs = takeStrings((MemorySegment) jack_get_ports.invokeExact(handle.segment(),
+              MemorySegment.NULL, MemorySegment.NULL, PortFlag.isOutput.getBits()));
+      List<Connection> connections = new ArrayList<>();
+      for (String output : outputs) {
+        MemorySegment port = (MemorySegment) jack_port_by_name.invokeExact(handle.segment(),
+                arena.allocateFrom(output));
+        if (port.address() == 0) continue;
+        List<String> inputs = takeStrings((MemorySegment) jack_port_get_all_connections.invokeExact(
+                handle.segment(), port));
+        for (String input : inputs) {
+          connections.add(new Connection(output, input));
+        }
+      }
+      return new Snapshot(connections);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int[] patchbayApply(ClientHandle client, Diff diff) {
+    if (client == null) return null;
+    if (!client.isValid()) return null;
+    PanamaClientHandle handle = clientOf(client);
+    List<Connection> changes = diff.getChanges();
+    int disconnectCount = diff.getDisconnections().size();
+    int[] results = new int[changes.size()];
+    try {
+      for (int i = 0; i < results.length; i++) {
+        try (Arena arena = Arena.ofConfined()) {
+          MemorySegment source = arena.allocateFrom(changes.get(i).getSource());
+          MemorySegment destination = arena.allocateFrom(changes.get(i).getDestination());
+          results[i] = (i < disconnectCount)
+                  ? (int) jack_disconnect.invokeExact(handle.segment(), source, destination)
+                  : (int) jack_connect.invokeExact(handle.segment(), source, destination);
+        }
+      }
+      return results;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portNameSize() {
+    try {
+      // subtract one to account for the final NULL character.
+      return (int) jack_port_name_size.invokeExact() - 1;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public int portTypeSize() {
+    try {
+      // subtract one to account for the final NULL character.
+      return (int) jack_port_type_size.invokeExact() - 1;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public String[] getPorts(ClientHandle client,
+                           String portNamePattern,
+                           String typeNamePattern,
+                           Set<PortFlag> portFlags) {
+    String[] empty = new String[]{};
+    if (client == null) return empty;
+    if (!client.isValid()) return empty;
+    PanamaClientHandle handle = clientOf(client);
+    long portFlagsN = PortFlag.setToLong(portFlags);
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment names = (MemorySegment) jack_get_ports.invokeExact(handle.segment(),
+              cStringOrNull(arena, portNamePattern), cStringOrNull(arena, typeNamePattern), portFlagsN);
+      return takeStrings(names).toArray(empty);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public PortHandle portByName(ClientHandle client, String portName) {
+    if (client == null || !client.isValid()) throw new RuntimeException("Invalid client handle");
+    PanamaClientHandle handle = clientOf(client);
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment port = (MemorySegment) jack_port_by_name.invokeExact(handle.segment(),
+              arena.allocateFrom(portName));
+      if (port.address() == 0) return null;
+      return handle.canonical(port);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+}
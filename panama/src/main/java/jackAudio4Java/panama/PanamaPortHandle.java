@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.panama;
+
+import jackAudio4Java.buffers.CycleClock;
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.types.PortHandle;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link PanamaJack}.
+ */
+class PanamaPortHandle extends PortHandle {
+
+  /**
+   * A slice wrapping the JACK buffer of this port and the address it wraps.
+   * Only accessed from the process thread.
+   */
+  private ImmutableAudioSlice audioView;
+  private long audioViewAddress;
+
+  /**
+   * The clock of the client through which this handle was obtained.
+   */
+  final CycleClock clock;
+
+  PanamaPortHandle(MemorySegment port, CycleClock clock) {
+    super(port.address());
+    this.clock = clock;
+  }
+
+  MemorySegment segment() {
+    return MemorySegment.ofAddress(reference);
+  }
+
+  ImmutableAudioSlice getAudioView(long address, int nframes) {
+    if (audioView == null || address != audioViewAddress || audioView.length() != nframes) return null;
+    return audioView;
+  }
+
+  void setAudioView(ImmutableAudioSlice audioView, long address) {
+    this.audioView = audioView;
+    this.audioViewAddress = address;
+  }
+
+  /**
+   * Call this function when closing the port.
+   */
+  void invalidate() {
+    reference = 0;
+    audioView = null;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Harald Postner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jackAudio4Java.panama;
+
+import jackAudio4Java.buffers.ImmutableAudioSlice;
+import jackAudio4Java.buffers.InternalAudioSlice;
+import jackAudio4Java.buffers.Manager;
+import jackAudio4Java.buffers.MutableAudioSlice;
+import jackAudio4Java.types.PortSet;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.FloatBuffer;
+
+/**
+ * Instances of this class shall not be created by any object other than {@link PanamaJack}.
+ * <p>
+ * Each port of the set has its own direct buffer; the segments viewing these buffers are made
+ * once, so that exchanging the data in a cycle does not allocate.
+ */
+class PanamaPortSet extends PortSet {
+
+  final PanamaPortHandle[] inputPorts;
+  final PanamaPortHandle[] outputPorts;
+  final MemorySegment[] inputSegments;
+  final MemorySegment[] outputSegments;
+  private final int capacity;
+
+  /**
+   * The number of frames the slices have been prepared for.
+   */
+  private int frames;
+
+  PanamaPortSet(PanamaPortHandle[] inputPorts, PanamaPortHandle[] outputPorts, int capacity) {
+    // there is no native object behind this set, a non-zero reference marks it as valid.
+    this.reference = 1;
+    this.inputPorts = inputPorts;
+    this.outputPorts = outputPorts;
+    this.capacity = capacity;
+    this.frames = capacity;
+    inputs = new ImmutableAudioSlice[inputPorts.length];
+    inputSegments = new MemorySegment[inputPorts.length];
+    for (int i = 0; i < inputPorts.length; i++) {
+      FloatBuffer buffer = Manager.makeDirectFloatBuffer(capacity);
+      inputSegments[i] = MemorySegment.ofBuffer(buffer);
+      inputs[i] = Manager.wrap(buffer);
+    }
+    outputs = new MutableAudioSlice[outputPorts.length];
+    outputSegments = new MemorySegment[outputPorts.length];
+    for (int i = 0; i < outputPorts.length; i++) {
+      FloatBuffer buffer = Manager.makeDirectFloatBuffer(capacity);
+      outputSegments[i] = MemorySegment.ofBuffer(buffer);
+      outputs[i] = Manager.wrapMutable(buffer);
+    }
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Make the slices report the number of frames of the current cycle.
+   * This only costs something when the period size changes.
+   *
+   * @param nframes the number of frames in the current cycle.
+   */
+  void prepareFrames(int nframes) {
+    if (nframes == frames) return;
+    for (ImmutableAudioSlice input : inputs) {
+      ((InternalAudioSlice) input).accessInternalBuffer().limit(nframes);
+    }
+    for (MutableAudioSlice output : outputs) {
+      ((InternalAudioSlice) output).accessInternalBuffer().limit(nframes);
+    }
+    frames = nframes;
+  }
+
+  /**
+   * Call this function when releasing the port set.
+   */
+  void invalidate() {
+    reference = 0;
+  }
+}